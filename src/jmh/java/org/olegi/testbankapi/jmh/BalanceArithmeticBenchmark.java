@@ -0,0 +1,70 @@
+package org.olegi.testbankapi.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link BigDecimal} work {@code TransactionServiceImpl} does per operation in the ENTITY mode: the amount
+ * check, the new balance and, for a striped account, the balance after the operation including its slots. The
+ * service methods are private and wrapped in repository calls, so the same sequence of operations is measured
+ * here. Amounts are parsed from JSON as written, so a client sending {@code 2500.5} hands the service a scale
+ * different from the stored balance's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BalanceArithmeticBenchmark {
+
+    @Param({"2500.50", "2500.5", "0.01"})
+    public String amount;
+
+    @Param({"1000000.00", "12345678901234.56"})
+    public String balance;
+
+    private BigDecimal amountValue;
+    private BigDecimal balanceValue;
+    private BigDecimal slotsValue;
+
+    @Setup
+    public void setUp() {
+        amountValue = new BigDecimal(amount);
+        balanceValue = new BigDecimal(balance);
+        slotsValue = new BigDecimal("1234.56");
+    }
+
+    @Benchmark
+    public BigDecimal deposit() {
+        checkPositive(amountValue);
+        return balanceValue.add(amountValue);
+    }
+
+    @Benchmark
+    public BigDecimal withdraw() {
+        checkPositive(amountValue);
+        if (balanceValue.compareTo(amountValue) < 0) {
+            throw new IllegalArgumentException("Insufficient funds for withdrawal");
+        }
+        return balanceValue.subtract(amountValue);
+    }
+
+    @Benchmark
+    public BigDecimal stripedDeposit() {
+        checkPositive(amountValue);
+        return balanceValue.add(amountValue).add(slotsValue);
+    }
+
+    private static void checkPositive(BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than zero");
+        }
+    }
+}
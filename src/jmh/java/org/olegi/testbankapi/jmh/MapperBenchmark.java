@@ -0,0 +1,73 @@
+package org.olegi.testbankapi.jmh;
+
+import org.mapstruct.factory.Mappers;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.mapper.AccountMapper;
+import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct mappings on the request path: account to DTO and back, and a transaction entity or history row to
+ * the DTO returned by the history endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmark {
+
+    private final AccountMapper accountMapper = Mappers.getMapper(AccountMapper.class);
+    private final TransactionMapper transactionMapper = Mappers.getMapper(TransactionMapper.class);
+
+    private Account account;
+    private AccountDTO accountDTO;
+    private Transaction transaction;
+    private TransactionHistoryRow historyRow;
+
+    @Setup
+    public void setUp() {
+        account = new Account(1L, "1234567890", new BigDecimal("1000.00"), null);
+        accountDTO = new AccountDTO("1234567890", new BigDecimal("1000.00"));
+        LocalDateTime now = LocalDateTime.now();
+        UUID transferId = UUID.randomUUID();
+        transaction = new Transaction(1L, new BigDecimal("25.50"), now, TransactionTypes.TRANSFER,
+                new BigDecimal("974.50"), transferId, account);
+        historyRow = new TransactionHistoryRow(1L, new BigDecimal("25.50"), now, TransactionTypes.TRANSFER,
+                new BigDecimal("974.50"), transferId);
+    }
+
+    @Benchmark
+    public AccountDTO accountToAccountDTO() {
+        return accountMapper.accountToAccountDTO(account);
+    }
+
+    @Benchmark
+    public Account accountDTOToAccount() {
+        return accountMapper.accountDTOToAccount(accountDTO);
+    }
+
+    @Benchmark
+    public TransactionDTO transactionToTransactionDTO() {
+        return transactionMapper.transactionToTransactionDTO(transaction);
+    }
+
+    @Benchmark
+    public TransactionDTO historyRowToTransactionDTO() {
+        return transactionMapper.historyRowToTransactionDTO(historyRow);
+    }
+}
@@ -0,0 +1,61 @@
+package org.olegi.testbankapi.jmh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a history page, with the mapper configured the way Spring Boot configures the one the
+ * controllers use (ISO dates rather than timestamps, Java time module registered).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionJsonBenchmark {
+
+    @Param({"20", "1000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private List<TransactionDTO> transactions;
+
+    @Setup
+    public void setUp() {
+        writer = Jackson2ObjectMapperBuilder.json().build().writerFor(new TypeReference<List<TransactionDTO>>() {
+        });
+        TransactionTypes[] types = TransactionTypes.values();
+        LocalDateTime timestamp = LocalDateTime.of(2024, 12, 11, 10, 15, 30);
+        BigDecimal balance = new BigDecimal("100000.00");
+        transactions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            TransactionTypes type = types[i % types.length];
+            BigDecimal amount = BigDecimal.valueOf(100 + i * 7L, 2);
+            balance = balance.add(amount);
+            transactions.add(new TransactionDTO(amount, timestamp.plusMinutes(i), type, balance,
+                    type.name().startsWith("TRANSFER") ? UUID.randomUUID() : null));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return writer.writeValueAsBytes(transactions);
+    }
+}
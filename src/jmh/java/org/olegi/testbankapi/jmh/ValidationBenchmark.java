@@ -0,0 +1,67 @@
+package org.olegi.testbankapi.jmh;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean Validation of request bodies as {@code @Valid} runs it: {@code @NotNull}, {@code @Size}, the account
+ * number {@code @Pattern}, {@code @Positive} and {@code @Digits}. The invalid deposit breaks every constraint it
+ * can, so it also pays for building and interpolating the violation messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    private TransferRequestDTO transfer;
+    private DepositDTO deposit;
+    private DepositDTO invalidDeposit;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        transfer = new TransferRequestDTO("1234567890AB", "9876543210XY", new BigDecimal("2500.50"));
+        deposit = new DepositDTO("1234567890AB", new BigDecimal("1000.00"));
+        invalidDeposit = new DepositDTO("12345-67890", new BigDecimal("-10000000000.001"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TransferRequestDTO>> validTransfer() {
+        return validator.validate(transfer);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<DepositDTO>> validDeposit() {
+        return validator.validate(deposit);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<DepositDTO>> invalidDeposit() {
+        return validator.validate(invalidDeposit);
+    }
+}
@@ -0,0 +1,14 @@
+package org.olegi.testbankapi.archive;
+
+import org.olegi.testbankapi.enums.TransactionTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A {@code transaction} row as it is written to an archive segment.
+ */
+public record ArchivedTransaction(long accountId, long id, LocalDateTime timeStamp, TransactionTypes transactionType,
+                                  BigDecimal amount, BigDecimal balanceAfter, UUID transferId) {
+}
@@ -0,0 +1,273 @@
+package org.olegi.testbankapi.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.TransactionArchiveProperties;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Archived transactions: one directory per archived partition, holding its segment files and, once every segment
+ * is written, a completion marker. Only complete partitions are served. Segments are memory-mapped when they are
+ * loaded and their headers kept in memory as an index, so a history query only touches the pages of segments
+ * whose account and time range it overlaps.
+ * <p>
+ * Partitions are archived oldest first, so the archive holds every transaction stamped up to
+ * {@link #archivedUpTo()} and the table every later one; readers that combine both split their time range there.
+ * <p>
+ * The directory is shared by every instance, and whichever holds the archiver lock adds partitions to it. Each read
+ * therefore lists the directory first and starts serving partitions completed since, so a partition is served
+ * everywhere from the moment its marker is written, which is before it is dropped from the table.
+ */
+@Component
+@Slf4j
+public class TransactionArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String COMPLETE_MARKER = "COMPLETE";
+
+    private static final Comparator<TransactionHistoryRow> HISTORY_ORDER =
+            Comparator.comparing(TransactionHistoryRow::timeStamp).thenComparing(TransactionHistoryRow::id);
+
+    private record Segment(String partition, ByteBuffer buffer, TransactionSegmentCodec.Header header) {
+    }
+
+    private final Path directory;
+    // Not a monitor: loading maps files, and a request thread waiting on it may be virtual.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Replaced as a whole, in minimum timestamp order, so readers never see a partially updated list.
+    private volatile List<Segment> segments = List.of();
+    private volatile Set<String> served = Set.of();
+    private volatile LocalDateTime archivedUpTo;
+
+    public TransactionArchive(TransactionArchiveProperties properties) {
+        this.directory = Path.of(properties.getDirectory());
+        refresh();
+        if (Files.isDirectory(directory)) {
+            log.info("Transaction archive {}: {} segments", directory, segments.size());
+        }
+    }
+
+    /**
+     * Up to {@code limit} archived rows of the account stamped in {@code [from, to]} after the given position,
+     * in {@code (timeStamp, id)} order.
+     */
+    public List<TransactionHistoryRow> findHistoryPage(long accountId, LocalDateTime from, LocalDateTime to,
+                                                       LocalDateTime afterTimeStamp, long afterId, int limit) {
+        refresh();
+        TransactionHistoryRow after = new TransactionHistoryRow(afterId, null, afterTimeStamp, null, null, null);
+        List<TransactionHistoryRow> rows = new ArrayList<>();
+        for (Segment segment : segments) {
+            TransactionSegmentCodec.Header header = segment.header();
+            // Later segments start even later, so once a full page ends before this one starts, it is final.
+            if (rows.size() >= limit && header.minTimeStamp().isAfter(rows.get(limit - 1).timeStamp())) {
+                break;
+            }
+            if (!header.overlaps(accountId, from, to) || header.maxTimeStamp().isBefore(afterTimeStamp)) {
+                continue;
+            }
+            for (TransactionHistoryRow row : TransactionSegmentCodec.decode(segment.buffer(), header, accountId)) {
+                if (!row.timeStamp().isBefore(from) && !row.timeStamp().isAfter(to)
+                        && HISTORY_ORDER.compare(row, after) > 0) {
+                    rows.add(row);
+                }
+            }
+            rows.sort(HISTORY_ORDER);
+            if (rows.size() > limit) {
+                rows.subList(limit, rows.size()).clear();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * The newest timestamp in the served segments, or {@code null} while nothing is archived. Every transaction
+     * stamped up to it is in the archive; the table may still hold some of them while their partition is dropped.
+     */
+    public LocalDateTime archivedUpTo() {
+        refresh();
+        return archivedUpTo;
+    }
+
+    /**
+     * Sum of the archived balance changes of the account stamped in {@code (after, upTo]}, signed the same way as
+     * in the table: deposits and incoming transfers add to the balance, everything else takes from it.
+     */
+    public BigDecimal sumChanges(long accountId, LocalDateTime after, LocalDateTime upTo) {
+        refresh();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Segment segment : segments) {
+            TransactionSegmentCodec.Header header = segment.header();
+            if (header.minTimeStamp().isAfter(upTo)) {
+                break;
+            }
+            if (!header.overlaps(accountId, after, upTo)) {
+                continue;
+            }
+            for (TransactionHistoryRow row : TransactionSegmentCodec.decode(segment.buffer(), header, accountId)) {
+                if (row.timeStamp().isAfter(after) && !row.timeStamp().isAfter(upTo)) {
+                    sum = isCredit(row.transactionType()) ? sum.add(row.amount()) : sum.subtract(row.amount());
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Whether every segment of the partition has been written and marked complete, by any instance.
+     */
+    public boolean isComplete(String partition) {
+        return Files.exists(directory.resolve(partition).resolve(COMPLETE_MARKER));
+    }
+
+    /**
+     * Writes the next segment of a partition that is being archived; it is not served before {@link #complete}.
+     */
+    public void writeSegment(String partition, int number, List<ArchivedTransaction> rows) {
+        Path partitionDirectory = directory.resolve(partition);
+        Path file = partitionDirectory.resolve("%06d%s".formatted(number, SEGMENT_SUFFIX));
+        Path temporary = partitionDirectory.resolve(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(partitionDirectory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(TransactionSegmentCodec.encode(rows)));
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Marks the partition's segments as complete and starts serving them.
+     */
+    public void complete(String partition) {
+        Path partitionDirectory = directory.resolve(partition);
+        try {
+            Files.createDirectories(partitionDirectory);
+            try (FileChannel channel = FileChannel.open(partitionDirectory.resolve(COMPLETE_MARKER),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        refresh();
+    }
+
+    /**
+     * Stops serving the partition and deletes whatever was written for it.
+     */
+    public void discard(String partition) {
+        Path partitionDirectory = directory.resolve(partition);
+        if (!Files.isDirectory(partitionDirectory)) {
+            return;
+        }
+        try {
+            // The marker goes first, so no instance starts serving a partition whose segments are being deleted.
+            Files.deleteIfExists(partitionDirectory.resolve(COMPLETE_MARKER));
+            refresh();
+            try (Stream<Path> files = Files.list(partitionDirectory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(partitionDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serves exactly the partitions that are complete in the directory. Costs a directory listing while nothing
+     * has changed; a partition that appeared is mapped once, by whichever read notices it first.
+     */
+    private void refresh() {
+        if (completePartitions().equals(served)) {
+            return;
+        }
+        lock.lock();
+        try {
+            Set<String> complete = completePartitions();
+            if (complete.equals(served)) {
+                return;
+            }
+            List<Segment> all = new ArrayList<>(segments.stream()
+                    .filter(segment -> complete.contains(segment.partition()))
+                    .toList());
+            for (String partition : complete) {
+                if (!served.contains(partition)) {
+                    all.addAll(load(directory.resolve(partition)));
+                }
+            }
+            all.sort(Comparator.comparing(segment -> segment.header().minTimeStamp()));
+            segments = List.copyOf(all);
+            archivedUpTo = newestTimeStamp(segments);
+            served = complete;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Set<String> completePartitions() {
+        if (!Files.isDirectory(directory)) {
+            return Set.of();
+        }
+        try (Stream<Path> partitions = Files.list(directory)) {
+            return partitions.filter(partition -> Files.exists(partition.resolve(COMPLETE_MARKER)))
+                    .map(partition -> partition.getFileName().toString())
+                    .collect(Collectors.toUnmodifiableSet());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Segment> load(Path partitionDirectory) {
+        String partition = partitionDirectory.getFileName().toString();
+        List<Segment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(partitionDirectory)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(SEGMENT_SUFFIX)).sorted().toList()) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    // The mapping stays valid after the channel is closed, and after the file is deleted.
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    loaded.add(new Segment(partition, buffer, TransactionSegmentCodec.readHeader(buffer)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return loaded;
+    }
+
+    private static LocalDateTime newestTimeStamp(List<Segment> segments) {
+        return segments.stream()
+                .map(segment -> segment.header().maxTimeStamp())
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+    private static boolean isCredit(TransactionTypes type) {
+        return type == TransactionTypes.DEPOSIT || type == TransactionTypes.TRANSFER_IN;
+    }
+}
@@ -0,0 +1,309 @@
+package org.olegi.testbankapi.archive;
+
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Columnar binary form of archived transactions, sorted by {@code (account_id, time_stamp, id)}.
+ * <p>
+ * The header holds the row count, the min/max account id and timestamp (the segment index) and the dictionary of
+ * transaction types, followed by the compressed and raw length of each column. The columns are deflated
+ * separately: account ids as runs of {@code (delta, length)}, ids and timestamps (epoch microseconds) as deltas
+ * from the previous row, types as one dictionary byte per row, amounts and balances as longs scaled by
+ * {@code 10^SCALE}, and transfer ids as a presence byte plus 16 bytes. Every number except the type is a zigzag
+ * varint, so a typical row takes a few bytes before compression.
+ */
+final class TransactionSegmentCodec {
+
+    static final int MAGIC = 0x54585347; // "TXSG"
+    private static final byte VERSION = 1;
+    private static final int SCALE = 2;
+    private static final int COLUMNS = 7;
+
+    private TransactionSegmentCodec() {
+    }
+
+    /**
+     * Min/max index of a segment and where its columns start.
+     */
+    record Header(int rowCount, long minAccountId, long maxAccountId, LocalDateTime minTimeStamp,
+                  LocalDateTime maxTimeStamp, TransactionTypes[] types, int[] compressedLengths, int[] rawLengths,
+                  int columnsOffset) {
+
+        boolean overlaps(long accountId, LocalDateTime from, LocalDateTime to) {
+            return accountId >= minAccountId && accountId <= maxAccountId
+                    && !maxTimeStamp.isBefore(from) && !minTimeStamp.isAfter(to);
+        }
+    }
+
+    /**
+     * Encodes a non-empty list of rows, which must already be in {@code (accountId, timeStamp, id)} order.
+     */
+    static byte[] encode(List<ArchivedTransaction> rows) {
+        Map<TransactionTypes, Integer> dictionary = new LinkedHashMap<>();
+        ByteArrayOutputStream accounts = new ByteArrayOutputStream();
+        ByteArrayOutputStream ids = new ByteArrayOutputStream();
+        ByteArrayOutputStream timeStamps = new ByteArrayOutputStream();
+        ByteArrayOutputStream types = new ByteArrayOutputStream();
+        ByteArrayOutputStream amounts = new ByteArrayOutputStream();
+        ByteArrayOutputStream balances = new ByteArrayOutputStream();
+        ByteArrayOutputStream transferIds = new ByteArrayOutputStream();
+
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        long previousAccount = 0;
+        long previousId = 0;
+        long previousTime = 0;
+        int runStart = 0;
+        List<long[]> runs = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            ArchivedTransaction row = rows.get(i);
+            if (i > 0 && row.accountId() != rows.get(i - 1).accountId()) {
+                runs.add(new long[]{rows.get(i - 1).accountId(), i - runStart});
+                runStart = i;
+            }
+            long time = toMicros(row.timeStamp());
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            writeVarLong(ids, row.id() - previousId);
+            writeVarLong(timeStamps, time - previousTime);
+            types.write(dictionary.computeIfAbsent(row.transactionType(), type -> dictionary.size()));
+            writeVarLong(amounts, toScaled(row.amount()));
+            // Zero marks a missing balance; present ones are shifted up by one bit.
+            writeVarLong(balances, row.balanceAfter() == null ? 0 : (toScaled(row.balanceAfter()) << 1) | 1);
+            transferIds.write(row.transferId() == null ? 0 : 1);
+            if (row.transferId() != null) {
+                writeUuid(transferIds, row.transferId());
+            }
+            previousId = row.id();
+            previousTime = time;
+        }
+        runs.add(new long[]{rows.get(rows.size() - 1).accountId(), rows.size() - runStart});
+        writeVarLong(accounts, runs.size());
+        for (long[] run : runs) {
+            writeVarLong(accounts, run[0] - previousAccount);
+            writeVarLong(accounts, run[1]);
+            previousAccount = run[0];
+        }
+
+        byte[][] raw = {accounts.toByteArray(), ids.toByteArray(), timeStamps.toByteArray(), types.toByteArray(),
+                amounts.toByteArray(), balances.toByteArray(), transferIds.toByteArray()};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows.size() * 4);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(rows.size());
+            out.writeLong(rows.get(0).accountId());
+            out.writeLong(rows.get(rows.size() - 1).accountId());
+            out.writeLong(minTime);
+            out.writeLong(maxTime);
+            out.writeByte(dictionary.size());
+            for (TransactionTypes type : dictionary.keySet()) {
+                byte[] name = type.name().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(name.length);
+                out.write(name);
+            }
+            byte[][] compressed = new byte[COLUMNS][];
+            for (int c = 0; c < COLUMNS; c++) {
+                compressed[c] = deflate(raw[c]);
+                out.writeInt(compressed[c].length);
+                out.writeInt(raw[c].length);
+            }
+            for (byte[] column : compressed) {
+                out.write(column);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Header readHeader(ByteBuffer segment) {
+        ByteBuffer in = segment.duplicate();
+        if (in.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a transaction archive segment");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported archive segment version " + version);
+        }
+        int rowCount = in.getInt();
+        long minAccountId = in.getLong();
+        long maxAccountId = in.getLong();
+        LocalDateTime minTimeStamp = fromMicros(in.getLong());
+        LocalDateTime maxTimeStamp = fromMicros(in.getLong());
+        TransactionTypes[] types = new TransactionTypes[in.get()];
+        for (int i = 0; i < types.length; i++) {
+            byte[] name = new byte[in.get()];
+            in.get(name);
+            types[i] = TransactionTypes.valueOf(new String(name, StandardCharsets.UTF_8));
+        }
+        int[] compressedLengths = new int[COLUMNS];
+        int[] rawLengths = new int[COLUMNS];
+        for (int c = 0; c < COLUMNS; c++) {
+            compressedLengths[c] = in.getInt();
+            rawLengths[c] = in.getInt();
+        }
+        return new Header(rowCount, minAccountId, maxAccountId, minTimeStamp, maxTimeStamp, types,
+                compressedLengths, rawLengths, in.position());
+    }
+
+    /**
+     * The account's rows in the segment, in {@code (timeStamp, id)} order. Rows after the account's run are not
+     * decoded, and no other column is inflated when the account has no run.
+     */
+    static List<TransactionHistoryRow> decode(ByteBuffer segment, Header header, long accountId) {
+        int[] offsets = new int[COLUMNS];
+        offsets[0] = header.columnsOffset();
+        for (int c = 1; c < COLUMNS; c++) {
+            offsets[c] = offsets[c - 1] + header.compressedLengths()[c - 1];
+        }
+        // The account column alone tells whether the account is in the segment at all.
+        int[] run = findRun(inflate(segment, header, offsets, 0), accountId);
+        if (run == null) {
+            return List.of();
+        }
+        int first = run[0];
+        int end = run[0] + run[1];
+
+        ByteBuffer ids = inflate(segment, header, offsets, 1);
+        ByteBuffer timeStamps = inflate(segment, header, offsets, 2);
+        ByteBuffer types = inflate(segment, header, offsets, 3);
+        ByteBuffer amounts = inflate(segment, header, offsets, 4);
+        ByteBuffer balances = inflate(segment, header, offsets, 5);
+        ByteBuffer transferIds = inflate(segment, header, offsets, 6);
+        List<TransactionHistoryRow> rows = new ArrayList<>(run[1]);
+        long id = 0;
+        long time = 0;
+        for (int i = 0; i < end; i++) {
+            id += readVarLong(ids);
+            time += readVarLong(timeStamps);
+            TransactionTypes type = header.types()[types.get()];
+            long amount = readVarLong(amounts);
+            long balance = readVarLong(balances);
+            UUID transferId = transferIds.get() != 0 ? new UUID(transferIds.getLong(), transferIds.getLong()) : null;
+            if (i >= first) {
+                rows.add(new TransactionHistoryRow(id, BigDecimal.valueOf(amount, SCALE), fromMicros(time), type,
+                        balance == 0 ? null : BigDecimal.valueOf(balance >> 1, SCALE), transferId));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * {@code [first row, row count]} of the account's run, or {@code null} if the segment has none.
+     */
+    private static int[] findRun(ByteBuffer accounts, long accountId) {
+        long runs = readVarLong(accounts);
+        long account = 0;
+        int row = 0;
+        for (long r = 0; r < runs; r++) {
+            account += readVarLong(accounts);
+            int length = (int) readVarLong(accounts);
+            if (account == accountId) {
+                return new int[]{row, length};
+            }
+            if (account > accountId) {
+                break;
+            }
+            row += length;
+        }
+        return null;
+    }
+
+    private static long toScaled(BigDecimal amount) {
+        return amount.setScale(SCALE).unscaledValue().longValueExact();
+    }
+
+    private static long toMicros(LocalDateTime timeStamp) {
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), timeStamp);
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void writeUuid(ByteArrayOutputStream out, UUID uuid) {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        bytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        out.writeBytes(bytes.array());
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer inflate(ByteBuffer segment, Header header, int[] offsets, int column) {
+        return inflate(segment.slice(offsets[column], header.compressedLengths()[column]), header.rawLengths()[column]);
+    }
+
+    private static ByteBuffer inflate(ByteBuffer compressed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt archive segment column", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.olegi.testbankapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.AccountCacheProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of {@link AccountDTO} by account number, serving account and balance reads.
+ * <p>
+ * Writers invalidate rather than put: after-commit callbacks of concurrent transactions may run in any order,
+ * so putting their results could leave an older balance in the cache.
+ * <p>
+ * Loads run outside the cache's per-key lock. Invalidations run in after-commit callbacks, while the committing
+ * transaction still holds its pooled connection, so an invalidation waiting on a load that is itself waiting for
+ * a connection starves the pool. Instead every invalidation first bumps the generation of its key's stripe, and a
+ * load whose stripe moved while it ran takes its value back out: a load that read the row before a commit cannot
+ * outlive that commit's invalidation.
+ */
+@Component
+@Slf4j
+public class AccountCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<String, AccountDTO> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public AccountCache(AccountCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached account or loads it; exceptions thrown by the loader propagate and nothing is cached.
+     */
+    public AccountDTO get(String accountNumber, Function<String, AccountDTO> loader) {
+        AccountDTO cached = cache.getIfPresent(accountNumber);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = stripe(accountNumber);
+        long generation = generations.get(stripe);
+        AccountDTO loaded = loader.apply(accountNumber);
+        put(accountNumber, loaded, stripe, generation);
+        return loaded;
+    }
+
+    /**
+     * Non-blocking {@link #get}: the loader is only subscribed to on a miss, and an error or an empty result
+     * caches nothing.
+     */
+    public Mono<AccountDTO> getAsync(String accountNumber, Function<String, Mono<AccountDTO>> loader) {
+        return Mono.defer(() -> {
+            AccountDTO cached = cache.getIfPresent(accountNumber);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            int stripe = stripe(accountNumber);
+            long generation = generations.get(stripe);
+            return loader.apply(accountNumber).doOnNext(loaded -> put(accountNumber, loaded, stripe, generation));
+        });
+    }
+
+    private void put(String accountNumber, AccountDTO loaded, int stripe, long generation) {
+        cache.put(accountNumber, loaded);
+        if (generations.get(stripe) != generation) {
+            cache.asMap().remove(accountNumber, loaded);
+        }
+    }
+
+    public void evictAfterCommit(String accountNumber) {
+        evictAfterCommit(List.of(accountNumber));
+    }
+
+    /**
+     * Evicts once the current transaction commits, so no reader can cache a value the transaction has not
+     * published yet. Without an active transaction the entries are evicted immediately.
+     */
+    public void evictAfterCommit(Collection<String> accountNumbers) {
+        List<String> keys = List.copyOf(accountNumbers);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(keys);
+                log.debug("Evicted {} accounts from cache", keys.size());
+            }
+        });
+    }
+
+    private void invalidate(List<String> keys) {
+        keys.forEach(key -> generations.incrementAndGet(stripe(key)));
+        cache.invalidateAll(keys);
+    }
+
+    private static int stripe(String accountNumber) {
+        return Math.floorMod(accountNumber.hashCode(), GENERATION_STRIPES);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
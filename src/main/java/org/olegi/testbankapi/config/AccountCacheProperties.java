@@ -0,0 +1,18 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.account-cache")
+public class AccountCacheProperties {
+
+    private long maximumSize = 10_000;
+
+    /**
+     * Upper bound on staleness for changes this instance did not make itself, e.g. from another instance.
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(10);
+}
@@ -0,0 +1,23 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.balance-after-backfill")
+public class BalanceAfterBackfillProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Delay between backfill runs. Once every row has its balance a run is a single probe of an empty index.
+     */
+    private Duration interval = Duration.ofMinutes(10);
+
+    /**
+     * Rows filled per statement; each statement is its own short transaction and locks only these rows.
+     */
+    private int chunkSize = 1_000;
+}
@@ -0,0 +1,29 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.balance-snapshot")
+public class BalanceSnapshotProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Delay between snapshot runs; every run also snapshots the last day boundary if it has not been yet.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * How far behind the current time a snapshot is taken, so that every transaction stamped before it has
+     * committed. Must exceed the longest balance-changing database transaction.
+     */
+    private Duration settleDelay = Duration.ofMinutes(1);
+
+    /**
+     * Accounts snapshotted per statement.
+     */
+    private int chunkSize = 1_000;
+}
@@ -0,0 +1,31 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.db-gate")
+public class DatabaseGateProperties {
+
+    /**
+     * Queues callers for pooled connections on a fair semaphore in front of the pool.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Connections handed out at once; 0 means the pool's maximum size.
+     */
+    private int permits = 0;
+
+    /**
+     * Callers allowed to wait for a connection; the next one fails at once. 0 means no limit.
+     */
+    private int maxWaiting = 0;
+
+    /**
+     * Longest wait for a connection before the caller fails.
+     */
+    private Duration waitTimeout = Duration.ofSeconds(10);
+}
@@ -0,0 +1,46 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * How long a key and its stored response are kept in the database.
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * How long a key stays claimed by an operation that stores its response in its own transaction. A retry
+     * takes over a claim older than this: the owner either died or rolled back, since a commit completes the key.
+     */
+    private Duration lease = Duration.ofMinutes(1);
+
+    private long hotMaximumSize = 10_000;
+
+    /**
+     * How long a completed response stays in the in-memory tier in front of the table.
+     */
+    private Duration hotTtl = Duration.ofMinutes(5);
+
+    /**
+     * Maximum time a request waits for another request with the same key before getting 409.
+     */
+    private Duration waitTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Pause between checks of a key held by another application instance.
+     */
+    private Duration pollInterval = Duration.ofMillis(50);
+
+    /**
+     * Delay between runs of the expired-key cleanup.
+     */
+    private Duration cleanupInterval = Duration.ofMinutes(1);
+
+    private int cleanupBatchSize = 1_000;
+}
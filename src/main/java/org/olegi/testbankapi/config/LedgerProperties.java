@@ -0,0 +1,74 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.ledger")
+public class LedgerProperties {
+
+    /**
+     * Routes deposits, withdrawals and transfers through the in-memory ledger engine instead of
+     * database locking. Read at startup.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of single-threaded workers; every account belongs to exactly one of them.
+     */
+    private int partitions = 4;
+
+    /**
+     * Client commands a partition may have queued before new ones are rejected.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Most commands a partition applies before writing them to the journal as one batch.
+     */
+    private int maxBatchSize = 1_000;
+
+    /**
+     * Maximum time a caller waits for its operation to become durable.
+     */
+    private Duration ackTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Pause before a partition retries a transfer step whose journal write failed.
+     */
+    private Duration retryBackoff = Duration.ofMillis(200);
+
+    /**
+     * Rows fetched per round trip while loading balances at startup.
+     */
+    private int loadFetchSize = 1_000;
+
+    private Wal wal = new Wal();
+
+    @Data
+    public static class Wal {
+
+        /**
+         * Makes a memory-mapped write-ahead log the journal: operations are acknowledged once their record is
+         * fsynced, and the database is updated from the log in the background.
+         */
+        private boolean enabled = false;
+
+        private String directory = "data/ledger-wal";
+
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * How long the writer that performs an fsync waits for other records to join it. 0 syncs at once.
+         */
+        private Duration fsyncInterval = Duration.ZERO;
+
+        /**
+         * Most log records applied to the database in one transaction.
+         */
+        private int applyBatchSize = 100;
+    }
+}
@@ -0,0 +1,70 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.olegi.testbankapi.enums.OutboxSinkType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.outbox")
+public class OutboxProperties {
+
+    /**
+     * Whether this instance runs the relay. Outbox rows are written either way; of several relays only one
+     * works at a time.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Read at startup.
+     */
+    private OutboxSinkType sink = OutboxSinkType.LISTENER;
+
+    /**
+     * Delay before the relay looks again once it has published everything.
+     */
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    /**
+     * Most events numbered and published per round.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Pause before the relay retries a batch the sink failed to take.
+     */
+    private Duration retryBackoff = Duration.ofSeconds(5);
+
+    /**
+     * How long published events stay available to {@code GET /api/balance-events}.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    private Duration cleanupInterval = Duration.ofHours(1);
+
+    /**
+     * Rows deleted per cleanup statement.
+     */
+    private int cleanupBatchSize = 1_000;
+
+    private FileLog file = new FileLog();
+
+    private Webhook webhook = new Webhook();
+
+    @Data
+    public static class FileLog {
+
+        private String path = "data/balance-events.ndjson";
+    }
+
+    @Data
+    public static class Webhook {
+
+        private String url = "http://localhost:8090/balance-events";
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        private Duration readTimeout = Duration.ofSeconds(5);
+    }
+}
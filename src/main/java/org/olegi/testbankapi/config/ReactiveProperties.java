@@ -0,0 +1,33 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * R2DBC settings of the {@code reactive} profile; the blocking stack ignores them.
+ */
+@Data
+@ConfigurationProperties(prefix = "bank.reactive")
+public class ReactiveProperties {
+
+    /**
+     * R2DBC URL of the database; empty means {@code spring.datasource.url} with the {@code r2dbc:} scheme, and the
+     * datasource credentials.
+     */
+    private String url;
+
+    private int poolMaxSize = 10;
+
+    /**
+     * Longest wait for a pooled connection before the request fails, like {@code bank.db-gate.wait-timeout}.
+     */
+    private Duration poolMaxAcquireTime = Duration.ofSeconds(10);
+
+    /**
+     * Rows fetched per round trip by streamed history; the next batch is only requested once the client has
+     * consumed the previous one.
+     */
+    private int fetchSize = 1_000;
+}
@@ -0,0 +1,42 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.transaction-archive")
+public class TransactionArchiveProperties {
+
+    /**
+     * Moves old transaction partitions into archive segment files. Segments already in {@code directory} are
+     * served by history queries either way.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Local directory of the segment files; every instance serving history must see the same files.
+     */
+    private String directory = "data/transaction-archive";
+
+    /**
+     * Partitions whose range ended longer ago than this are archived; newer ones stay in the database.
+     */
+    private Duration hotPeriod = Duration.ofDays(90);
+
+    /**
+     * Delay between archiver runs.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * Most rows per segment file; a history query inflates a whole segment, so this bounds its work.
+     */
+    private int segmentRows = 65_536;
+
+    /**
+     * Rows fetched per round trip while a partition is read.
+     */
+    private int fetchSize = 1_000;
+}
@@ -0,0 +1,29 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.transaction-partitions")
+public class TransactionPartitionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Delay between maintenance runs; a run that has nothing to do is a single catalog query.
+     */
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * Months after the current one that always have a partition, so a missed run never blocks writes.
+     */
+    private int monthsAhead = 3;
+
+    /**
+     * Partitions whose months all ended more than this many months before the current one are detached.
+     * Detached partitions stay in the database as plain tables; zero keeps every partition attached.
+     */
+    private int retentionMonths = 0;
+}
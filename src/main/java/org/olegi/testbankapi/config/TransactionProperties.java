@@ -0,0 +1,47 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.olegi.testbankapi.enums.BalanceUpdateMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.transaction")
+public class TransactionProperties {
+
+    private BalanceUpdateMode depositMode = BalanceUpdateMode.ATOMIC;
+
+    private BalanceUpdateMode withdrawMode = BalanceUpdateMode.ATOMIC;
+
+    /**
+     * History page size used when the client does not pass one.
+     */
+    private int historyDefaultPageSize = 100;
+
+    private int historyMaxPageSize = 1_000;
+
+    /**
+     * Rows fetched per round trip by the history export cursor.
+     */
+    private int exportFetchSize = 1_000;
+
+    private Coalescing coalescing = new Coalescing();
+
+    /**
+     * Group commit of the {@code COALESCED} deposit and withdraw modes.
+     */
+    @Data
+    public static class Coalescing {
+
+        /**
+         * How long the first operation of a batch waits for others on the same account to join it.
+         */
+        private Duration window = Duration.ofMillis(2);
+
+        /**
+         * Most operations applied in one transaction; a full batch is applied without waiting out the window.
+         */
+        private int maxBatchSize = 100;
+    }
+}
@@ -0,0 +1,29 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.olegi.testbankapi.enums.TransferLockingMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.transfer")
+public class TransferProperties {
+
+    private TransferLockingMode lockingMode = TransferLockingMode.PESSIMISTIC;
+
+    /**
+     * Maximum time a transfer waits for an account row lock before failing.
+     */
+    private Duration lockTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Largest number of transfers accepted by one batch request.
+     */
+    private int batchMaxSize = 10_000;
+
+    /**
+     * Rows per flush when a batch writes its transactions, and accounts per lock query.
+     */
+    private int batchChunkSize = 500;
+}
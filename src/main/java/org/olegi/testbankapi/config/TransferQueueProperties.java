@@ -0,0 +1,53 @@
+package org.olegi.testbankapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bank.transfer-queue")
+public class TransferQueueProperties {
+
+    /**
+     * Whether this instance runs workers. Asynchronous transfers are accepted either way, so workers can run on
+     * other instances only.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Worker threads; each claims its own batches, so they never wait for one another's transfers.
+     */
+    private int workers = 2;
+
+    /**
+     * Transfers claimed and applied per transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Delay before a worker looks again once the queue was empty.
+     */
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    /**
+     * Failed attempts, other than lock timeouts and an unavailable database, after which a transfer is marked
+     * {@code FAILED}.
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * How long finished transfers stay queryable before the cleanup deletes them.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * Delay between cleanup runs.
+     */
+    private Duration cleanupInterval = Duration.ofHours(1);
+
+    /**
+     * Rows deleted per cleanup statement.
+     */
+    private int cleanupBatchSize = 1_000;
+}
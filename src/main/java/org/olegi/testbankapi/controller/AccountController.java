@@ -66,4 +66,18 @@ public class AccountController {
         accountService.deleteAccount(accountNumber);
         return ResponseEntity.noContent().build();
     }
+
+    @Operation(summary = "Распределение баланса по слотам",
+            description = "Разбивает баланс счета на указанное число слотов, чтобы параллельные пополнения "
+                    + "не ждали блокировку одной строки. 0 отключает распределение; общий баланс не меняется.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Число слотов изменено"),
+            @ApiResponse(responseCode = "400", description = "Некорректное число слотов"),
+            @ApiResponse(responseCode = "404", description = "Аккаунт не найден")
+    })
+    @PutMapping("/{accountNumber}/balance-slots")
+    public ResponseEntity<Void> setBalanceSlots(@PathVariable String accountNumber, @RequestParam int slots) {
+        accountService.setBalanceSlots(accountNumber, slots);
+        return ResponseEntity.ok().build();
+    }
 }
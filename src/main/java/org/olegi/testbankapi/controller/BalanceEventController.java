@@ -0,0 +1,37 @@
+package org.olegi.testbankapi.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.olegi.testbankapi.service.BalanceEventService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/balance-events")
+@AllArgsConstructor
+public class BalanceEventController {
+
+    private final BalanceEventService balanceEventService;
+
+    @Operation(summary = "События изменения балансов",
+            description = "Возвращает события после указанного номера по возрастанию номера. Потребитель передаёт "
+                    + "номер последнего обработанного события и продолжает с места остановки.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "События получены"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса")
+    })
+    @GetMapping
+    public ResponseEntity<List<BalanceChangeEventDTO>> getEvents(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "size", required = false) Integer size) {
+        return ResponseEntity.ok(balanceEventService.getEvents(after, size));
+    }
+}
@@ -0,0 +1,33 @@
+package org.olegi.testbankapi.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.dto.CacheStatsDTO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/cache")
+@AllArgsConstructor
+public class CacheController {
+
+    private final AccountCache accountCache;
+
+    @Operation(summary = "Статистика кэша счетов",
+            description = "Возвращает счётчики попаданий, промахов и вытеснений кэша счетов с момента запуска.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Статистика получена")
+    })
+    @GetMapping("/accounts")
+    public ResponseEntity<CacheStatsDTO> getAccountCacheStats() {
+        CacheStats stats = accountCache.stats();
+        return ResponseEntity.ok(new CacheStatsDTO(accountCache.size(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate()));
+    }
+}
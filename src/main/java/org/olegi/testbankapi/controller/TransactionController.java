@@ -1,57 +1,85 @@
 package org.olegi.testbankapi.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.BalanceAtDTO;
 import org.olegi.testbankapi.dto.DepositDTO;
 import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransactionPageDTO;
 import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.ExportFormat;
+import org.olegi.testbankapi.service.BalanceSnapshotService;
+import org.olegi.testbankapi.service.IdempotencyService;
+import org.olegi.testbankapi.service.TransactionExportService;
 import org.olegi.testbankapi.service.TransactionService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/transactions")
 @AllArgsConstructor
 @Validated
 public class TransactionController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final TransactionService transactionService;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final TransactionExportService transactionExportService;
+    private final IdempotencyService idempotencyService;
 
-    @Operation(summary = "Пополнение счета", description = "Позволяет пополнить счет на указанную сумму.")
+    @Operation(summary = "Пополнение счета", description = "Позволяет пополнить счет на указанную сумму. "
+            + "Повтор с тем же заголовком " + IdempotencyService.IDEMPOTENCY_KEY_HEADER + " возвращает сохранённый ответ.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Счет успешно пополнен"),
-            @ApiResponse(responseCode = "400", description = "Некорректные входные данные")
+            @ApiResponse(responseCode = "400", description = "Некорректные входные данные"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом ещё выполняется"),
+            @ApiResponse(responseCode = "422", description = "Ключ уже использован с другим запросом")
     })
     @PostMapping("/deposit")
-    public ResponseEntity<AccountDTO> deposit(@Valid @RequestBody DepositDTO depositDTO) {
-        AccountDTO accountDTO = transactionService.deposit(depositDTO);
-        return ResponseEntity.ok(accountDTO);
+    public ResponseEntity<AccountDTO> deposit(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody DepositDTO depositDTO) {
+        return idempotencyService.execute(idempotencyKey, "deposit", depositDTO, AccountDTO.class,
+                transactionService.depositTransaction(), () -> ResponseEntity.ok(transactionService.deposit(depositDTO)));
     }
 
-    @Operation(summary = "Снятие со счета", description = "Позволяет снять деньги со счета.")
+    @Operation(summary = "Снятие со счета", description = "Позволяет снять деньги со счета. "
+            + "Повтор с тем же заголовком " + IdempotencyService.IDEMPOTENCY_KEY_HEADER + " возвращает сохранённый ответ.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Снятие выполнено успешно"),
             @ApiResponse(responseCode = "400", description = "Некорректные входные данные"),
-            @ApiResponse(responseCode = "403", description = "Недостаточно средств")
+            @ApiResponse(responseCode = "403", description = "Недостаточно средств"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом ещё выполняется"),
+            @ApiResponse(responseCode = "422", description = "Ключ уже использован с другим запросом")
     })
     @PostMapping("/withdraw")
-    public ResponseEntity<AccountDTO> withdraw(@Valid @RequestBody WithdrawDTO withdrawDTO) {
-        AccountDTO accountDTO = transactionService.withdraw(withdrawDTO);
-        return ResponseEntity.ok(accountDTO);
+    public ResponseEntity<AccountDTO> withdraw(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody WithdrawDTO withdrawDTO) {
+        return idempotencyService.execute(idempotencyKey, "withdraw", withdrawDTO, AccountDTO.class,
+                transactionService.withdrawTransaction(), () -> ResponseEntity.ok(transactionService.withdraw(withdrawDTO)));
     }
 
     @Operation(summary = "Получение баланса", description = "Возвращает текущий баланс счета.")
@@ -65,18 +93,66 @@ public class TransactionController {
         return ResponseEntity.ok(balance);
     }
 
-    @Operation(summary = "История операций", description = "Возвращает список операций за указанный период.")
+    @Operation(summary = "Баланс на момент времени",
+            description = "Возвращает баланс счета с учётом всех операций до указанного момента включительно. "
+                    + "Считается от ближайшего снимка баланса, поэтому не зависит от длины истории.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Баланс успешно получен"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден")
+    })
+    @GetMapping("/balance-at")
+    public ResponseEntity<BalanceAtDTO> getBalanceAt(
+            @RequestParam("accountNumber") String accountNumber,
+            @RequestParam("at") LocalDateTime at) {
+        return ResponseEntity.ok(balanceSnapshotService.getBalanceAt(accountNumber, at));
+    }
+
+    @Operation(summary = "История операций",
+            description = "Возвращает страницу операций за указанный период в хронологическом порядке. "
+                    + "Если есть следующая страница, её курсор передаётся в заголовке " + NEXT_CURSOR_HEADER + ".")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "История операций успешно получена"),
+            @ApiResponse(responseCode = "200", description = "История операций успешно получена",
+                    headers = @Header(name = NEXT_CURSOR_HEADER, description = "Курсор следующей страницы")),
             @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса")
     })
     @GetMapping
     public ResponseEntity<List<TransactionDTO>> getOperationsHistory(
             @RequestParam("accountId") Long accountId,
             @RequestParam("from") LocalDateTime from,
-            @RequestParam("to") LocalDateTime to) {
+            @RequestParam("to") LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+
+        TransactionPageDTO page = transactionService.getOperationHistory(accountId, from, to, cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getTransactions());
+    }
+
+    @Operation(summary = "Выгрузка истории операций",
+            description = "Потоково выгружает все операции за период в формате NDJSON или CSV. "
+                    + "Ответ сжимается gzip, если клиент передал Accept-Encoding: gzip.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Выгрузка начата"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOperationsHistory(
+            @RequestParam("accountId") Long accountId,
+            @RequestParam("from") LocalDateTime from,
+            @RequestParam("to") LocalDateTime to,
+            @RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format) {
 
-        List<TransactionDTO> statement = transactionService.getOperationHistory(accountId, from, to);
-        return ResponseEntity.ok(statement);
+        TransactionExportService.HistoryExport export =
+                transactionExportService.prepareHistoryExport(accountId, from, to, format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"history-" + accountId + "." + format.getFileExtension() + "\"")
+                .body(export::writeTo);
     }
 }
@@ -0,0 +1,60 @@
+package org.olegi.testbankapi.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.DatabaseGateProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the Hikari pool in a {@link GatedDataSource} configured by {@code bank.db-gate.*}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "bank.db-gate", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class DatabaseGateConfig {
+
+    // Hikari's own default, applied only when the pool starts; until then an unset size reads as -1.
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor databaseGatePostProcessor(ObjectProvider<DatabaseGateProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource pool)) {
+                    return bean;
+                }
+                DatabaseGateProperties gate = properties.getObject();
+                int poolSize = pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+                int permits = gate.getPermits() > 0 ? gate.getPermits() : poolSize;
+                log.info("Database gate: {} permits, max waiting {}, wait timeout {}",
+                        permits, gate.getMaxWaiting() > 0 ? gate.getMaxWaiting() : "unbounded", gate.getWaitTimeout());
+                return new GatedDataSource(pool, permits, gate.getMaxWaiting(), gate.getWaitTimeout());
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder databaseGateMetrics(DataSource dataSource) {
+        if (!(dataSource instanceof GatedDataSource gate)) {
+            return registry -> {
+            };
+        }
+        return registry -> {
+            Gauge.builder("bank.db.gate.waiting", gate, GatedDataSource::getWaiting)
+                    .description("Callers waiting at the database gate for a connection")
+                    .register(registry);
+            Gauge.builder("bank.db.gate.available", gate, GatedDataSource::getAvailablePermits)
+                    .description("Connections the database gate can still hand out")
+                    .register(registry);
+        };
+    }
+}
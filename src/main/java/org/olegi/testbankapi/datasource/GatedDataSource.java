@@ -0,0 +1,113 @@
+package org.olegi.testbankapi.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets at most {@code permits} connections out of the target pool at once; other callers wait on a fair semaphore
+ * in arrival order, and a permit is returned when its connection is closed.
+ * <p>
+ * With a request per virtual thread nothing bounds the threads asking the pool for a connection. Waiting here
+ * instead of in the pool keeps the order first come, first served, parks waiters without spinning on the pool's
+ * hand-off queue, and lets {@code maxWaiting} turn an overload into immediate failures rather than a queue of
+ * thousands of requests timing out one after another.
+ */
+public class GatedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final Duration waitTimeout;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public GatedDataSource(DataSource target, int permits, int maxWaiting, Duration waitTimeout) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.maxWaiting = maxWaiting;
+        this.waitTimeout = waitTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() throws SQLException {
+        int queued = waiting.incrementAndGet();
+        try {
+            if (maxWaiting > 0 && queued > maxWaiting) {
+                throw new SQLTransientConnectionException(
+                        "Database gate: " + maxWaiting + " callers are already waiting for a connection");
+            }
+            if (!permits.tryAcquire(waitTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Database gate: no connection within " + waitTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Database gate: interrupted while waiting for a connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(GatedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "close" -> {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,25 @@
+package org.olegi.testbankapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Balance of an account at a point in time")
+public class BalanceAtDTO {
+
+    @Schema(description = "Account number", example = "1234567890AB")
+    private String accountNumber;
+
+    @Schema(description = "Point in time the balance refers to", example = "2024-05-01T12:00:00")
+    private LocalDateTime at;
+
+    @Schema(description = "Balance after every transaction stamped at or before the point in time", example = "1000.00")
+    private BigDecimal balance;
+}
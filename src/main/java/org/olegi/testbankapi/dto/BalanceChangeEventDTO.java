@@ -0,0 +1,45 @@
+package org.olegi.testbankapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.TransactionTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO representing a committed change of an account balance")
+public class BalanceChangeEventDTO {
+
+    @Schema(description = "Position in the event stream; increases by one per event", example = "1042")
+    private long sequence;
+
+    @Schema(description = "Id of the transaction row that changed the balance", example = "5012")
+    private long transactionId;
+
+    @Schema(description = "Account id", example = "1")
+    private Long accountId;
+
+    @Schema(description = "Account number", example = "1234567890AB")
+    private String accountNumber;
+
+    @Schema(description = "Kind of operation", example = "DEPOSIT")
+    private TransactionTypes transactionType;
+
+    @Schema(description = "Amount of the operation", example = "100.00")
+    private BigDecimal amount;
+
+    @Schema(description = "Balance right after the operation", example = "1100.00")
+    private BigDecimal balanceAfter;
+
+    @Schema(description = "Shared by both legs of a transfer")
+    private UUID transferId;
+
+    @Schema(description = "When the operation happened")
+    private LocalDateTime timeStamp;
+}
@@ -0,0 +1,23 @@
+package org.olegi.testbankapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO representing a batch of transfers executed in one database transaction")
+public class BatchTransferRequestDTO {
+
+    @Schema(description = "Whether a failed item aborts the whole batch or is skipped",
+            example = "BEST_EFFORT")
+    private BatchTransferMode mode = BatchTransferMode.ALL_OR_NOTHING;
+
+    @Schema(description = "Transfers, applied in list order")
+    private List<TransferRequestDTO> transfers;
+}
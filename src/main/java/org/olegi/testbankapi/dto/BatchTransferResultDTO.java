@@ -0,0 +1,28 @@
+package org.olegi.testbankapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO representing the outcome of a batch transfer")
+public class BatchTransferResultDTO {
+
+    @Schema(description = "Mode the batch was executed in", example = "BEST_EFFORT")
+    private BatchTransferMode mode;
+
+    @Schema(description = "Number of transfers written", example = "9998")
+    private int applied;
+
+    @Schema(description = "Number of transfers that failed", example = "2")
+    private int failed;
+
+    @Schema(description = "Per-transfer outcome, in request order")
+    private List<TransferItemResultDTO> results;
+}
@@ -0,0 +1,26 @@
+package org.olegi.testbankapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Schema(description = "Counters of an in-process cache")
+public class CacheStatsDTO {
+
+    @Schema(description = "Estimated number of entries", example = "1500")
+    private long size;
+
+    @Schema(description = "Lookups served from the cache", example = "98000")
+    private long hits;
+
+    @Schema(description = "Lookups that had to load from the database", example = "2000")
+    private long misses;
+
+    @Schema(description = "Entries removed because of the size or time limit", example = "120")
+    private long evictions;
+
+    @Schema(description = "hits / (hits + misses)", example = "0.98")
+    private double hitRate;
+}
@@ -0,0 +1,42 @@
+package org.olegi.testbankapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.QueuedTransferStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO representing a transfer accepted for asynchronous processing")
+public class QueuedTransferDTO {
+
+    @Schema(description = "Operation id to query the status with", example = "3f2b8c1e-7a4d-4b7e-9c51-2d0e6f1a9b37")
+    private UUID id;
+
+    @Schema(description = "Processing status", example = "PENDING")
+    private QueuedTransferStatus status;
+
+    @Schema(description = "Account number of the sender", example = "1234567890AB")
+    private String fromAccountNumber;
+
+    @Schema(description = "Account number of the receiver", example = "9876543210XY")
+    private String toAccountNumber;
+
+    @Schema(description = "Transfer amount", example = "2500.50")
+    private BigDecimal amount;
+
+    @Schema(description = "Reason the transfer failed", example = "Insufficient funds for transfer amount")
+    private String error;
+
+    @Schema(description = "When the transfer was accepted")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "When the transfer completed or failed")
+    private LocalDateTime processedAt;
+}
@@ -10,6 +10,7 @@ import org.olegi.testbankapi.enums.TransactionTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
 @AllArgsConstructor
@@ -32,4 +33,12 @@ public class TransactionDTO {
             example = "DEPOSIT")
     @NotNull(message = "Transaction type must not be null")
     private TransactionTypes transactionType;
+
+    @Schema(description = "Account balance right after the transaction; null for old rows not backfilled yet",
+            example = "4321.00")
+    private BigDecimal balanceAfter;
+
+    @Schema(description = "Transfer both legs belong to; null for deposits and withdrawals",
+            example = "3f1c2a9e-8d4b-4a43-9a5e-1c0b7f2d6e11")
+    private UUID transferId;
 }
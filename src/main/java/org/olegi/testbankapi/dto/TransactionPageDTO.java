@@ -0,0 +1,17 @@
+package org.olegi.testbankapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TransactionPageDTO {
+    private List<TransactionDTO> transactions;
+
+    /**
+     * Opaque position after the last returned row, or {@code null} when this is the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package org.olegi.testbankapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.TransferItemStatus;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO representing the outcome of one transfer in a batch")
+public class TransferItemResultDTO {
+
+    @Schema(description = "Position of the transfer in the request list", example = "0")
+    private int index;
+
+    @Schema(description = "Outcome of the transfer", example = "APPLIED")
+    private TransferItemStatus status;
+
+    @Schema(description = "Reason the transfer failed", example = "Insufficient funds for transfer amount")
+    private String message;
+}
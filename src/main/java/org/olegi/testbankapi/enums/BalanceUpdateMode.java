@@ -0,0 +1,22 @@
+package org.olegi.testbankapi.enums;
+
+/**
+ * How {@code TransactionServiceImpl} applies a deposit or withdrawal to the account balance.
+ */
+public enum BalanceUpdateMode {
+    /**
+     * Load the {@code Account} entity, change the balance in Java and save it back (REPEATABLE_READ).
+     */
+    ENTITY,
+    /**
+     * One conditional {@code UPDATE ... RETURNING} that also inserts the {@code Transaction} row,
+     * executed under READ_COMMITTED in a single round trip.
+     */
+    ATOMIC,
+    /**
+     * Operations on the same account that arrive within {@code bank.transaction.coalescing.window} are applied
+     * together: one row lock, one {@code UPDATE} of the balance and one batched insert of their {@code Transaction}
+     * rows, in a single READ_COMMITTED commit.
+     */
+    COALESCED
+}
@@ -0,0 +1,12 @@
+package org.olegi.testbankapi.enums;
+
+public enum BatchTransferMode {
+    /**
+     * Nothing is written unless every transfer in the batch can be applied.
+     */
+    ALL_OR_NOTHING,
+    /**
+     * Transfers that fail are skipped; the rest are applied in request order.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,15 @@
+package org.olegi.testbankapi.enums;
+
+/**
+ * State of a stored {@code Idempotency-Key}.
+ */
+public enum IdempotencyStatus {
+    /**
+     * Claimed by a request that is still executing; later requests with the same key wait for it.
+     */
+    IN_PROGRESS,
+    /**
+     * Executed successfully; the stored response is replayed for later requests with the same key.
+     */
+    COMPLETED
+}
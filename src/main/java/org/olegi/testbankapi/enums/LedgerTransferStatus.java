@@ -0,0 +1,29 @@
+package org.olegi.testbankapi.enums;
+
+/**
+ * Progress of a ledger transfer between accounts of different partitions.
+ */
+public enum LedgerTransferStatus {
+    /**
+     * The source account was debited; the credit is still to be applied.
+     */
+    DEBITED,
+    /**
+     * The target account was credited. Final.
+     */
+    CREDITED,
+    /**
+     * The target account does not exist; the amount is still to be returned to the source.
+     */
+    REJECTED,
+    /**
+     * The amount was returned to the source account. Final.
+     */
+    REFUNDED,
+    /**
+     * The source account was debited for an all-or-nothing batch that is not committed yet. Becomes
+     * {@code DEBITED} once every item of the batch is reserved, or is refunded; declared last because the
+     * journal codec stores statuses by ordinal.
+     */
+    RESERVED
+}
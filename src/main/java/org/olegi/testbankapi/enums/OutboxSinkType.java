@@ -0,0 +1,19 @@
+package org.olegi.testbankapi.enums;
+
+/**
+ * Where the outbox relay publishes balance change events.
+ */
+public enum OutboxSinkType {
+    /**
+     * Spring application events, delivered synchronously to {@code @EventListener} methods of this process.
+     */
+    LISTENER,
+    /**
+     * NDJSON lines appended to a local file, fsynced per batch.
+     */
+    FILE,
+    /**
+     * A JSON array per batch POSTed to an HTTP endpoint.
+     */
+    WEBHOOK
+}
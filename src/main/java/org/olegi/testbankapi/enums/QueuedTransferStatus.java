@@ -0,0 +1,19 @@
+package org.olegi.testbankapi.enums;
+
+/**
+ * Progress of a transfer accepted with {@code ?async=true}.
+ */
+public enum QueuedTransferStatus {
+    /**
+     * Stored and waiting for a worker.
+     */
+    PENDING,
+    /**
+     * The money was moved. Final.
+     */
+    COMPLETED,
+    /**
+     * Rejected, for instance for insufficient funds or a missing account; nothing was moved. Final.
+     */
+    FAILED
+}
@@ -3,7 +3,12 @@ package org.olegi.testbankapi.enums;
 public enum TransactionTypes {
     DEPOSIT,
     WITHDRAW,
-    TRANSFER
+    /**
+     * Debit leg of a transfer, on the sending account.
+     */
+    TRANSFER,
+    /**
+     * Credit leg of a transfer, on the receiving account; shares the transfer id with its debit leg.
+     */
+    TRANSFER_IN
 }
-
-
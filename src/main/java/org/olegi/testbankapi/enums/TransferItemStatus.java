@@ -0,0 +1,10 @@
+package org.olegi.testbankapi.enums;
+
+public enum TransferItemStatus {
+    APPLIED,
+    FAILED,
+    /**
+     * The transfer itself was valid but was not written because the all-or-nothing batch failed.
+     */
+    SKIPPED
+}
@@ -0,0 +1,17 @@
+package org.olegi.testbankapi.enums;
+
+/**
+ * How {@code TransferServiceImpl} protects the two account rows it mutates.
+ */
+public enum TransferLockingMode {
+    /**
+     * Plain reads under REPEATABLE_READ. Concurrent transfers on the same account
+     * fail with serialization errors. Kept for comparison benchmarks.
+     */
+    SNAPSHOT,
+    /**
+     * {@code SELECT ... FOR UPDATE} on both rows, always taken in ascending id order,
+     * under READ_COMMITTED.
+     */
+    PESSIMISTIC
+}
@@ -0,0 +1,10 @@
+package org.olegi.testbankapi.exceptions;
+
+/**
+ * A coalesced balance update failed before its batch committed: nothing of it was applied, so it can be retried.
+ */
+public class BalanceUpdateRolledBackException extends RuntimeException {
+    public BalanceUpdateRolledBackException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
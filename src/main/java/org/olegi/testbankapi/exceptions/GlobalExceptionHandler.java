@@ -1,12 +1,17 @@
 package org.olegi.testbankapi.exceptions;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 @Slf4j
 @ControllerAdvice
@@ -18,6 +23,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found: " + e.getMessage());
     }
 
+    @ExceptionHandler(QueuedTransferNotFoundException.class)
+    public ResponseEntity<String> handleQueuedTransferNotFoundException(QueuedTransferNotFoundException e) {
+        log.error("Transfer not found: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Transfer not found: " + e.getMessage());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<String> handleAmountInDepositMustBePositiveException(
             DepositMustBePositiveException e) {
@@ -25,6 +36,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("User not found: " + e.getMessage());
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<String> handleWebExchangeBindException(WebExchangeBindException e) {
+        log.error("Invalid input: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid input: " + e.getReason());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> handleIllegalArgumentException(IllegalArgumentException e) {
         log.error("Invalid input: {}", e.getMessage(), e);
@@ -48,4 +65,42 @@ public class GlobalExceptionHandler {
         log.error("Account error: {}", e.getMessage(), e);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Account error: " + e.getMessage());
     }
+
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    public ResponseEntity<String> handlePessimisticLockingFailureException(PessimisticLockingFailureException e) {
+        log.error("Lock error: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Account is busy, retry later: " + e.getMostSpecificCause().getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    public ResponseEntity<String> handleIdempotencyKeyInProgressException(IdempotencyKeyInProgressException e) {
+        log.error("Idempotency error: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Idempotency error: " + e.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<String> handleIdempotencyKeyReuseException(IdempotencyKeyReuseException e) {
+        log.error("Idempotency error: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body("Idempotency error: " + e.getMessage());
+    }
+
+    @ExceptionHandler(LedgerUnavailableException.class)
+    public ResponseEntity<String> handleLedgerUnavailableException(LedgerUnavailableException e) {
+        log.error("Ledger error: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Ledger error: " + e.getMessage());
+    }
+
+    @ExceptionHandler(BalanceUpdateRolledBackException.class)
+    public ResponseEntity<String> handleBalanceUpdateRolledBackException(BalanceUpdateRolledBackException e) {
+        log.error("Balance update error: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Balance update failed, retry later: " + e.getMessage());
+    }
+
+    // DataAccessResourceFailureException covers a JDBC connection timeout and an R2DBC pool acquire timeout alike.
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<String> handleDatabaseUnavailableException(NestedRuntimeException e) {
+        // Expected under overload; a stack trace per rejected request would only add to it.
+        log.warn("Database busy: {}", e.getMostSpecificCause().getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Database is busy, retry later: " + e.getMostSpecificCause().getMessage());
+    }
 }
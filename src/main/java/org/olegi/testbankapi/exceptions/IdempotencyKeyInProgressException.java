@@ -0,0 +1,7 @@
+package org.olegi.testbankapi.exceptions;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package org.olegi.testbankapi.exceptions;
+
+public class IdempotencyKeyReuseException extends RuntimeException {
+    public IdempotencyKeyReuseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package org.olegi.testbankapi.exceptions;
+
+/**
+ * An illegal argument like any other for the API (400), kept apart so metrics can tell it from invalid input.
+ */
+public class InsufficientFundsException extends IllegalArgumentException {
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package org.olegi.testbankapi.exceptions;
+
+/**
+ * The ledger took the operation but could not confirm it: it may have been applied or may still be.
+ */
+public class LedgerOutcomeUnknownException extends LedgerUnavailableException {
+    public LedgerOutcomeUnknownException(String message) {
+        super(message);
+    }
+
+    public LedgerOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,11 @@
+package org.olegi.testbankapi.exceptions;
+
+public class LedgerUnavailableException extends RuntimeException {
+    public LedgerUnavailableException(String message) {
+        super(message);
+    }
+
+    public LedgerUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package org.olegi.testbankapi.exceptions;
+
+public class QueuedTransferNotFoundException extends RuntimeException {
+    public QueuedTransferNotFoundException(String message) {
+        super(message);
+    }
+}
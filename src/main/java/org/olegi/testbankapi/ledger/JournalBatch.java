@@ -0,0 +1,82 @@
+package org.olegi.testbankapi.ledger;
+
+import lombok.Getter;
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+import org.olegi.testbankapi.enums.TransactionTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Everything one partition applied since its last journal write. Balance changes are kept as one delta per
+ * account, so a hot account costs a single UPDATE per batch however many operations touched it.
+ */
+@Getter
+public final class JournalBatch {
+
+    private final List<TransactionRow> transactions = new ArrayList<>();
+
+    /**
+     * Ordered by account id, the order in which the journal writer takes row locks.
+     */
+    private final Map<Long, BigDecimal> balanceDeltas = new TreeMap<>();
+
+    private final List<LedgerTransfer> startedTransfers = new ArrayList<>();
+
+    private final Map<UUID, LedgerTransferStatus> transferStatuses = new LinkedHashMap<>();
+
+    /**
+     * Accounts whose balance the batch changes; not part of the durable record.
+     */
+    private final Set<String> accountNumbers = new HashSet<>();
+
+    /**
+     * {@code balanceAfter} is null only in records written to the journal before it was added; {@code transferId}
+     * is set on transfer legs.
+     */
+    public record TransactionRow(long accountId, BigDecimal amount, TransactionTypes transactionType,
+                                 LocalDateTime timeStamp, BigDecimal balanceAfter, UUID transferId) {
+    }
+
+    /**
+     * Records a row for a change already applied to {@code account}, so its balance is the balance after it.
+     */
+    void record(LedgerAccount account, TransactionTypes transactionType, BigDecimal amount, UUID transferId) {
+        record(new TransactionRow(account.getId(), amount, transactionType, LocalDateTime.now(), account.getBalance(),
+                transferId));
+    }
+
+    void record(TransactionRow row) {
+        transactions.add(row);
+    }
+
+    void adjust(LedgerAccount account, BigDecimal delta) {
+        adjust(account.getId(), delta);
+        accountNumbers.add(account.getAccountNumber());
+    }
+
+    void adjust(long accountId, BigDecimal delta) {
+        balanceDeltas.merge(accountId, delta, BigDecimal::add);
+    }
+
+    void startTransfer(LedgerTransfer transfer) {
+        startedTransfers.add(transfer);
+    }
+
+    void setTransferStatus(UUID transferId, LedgerTransferStatus status) {
+        transferStatuses.put(transferId, status);
+    }
+
+    public boolean isEmpty() {
+        return transactions.isEmpty() && balanceDeltas.isEmpty()
+                && startedTransfers.isEmpty() && transferStatuses.isEmpty();
+    }
+}
@@ -0,0 +1,142 @@
+package org.olegi.testbankapi.ledger;
+
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+import org.olegi.testbankapi.enums.TransactionTypes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary form of a {@link JournalBatch} in the write-ahead log. After a version byte come four counted sections:
+ * started transfers, transfer status changes, balance deltas and transaction rows. Amounts are a scale byte plus a
+ * length-prefixed unscaled value, which takes 3-4 bytes for typical sums; a transaction row is about 26 bytes, plus
+ * 16 for a transfer leg. Older records are still read: version 1 rows have no balance after them and versions 1
+ * and 2 rows no transfer id.
+ */
+final class JournalBatchCodec {
+
+    private static final byte VERSION = 3;
+
+    private static final byte FIRST_VERSION_WITH_BALANCE_AFTER = 2;
+
+    private static final TransactionTypes[] TRANSACTION_TYPES = TransactionTypes.values();
+    private static final LedgerTransferStatus[] TRANSFER_STATUSES = LedgerTransferStatus.values();
+
+    private JournalBatchCodec() {
+    }
+
+    static byte[] encode(JournalBatch batch) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + batch.getTransactions().size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(batch.getStartedTransfers().size());
+            for (LedgerTransfer transfer : batch.getStartedTransfers()) {
+                writeUuid(out, transfer.id());
+                writeString(out, transfer.fromAccountNumber());
+                writeString(out, transfer.toAccountNumber());
+                writeAmount(out, transfer.amount());
+                out.writeByte(transfer.status().ordinal());
+            }
+            out.writeInt(batch.getTransferStatuses().size());
+            for (Map.Entry<UUID, LedgerTransferStatus> entry : batch.getTransferStatuses().entrySet()) {
+                writeUuid(out, entry.getKey());
+                out.writeByte(entry.getValue().ordinal());
+            }
+            out.writeInt(batch.getBalanceDeltas().size());
+            for (Map.Entry<Long, BigDecimal> entry : batch.getBalanceDeltas().entrySet()) {
+                out.writeLong(entry.getKey());
+                writeAmount(out, entry.getValue());
+            }
+            out.writeInt(batch.getTransactions().size());
+            for (JournalBatch.TransactionRow row : batch.getTransactions()) {
+                out.writeLong(row.accountId());
+                writeAmount(out, row.amount());
+                out.writeByte(row.transactionType().ordinal());
+                LocalDateTime timeStamp = row.timeStamp();
+                out.writeLong(timeStamp.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(timeStamp.getNano());
+                writeAmount(out, row.balanceAfter());
+                out.writeBoolean(row.transferId() != null);
+                if (row.transferId() != null) {
+                    writeUuid(out, row.transferId());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static JournalBatch decode(ByteBuffer in) {
+        byte version = in.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalStateException("Unsupported journal record version " + version);
+        }
+        JournalBatch batch = new JournalBatch();
+        for (int i = in.getInt(); i > 0; i--) {
+            batch.startTransfer(new LedgerTransfer(readUuid(in), readString(in), readString(in), readAmount(in),
+                    TRANSFER_STATUSES[in.get()]));
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            batch.setTransferStatus(readUuid(in), TRANSFER_STATUSES[in.get()]);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            batch.adjust(in.getLong(), readAmount(in));
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            long accountId = in.getLong();
+            BigDecimal amount = readAmount(in);
+            TransactionTypes type = TRANSACTION_TYPES[in.get()];
+            LocalDateTime timeStamp = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            BigDecimal balanceAfter = version >= FIRST_VERSION_WITH_BALANCE_AFTER ? readAmount(in) : null;
+            UUID transferId = version == VERSION && in.get() != 0 ? readUuid(in) : null;
+            batch.record(new JournalBatch.TransactionRow(accountId, amount, type, timeStamp, balanceAfter, transferId));
+        }
+        return batch;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeAmount(DataOutputStream out, BigDecimal amount) throws IOException {
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        out.writeByte(amount.scale());
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readAmount(ByteBuffer in) {
+        int scale = in.get();
+        byte[] unscaled = new byte[Byte.toUnsignedInt(in.get())];
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,20 @@
+package org.olegi.testbankapi.ledger;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance of one account as held by its ledger partition. Only the owning worker thread reads or changes it.
+ */
+@Data
+@AllArgsConstructor
+public class LedgerAccount {
+
+    private long id;
+
+    private String accountNumber;
+
+    private BigDecimal balance;
+}
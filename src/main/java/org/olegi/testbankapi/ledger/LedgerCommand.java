@@ -0,0 +1,84 @@
+package org.olegi.testbankapi.ledger;
+
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Work items queued to a {@link LedgerPartition}. The result completes once the effect is durable.
+ */
+sealed interface LedgerCommand {
+
+    CompletableFuture<?> result();
+
+    record Deposit(String accountNumber, BigDecimal amount, CompletableFuture<AccountDTO> result)
+            implements LedgerCommand {
+    }
+
+    record Withdraw(String accountNumber, BigDecimal amount, CompletableFuture<AccountDTO> result)
+            implements LedgerCommand {
+    }
+
+    /**
+     * Transfer between two accounts of the same partition, applied in one step.
+     */
+    record Transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                    CompletableFuture<Void> result) implements LedgerCommand {
+    }
+
+    /**
+     * First step of a cross-partition transfer, run by the source account's partition.
+     */
+    record Debit(LedgerTransfer transfer, CompletableFuture<Void> result) implements LedgerCommand {
+    }
+
+    /**
+     * Second step, run by the target account's partition once the debit is durable.
+     */
+    record Credit(LedgerTransfer transfer, CompletableFuture<Void> result) implements LedgerCommand {
+    }
+
+    /**
+     * Returns the amount to the source account when the target account turned out not to exist, or when the
+     * all-or-nothing batch it was reserved for is not committed.
+     */
+    record Refund(LedgerTransfer transfer, CompletableFuture<Void> result) implements LedgerCommand {
+    }
+
+    /**
+     * A batch whose accounts all belong to one partition, applied with the semantics of
+     * {@code TransferServiceImpl.transferBatch}.
+     */
+    record Batch(BatchTransferMode mode, List<TransferRequestDTO> transfers,
+                 CompletableFuture<BatchTransferResultDTO> result) implements LedgerCommand {
+    }
+
+    /**
+     * First step of an all-or-nothing batch spanning partitions, sent to every partition involved. Items that
+     * failed before reaching the partitions, such as those with an invalid amount, are null. The result holds,
+     * per item, why this partition's side of it failed, or null.
+     */
+    record Reserve(List<LedgerTransfer> transfers, CompletableFuture<List<RuntimeException>> result)
+            implements LedgerCommand {
+    }
+
+    /**
+     * Commits a reserved batch: marks all its transfers {@code DEBITED} in one journal write, then queues their
+     * credits, each completing the matching future of {@code credits}.
+     */
+    record Confirm(List<LedgerTransfer> transfers, List<CompletableFuture<Void>> credits,
+                   CompletableFuture<Void> result) implements LedgerCommand {
+    }
+
+    /**
+     * Drops the in-memory account after it was changed outside the engine; it is reloaded on next use.
+     */
+    record Evict(String accountNumber, CompletableFuture<Void> result) implements LedgerCommand {
+    }
+}
@@ -0,0 +1,388 @@
+package org.olegi.testbankapi.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.TransferItemResultDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+import org.olegi.testbankapi.enums.TransferItemStatus;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.LedgerOutcomeUnknownException;
+import org.olegi.testbankapi.exceptions.LedgerUnavailableException;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Single-writer ledger: accounts are hash-partitioned over {@link LedgerPartition} workers, each of which applies
+ * deposits, withdrawals and transfers of its accounts sequentially in memory and acknowledges them once its
+ * journal batch is written. Enabled with {@code bank.ledger.enabled}; the engine must then be the only writer
+ * of balances.
+ * <p>
+ * A transfer between partitions takes two steps, each durable on its own: the source partition debits and
+ * stores a {@code DEBITED} {@link LedgerTransfer}, then the target partition credits and marks it
+ * {@code CREDITED}. If the target account is missing it marks the transfer {@code REJECTED} and the source
+ * partition refunds it ({@code REFUNDED}). On startup the engine reloads all balances and resumes every
+ * transfer left between steps.
+ * <p>
+ * An all-or-nothing batch spanning partitions puts a reservation in front of these steps: every partition
+ * involved checks its side of the items and, if all pass, debits its source accounts and stores the transfers
+ * as {@code RESERVED}. If any item failed the reservations are refunded; otherwise one partition marks all of
+ * them {@code DEBITED} in a single journal write, which commits the batch, and the targets are credited as
+ * above. A restart refunds reservations of batches that did not get that far.
+ */
+@Component
+@Slf4j
+public class LedgerEngine implements SmartLifecycle {
+
+    private static final String AMOUNT_MUST_BE_POSITIVE = "Amount must be greater than zero";
+
+    private final LedgerProperties properties;
+    private final LedgerJournal journal;
+    private final AccountCache accountCache;
+    private volatile List<LedgerPartition> partitions = List.of();
+    private volatile boolean running;
+
+    public LedgerEngine(LedgerProperties properties, LedgerJournal journal, AccountCache accountCache) {
+        this.properties = properties;
+        this.journal = journal;
+        this.accountCache = accountCache;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        List<LedgerPartition> created = IntStream.range(0, properties.getPartitions())
+                .mapToObj(index -> new LedgerPartition(index, properties, journal, accountCache, this))
+                .toList();
+        long loaded = journal.loadAccounts(account -> created.get(partitionIndex(account.getAccountNumber())).preload(account));
+        partitions = created;
+
+        List<LedgerTransfer> unfinished = journal.loadUnfinishedTransfers();
+        for (LedgerTransfer transfer : unfinished) {
+            if (transfer.status() == LedgerTransferStatus.DEBITED) {
+                partitionFor(transfer.toAccountNumber()).enqueue(new LedgerCommand.Credit(transfer, new CompletableFuture<>()));
+            } else {
+                partitionFor(transfer.fromAccountNumber()).enqueue(new LedgerCommand.Refund(transfer, new CompletableFuture<>()));
+            }
+        }
+
+        created.forEach(LedgerPartition::start);
+        running = true;
+        log.info("Ledger started: {} partitions, {} accounts loaded, {} unfinished transfers resumed",
+                created.size(), loaded, unfinished.size());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        partitions.forEach(LedgerPartition::shutdown);
+        try {
+            for (LedgerPartition partition : partitions) {
+                partition.awaitTermination();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Ledger stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before the web server accepts requests and stops after it, so queued commands are drained.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    public AccountDTO deposit(String accountNumber, BigDecimal amount) {
+        CompletableFuture<AccountDTO> result = new CompletableFuture<>();
+        submit(partitionFor(accountNumber), new LedgerCommand.Deposit(accountNumber, amount, result));
+        return await(result);
+    }
+
+    public AccountDTO withdraw(String accountNumber, BigDecimal amount) {
+        CompletableFuture<AccountDTO> result = new CompletableFuture<>();
+        submit(partitionFor(accountNumber), new LedgerCommand.Withdraw(accountNumber, amount, result));
+        return await(result);
+    }
+
+    public void transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        await(transferAsync(fromAccountNumber, toAccountNumber, amount));
+    }
+
+    /**
+     * A batch whose accounts all belong to one partition is applied there as a unit, with the usual semantics.
+     * Otherwise a BEST_EFFORT batch runs its items as independent transfers, ordered with each other only where
+     * they share a source partition, and an ALL_OR_NOTHING batch is reserved and committed across the partitions.
+     */
+    public BatchTransferResultDTO transferBatch(BatchTransferMode mode, List<TransferRequestDTO> transfers) {
+        List<LedgerPartition> involved = transfers.stream()
+                .flatMap(transfer -> Stream.of(transfer.getFromAccountNumber(), transfer.getToAccountNumber()))
+                .filter(Objects::nonNull)
+                .map(this::partitionFor)
+                .distinct()
+                .toList();
+        if (involved.size() <= 1) {
+            CompletableFuture<BatchTransferResultDTO> result = new CompletableFuture<>();
+            submit(involved.isEmpty() ? partitions().get(0) : involved.get(0),
+                    new LedgerCommand.Batch(mode, transfers, result));
+            return await(result);
+        }
+        if (mode == BatchTransferMode.ALL_OR_NOTHING) {
+            return transferBatchReserved(transfers, involved);
+        }
+
+        List<CompletableFuture<Void>> results = new ArrayList<>(transfers.size());
+        for (TransferRequestDTO transfer : transfers) {
+            if (!isPositive(transfer.getAmount())) {
+                results.add(CompletableFuture.failedFuture(new IllegalArgumentException(AMOUNT_MUST_BE_POSITIVE)));
+            } else {
+                results.add(transferAsync(transfer.getFromAccountNumber(), transfer.getToAccountNumber(), transfer.getAmount()));
+            }
+        }
+        List<TransferItemResultDTO> items = new ArrayList<>(transfers.size());
+        int failed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                await(results.get(i));
+                items.add(new TransferItemResultDTO(i, TransferItemStatus.APPLIED, null));
+            } catch (RuntimeException e) {
+                items.add(new TransferItemResultDTO(i, TransferItemStatus.FAILED, e.getMessage()));
+                failed++;
+            }
+        }
+        return new BatchTransferResultDTO(mode, items.size() - failed, failed, items);
+    }
+
+    /**
+     * Items are checked in order as in a single partition, except that an item cannot spend what an earlier item
+     * of the batch credits to its source account: the credits only land after the commit. An item can also
+     * still fail after the commit if its target account was deleted in between; it is then refunded.
+     */
+    private BatchTransferResultDTO transferBatchReserved(List<TransferRequestDTO> transfers,
+                                                         List<LedgerPartition> involved) {
+        List<LedgerTransfer> reserved = new ArrayList<>(transfers.size());
+        String[] errors = new String[transfers.size()];
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequestDTO transfer = transfers.get(i);
+            if (!isPositive(transfer.getAmount())) {
+                errors[i] = AMOUNT_MUST_BE_POSITIVE;
+            } else if (transfer.getFromAccountNumber() == null || transfer.getToAccountNumber() == null) {
+                // Not routed to any partition, so no partition would report it.
+                errors[i] = "Account not found: ";
+            }
+            reserved.add(errors[i] != null ? null : new LedgerTransfer(UUID.randomUUID(),
+                    transfer.getFromAccountNumber(), transfer.getToAccountNumber(), transfer.getAmount(),
+                    LedgerTransferStatus.RESERVED));
+        }
+
+        Map<LedgerPartition, CompletableFuture<List<RuntimeException>>> reservations = new LinkedHashMap<>();
+        for (LedgerPartition partition : involved) {
+            CompletableFuture<List<RuntimeException>> result = new CompletableFuture<>();
+            try {
+                submit(partition, new LedgerCommand.Reserve(reserved, result));
+            } catch (LedgerUnavailableException e) {
+                result.completeExceptionally(e);
+            }
+            reservations.put(partition, result);
+        }
+        Map<LedgerPartition, List<RuntimeException>> checks = new HashMap<>();
+        RuntimeException failure = null;
+        for (Map.Entry<LedgerPartition, CompletableFuture<List<RuntimeException>>> reservation : reservations.entrySet()) {
+            try {
+                checks.put(reservation.getKey(), await(reservation.getValue()));
+            } catch (RuntimeException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+
+        int failed = 0;
+        for (int i = 0; i < reserved.size(); i++) {
+            LedgerTransfer transfer = reserved.get(i);
+            if (transfer != null && failure == null) {
+                RuntimeException source = checks.get(partitionFor(transfer.fromAccountNumber())).get(i);
+                RuntimeException target = checks.get(partitionFor(transfer.toAccountNumber())).get(i);
+                // The order of checkBatchItem: missing source, missing target, insufficient funds.
+                RuntimeException error = source instanceof AccountNotFoundException || target == null ? source : target;
+                errors[i] = error == null ? null : error.getMessage();
+            }
+            failed += errors[i] == null ? 0 : 1;
+        }
+        if (failure != null || failed > 0) {
+            refundReservations(reserved, checks);
+            if (failure != null) {
+                throw failure;
+            }
+            List<TransferItemResultDTO> items = new ArrayList<>(errors.length);
+            for (int i = 0; i < errors.length; i++) {
+                items.add(errors[i] == null
+                        ? new TransferItemResultDTO(i, TransferItemStatus.SKIPPED, null)
+                        : new TransferItemResultDTO(i, TransferItemStatus.FAILED, errors[i]));
+            }
+            return new BatchTransferResultDTO(BatchTransferMode.ALL_OR_NOTHING, 0, failed, items);
+        }
+
+        List<LedgerTransfer> debited = reserved.stream()
+                .map(transfer -> transfer.withStatus(LedgerTransferStatus.DEBITED))
+                .toList();
+        List<CompletableFuture<Void>> credits = debited.stream().map(transfer -> new CompletableFuture<Void>()).toList();
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        // A follow-up step like a credit: the money is already reserved, so it must not be turned away.
+        involved.get(0).enqueue(new LedgerCommand.Confirm(debited, credits, committed));
+        await(committed);
+        List<TransferItemResultDTO> items = new ArrayList<>(credits.size());
+        for (int i = 0; i < credits.size(); i++) {
+            try {
+                await(credits.get(i));
+                items.add(new TransferItemResultDTO(i, TransferItemStatus.APPLIED, null));
+            } catch (AccountNotFoundException e) {
+                items.add(new TransferItemResultDTO(i, TransferItemStatus.FAILED, e.getMessage()));
+                failed++;
+            }
+        }
+        return new BatchTransferResultDTO(BatchTransferMode.ALL_OR_NOTHING, items.size() - failed, failed, items);
+    }
+
+    /**
+     * Refunds the transfers of every partition that reserved its side: one whose check failed reserved nothing,
+     * and one whose outcome is unknown is left to the refund on the next start.
+     */
+    private void refundReservations(List<LedgerTransfer> reserved, Map<LedgerPartition, List<RuntimeException>> checks) {
+        List<CompletableFuture<Void>> refunds = new ArrayList<>();
+        for (LedgerTransfer transfer : reserved) {
+            LedgerPartition source = transfer == null ? null : partitionFor(transfer.fromAccountNumber());
+            List<RuntimeException> check = checks.get(source);
+            if (check != null && check.stream().allMatch(Objects::isNull)) {
+                CompletableFuture<Void> refunded = new CompletableFuture<>();
+                source.enqueue(new LedgerCommand.Refund(transfer, refunded));
+                refunds.add(refunded);
+            }
+        }
+        refunds.forEach(this::await);
+    }
+
+    private static boolean isPositive(BigDecimal amount) {
+        return amount != null && amount.compareTo(BigDecimal.ZERO) > 0;
+    }
+
+    /**
+     * Waits until every operation acknowledged so far is in the database, for reads that go there rather than
+     * through the engine; only the write-ahead log journal acknowledges before that.
+     */
+    public void awaitApplied() {
+        if (running) {
+            journal.awaitApplied();
+        }
+    }
+
+    /**
+     * Makes the partition reload the account from the database once the current transaction commits.
+     * Called by code that changes accounts outside the engine.
+     */
+    public void evictAfterCommit(String accountNumber) {
+        if (!running) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(accountNumber);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(accountNumber);
+            }
+        });
+    }
+
+    private void evict(String accountNumber) {
+        partitionFor(accountNumber).enqueue(new LedgerCommand.Evict(accountNumber, new CompletableFuture<>()));
+    }
+
+    private CompletableFuture<Void> transferAsync(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        LedgerPartition source = partitionFor(fromAccountNumber);
+        if (source == partitionFor(toAccountNumber)) {
+            submit(source, new LedgerCommand.Transfer(fromAccountNumber, toAccountNumber, amount, result));
+        } else {
+            LedgerTransfer transfer = new LedgerTransfer(UUID.randomUUID(), fromAccountNumber, toAccountNumber,
+                    amount, LedgerTransferStatus.DEBITED);
+            submit(source, new LedgerCommand.Debit(transfer, result));
+        }
+        return result;
+    }
+
+    LedgerPartition partitionFor(String accountNumber) {
+        return partitions().get(partitionIndex(accountNumber));
+    }
+
+    int partitionIndex(String accountNumber) {
+        return Math.floorMod(Objects.hashCode(accountNumber), properties.getPartitions());
+    }
+
+    private List<LedgerPartition> partitions() {
+        List<LedgerPartition> current = partitions;
+        if (current.isEmpty()) {
+            throw new LedgerUnavailableException("Ledger is not running");
+        }
+        return current;
+    }
+
+    private static void submit(LedgerPartition partition, LedgerCommand command) {
+        if (!partition.offer(command)) {
+            throw new LedgerUnavailableException("Ledger partition is overloaded or stopping, retry later");
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.get(properties.getAckTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new LedgerOutcomeUnknownException("Ledger operation failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new LedgerOutcomeUnknownException("Ledger did not acknowledge the operation within "
+                    + properties.getAckTimeout() + "; it may still complete");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerOutcomeUnknownException("Interrupted while waiting for the ledger");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.olegi.testbankapi.ledger;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Durable store behind the ledger engine: the engine acknowledges an operation only after the batch that
+ * contains it has been written, and rebuilds its state from here on startup.
+ */
+public interface LedgerJournal {
+
+    /**
+     * Writes the batch atomically; once this returns, the batch survives a crash.
+     */
+    void write(JournalBatch batch);
+
+    /**
+     * Returns once every batch written so far is in the {@code account} and {@code transaction} tables, for reads
+     * that go there rather than through the engine. Journals that write those tables directly return at once.
+     */
+    default void awaitApplied() {
+    }
+
+    /**
+     * Whether {@link #write} has updated the tables when it returns. A journal that applies later evicts the
+     * account cache itself once it has.
+     */
+    default boolean isAppliedOnWrite() {
+        return true;
+    }
+
+    /**
+     * Streams every account with its total balance and returns how many there were.
+     */
+    long loadAccounts(Consumer<LedgerAccount> consumer);
+
+    Optional<LedgerAccount> loadAccount(String accountNumber);
+
+    /**
+     * Transfers that were debited but not yet credited, rejected but not yet refunded, or reserved for a batch
+     * that was never committed.
+     */
+    List<LedgerTransfer> loadUnfinishedTransfers();
+}
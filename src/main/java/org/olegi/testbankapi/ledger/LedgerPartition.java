@@ -0,0 +1,486 @@
+package org.olegi.testbankapi.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.TransferItemResultDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.enums.TransferItemStatus;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.exceptions.LedgerOutcomeUnknownException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One single-threaded ledger worker. It owns the balances of its accounts, applies queued commands to them in
+ * order without locks, and writes whatever accumulated while the previous journal write was running as the
+ * next batch, so the batch size grows with load. Results are completed only after the batch is written.
+ */
+@Slf4j
+final class LedgerPartition implements Runnable {
+
+    private static final String INSUFFICIENT_FUNDS_FOR_WITHDRAWAL = "Insufficient funds for withdrawal";
+    private static final String INSUFFICIENT_FUNDS_FOR_TRANSFER = "Insufficient funds for transfer amount";
+
+    private final int index;
+    private final LedgerProperties properties;
+    private final LedgerJournal journal;
+    private final AccountCache accountCache;
+    private final LedgerEngine engine;
+    private final Map<String, LedgerAccount> accounts = new HashMap<>();
+    // Unbounded so that transfer steps forwarded between partitions never block a worker;
+    // client commands are bounded in offer().
+    private final BlockingQueue<LedgerCommand> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean stopping;
+
+    private JournalBatch batch = new JournalBatch();
+    private final List<LedgerCommand> batchCommands = new ArrayList<>();
+    private final List<Runnable> acknowledgements = new ArrayList<>();
+    private final Set<String> touched = new HashSet<>();
+
+    LedgerPartition(int index, LedgerProperties properties, LedgerJournal journal, AccountCache accountCache,
+                    LedgerEngine engine) {
+        this.index = index;
+        this.properties = properties;
+        this.journal = journal;
+        this.accountCache = accountCache;
+        this.engine = engine;
+        this.thread = new Thread(this, "ledger-" + index);
+    }
+
+    /**
+     * Adds an account loaded at startup. Must be called before {@link #start()}.
+     */
+    void preload(LedgerAccount account) {
+        accounts.put(account.getAccountNumber(), account);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues a client command; returns false if the partition is stopping or its queue is full.
+     */
+    boolean offer(LedgerCommand command) {
+        if (stopping || queue.size() >= properties.getQueueCapacity()) {
+            return false;
+        }
+        return queue.add(command);
+    }
+
+    /**
+     * Queues a follow-up step of a transfer regardless of the queue size.
+     */
+    void enqueue(LedgerCommand command) {
+        queue.add(command);
+    }
+
+    /**
+     * Stops taking client commands and lets the worker exit once its queue is empty.
+     */
+    void shutdown() {
+        stopping = true;
+    }
+
+    void awaitTermination() throws InterruptedException {
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        List<LedgerCommand> commands = new ArrayList<>(properties.getMaxBatchSize());
+        while (true) {
+            LedgerCommand first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                if (stopping) {
+                    return;
+                }
+                continue;
+            }
+            commands.add(first);
+            queue.drainTo(commands, properties.getMaxBatchSize() - 1);
+            for (LedgerCommand command : commands) {
+                if (command instanceof LedgerCommand.Evict evict) {
+                    // Anything pending for the account must reach the database before it is reloaded from there.
+                    flush();
+                    accounts.remove(evict.accountNumber());
+                    evict.result().complete(null);
+                    continue;
+                }
+                try {
+                    apply(command);
+                    batchCommands.add(command);
+                } catch (RuntimeException e) {
+                    log.error("Ledger partition {}: failed to apply {}", index, command, e);
+                    command.result().completeExceptionally(e);
+                }
+            }
+            flush();
+            commands.clear();
+        }
+    }
+
+    private void apply(LedgerCommand command) {
+        if (command instanceof LedgerCommand.Deposit deposit) {
+            applyDeposit(deposit);
+        } else if (command instanceof LedgerCommand.Withdraw withdraw) {
+            applyWithdraw(withdraw);
+        } else if (command instanceof LedgerCommand.Transfer transfer) {
+            applyTransfer(transfer);
+        } else if (command instanceof LedgerCommand.Debit debit) {
+            applyDebit(debit);
+        } else if (command instanceof LedgerCommand.Credit credit) {
+            applyCredit(credit);
+        } else if (command instanceof LedgerCommand.Refund refund) {
+            applyRefund(refund);
+        } else if (command instanceof LedgerCommand.Batch batchCommand) {
+            applyBatch(batchCommand);
+        } else if (command instanceof LedgerCommand.Reserve reserve) {
+            applyReserve(reserve);
+        } else if (command instanceof LedgerCommand.Confirm confirm) {
+            applyConfirm(confirm);
+        }
+    }
+
+    private void applyDeposit(LedgerCommand.Deposit deposit) {
+        LedgerAccount account = account(deposit.accountNumber());
+        if (account == null) {
+            reject(deposit, accountNotFound(deposit.accountNumber()));
+            return;
+        }
+        change(account, deposit.amount(), TransactionTypes.DEPOSIT, null);
+        AccountDTO updated = new AccountDTO(account.getAccountNumber(), account.getBalance());
+        acknowledgements.add(() -> deposit.result().complete(updated));
+    }
+
+    private void applyWithdraw(LedgerCommand.Withdraw withdraw) {
+        LedgerAccount account = account(withdraw.accountNumber());
+        if (account == null) {
+            reject(withdraw, accountNotFound(withdraw.accountNumber()));
+            return;
+        }
+        if (account.getBalance().compareTo(withdraw.amount()) < 0) {
+            reject(withdraw, new InsufficientFundsException(INSUFFICIENT_FUNDS_FOR_WITHDRAWAL));
+            return;
+        }
+        change(account, withdraw.amount().negate(), TransactionTypes.WITHDRAW, null);
+        AccountDTO updated = new AccountDTO(account.getAccountNumber(), account.getBalance());
+        acknowledgements.add(() -> withdraw.result().complete(updated));
+    }
+
+    private void applyTransfer(LedgerCommand.Transfer transfer) {
+        LedgerAccount from = account(transfer.fromAccountNumber());
+        LedgerAccount to = account(transfer.toAccountNumber());
+        if (from == null || to == null) {
+            reject(transfer, accountNotFound(from == null ? transfer.fromAccountNumber() : transfer.toAccountNumber()));
+            return;
+        }
+        if (from.getBalance().compareTo(transfer.amount()) < 0) {
+            reject(transfer, new InsufficientFundsException(INSUFFICIENT_FUNDS_FOR_TRANSFER));
+            return;
+        }
+        UUID transferId = UUID.randomUUID();
+        change(from, transfer.amount().negate(), TransactionTypes.TRANSFER, transferId);
+        change(to, transfer.amount(), TransactionTypes.TRANSFER_IN, transferId);
+        acknowledgements.add(() -> transfer.result().complete(null));
+    }
+
+    private void applyDebit(LedgerCommand.Debit debit) {
+        LedgerTransfer transfer = debit.transfer();
+        LedgerAccount from = account(transfer.fromAccountNumber());
+        if (from == null) {
+            reject(debit, accountNotFound(transfer.fromAccountNumber()));
+            return;
+        }
+        if (from.getBalance().compareTo(transfer.amount()) < 0) {
+            reject(debit, new InsufficientFundsException(INSUFFICIENT_FUNDS_FOR_TRANSFER));
+            return;
+        }
+        change(from, transfer.amount().negate(), TransactionTypes.TRANSFER, transfer.id());
+        batch.startTransfer(transfer);
+        // The credit may only be applied once the debit is durable, or a crash could create money.
+        acknowledgements.add(() -> engine.partitionFor(transfer.toAccountNumber())
+                .enqueue(new LedgerCommand.Credit(transfer, debit.result())));
+    }
+
+    private void applyCredit(LedgerCommand.Credit credit) {
+        LedgerTransfer transfer = credit.transfer();
+        LedgerAccount to = account(transfer.toAccountNumber());
+        if (to == null) {
+            batch.setTransferStatus(transfer.id(), LedgerTransferStatus.REJECTED);
+            acknowledgements.add(() -> engine.partitionFor(transfer.fromAccountNumber())
+                    .enqueue(new LedgerCommand.Refund(transfer, credit.result())));
+            return;
+        }
+        change(to, transfer.amount(), TransactionTypes.TRANSFER_IN, transfer.id());
+        batch.setTransferStatus(transfer.id(), LedgerTransferStatus.CREDITED);
+        acknowledgements.add(() -> credit.result().complete(null));
+    }
+
+    private void applyRefund(LedgerCommand.Refund refund) {
+        LedgerTransfer transfer = refund.transfer();
+        LedgerAccount from = account(transfer.fromAccountNumber());
+        if (from == null) {
+            log.warn("Ledger partition {}: cannot refund transfer {}, account {} no longer exists",
+                    index, transfer.id(), transfer.fromAccountNumber());
+        } else {
+            // The refund is the transfer's credit leg, back on the source account.
+            change(from, transfer.amount(), TransactionTypes.TRANSFER_IN, transfer.id());
+        }
+        batch.setTransferStatus(transfer.id(), LedgerTransferStatus.REFUNDED);
+        if (transfer.status() == LedgerTransferStatus.RESERVED) {
+            acknowledgements.add(() -> refund.result().complete(null));
+        } else {
+            acknowledgements.add(() -> refund.result().completeExceptionally(accountNotFound(transfer.toAccountNumber())));
+        }
+    }
+
+    /**
+     * Checks this partition's side of every item in order: that its source and target accounts exist and that
+     * its source accounts cover it. Only if all of them pass are the source accounts debited and the transfers
+     * stored as {@code RESERVED}. The running balances hold the batch's debits but not its credits, which only
+     * land once the batch is committed.
+     */
+    private void applyReserve(LedgerCommand.Reserve reserve) {
+        List<LedgerTransfer> transfers = reserve.transfers();
+        List<RuntimeException> errors = Arrays.asList(new RuntimeException[transfers.size()]);
+        Map<String, BigDecimal> balances = new HashMap<>();
+        boolean rejected = false;
+        for (int i = 0; i < transfers.size(); i++) {
+            LedgerTransfer transfer = transfers.get(i);
+            if (transfer == null) {
+                continue;
+            }
+            String from = transfer.fromAccountNumber();
+            String to = transfer.toAccountNumber();
+            boolean source = owns(from);
+            RuntimeException error = null;
+            if (source && account(from) == null) {
+                error = accountNotFound(from);
+            } else if (owns(to) && account(to) == null) {
+                error = accountNotFound(to);
+            } else if (source && balances.computeIfAbsent(from, accountNumber -> accounts.get(accountNumber).getBalance())
+                    .compareTo(transfer.amount()) < 0) {
+                error = new InsufficientFundsException(INSUFFICIENT_FUNDS_FOR_TRANSFER);
+            }
+            if (error != null) {
+                errors.set(i, error);
+                rejected = true;
+            } else if (source) {
+                balances.merge(from, transfer.amount().negate(), BigDecimal::add);
+            }
+        }
+        if (!rejected) {
+            for (LedgerTransfer transfer : transfers) {
+                if (transfer != null && owns(transfer.fromAccountNumber())) {
+                    change(accounts.get(transfer.fromAccountNumber()), transfer.amount().negate(),
+                            TransactionTypes.TRANSFER, transfer.id());
+                    batch.startTransfer(transfer);
+                }
+            }
+        }
+        acknowledgements.add(() -> reserve.result().complete(errors));
+    }
+
+    /**
+     * The single journal write that commits a reserved batch: the transfers become {@code DEBITED}, so from here
+     * on a restart credits them instead of refunding them.
+     */
+    private void applyConfirm(LedgerCommand.Confirm confirm) {
+        List<LedgerTransfer> transfers = confirm.transfers();
+        transfers.forEach(transfer -> batch.setTransferStatus(transfer.id(), LedgerTransferStatus.DEBITED));
+        acknowledgements.add(() -> {
+            for (int i = 0; i < transfers.size(); i++) {
+                LedgerTransfer transfer = transfers.get(i);
+                engine.partitionFor(transfer.toAccountNumber())
+                        .enqueue(new LedgerCommand.Credit(transfer, confirm.credits().get(i)));
+            }
+            confirm.result().complete(null);
+        });
+    }
+
+    private boolean owns(String accountNumber) {
+        return engine.partitionFor(accountNumber) == this;
+    }
+
+    /**
+     * Same rules as {@code TransferServiceImpl.applyBatch}: items are checked in order against running
+     * balances, and a failed all-or-nothing batch changes nothing.
+     */
+    private void applyBatch(LedgerCommand.Batch batchCommand) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        List<TransferItemResultDTO> results = new ArrayList<>(batchCommand.transfers().size());
+        int failed = 0;
+        for (int i = 0; i < batchCommand.transfers().size(); i++) {
+            TransferRequestDTO transfer = batchCommand.transfers().get(i);
+            String error = checkBatchItem(transfer, balances);
+            if (error != null) {
+                results.add(new TransferItemResultDTO(i, TransferItemStatus.FAILED, error));
+                failed++;
+                continue;
+            }
+            balances.merge(transfer.getFromAccountNumber(), transfer.getAmount().negate(), BigDecimal::add);
+            balances.merge(transfer.getToAccountNumber(), transfer.getAmount(), BigDecimal::add);
+            results.add(new TransferItemResultDTO(i, TransferItemStatus.APPLIED, null));
+        }
+
+        BatchTransferResultDTO result;
+        if (failed > 0 && batchCommand.mode() == BatchTransferMode.ALL_OR_NOTHING) {
+            results.stream()
+                    .filter(item -> item.getStatus() == TransferItemStatus.APPLIED)
+                    .forEach(item -> item.setStatus(TransferItemStatus.SKIPPED));
+            result = new BatchTransferResultDTO(batchCommand.mode(), 0, failed, results);
+        } else {
+            for (TransferItemResultDTO item : results) {
+                if (item.getStatus() == TransferItemStatus.APPLIED) {
+                    TransferRequestDTO transfer = batchCommand.transfers().get(item.getIndex());
+                    UUID transferId = UUID.randomUUID();
+                    change(accounts.get(transfer.getFromAccountNumber()), transfer.getAmount().negate(),
+                            TransactionTypes.TRANSFER, transferId);
+                    change(accounts.get(transfer.getToAccountNumber()), transfer.getAmount(),
+                            TransactionTypes.TRANSFER_IN, transferId);
+                }
+            }
+            result = new BatchTransferResultDTO(batchCommand.mode(), results.size() - failed, failed, results);
+        }
+        acknowledgements.add(() -> batchCommand.result().complete(result));
+    }
+
+    private String checkBatchItem(TransferRequestDTO transfer, Map<String, BigDecimal> balances) {
+        if (transfer.getAmount() == null || transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Amount must be greater than zero";
+        }
+        for (String accountNumber : List.of(nullToEmpty(transfer.getFromAccountNumber()),
+                nullToEmpty(transfer.getToAccountNumber()))) {
+            if (!balances.containsKey(accountNumber)) {
+                LedgerAccount account = account(accountNumber);
+                if (account == null) {
+                    return "Account not found: " + accountNumber;
+                }
+                balances.put(accountNumber, account.getBalance());
+            }
+        }
+        if (balances.get(transfer.getFromAccountNumber()).compareTo(transfer.getAmount()) < 0) {
+            return INSUFFICIENT_FUNDS_FOR_TRANSFER;
+        }
+        return null;
+    }
+
+    private static String nullToEmpty(String accountNumber) {
+        return accountNumber == null ? "" : accountNumber;
+    }
+
+    /**
+     * Changes the in-memory balance and records the change; {@code transferId} links the two legs of a transfer
+     * and is null otherwise.
+     */
+    private void change(LedgerAccount account, BigDecimal delta, TransactionTypes transactionType, UUID transferId) {
+        account.setBalance(account.getBalance().add(delta));
+        batch.adjust(account, delta);
+        batch.record(account, transactionType, delta.abs(), transferId);
+        touched.add(account.getAccountNumber());
+    }
+
+    private void reject(LedgerCommand command, RuntimeException error) {
+        // Completed with the batch: the decision may depend on changes that are not durable yet.
+        acknowledgements.add(() -> command.result().completeExceptionally(error));
+    }
+
+    private LedgerAccount account(String accountNumber) {
+        LedgerAccount account = accounts.get(accountNumber);
+        if (account == null) {
+            // Created after startup, or evicted: nothing for it can be pending, so the database is current.
+            account = journal.loadAccount(accountNumber).orElse(null);
+            if (account != null) {
+                accounts.put(accountNumber, account);
+            }
+        }
+        return account;
+    }
+
+    private void flush() {
+        if (batchCommands.isEmpty()) {
+            return;
+        }
+        try {
+            if (!batch.isEmpty()) {
+                journal.write(batch);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ledger partition {}: journal write of {} commands failed", index, batchCommands.size(), e);
+            recover(e);
+            return;
+        } finally {
+            batch = new JournalBatch();
+        }
+        if (journal.isAppliedOnWrite()) {
+            // Otherwise a read between the acknowledgement and the apply would cache the old balance again.
+            accountCache.evictAfterCommit(touched);
+        }
+        acknowledgements.forEach(Runnable::run);
+        reset();
+    }
+
+    /**
+     * Forgets the in-memory state the failed batch produced and fails its commands, except transfer steps
+     * whose debit is already durable: those are retried, or the money would stay in flight.
+     */
+    private void recover(RuntimeException cause) {
+        touched.forEach(accounts::remove);
+        List<LedgerCommand> retries = new ArrayList<>();
+        for (LedgerCommand command : batchCommands) {
+            if (command instanceof LedgerCommand.Credit || command instanceof LedgerCommand.Refund
+                    || command instanceof LedgerCommand.Confirm) {
+                retries.add(command);
+            } else {
+                // A failed commit may still have gone through; the accounts are reloaded from the journal anyway.
+                command.result().completeExceptionally(
+                        new LedgerOutcomeUnknownException("Ledger journal write failed", cause));
+            }
+        }
+        reset();
+        if (!retries.isEmpty()) {
+            try {
+                Thread.sleep(properties.getRetryBackoff().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            retries.forEach(queue::add);
+        }
+    }
+
+    private void reset() {
+        batchCommands.clear();
+        acknowledgements.clear();
+        touched.clear();
+    }
+
+    private static AccountNotFoundException accountNotFound(String accountNumber) {
+        return new AccountNotFoundException("Account not found: " + accountNumber);
+    }
+}
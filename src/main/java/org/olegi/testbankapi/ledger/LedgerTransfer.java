@@ -0,0 +1,17 @@
+package org.olegi.testbankapi.ledger;
+
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A transfer between accounts of different partitions, as stored in the {@code ledger_transfer} table.
+ */
+public record LedgerTransfer(UUID id, String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                             LedgerTransferStatus status) {
+
+    public LedgerTransfer withStatus(LedgerTransferStatus status) {
+        return new LedgerTransfer(id, fromAccountNumber, toAccountNumber, amount, status);
+    }
+}
@@ -0,0 +1,215 @@
+package org.olegi.testbankapi.ledger;
+
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Uses the {@code account} and {@code transaction} tables themselves as the journal: a batch is durable once
+ * the database transaction holding its JDBC batches commits. {@link #write} is a group commit: one partition at
+ * a time commits, and the batches other partitions hand in meanwhile go into its next transaction, so the
+ * database sees one commit per round of all partitions rather than one per partition.
+ * <p>
+ * The acknowledgement still waits for that commit, since here the database is the only durable copy; the
+ * {@link WalLedgerJournal} acknowledges from its log and applies to the database in the background.
+ */
+@Component
+public class PostgresLedgerJournal implements LedgerJournal {
+
+    // Balances include striped slots; deltas are always applied to the account row.
+    private static final String ACCOUNT_SQL = """
+            SELECT a.id, a.account_number,
+                   COALESCE(a.balance, 0) + (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slot s
+                                             WHERE s.account_id = a.id)
+            FROM account a
+            """;
+
+    private static final RowMapper<LedgerAccount> ACCOUNT_ROW_MAPPER = (resultSet, rowNum) -> new LedgerAccount(
+            resultSet.getLong(1), resultSet.getString(2), resultSet.getBigDecimal(3));
+
+    // Skips the row instead of failing the batch when the account was deleted concurrently.
+    private static final String INSERT_TRANSACTION_SQL = """
+            INSERT INTO transaction (amount, time_stamp, transaction_type, account_id, balance_after, transfer_id)
+            SELECT ?, ?, ?, id, ?, ? FROM account WHERE id = ?
+            """;
+
+    private static final String UPDATE_BALANCE_SQL = "UPDATE account SET balance = balance + ? WHERE id = ?";
+
+    private static final String INSERT_TRANSFER_SQL = """
+            INSERT INTO ledger_transfer (id, from_account_number, to_account_number, amount, status, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String UPDATE_TRANSFER_SQL = "UPDATE ledger_transfer SET status = ?, updated_at = ? WHERE id = ?";
+
+    private static final String UNFINISHED_TRANSFERS_SQL = """
+            SELECT id, from_account_number, to_account_number, amount, status FROM ledger_transfer
+            WHERE status IN ('DEBITED', 'REJECTED', 'RESERVED')
+            ORDER BY created_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerProperties properties;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+
+    // One writer at a time commits; the others queue their batches and wait on the monitor until covered.
+    private final Object commitMonitor = new Object();
+    private final List<PendingBatch> queued = new ArrayList<>();
+    private boolean committing;
+
+    private static final class PendingBatch {
+
+        private final JournalBatch batch;
+        private boolean done;
+        private RuntimeException failure;
+
+        private PendingBatch(JournalBatch batch) {
+            this.batch = batch;
+        }
+    }
+
+    public PostgresLedgerJournal(JdbcTemplate jdbcTemplate, LedgerProperties properties,
+                                 PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        // Partitions own disjoint accounts, so their batches never wait on each other's rows.
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public void write(JournalBatch batch) {
+        PendingBatch pending = new PendingBatch(batch);
+        List<PendingBatch> group;
+        synchronized (commitMonitor) {
+            queued.add(pending);
+            boolean interrupted = false;
+            // Uninterruptible: once queued, the batch may still be committed by another writer.
+            while (committing && !pending.done) {
+                try {
+                    commitMonitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (pending.done) {
+                throwIfFailed(pending);
+                return;
+            }
+            committing = true;
+            group = new ArrayList<>(queued);
+            queued.clear();
+        }
+        try {
+            commit(group);
+        } finally {
+            synchronized (commitMonitor) {
+                group.forEach(member -> member.done = true);
+                committing = false;
+                commitMonitor.notifyAll();
+            }
+        }
+        throwIfFailed(pending);
+    }
+
+    /**
+     * Writes the batch in the caller's transaction.
+     */
+    void apply(JournalBatch batch) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!batch.getStartedTransfers().isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TRANSFER_SQL, batch.getStartedTransfers().stream()
+                    .map(transfer -> new Object[]{transfer.id(), transfer.fromAccountNumber(),
+                            transfer.toAccountNumber(), transfer.amount(), transfer.status().name(), now, now})
+                    .toList());
+        }
+        if (!batch.getTransferStatuses().isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_TRANSFER_SQL, batch.getTransferStatuses().entrySet().stream()
+                    .map(entry -> new Object[]{entry.getValue().name(), now, entry.getKey()})
+                    .toList());
+        }
+        if (!batch.getBalanceDeltas().isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, batch.getBalanceDeltas().entrySet().stream()
+                    .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                    .toList());
+        }
+        if (!batch.getTransactions().isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, batch.getTransactions().stream()
+                    .map(row -> new Object[]{row.amount(), row.timeStamp(), row.transactionType().name(),
+                            row.balanceAfter(), row.transferId(), row.accountId()})
+                    .toList());
+        }
+    }
+
+    /**
+     * Commits the group in one transaction. A failure fails every batch of it: the commit may still have gone
+     * through, so none of them can be retried on its own.
+     */
+    private void commit(List<PendingBatch> group) {
+        try {
+            writeTransaction.executeWithoutResult(status -> group.forEach(member -> apply(member.batch)));
+        } catch (RuntimeException e) {
+            group.forEach(member -> member.failure = e);
+        }
+    }
+
+    private static void throwIfFailed(PendingBatch pending) {
+        if (pending.failure != null) {
+            throw pending.failure;
+        }
+    }
+
+    @Override
+    public long loadAccounts(Consumer<LedgerAccount> consumer) {
+        AtomicLong count = new AtomicLong();
+        // The PostgreSQL driver only honours the fetch size with autocommit off.
+        readTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ACCOUNT_SQL);
+            statement.setFetchSize(properties.getLoadFetchSize());
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            consumer.accept(ACCOUNT_ROW_MAPPER.mapRow(resultSet, 0));
+            count.incrementAndGet();
+        }));
+        return count.get();
+    }
+
+    @Override
+    public Optional<LedgerAccount> loadAccount(String accountNumber) {
+        return jdbcTemplate.query(ACCOUNT_SQL + "WHERE a.account_number = ?", ACCOUNT_ROW_MAPPER, accountNumber)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<LedgerTransfer> loadUnfinishedTransfers() {
+        return jdbcTemplate.query(UNFINISHED_TRANSFERS_SQL, (resultSet, rowNum) -> new LedgerTransfer(
+                resultSet.getObject(1, UUID.class),
+                resultSet.getString(2),
+                resultSet.getString(3),
+                resultSet.getBigDecimal(4),
+                LedgerTransferStatus.valueOf(resultSet.getString(5))));
+    }
+}
@@ -0,0 +1,279 @@
+package org.olegi.testbankapi.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.exceptions.LedgerUnavailableException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Journal that makes a batch durable by appending it to a memory-mapped {@link WriteAheadLog} and fsyncing it
+ * together with whatever other partitions appended meanwhile, instead of committing a database transaction.
+ * A background thread then applies the logged batches to the database through {@link PostgresLedgerJournal},
+ * several per transaction, and advances {@code ledger_wal_checkpoint} in the same transaction. On startup the
+ * records after the checkpoint are applied before the engine loads its balances.
+ * <p>
+ * The database trails the log by the apply delay, so the account cache is evicted after the apply commits
+ * rather than at the acknowledgement, and balance and history reads wait for {@link #awaitApplied()} first.
+ * Loading a single account waits the same way, since the engine relies on the database being current for
+ * accounts it does not hold.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "bank.ledger.wal", name = "enabled", havingValue = "true")
+@Slf4j
+public class WalLedgerJournal implements LedgerJournal, SmartLifecycle {
+
+    private static final String CHECKPOINT_SQL = "SELECT applied_lsn FROM ledger_wal_checkpoint WHERE id = 1";
+
+    private static final String UPDATE_CHECKPOINT_SQL = "UPDATE ledger_wal_checkpoint SET applied_lsn = ? WHERE id = 1";
+
+    private final LedgerProperties properties;
+    private final PostgresLedgerJournal database;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountCache accountCache;
+    private final TransactionTemplate applyTransaction;
+
+    // Records enter the queue in log order, so the checkpoint never skips one that is still pending.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final BlockingQueue<LoggedBatch> pending = new LinkedBlockingQueue<>();
+    // Request threads wait here; a monitor would pin a virtual thread to its carrier for the whole wait.
+    private final ReentrantLock appliedLock = new ReentrantLock();
+    private final Condition applied = appliedLock.newCondition();
+    private volatile long appliedLsn;
+    private volatile WriteAheadLog wal;
+    private volatile Thread applier;
+    private volatile boolean running;
+
+    private record LoggedBatch(long endLsn, JournalBatch batch) {
+    }
+
+    public WalLedgerJournal(LedgerProperties properties, PostgresLedgerJournal database, JdbcTemplate jdbcTemplate,
+                            AccountCache accountCache, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.database = database;
+        this.jdbcTemplate = jdbcTemplate;
+        this.accountCache = accountCache;
+        this.applyTransaction = new TransactionTemplate(transactionManager);
+        this.applyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Override
+    public void start() {
+        if (running) {
+            return;
+        }
+        LedgerProperties.Wal config = properties.getWal();
+        long checkpoint = jdbcTemplate.queryForObject(CHECKPOINT_SQL, Long.class);
+        List<LoggedBatch> replayed = new ArrayList<>();
+        long[] replayedCount = new long[1];
+        try {
+            wal = WriteAheadLog.open(Path.of(config.getDirectory()), Math.toIntExact(config.getSegmentSize().toBytes()),
+                    config.getFsyncInterval(), checkpoint);
+            wal.replay(checkpoint, (startLsn, endLsn, payload) -> {
+                replayed.add(new LoggedBatch(endLsn, JournalBatchCodec.decode(payload)));
+                replayedCount[0]++;
+                if (replayed.size() >= config.getApplyBatchSize()) {
+                    apply(replayed);
+                    replayed.clear();
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open ledger write-ahead log in " + config.getDirectory(), e);
+        }
+        if (!replayed.isEmpty()) {
+            apply(replayed);
+        }
+        appliedLsn = wal.getAppendedLsn();
+        running = true;
+        applier = new Thread(this::runApplier, "ledger-wal-apply");
+        applier.start();
+        log.info("Ledger write-ahead log opened at LSN {}: {} records replayed after checkpoint {}",
+                appliedLsn, replayedCount[0], checkpoint);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            applier.join();
+            wal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Closing ledger write-ahead log failed", e);
+        }
+        log.info("Ledger write-ahead log closed, applied up to LSN {}", appliedLsn);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Replays the log before the engine loads balances, and closes it after the engine's last write.
+     */
+    @Override
+    public int getPhase() {
+        return -1;
+    }
+
+    @Override
+    public void write(JournalBatch batch) {
+        byte[] record = JournalBatchCodec.encode(batch);
+        long lsn;
+        appendLock.lock();
+        try {
+            lsn = wal.append(record);
+            pending.add(new LoggedBatch(lsn, batch));
+        } finally {
+            appendLock.unlock();
+        }
+        wal.awaitDurable(lsn);
+    }
+
+    /**
+     * Called by the engine on startup, after the replay and before any write, so the database has every batch.
+     */
+    @Override
+    public long loadAccounts(Consumer<LedgerAccount> consumer) {
+        return database.loadAccounts(consumer);
+    }
+
+    @Override
+    public void awaitApplied() {
+        awaitApplied(wal.getAppendedLsn());
+    }
+
+    @Override
+    public boolean isAppliedOnWrite() {
+        return false;
+    }
+
+    @Override
+    public Optional<LedgerAccount> loadAccount(String accountNumber) {
+        awaitApplied(wal.getAppendedLsn());
+        return database.loadAccount(accountNumber);
+    }
+
+    @Override
+    public List<LedgerTransfer> loadUnfinishedTransfers() {
+        awaitApplied(wal.getAppendedLsn());
+        return database.loadUnfinishedTransfers();
+    }
+
+    private void awaitApplied(long lsn) {
+        if (appliedLsn >= lsn) {
+            return;
+        }
+        long remaining = properties.getAckTimeout().toNanos();
+        appliedLock.lock();
+        try {
+            while (appliedLsn < lsn) {
+                if (remaining <= 0) {
+                    throw new LedgerUnavailableException("Write-ahead log is not applied to the database yet");
+                }
+                try {
+                    remaining = applied.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new LedgerUnavailableException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+
+    private void runApplier() {
+        List<LoggedBatch> chunk = new ArrayList<>();
+        while (running || !pending.isEmpty()) {
+            try {
+                LoggedBatch first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                chunk.add(first);
+                pending.drainTo(chunk, properties.getWal().getApplyBatchSize() - 1);
+                // Never apply a record whose fsync might still fail.
+                wal.awaitDurable(chunk.get(chunk.size() - 1).endLsn());
+                if (!applyWithRetry(chunk)) {
+                    return;
+                }
+                chunk.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ledger write-ahead log apply stopped; remaining records are replayed on next start", e);
+                return;
+            }
+        }
+    }
+
+    private boolean applyWithRetry(List<LoggedBatch> chunk) throws InterruptedException {
+        while (true) {
+            try {
+                apply(chunk);
+                return true;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    log.error("Ledger write-ahead log: {} records left for replay on next start", chunk.size(), e);
+                    return false;
+                }
+                log.warn("Ledger write-ahead log: applying {} records failed, retrying", chunk.size(), e);
+                Thread.sleep(properties.getRetryBackoff().toMillis());
+            }
+        }
+    }
+
+    private void apply(List<LoggedBatch> chunk) {
+        long endLsn = chunk.get(chunk.size() - 1).endLsn();
+        applyTransaction.executeWithoutResult(status -> {
+            for (LoggedBatch logged : chunk) {
+                database.apply(logged.batch());
+                accountCache.evictAfterCommit(logged.batch().getAccountNumbers());
+            }
+            jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, endLsn);
+        });
+        long segmentSize = properties.getWal().getSegmentSize().toBytes();
+        if (endLsn / segmentSize != appliedLsn / segmentSize) {
+            try {
+                wal.deleteSegmentsBefore(endLsn);
+            } catch (IOException e) {
+                log.warn("Ledger write-ahead log: deleting applied segments failed", e);
+            }
+        }
+        appliedLock.lock();
+        try {
+            appliedLsn = endLsn;
+            applied.signalAll();
+        } finally {
+            appliedLock.unlock();
+        }
+    }
+}
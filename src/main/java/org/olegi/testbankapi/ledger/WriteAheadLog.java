@@ -0,0 +1,446 @@
+package org.olegi.testbankapi.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files.
+ * <p>
+ * A position in the log (LSN) is the segment's base LSN plus the offset within it; a segment is named after its
+ * base and the next one starts {@code segmentSize} later. Each record is framed as
+ * {@code [int length][int crc32c][payload]}, and the first frame whose length is zero or whose checksum does not
+ * match ends the log. Opening the log cuts a torn tail left by a crash at that point.
+ * <p>
+ * {@link #append} only copies the record into the mapping. {@link #awaitDurable} is a group commit: one waiter
+ * at a time forces everything appended so far, after first waiting {@code fsyncInterval} for other records to
+ * join it if other writers are waiting too, and every record it covered is durable when it returns. An fsync
+ * failure closes the log for writing, since whether the failed records reached the disk is unknown.
+ */
+@Slf4j
+public final class WriteAheadLog implements Closeable {
+
+    private static final int MAGIC = 0x4C57414C; // "LWAL"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long fsyncIntervalNanos;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final AtomicLong fsyncs = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    // One thread at a time flushes; the others wait on the monitor and return as soon as they are covered.
+    private final Object flushMonitor = new Object();
+    private boolean flushing;
+
+    // Guarded by appendLock.
+    private Segment current;
+    private final List<Segment> rolled = new ArrayList<>();
+
+    private volatile long appendedLsn;
+    private volatile long durableLsn;
+    private volatile IOException failure;
+
+    /**
+     * A log record as read back by {@link #replay}: {@code endLsn} is where the next record starts.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(long startLsn, long endLsn, ByteBuffer payload);
+    }
+
+    private WriteAheadLog(Path directory, int segmentSize, Duration fsyncInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating its first segment at {@code initialLsn} if it is empty.
+     */
+    public static WriteAheadLog open(Path directory, int segmentSize, Duration fsyncInterval, long initialLsn)
+            throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + FRAME_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        WriteAheadLog wal = new WriteAheadLog(directory, segmentSize, fsyncInterval);
+        List<Long> bases = wal.segmentBases();
+        if (bases.isEmpty()) {
+            wal.current = wal.createSegment(initialLsn);
+        } else {
+            wal.current = wal.recoverSegment(bases.get(bases.size() - 1));
+        }
+        wal.appendedLsn = wal.current.baseLsn + wal.current.position;
+        wal.durableLsn = wal.appendedLsn;
+        return wal;
+    }
+
+    /**
+     * Adds a record and returns the LSN just past it; the record is durable once {@link #awaitDurable} with that
+     * LSN returns.
+     */
+    public long append(byte[] payload) {
+        int frameSize = FRAME_HEADER_SIZE + payload.length;
+        if (frameSize > segmentSize - SEGMENT_HEADER_SIZE) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        appendLock.lock();
+        try {
+            checkWritable();
+            if (current.position + frameSize > segmentSize) {
+                roll();
+            }
+            MappedByteBuffer buffer = current.buffer;
+            int at = current.position;
+            buffer.putInt(at + 4, (int) crc.getValue());
+            buffer.put(at + FRAME_HEADER_SIZE, payload);
+            // Written last, so a frame is never visible before its payload.
+            buffer.putInt(at, payload.length);
+            current.position += frameSize;
+            appendedLsn = current.baseLsn + current.position;
+            return appendedLsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until everything up to {@code lsn} has been forced to disk.
+     */
+    public void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                synchronized (flushMonitor) {
+                    while (flushing && durableLsn < lsn) {
+                        waitUninterruptibly();
+                    }
+                    if (durableLsn >= lsn) {
+                        return;
+                    }
+                    checkWritable();
+                    flushing = true;
+                }
+                try {
+                    flush();
+                } finally {
+                    synchronized (flushMonitor) {
+                        flushing = false;
+                        flushMonitor.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    public long appendDurably(byte[] payload) {
+        long lsn = append(payload);
+        awaitDurable(lsn);
+        return lsn;
+    }
+
+    /**
+     * Reads, in order, every record that starts at or after {@code fromLsn}.
+     */
+    public void replay(long fromLsn, RecordHandler handler) throws IOException {
+        for (long base : segmentBases()) {
+            if (base + segmentSize <= fromLsn) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), segmentSize));
+                readHeader(buffer, base);
+                int end = scan(buffer, (start, next, payload) -> {
+                    if (base + start >= fromLsn) {
+                        handler.accept(base + start, base + next, payload);
+                    }
+                });
+                if (hasData(buffer, end)) {
+                    throw new IOException("Corrupt record in segment " + base + " at offset " + end);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes segments that lie entirely before {@code lsn}; the segment being written is always kept.
+     */
+    public int deleteSegmentsBefore(long lsn) throws IOException {
+        long currentBase;
+        List<Long> pending;
+        appendLock.lock();
+        try {
+            currentBase = current.baseLsn;
+            pending = rolled.stream().map(segment -> segment.baseLsn).toList();
+        } finally {
+            appendLock.unlock();
+        }
+        int deleted = 0;
+        for (long base : segmentBases()) {
+            if (base + segmentSize <= lsn && base < currentBase && !pending.contains(base)) {
+                Files.deleteIfExists(segmentPath(base));
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public long getAppendedLsn() {
+        return appendedLsn;
+    }
+
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    public long getFsyncCount() {
+        return fsyncs.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (flushMonitor) {
+            while (flushing) {
+                waitUninterruptibly();
+            }
+            flushing = true;
+        }
+        appendLock.lock();
+        try {
+            if (failure == null) {
+                for (Segment segment : rolled) {
+                    segment.force(segment.position);
+                }
+                current.force(current.position);
+                durableLsn = appendedLsn;
+            }
+            for (Segment segment : rolled) {
+                segment.close();
+            }
+            rolled.clear();
+            current.close();
+            if (failure == null) {
+                failure = new IOException("Write-ahead log closed");
+            }
+        } finally {
+            appendLock.unlock();
+            synchronized (flushMonitor) {
+                flushing = false;
+                flushMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void flush() {
+        // Like commit_siblings in PostgreSQL: a lone writer gains nothing from waiting.
+        if (fsyncIntervalNanos > 0 && waiters.get() > 1) {
+            LockSupport.parkNanos(fsyncIntervalNanos);
+        }
+        List<Segment> completed;
+        Segment segment;
+        int upTo;
+        long target;
+        appendLock.lock();
+        try {
+            completed = new ArrayList<>(rolled);
+            rolled.clear();
+            segment = current;
+            upTo = current.position;
+            target = appendedLsn;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            for (Segment done : completed) {
+                done.force(done.position);
+                done.close();
+            }
+            segment.force(upTo);
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException io ? io : new IOException(e);
+            log.error("Write-ahead log fsync failed, log closed for writing", e);
+            checkWritable();
+        }
+        fsyncs.incrementAndGet();
+        durableLsn = target;
+    }
+
+    private void waitUninterruptibly() {
+        try {
+            flushMonitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for fsync"));
+        }
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log is not writable", failure);
+        }
+    }
+
+    private void roll() throws IOException {
+        rolled.add(current);
+        current = createSegment(current.baseLsn + segmentSize);
+    }
+
+    private Segment createSegment(long baseLsn) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(baseLsn),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(baseLsn, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        writeHeader(segment.buffer, baseLsn);
+        segment.position = SEGMENT_HEADER_SIZE;
+        return segment;
+    }
+
+    /**
+     * Maps the last segment, finds the end of its valid records and zeroes everything after it, so a torn frame
+     * can never be read back once new records are written over it.
+     */
+    private Segment recoverSegment(long baseLsn) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(baseLsn), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(baseLsn, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        MappedByteBuffer buffer = segment.buffer;
+        if (buffer.getInt(0) == 0) {
+            // Crashed right after creating the file.
+            writeHeader(buffer, baseLsn);
+            segment.position = SEGMENT_HEADER_SIZE;
+        } else {
+            readHeader(buffer, baseLsn);
+            segment.position = scan(buffer, (start, next, payload) -> {
+            });
+        }
+        if (hasData(buffer, segment.position)) {
+            log.warn("Write-ahead log: discarding torn tail of segment {} after offset {}", baseLsn, segment.position);
+            for (int i = segment.position; i < segmentSize; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        segment.force(segmentSize);
+        return segment;
+    }
+
+    private interface FrameVisitor {
+        void accept(int start, int next, ByteBuffer payload);
+    }
+
+    /**
+     * Visits valid frames from the start of the segment and returns the offset where they end.
+     */
+    private int scan(ByteBuffer buffer, FrameVisitor visitor) {
+        int position = SEGMENT_HEADER_SIZE;
+        int limit = buffer.limit();
+        CRC32C crc = new CRC32C();
+        while (position + FRAME_HEADER_SIZE <= limit) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > limit - position - FRAME_HEADER_SIZE) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(position + FRAME_HEADER_SIZE, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            int next = position + FRAME_HEADER_SIZE + length;
+            visitor.accept(position, next, payload.asReadOnlyBuffer());
+            position = next;
+        }
+        return position;
+    }
+
+    private static boolean hasData(ByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeHeader(ByteBuffer buffer, long baseLsn) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, baseLsn);
+    }
+
+    private static void readHeader(ByteBuffer buffer, long baseLsn) throws IOException {
+        if (buffer.limit() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getLong(8) != baseLsn) {
+            throw new IOException("Not a write-ahead log segment: " + baseLsn);
+        }
+    }
+
+    private List<Long> segmentBases() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long baseLsn) {
+        return directory.resolve(String.format("%020d%s", baseLsn, SEGMENT_SUFFIX));
+    }
+
+    private static final class Segment {
+
+        private final long baseLsn;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int forced;
+
+        private Segment(long baseLsn, FileChannel channel, MappedByteBuffer buffer) {
+            this.baseLsn = baseLsn;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void force(int upTo) {
+            if (upTo > forced) {
+                buffer.force(forced, upTo - forced);
+                forced = upTo;
+            }
+        }
+
+        private void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -12,5 +12,6 @@ public interface AccountMapper {
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "transactions", ignore = true)
+    @Mapping(target = "balanceSlots", ignore = true)
     Account accountDTOToAccount(AccountDTO accountDTODTO);
 }
@@ -15,4 +15,9 @@ public class MapperConfig {
     public TransactionMapper transactionMapper() {
         return Mappers.getMapper(TransactionMapper.class);
     }
+
+    @Bean
+    public QueuedTransferMapper queuedTransferMapper() {
+        return Mappers.getMapper(QueuedTransferMapper.class);
+    }
 }
@@ -0,0 +1,11 @@
+package org.olegi.testbankapi.mapper;
+
+import org.mapstruct.Mapper;
+import org.olegi.testbankapi.dto.QueuedTransferDTO;
+import org.olegi.testbankapi.model.QueuedTransfer;
+
+@Mapper
+public interface QueuedTransferMapper {
+
+    QueuedTransferDTO queuedTransferToQueuedTransferDTO(QueuedTransfer queuedTransfer);
+}
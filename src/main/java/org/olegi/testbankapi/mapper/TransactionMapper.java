@@ -4,10 +4,14 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.olegi.testbankapi.dto.TransactionDTO;
 import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
 
 
 @Mapper
 public interface TransactionMapper {
     @Mapping(source = "transaction.timeStamp", target = "timestamp")
     TransactionDTO transactionToTransactionDTO(Transaction transaction);
+
+    @Mapping(source = "row.timeStamp", target = "timestamp")
+    TransactionDTO historyRowToTransactionDTO(TransactionHistoryRow row);
 }
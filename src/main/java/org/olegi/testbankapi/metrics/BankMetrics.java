@@ -0,0 +1,166 @@
+package org.olegi.testbankapi.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.DepositMustBePositiveException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the money-moving operations:
+ * <ul>
+ *     <li>{@code bank.operation} — latency histogram per {@code operation} and {@code outcome}: success,
+ *     insufficient_funds, not_found, conflict (lock timeouts, deadlocks and serialization failures), unavailable (no
+ *     database connection), invalid or error;</li>
+ *     <li>{@code bank.lock.wait} — time spent acquiring account row locks;</li>
+ *     <li>{@code bank.operation.retries} — operations repeated within the same request, per {@code reason};</li>
+ *     <li>{@code bank.history.rows} — rows per history page;</li>
+ *     <li>{@code bank.coalesced.batch.size} — deposits and withdrawals applied per {@code COALESCED} commit;</li>
+ *     <li>{@code bank.outbox.delay} — time from a balance change to the publication of its event.</li>
+ * </ul>
+ */
+@Component
+public class BankMetrics {
+
+    private static final Duration MIN_LATENCY = Duration.ofMillis(1);
+    private static final Duration MAX_LATENCY = Duration.ofSeconds(30);
+
+    private final MeterRegistry registry;
+    private final Timer lockWait;
+    private final DistributionSummary historyRows;
+    private final DistributionSummary coalescedBatchSize;
+    private final Timer outboxDelay;
+
+    public BankMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.lockWait = Timer.builder("bank.lock.wait")
+                .description("Time spent acquiring account row locks")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_LATENCY)
+                .maximumExpectedValue(MAX_LATENCY)
+                .register(registry);
+        this.historyRows = DistributionSummary.builder("bank.history.rows")
+                .description("Rows returned per history page")
+                .baseUnit("rows")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1_000.0)
+                .register(registry);
+        this.coalescedBatchSize = DistributionSummary.builder("bank.coalesced.batch.size")
+                .description("Deposits and withdrawals applied per coalesced commit")
+                .baseUnit("operations")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1_000.0)
+                .register(registry);
+        this.outboxDelay = Timer.builder("bank.outbox.delay")
+                .description("Time from a balance change to the publication of its event")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_LATENCY)
+                .maximumExpectedValue(MAX_LATENCY)
+                .register(registry);
+    }
+
+    public <T> T record(String operation, Supplier<T> action) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "success";
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            sample.stop(operationTimer(operation, outcome));
+        }
+    }
+
+    /**
+     * Times the operation from subscription to completion. A cancelled operation, such as one whose client went
+     * away, is not recorded.
+     */
+    public <T> Mono<T> record(String operation, Mono<T> action) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return action
+                    .doOnSuccess(result -> sample.stop(operationTimer(operation, "success")))
+                    .doOnError(RuntimeException.class, e -> sample.stop(operationTimer(operation, outcome(e))));
+        });
+    }
+
+    public void record(String operation, Runnable action) {
+        record(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T recordLockWait(Supplier<T> lock) {
+        return lockWait.record(lock);
+    }
+
+    public <T> Mono<T> recordLockWait(Mono<T> lock) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return lock.doOnSuccess(locked -> sample.stop(lockWait));
+        });
+    }
+
+    public void retried(String operation, String reason) {
+        Counter.builder("bank.operation.retries")
+                .description("Operations repeated within the same request")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordHistoryRows(int rows) {
+        historyRows.record(rows);
+    }
+
+    public void recordCoalescedBatch(int operations) {
+        coalescedBatchSize.record(operations);
+    }
+
+    public void recordOutboxDelay(Duration delay) {
+        outboxDelay.record(delay);
+    }
+
+    private Timer operationTimer(String operation, String outcome) {
+        return Timer.builder("bank.operation")
+                .description("Latency of money-moving and history operations")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_LATENCY)
+                .maximumExpectedValue(MAX_LATENCY)
+                .register(registry);
+    }
+
+    static String outcome(RuntimeException e) {
+        if (e instanceof InsufficientFundsException) {
+            return "insufficient_funds";
+        }
+        if (e instanceof AccountNotFoundException) {
+            return "not_found";
+        }
+        if (e instanceof ConcurrencyFailureException) {
+            return "conflict";
+        }
+        if (e instanceof CannotCreateTransactionException || e instanceof DataAccessResourceFailureException) {
+            return "unavailable";
+        }
+        if (e instanceof IllegalArgumentException || e instanceof DepositMustBePositiveException) {
+            return "invalid";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,26 @@
+package org.olegi.testbankapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public RequestStatementCounter requestStatementCounter() {
+        return new RequestStatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer(RequestStatementCounter requestStatementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, requestStatementCounter);
+    }
+
+    @Bean
+    public RequestStatementMetricsFilter requestStatementMetricsFilter(RequestStatementCounter requestStatementCounter,
+                                                                       MeterRegistry meterRegistry) {
+        return new RequestStatementMetricsFilter(requestStatementCounter, meterRegistry);
+    }
+}
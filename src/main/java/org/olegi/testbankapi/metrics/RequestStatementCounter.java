@@ -0,0 +1,32 @@
+package org.olegi.testbankapi.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the statements Hibernate prepares on the current thread between {@link #start} and {@link #stop}, the
+ * same count {@code Statistics.getPrepareStatementCount()} gives for the whole application. A batch is prepared
+ * once, and statements sent through {@code JdbcTemplate} are not seen.
+ */
+public class RequestStatementCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+        return sql;
+    }
+
+    public void start() {
+        count.set(new int[1]);
+    }
+
+    public int stop() {
+        int[] current = count.get();
+        count.remove();
+        return current == null ? 0 : current[0];
+    }
+}
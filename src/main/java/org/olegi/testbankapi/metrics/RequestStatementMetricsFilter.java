@@ -0,0 +1,47 @@
+package org.olegi.testbankapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records {@code bank.http.statements}: the Hibernate statements each request prepared, per method and URI
+ * template. Work a streaming response does after the handler returned is not included.
+ */
+public class RequestStatementMetricsFilter extends OncePerRequestFilter {
+
+    private final RequestStatementCounter counter;
+    private final MeterRegistry registry;
+
+    public RequestStatementMetricsFilter(RequestStatementCounter counter, MeterRegistry registry) {
+        this.counter = counter;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        counter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = counter.stop();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("bank.http.statements")
+                    .description("Hibernate statements prepared per request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(100.0)
+                    .register(registry)
+                    .record(statements);
+        }
+    }
+}
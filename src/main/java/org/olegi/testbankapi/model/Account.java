@@ -16,7 +16,8 @@ import java.util.List;
 public class Account {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+    @SequenceGenerator(name = "account_seq", sequenceName = "account_seq")
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -29,11 +30,23 @@ public class Account {
     @OneToMany(mappedBy = "account", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Transaction> transactions;
 
+    /**
+     * Number of {@code account_balance_slot} rows the balance is striped across; 0 means not striped.
+     * Only changed by the native striping queries in {@code AccountRepository}.
+     */
+    @Column(name = "balance_slots", insertable = false, updatable = false)
+    private int balanceSlots;
+
+    public Account(Long id, String accountNumber, BigDecimal balance, List<Transaction> transactions) {
+        this(id, accountNumber, balance, transactions, 0);
+    }
+
     @Override
     public String toString() {
         return "Account{" +
                 "id=" + id + ", " +
                 "accountNumber='" + accountNumber + '\'' +
-                ", balance=" + balance + '}';
+                ", balance=" + balance +
+                ", balanceSlots=" + balanceSlots + '}';
     }
 }
\ No newline at end of file
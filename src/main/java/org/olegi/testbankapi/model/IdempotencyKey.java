@@ -0,0 +1,40 @@
+package org.olegi.testbankapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.IdempotencyStatus;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_key")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(nullable = false)
+    private String requestHash;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private IdempotencyStatus status;
+
+    @Column
+    private Integer responseStatus;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
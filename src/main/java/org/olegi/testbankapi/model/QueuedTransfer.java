@@ -0,0 +1,47 @@
+package org.olegi.testbankapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.QueuedTransferStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "queued_transfer")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueuedTransfer {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private String fromAccountNumber;
+
+    @Column(nullable = false)
+    private String toAccountNumber;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private QueuedTransferStatus status;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime processedAt;
+}
@@ -10,6 +10,7 @@ import org.olegi.testbankapi.enums.TransactionTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Data
@@ -17,7 +18,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq")
     private Long id;
 
     @Column
@@ -35,7 +37,20 @@ public class Transaction {
     @Enumerated(EnumType.STRING)
     private TransactionTypes transactionType;
 
-    @ManyToOne
+    /**
+     * Account balance right after this transaction; null only for rows the backfill has not reached yet.
+     */
+    @Column(name = "balance_after")
+    private BigDecimal balanceAfter;
+
+    /**
+     * Shared by the debit and the credit leg of a transfer; null for other transactions and for transfers
+     * recorded before they had a credit leg.
+     */
+    @Column(name = "transfer_id")
+    private UUID transferId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id", nullable = false)
     private Account account;
 
@@ -45,6 +60,8 @@ public class Transaction {
                 "id=" + id +
                 ", transactionType='" + transactionType + '\'' +
                 ", amount=" + amount +
+                ", balanceAfter=" + balanceAfter +
+                ", transferId=" + transferId +
                 ", time_stamp=" + timeStamp + '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package org.olegi.testbankapi.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.OutboxProperties;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends one NDJSON line per event to {@code bank.outbox.file.path} and fsyncs once per batch. After a crash
+ * between the fsync and the relay's commit the batch is appended again; a reader resumes after the last sequence
+ * it has seen and skips lines with a lower one.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bank.outbox", name = "sink", havingValue = "FILE")
+@Slf4j
+public class FileOutboxSink implements OutboxSink, DisposableBean {
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+
+    public FileOutboxSink(OutboxProperties properties, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        Path path = Path.of(properties.getFile().getPath());
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        log.info("Balance change events are appended to {}", path.toAbsolutePath());
+    }
+
+    @Override
+    public void publish(List<BalanceChangeEventDTO> events) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (BalanceChangeEventDTO event : events) {
+                lines.write(objectMapper.writeValueAsBytes(event));
+                lines.write('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append balance change events", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        channel.close();
+    }
+}
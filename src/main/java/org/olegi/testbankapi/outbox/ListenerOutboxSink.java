@@ -0,0 +1,27 @@
+package org.olegi.testbankapi.outbox;
+
+import lombok.AllArgsConstructor;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands every event to the {@code @EventListener} methods taking a {@link BalanceChangeEventDTO}, on the relay
+ * thread. A listener that throws gets the batch again from the event that failed onwards, and earlier events of
+ * the batch a second time.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bank.outbox", name = "sink", havingValue = "LISTENER", matchIfMissing = true)
+@AllArgsConstructor
+public class ListenerOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void publish(List<BalanceChangeEventDTO> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
@@ -0,0 +1,142 @@
+package org.olegi.testbankapi.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.OutboxProperties;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.olegi.testbankapi.metrics.BankMetrics;
+import org.olegi.testbankapi.repository.BalanceOutboxRepository;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@code balance_outbox} rows to the {@link OutboxSink} in two steps, each its own transaction
+ * under an advisory lock, so only one relay of all instances works at a time:
+ * <ol>
+ *     <li>committed rows without a sequence are numbered after the highest one, in the order they were written;</li>
+ *     <li>the events after the sink's offset are published and the offset moves past them.</li>
+ * </ol>
+ * A sequence is committed before its event is published, so an event published again after a failure carries
+ * the same sequence. Writes to one account are serialized by its row lock and reach the outbox in commit order,
+ * so each account's events are published in the order its balance changed. Deposits into the slots of a striped
+ * account are the exception: they are not serialized with one another.
+ */
+@Component
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    private final BalanceOutboxRepository outboxRepository;
+    private final OutboxSink sink;
+    private final OutboxProperties properties;
+    private final BankMetrics bankMetrics;
+    private final TransactionTemplate relayTransaction;
+    private volatile ScheduledExecutorService executor;
+    private volatile boolean running;
+    private volatile long retryAt;
+
+    public OutboxRelay(BalanceOutboxRepository outboxRepository,
+                       OutboxSink sink,
+                       OutboxProperties properties,
+                       BankMetrics bankMetrics,
+                       PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.sink = sink;
+        this.properties = properties;
+        this.bankMetrics = bankMetrics;
+        this.relayTransaction = new TransactionTemplate(transactionManager);
+        this.relayTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * Runs one round: numbers new rows, then publishes one batch.
+     *
+     * @return the number of events published; 0 when there was nothing to publish or another relay holds the lock
+     */
+    public int relay() {
+        Objects.requireNonNull(relayTransaction.execute(status ->
+                outboxRepository.tryLock() ? outboxRepository.assignSequences(properties.getBatchSize()) : 0));
+        return Objects.requireNonNull(relayTransaction.execute(status -> {
+            if (!outboxRepository.tryLock()) {
+                return 0;
+            }
+            String sinkName = properties.getSink().name();
+            long offset = outboxRepository.lockOffset(sinkName);
+            List<BalanceChangeEventDTO> events = outboxRepository.findEventsAfter(offset, properties.getBatchSize());
+            if (events.isEmpty()) {
+                return 0;
+            }
+            sink.publish(events);
+            outboxRepository.updateOffset(sinkName, events.get(events.size() - 1).getSequence());
+            LocalDateTime now = LocalDateTime.now();
+            events.forEach(event -> bankMetrics.recordOutboxDelay(Duration.between(event.getTimeStamp(), now)));
+            return events.size();
+        }));
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        retryAt = System.nanoTime();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "outbox-relay"));
+        executor.scheduleWithFixedDelay(this::drain, 0, properties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Outbox relay started, publishing to {}", properties.getSink());
+    }
+
+    private void drain() {
+        if (System.nanoTime() - retryAt < 0) {
+            return;
+        }
+        try {
+            while (running && relay() == properties.getBatchSize()) {
+                // A full batch: more events are likely waiting.
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule for good.
+            log.warn("Outbox relay failed, retrying in {}: {}", properties.getRetryBackoff(), e.getMessage());
+            retryAt = System.nanoTime() + properties.getRetryBackoff().toNanos();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Outbox relay did not finish its batch in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Outbox relay stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server, so the events of the last requests are still published.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
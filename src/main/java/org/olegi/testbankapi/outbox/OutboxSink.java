@@ -0,0 +1,18 @@
+package org.olegi.testbankapi.outbox;
+
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+
+import java.util.List;
+
+/**
+ * Destination of the balance change events; {@code bank.outbox.sink} picks the implementation.
+ */
+public interface OutboxSink {
+
+    /**
+     * Publishes the events in sequence order and returns once the destination has taken all of them. Throws if
+     * it has not: the relay then publishes the same events again, so the destination sees each event at least
+     * once and can drop repeats by sequence.
+     */
+    void publish(List<BalanceChangeEventDTO> events);
+}
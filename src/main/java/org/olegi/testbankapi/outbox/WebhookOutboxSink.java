@@ -0,0 +1,56 @@
+package org.olegi.testbankapi.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.OutboxProperties;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/**
+ * POSTs each batch as a JSON array to {@code bank.outbox.webhook.url}. Anything but a 2xx answer, or no answer
+ * within the read timeout, fails the batch and the relay sends it again later.
+ */
+@Component
+@ConditionalOnProperty(prefix = "bank.outbox", name = "sink", havingValue = "WEBHOOK")
+@Slf4j
+public class WebhookOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final RestClient restClient;
+
+    public WebhookOutboxSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getWebhook().getConnectTimeout());
+        requestFactory.setReadTimeout(properties.getWebhook().getReadTimeout());
+        // Built here rather than from the auto-configured builder, which the reactive profile does not have.
+        this.restClient = RestClient.builder()
+                .baseUrl(properties.getWebhook().getUrl())
+                .requestFactory(requestFactory)
+                .build();
+        log.info("Balance change events are posted to {}", properties.getWebhook().getUrl());
+    }
+
+    @Override
+    public void publish(List<BalanceChangeEventDTO> events) {
+        byte[] body;
+        try {
+            // The application's mapper, so the events look the same as in the file log and the API.
+            body = objectMapper.writeValueAsBytes(events);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize balance change events", e);
+        }
+        restClient.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
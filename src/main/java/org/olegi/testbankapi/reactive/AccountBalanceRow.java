@@ -0,0 +1,12 @@
+package org.olegi.testbankapi.reactive;
+
+import org.springframework.data.relational.core.mapping.Column;
+
+import java.math.BigDecimal;
+
+/**
+ * Result of the shared balance statements. PostgreSQL folds their unquoted {@code accountNumber} alias to lower
+ * case, which the JPA projection matches but the R2DBC column naming does not.
+ */
+public record AccountBalanceRow(@Column("accountnumber") String accountNumber, BigDecimal balance) {
+}
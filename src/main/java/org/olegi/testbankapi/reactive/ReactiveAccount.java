@@ -0,0 +1,33 @@
+package org.olegi.testbankapi.reactive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+
+/**
+ * The {@code account} row as the reactive stack reads it; the JPA {@code Account} entity maps the same table.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("account")
+public class ReactiveAccount {
+
+    @Id
+    private Long id;
+
+    private String accountNumber;
+
+    private BigDecimal balance;
+
+    /**
+     * Number of {@code account_balance_slot} rows the balance is striped across; 0 means not striped.
+     */
+    @ReadOnlyProperty
+    private int balanceSlots;
+}
@@ -0,0 +1,62 @@
+package org.olegi.testbankapi.reactive;
+
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Reactive counterpart of {@link AccountRepository}: the money-moving statements are the very same native SQL,
+ * see the methods there for what each one does.
+ */
+public interface ReactiveAccountRepository extends R2dbcRepository<ReactiveAccount, Long> {
+
+    Mono<Boolean> existsByAccountNumber(String accountNumber);
+
+    /**
+     * Locks the accounts in ascending id order, like {@link AccountRepository#findAllByAccountNumberInForUpdate}.
+     */
+    @Query("""
+            SELECT id, account_number, balance, balance_slots FROM account
+            WHERE account_number IN (:accountNumbers)
+            ORDER BY id
+            FOR UPDATE
+            """)
+    Flux<ReactiveAccount> findAllByAccountNumberInForUpdate(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * Transaction-local {@code lock_timeout}, see {@code AccountRepositoryCustom#setLockTimeout}.
+     */
+    @Query("SELECT set_config('lock_timeout', :timeout, true)")
+    Mono<String> setLockTimeout(@Param("timeout") String timeout);
+
+    @Modifying
+    @Query("UPDATE account SET balance = :balance WHERE id = :id")
+    Mono<Integer> updateBalance(@Param("id") long id, @Param("balance") BigDecimal balance);
+
+    @Query(AccountRepository.BALANCE_BY_ACCOUNT_NUMBER)
+    Mono<AccountBalanceRow> findBalanceByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    @Query(AccountRepository.DEPOSIT_AND_RECORD)
+    Mono<AccountBalanceRow> depositAndRecord(
+            @Param("accountNumber") String accountNumber,
+            @Param("amount") BigDecimal amount,
+            @Param("timeStamp") LocalDateTime timeStamp,
+            @Param("slotSeed") int slotSeed);
+
+    @Query(AccountRepository.WITHDRAW_AND_RECORD)
+    Mono<AccountBalanceRow> withdrawAndRecord(
+            @Param("accountNumber") String accountNumber,
+            @Param("amount") BigDecimal amount,
+            @Param("timeStamp") LocalDateTime timeStamp);
+
+    @Query(AccountRepository.SWEEP_BALANCE_SLOTS)
+    Mono<BigDecimal> sweepBalanceSlots(@Param("accountId") long accountId);
+}
@@ -0,0 +1,122 @@
+package org.olegi.testbankapi.reactive;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.config.ReactiveProperties;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.config.TransferProperties;
+import org.olegi.testbankapi.enums.BalanceUpdateMode;
+import org.olegi.testbankapi.enums.TransferLockingMode;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * The {@code reactive} profile: WebFlux on Netty, with deposits, withdrawals, transfers, balances and history
+ * served by R2DBC repositories; the other endpoints keep their blocking services, run off the event loop.
+ * Flyway, the scheduled jobs and the blocking endpoints still use the JDBC pool.
+ * <p>
+ * The R2DBC pool is deliberately not a {@code ConnectionFactory} bean, nor its transaction manager a bean: either
+ * would make Spring Boot back off from the JDBC {@code DataSource} and the JPA transaction manager.
+ */
+@Slf4j
+@Configuration
+@Profile("reactive")
+@EnableR2dbcRepositories
+public class ReactiveConfig implements WebFluxConfigurer, DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    public ReactiveConfig(ReactiveProperties reactiveProperties,
+                          DataSourceProperties dataSourceProperties,
+                          TransactionProperties transactionProperties,
+                          TransferProperties transferProperties,
+                          LedgerProperties ledgerProperties) {
+        if (ledgerProperties.isEnabled()) {
+            throw new IllegalStateException("The reactive profile does not support bank.ledger.enabled=true");
+        }
+        if (transactionProperties.getDepositMode() != BalanceUpdateMode.ATOMIC
+                || transactionProperties.getWithdrawMode() != BalanceUpdateMode.ATOMIC
+                || transferProperties.getLockingMode() != TransferLockingMode.PESSIMISTIC) {
+            log.warn("The reactive profile always deposits and withdraws ATOMIC and transfers PESSIMISTIC");
+        }
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(connectionOptions(reactiveProperties, dataSourceProperties)))
+                .maxSize(reactiveProperties.getPoolMaxSize())
+                .maxAcquireTime(reactiveProperties.getPoolMaxAcquireTime())
+                .build());
+        log.info("R2DBC pool: max size {}, max acquire time {}",
+                reactiveProperties.getPoolMaxSize(), reactiveProperties.getPoolMaxAcquireTime());
+    }
+
+    private static ConnectionFactoryOptions connectionOptions(ReactiveProperties reactiveProperties,
+                                                              DataSourceProperties dataSourceProperties) {
+        if (StringUtils.hasText(reactiveProperties.getUrl())) {
+            return ConnectionFactoryOptions.parse(reactiveProperties.getUrl());
+        }
+        String jdbcUrl = dataSourceProperties.determineUrl();
+        if (!jdbcUrl.startsWith("jdbc:")) {
+            throw new IllegalStateException("Cannot derive an R2DBC URL from " + jdbcUrl + ", set bank.reactive.url");
+        }
+        return ConnectionFactoryOptions.parse("r2dbc:" + jdbcUrl.substring("jdbc:".length())).mutate()
+                .option(ConnectionFactoryOptions.USER, dataSourceProperties.determineUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, dataSourceProperties.determinePassword())
+                .build();
+    }
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    /**
+     * Row locks and single-statement updates already serialize writers, as in the blocking services.
+     */
+    @Bean
+    public TransactionalOperator readCommittedTransaction() {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool), definition);
+    }
+
+    /**
+     * Netty rather than Tomcat, which Spring Boot would otherwise pick since both are on the classpath.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Controller methods that do not return a reactive type, such as those of the account endpoints, run on
+     * virtual threads instead of blocking an event loop.
+     */
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("blocking-");
+        executor.setVirtualThreads(true);
+        configurer.setExecutor(executor);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
@@ -0,0 +1,33 @@
+package org.olegi.testbankapi.reactive;
+
+import lombok.AllArgsConstructor;
+import org.olegi.testbankapi.service.IdempotencyService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link IdempotencyService} for reactive endpoints. Its key store is blocking, so keyed requests run on a worker
+ * thread that waits for the operation; requests without a key never leave the event loop.
+ */
+@Component
+@Profile("reactive")
+@AllArgsConstructor
+public class ReactiveIdempotency {
+
+    private final IdempotencyService idempotencyService;
+
+    public <T> Mono<ResponseEntity<T>> execute(String idempotencyKey, String operationName, Object request,
+                                               Class<T> responseType, Supplier<Mono<ResponseEntity<T>>> operation) {
+        if (idempotencyKey == null) {
+            return operation.get();
+        }
+        return Mono.fromCallable(() -> idempotencyService.execute(idempotencyKey, operationName, request,
+                        responseType, () -> operation.get().block()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,38 @@
+package org.olegi.testbankapi.reactive;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The {@code transaction} row as the reactive stack reads it; the JPA {@code Transaction} entity maps the same
+ * table.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("transaction")
+public class ReactiveTransaction {
+
+    @Id
+    private Long id;
+
+    private BigDecimal amount;
+
+    private LocalDateTime timeStamp;
+
+    private TransactionTypes transactionType;
+
+    private BigDecimal balanceAfter;
+
+    private UUID transferId;
+
+    private Long accountId;
+}
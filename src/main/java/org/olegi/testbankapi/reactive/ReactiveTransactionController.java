@@ -0,0 +1,150 @@
+package org.olegi.testbankapi.reactive;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.BalanceAtDTO;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.service.BalanceSnapshotService;
+import org.olegi.testbankapi.service.IdempotencyService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@code TransactionController} of the {@code reactive} profile: same paths, parameters and responses, except the
+ * history export, which {@code /stream} replaces with a backpressured NDJSON stream.
+ */
+@RestController
+@RequestMapping("/api/transactions")
+@Profile("reactive")
+@AllArgsConstructor
+@Validated
+public class ReactiveTransactionController {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final ReactiveTransactionService transactionService;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final ReactiveIdempotency idempotency;
+
+    @Operation(summary = "Пополнение счета", description = "Позволяет пополнить счет на указанную сумму. "
+            + "Повтор с тем же заголовком " + IdempotencyService.IDEMPOTENCY_KEY_HEADER + " возвращает сохранённый ответ.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Счет успешно пополнен"),
+            @ApiResponse(responseCode = "400", description = "Некорректные входные данные"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом ещё выполняется"),
+            @ApiResponse(responseCode = "422", description = "Ключ уже использован с другим запросом")
+    })
+    @PostMapping("/deposit")
+    public Mono<ResponseEntity<AccountDTO>> deposit(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody DepositDTO depositDTO) {
+        return idempotency.execute(idempotencyKey, "deposit", depositDTO, AccountDTO.class,
+                () -> transactionService.deposit(depositDTO).map(ResponseEntity::ok));
+    }
+
+    @Operation(summary = "Снятие со счета", description = "Позволяет снять деньги со счета. "
+            + "Повтор с тем же заголовком " + IdempotencyService.IDEMPOTENCY_KEY_HEADER + " возвращает сохранённый ответ.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Снятие выполнено успешно"),
+            @ApiResponse(responseCode = "400", description = "Некорректные входные данные"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно средств"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом ещё выполняется"),
+            @ApiResponse(responseCode = "422", description = "Ключ уже использован с другим запросом")
+    })
+    @PostMapping("/withdraw")
+    public Mono<ResponseEntity<AccountDTO>> withdraw(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody WithdrawDTO withdrawDTO) {
+        return idempotency.execute(idempotencyKey, "withdraw", withdrawDTO, AccountDTO.class,
+                () -> transactionService.withdraw(withdrawDTO).map(ResponseEntity::ok));
+    }
+
+    @Operation(summary = "Получение баланса", description = "Возвращает текущий баланс счета.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Баланс успешно получен"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден")
+    })
+    @GetMapping("/balance")
+    public Mono<ResponseEntity<BigDecimal>> getBalance(@Valid @RequestParam String accountNumber) {
+        return transactionService.getBalance(accountNumber).map(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Баланс на момент времени",
+            description = "Возвращает баланс счета с учётом всех операций до указанного момента включительно. "
+                    + "Считается от ближайшего снимка баланса, поэтому не зависит от длины истории.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Баланс успешно получен"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден")
+    })
+    @GetMapping("/balance-at")
+    public ResponseEntity<BalanceAtDTO> getBalanceAt(
+            @RequestParam("accountNumber") String accountNumber,
+            @RequestParam("at") LocalDateTime at) {
+        return ResponseEntity.ok(balanceSnapshotService.getBalanceAt(accountNumber, at));
+    }
+
+    @Operation(summary = "История операций",
+            description = "Возвращает страницу операций за указанный период в хронологическом порядке. "
+                    + "Если есть следующая страница, её курсор передаётся в заголовке " + NEXT_CURSOR_HEADER + ".")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "История операций успешно получена",
+                    headers = @Header(name = NEXT_CURSOR_HEADER, description = "Курсор следующей страницы")),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса")
+    })
+    @GetMapping
+    public Mono<ResponseEntity<List<TransactionDTO>>> getOperationsHistory(
+            @RequestParam("accountId") Long accountId,
+            @RequestParam("from") LocalDateTime from,
+            @RequestParam("to") LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+
+        return transactionService.getOperationHistory(accountId, from, to, cursor, size).map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getTransactions());
+        });
+    }
+
+    @Operation(summary = "Поток истории операций",
+            description = "Все операции за период, начиная после курсора, если он передан, одной строкой NDJSON на "
+                    + "операцию. Строки читаются из базы по мере того, как клиент их принимает.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Поток начат"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TransactionDTO> streamOperationsHistory(
+            @RequestParam("accountId") Long accountId,
+            @RequestParam("from") LocalDateTime from,
+            @RequestParam("to") LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return transactionService.streamOperationHistory(accountId, from, to, cursor);
+    }
+}
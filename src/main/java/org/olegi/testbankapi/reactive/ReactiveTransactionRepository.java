@@ -0,0 +1,33 @@
+package org.olegi.testbankapi.reactive;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface ReactiveTransactionRepository
+        extends R2dbcRepository<ReactiveTransaction, Long>, ReactiveTransactionRepositoryCustom {
+
+    /**
+     * Records both legs of a transfer, sharing {@code transferId}, in one statement.
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO transaction (amount, time_stamp, transaction_type, account_id, balance_after, transfer_id)
+            VALUES (:amount, :timeStamp, 'TRANSFER', :fromAccountId, :fromBalanceAfter, :transferId),
+                   (:amount, :timeStamp, 'TRANSFER_IN', :toAccountId, :toBalanceAfter, :transferId)
+            """)
+    Mono<Integer> insertTransferLegs(
+            @Param("amount") BigDecimal amount,
+            @Param("timeStamp") LocalDateTime timeStamp,
+            @Param("fromAccountId") long fromAccountId,
+            @Param("fromBalanceAfter") BigDecimal fromBalanceAfter,
+            @Param("toAccountId") long toAccountId,
+            @Param("toBalanceAfter") BigDecimal toBalanceAfter,
+            @Param("transferId") UUID transferId);
+}
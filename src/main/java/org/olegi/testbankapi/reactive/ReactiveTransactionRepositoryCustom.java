@@ -0,0 +1,19 @@
+package org.olegi.testbankapi.reactive;
+
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+public interface ReactiveTransactionRepositoryCustom {
+
+    /**
+     * An account's history in {@code (timeStamp, id)} order, starting strictly after the given position, like
+     * {@code TransactionRepository#findHistoryPage}. Rows are fetched from the database only as fast as the
+     * subscriber requests them.
+     *
+     * @param limit most rows to return, or {@code null} for all of them
+     */
+    Flux<TransactionHistoryRow> findHistory(long accountId, LocalDateTime from, LocalDateTime to,
+                                            LocalDateTime afterTimeStamp, long afterId, Integer limit);
+}
@@ -0,0 +1,55 @@
+package org.olegi.testbankapi.reactive;
+
+import org.olegi.testbankapi.config.ReactiveProperties;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class ReactiveTransactionRepositoryCustomImpl implements ReactiveTransactionRepositoryCustom {
+
+    private final DatabaseClient databaseClient;
+    private final ReactiveProperties reactiveProperties;
+
+    public ReactiveTransactionRepositoryCustomImpl(DatabaseClient databaseClient, ReactiveProperties reactiveProperties) {
+        this.databaseClient = databaseClient;
+        this.reactiveProperties = reactiveProperties;
+    }
+
+    @Override
+    public Flux<TransactionHistoryRow> findHistory(long accountId, LocalDateTime from, LocalDateTime to,
+                                                   LocalDateTime afterTimeStamp, long afterId, Integer limit) {
+        DatabaseClient.GenericExecuteSpec query = databaseClient.sql("""
+                        SELECT id, amount, time_stamp, transaction_type, balance_after, transfer_id
+                        FROM transaction
+                        WHERE account_id = :accountId
+                        AND time_stamp BETWEEN :from AND :to
+                        AND (time_stamp, id) > (:afterTimeStamp, :afterId)
+                        ORDER BY time_stamp, id
+                        LIMIT :limit
+                        """)
+                .bind("accountId", accountId)
+                .bind("from", from)
+                .bind("to", to)
+                .bind("afterTimeStamp", afterTimeStamp)
+                .bind("afterId", afterId);
+        // LIMIT NULL is no limit. Without one the rows come from a portal in fetch-size batches, each requested
+        // only once the subscriber has drained the previous one, instead of the whole result at once.
+        query = limit == null
+                ? query.bindNull("limit", Integer.class)
+                        .filter(statement -> statement.fetchSize(reactiveProperties.getFetchSize()))
+                : query.bind("limit", limit);
+        return query.map(row -> new TransactionHistoryRow(
+                        row.get("id", Long.class),
+                        row.get("amount", BigDecimal.class),
+                        row.get("time_stamp", LocalDateTime.class),
+                        TransactionTypes.valueOf(row.get("transaction_type", String.class)),
+                        row.get("balance_after", BigDecimal.class),
+                        row.get("transfer_id", UUID.class)))
+                .all();
+    }
+}
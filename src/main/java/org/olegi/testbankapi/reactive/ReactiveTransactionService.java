@@ -0,0 +1,38 @@
+package org.olegi.testbankapi.reactive;
+
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransactionPageDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.service.TransactionService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking {@link TransactionService}: same statements, validation and errors, signalled instead of thrown.
+ */
+public interface ReactiveTransactionService {
+    Mono<BigDecimal> getBalance(String accountNumber);
+
+    Mono<AccountDTO> deposit(DepositDTO depositDTO);
+
+    Mono<AccountDTO> withdraw(WithdrawDTO withdrawDTO);
+
+    /**
+     * See {@link TransactionService#getOperationHistory}.
+     */
+    Mono<TransactionPageDTO> getOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                 String cursor, Integer size);
+
+    /**
+     * Every operation of the account in the period, in chronological order, read from the database as the
+     * subscriber requests them.
+     *
+     * @param cursor {@code nextCursor} of a history page to continue after, or {@code null} to start at {@code from}
+     */
+    Flux<TransactionDTO> streamOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to, String cursor);
+}
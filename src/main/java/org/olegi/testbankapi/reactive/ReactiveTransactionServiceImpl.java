@@ -0,0 +1,265 @@
+package org.olegi.testbankapi.reactive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.ReactiveProperties;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransactionPageDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.DepositMustBePositiveException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.metrics.BankMetrics;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.olegi.testbankapi.service.impl.HistoryCursor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Deposits and withdrawals always take the {@code ATOMIC} path of {@code TransactionServiceImpl}: one statement
+ * that updates the balance and records the row, under READ_COMMITTED.
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveTransactionServiceImpl implements ReactiveTransactionService {
+
+    private final ReactiveAccountRepository accountRepository;
+    private final ReactiveTransactionRepository transactionRepository;
+    private final TransactionMapper transactionMapper;
+    private final TransactionProperties transactionProperties;
+    private final ReactiveProperties reactiveProperties;
+    private final AccountCache accountCache;
+    private final TransactionArchive transactionArchive;
+    private final BankMetrics bankMetrics;
+    private final TransactionalOperator atomicTransaction;
+
+    public ReactiveTransactionServiceImpl(ReactiveAccountRepository accountRepository,
+                                          ReactiveTransactionRepository transactionRepository,
+                                          TransactionMapper transactionMapper,
+                                          TransactionProperties transactionProperties,
+                                          ReactiveProperties reactiveProperties,
+                                          AccountCache accountCache,
+                                          TransactionArchive transactionArchive,
+                                          BankMetrics bankMetrics,
+                                          TransactionalOperator readCommittedTransaction) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionMapper = transactionMapper;
+        this.transactionProperties = transactionProperties;
+        this.reactiveProperties = reactiveProperties;
+        this.accountCache = accountCache;
+        this.transactionArchive = transactionArchive;
+        this.bankMetrics = bankMetrics;
+        this.atomicTransaction = readCommittedTransaction;
+    }
+
+    @Override
+    public Mono<BigDecimal> getBalance(String accountNumber) {
+        return accountCache.getAsync(accountNumber, number -> accountRepository.findBalanceByAccountNumber(number)
+                        .map(ReactiveTransactionServiceImpl::toAccountDTO)
+                        .switchIfEmpty(Mono.error(() -> new AccountNotFoundException("Account not found: " + number))))
+                .map(AccountDTO::getBalance);
+    }
+
+    @Override
+    public Mono<AccountDTO> deposit(DepositDTO depositDTO) {
+        return bankMetrics.record("deposit", Mono.defer(() -> {
+            validateAmount(depositDTO.getAmount());
+            return atomicTransaction.transactional(depositAtomic(depositDTO, 0));
+        }).doOnNext(this::evict));
+    }
+
+    @Override
+    public Mono<AccountDTO> withdraw(WithdrawDTO withdrawDTO) {
+        return bankMetrics.record("withdraw", Mono.defer(() -> {
+            validateAmount(withdrawDTO.getAmount());
+            return atomicTransaction.transactional(withdrawAtomic(withdrawDTO));
+        }).doOnNext(this::evict));
+    }
+
+    @Override
+    public Mono<TransactionPageDTO> getOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                        String cursor, Integer size) {
+        int pageSize = size == null ? transactionProperties.getHistoryDefaultPageSize() : size;
+        return bankMetrics.record("history", findHistory(accountId, from, to, cursor, pageSize)
+                .collectList()
+                .map(rows -> toPage(rows, pageSize)));
+    }
+
+    @Override
+    public Flux<TransactionDTO> streamOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                      String cursor) {
+        return findHistory(accountId, from, to, cursor, null).map(transactionMapper::historyRowToTransactionDTO);
+    }
+
+    /**
+     * The archived rows up to {@link TransactionArchive#archivedUpTo()} followed by the table's rows after it. With
+     * a page size, one extra row tells whether another page follows without a count query.
+     */
+    private Flux<TransactionHistoryRow> findHistory(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                    String cursor, Integer pageSize) {
+        return accountRepository.existsById(accountId).flatMapMany(exists -> {
+            if (!exists) {
+                return Flux.error(new AccountNotFoundException("Account not found: " + accountId));
+            }
+            log.info("Account ID: {}, From Date: {}, To Date: {}, Cursor: {}", accountId, from, to, cursor);
+            if (to.isBefore(from)) {
+                return Flux.error(new IllegalArgumentException("From Date is less than To"));
+            }
+            if (pageSize != null && (pageSize < 1 || pageSize > transactionProperties.getHistoryMaxPageSize())) {
+                return Flux.error(new IllegalArgumentException("Page size must be between 1 and "
+                        + transactionProperties.getHistoryMaxPageSize()));
+            }
+            HistoryCursor after = cursor == null ? HistoryCursor.start(from) : HistoryCursor.decode(cursor);
+            Integer limit = pageSize == null ? null : pageSize + 1;
+            Flux<TransactionHistoryRow> rows = Flux.defer(() -> findHistory(
+                            accountId, from, to, after, limit, transactionArchive.archivedUpTo()))
+                    .retryWhen(Retry.indefinitely()
+                            .filter(ArchiveMovedException.class::isInstance)
+                            .doBeforeRetry(signal -> log.debug(
+                                    "Transaction archive moved on while reading account {}; starting over", accountId)));
+            return limit == null ? rows : rows.take(limit);
+        });
+    }
+
+    private Flux<TransactionHistoryRow> findHistory(long accountId, LocalDateTime from, LocalDateTime to,
+                                                    HistoryCursor after, Integer limit, LocalDateTime archivedUpTo) {
+        boolean fromArchive = archivedUpTo != null && !archivedUpTo.isBefore(from);
+        // The table is read after the archived range only; timestamps are stored with microsecond precision.
+        LocalDateTime tableFrom = fromArchive ? archivedUpTo.plus(1, ChronoUnit.MICROS) : from;
+        Flux<TransactionHistoryRow> archived = fromArchive
+                ? archivedHistory(accountId, from, to.isBefore(archivedUpTo) ? to : archivedUpTo, after, limit)
+                : Flux.empty();
+        Flux<TransactionHistoryRow> table = tableFrom.isAfter(to)
+                ? Flux.empty()
+                : transactionRepository.findHistory(accountId, tableFrom, to, after.timeStamp(), after.id(), limit);
+        // Nothing is emitted before this check. Once the query has answered, the partitions it reads are in its
+        // snapshot, so a partition archived from here on is still read in full.
+        return table.switchOnFirst((first, tableRows) -> {
+            if (!Objects.equals(archivedUpTo, transactionArchive.archivedUpTo())) {
+                return Flux.error(new ArchiveMovedException());
+            }
+            return Flux.concat(archived, tableRows);
+        });
+    }
+
+    /**
+     * Archived rows in batches of the page, or of the fetch size when streaming, each read once the previous one
+     * has been consumed. Segments live in memory, so reading them does not block.
+     */
+    private Flux<TransactionHistoryRow> archivedHistory(long accountId, LocalDateTime from, LocalDateTime to,
+                                                        HistoryCursor after, Integer limit) {
+        int batch = limit == null ? reactiveProperties.getFetchSize() : limit;
+        return Mono.fromSupplier(() -> archivedBatch(accountId, from, to, after, batch))
+                .expand(rows -> limit != null || rows.size() < batch ? Mono.empty()
+                        : Mono.fromSupplier(() -> archivedBatch(accountId, from, to,
+                                new HistoryCursor(rows.get(batch - 1).timeStamp(), rows.get(batch - 1).id()), batch)))
+                .flatMapIterable(Function.identity());
+    }
+
+    private List<TransactionHistoryRow> archivedBatch(long accountId, LocalDateTime from, LocalDateTime to,
+                                                      HistoryCursor after, int batch) {
+        return transactionArchive.findHistoryPage(accountId, from, to, after.timeStamp(), after.id(), batch);
+    }
+
+    private TransactionPageDTO toPage(List<TransactionHistoryRow> rows, int pageSize) {
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TransactionHistoryRow last = rows.get(pageSize - 1);
+            nextCursor = new HistoryCursor(last.timeStamp(), last.id()).encode();
+        }
+        log.info("Found {} transactions", rows.size());
+        bankMetrics.recordHistoryRows(rows.size());
+        return new TransactionPageDTO(rows.stream()
+                .map(transactionMapper::historyRowToTransactionDTO)
+                .toList(), nextCursor);
+    }
+
+    private Mono<AccountDTO> depositAtomic(DepositDTO depositDTO, int attempt) {
+        return Mono.defer(() -> accountRepository.depositAndRecord(depositDTO.getAccountNumber(),
+                        depositDTO.getAmount(), LocalDateTime.now(), ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE)))
+                .map(ReactiveTransactionServiceImpl::toAccountDTO)
+                // Nothing credited: the account is missing, or its slots were removed while the deposit ran.
+                .switchIfEmpty(Mono.defer(() -> attempt > 0
+                        ? Mono.just(false)
+                        : accountRepository.existsByAccountNumber(depositDTO.getAccountNumber()))
+                        .flatMap(retry -> {
+                            if (!retry) {
+                                return Mono.error(new AccountNotFoundException(
+                                        "Account not found: " + depositDTO.getAccountNumber()));
+                            }
+                            bankMetrics.retried("deposit", "balance_slots_removed");
+                            return depositAtomic(depositDTO, attempt + 1);
+                        }));
+    }
+
+    private Mono<AccountDTO> withdrawAtomic(WithdrawDTO withdrawDTO) {
+        return accountRepository.withdrawAndRecord(
+                        withdrawDTO.getAccountNumber(), withdrawDTO.getAmount(), LocalDateTime.now())
+                // No row was updated: tell a missing account apart from insufficient funds, and give a striped
+                // account the chance to cover the amount from its slots.
+                .switchIfEmpty(Mono.defer(() -> accountRepository
+                        .findAllByAccountNumberInForUpdate(List.of(withdrawDTO.getAccountNumber()))
+                        .next()
+                        .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(
+                                "Account not found: " + withdrawDTO.getAccountNumber())))
+                        .filter(account -> account.getBalanceSlots() > 0)
+                        .flatMap(account -> accountRepository.sweepBalanceSlots(account.getId()))
+                        .flatMap(swept -> {
+                            bankMetrics.retried("withdraw", "balance_slots_swept");
+                            return accountRepository.withdrawAndRecord(
+                                    withdrawDTO.getAccountNumber(), withdrawDTO.getAmount(), LocalDateTime.now());
+                        })))
+                .map(ReactiveTransactionServiceImpl::toAccountDTO)
+                .switchIfEmpty(Mono.error(() -> {
+                    log.error("Недостаточно средств на счете: {}. Сумма списания: {}", withdrawDTO.getAccountNumber(), withdrawDTO.getAmount());
+                    return new InsufficientFundsException("Insufficient funds for withdrawal");
+                }));
+    }
+
+    /**
+     * Runs once the transaction has committed, so no reader can cache a value it has not published yet.
+     */
+    private void evict(AccountDTO updated) {
+        accountCache.evictAfterCommit(updated.getAccountNumber());
+    }
+
+    private static AccountDTO toAccountDTO(AccountBalanceRow row) {
+        return new AccountDTO(row.accountNumber(), row.balance());
+    }
+
+    private static void validateAmount(BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new DepositMustBePositiveException("Amount must be greater than zero");
+        }
+    }
+
+    /**
+     * A partition was archived and may have been dropped before the history query read it.
+     */
+    private static class ArchiveMovedException extends RuntimeException {
+
+        ArchiveMovedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.olegi.testbankapi.reactive;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.dto.BatchTransferRequestDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.QueuedTransferDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.service.IdempotencyService;
+import org.olegi.testbankapi.service.TransferQueueService;
+import org.olegi.testbankapi.service.TransferService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+/**
+ * {@code TransferController} of the {@code reactive} profile. Batches keep the blocking {@link TransferService}:
+ * they lock thousands of rows in one transaction, which gains nothing from a non-blocking driver. Queued
+ * transfers share the blocking {@link TransferQueueService} and its workers with the default profile.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/transfer")
+@Profile("reactive")
+@AllArgsConstructor
+@Validated
+public class ReactiveTransferController {
+
+    private final ReactiveTransferService reactiveTransferService;
+    private final TransferService transferService;
+    private final TransferQueueService transferQueueService;
+    private final IdempotencyService idempotencyService;
+    private final ReactiveIdempotency idempotency;
+
+    @Operation(summary = "Transfer money between accounts", description = "Transfers a specified amount from one account to another. "
+            + "A retry with the same " + IdempotencyService.IDEMPOTENCY_KEY_HEADER + " header returns the stored response.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transfer successful"),
+            @ApiResponse(responseCode = "400", description = "Invalid request"),
+            @ApiResponse(responseCode = "409", description = "A request with this key is still in progress"),
+            @ApiResponse(responseCode = "422", description = "The key was already used with a different request"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping
+    public Mono<ResponseEntity<String>> doTransfer(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody TransferRequestDTO transferRequestDTO) {
+        log.info("Transfer request: {}", transferRequestDTO.toString());
+        return idempotency.execute(idempotencyKey, "transfer", transferRequestDTO, String.class,
+                () -> reactiveTransferService.transferMoney(transferRequestDTO)
+                        .thenReturn(ResponseEntity.ok("Transfer successful")));
+    }
+
+    @Operation(summary = "Queue a transfer", description = "Stores the transfer and returns its operation id without waiting "
+            + "for it; GET /api/transfer/{id} reports the outcome. A retry with the same "
+            + IdempotencyService.IDEMPOTENCY_KEY_HEADER + " header returns the same operation id.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Transfer accepted"),
+            @ApiResponse(responseCode = "400", description = "Invalid request"),
+            @ApiResponse(responseCode = "409", description = "A request with this key is still in progress"),
+            @ApiResponse(responseCode = "422", description = "The key was already used with a different request"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(params = "async=true")
+    public ResponseEntity<QueuedTransferDTO> doTransferAsync(
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody TransferRequestDTO transferRequestDTO) {
+        log.info("Async transfer request: {}", transferRequestDTO.toString());
+        return idempotencyService.execute(idempotencyKey, "transfer_async", transferRequestDTO, QueuedTransferDTO.class,
+                () -> ResponseEntity.status(HttpStatus.ACCEPTED).body(transferQueueService.enqueue(transferRequestDTO)));
+    }
+
+    @Operation(summary = "Status of a queued transfer",
+            description = "Reports whether a transfer accepted with async=true is still pending, completed or failed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status found"),
+            @ApiResponse(responseCode = "404", description = "No transfer with this id")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<QueuedTransferDTO> getTransferStatus(@PathVariable("id") UUID id) {
+        return ResponseEntity.ok(transferQueueService.getStatus(id));
+    }
+
+    @Operation(summary = "Transfer money in a batch",
+            description = "Applies a list of transfers in one database transaction and reports the outcome of each transfer.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed"),
+            @ApiResponse(responseCode = "400", description = "Invalid request"),
+            @ApiResponse(responseCode = "422", description = "All-or-nothing batch rejected, nothing was written"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransferResultDTO> doBatchTransfer(@RequestBody BatchTransferRequestDTO batchTransferRequestDTO) {
+        log.info("Batch transfer request in {} mode", batchTransferRequestDTO.getMode());
+        BatchTransferResultDTO result = transferService.transferBatch(batchTransferRequestDTO);
+        if (result.getMode() == BatchTransferMode.ALL_OR_NOTHING && result.getFailed() > 0) {
+            return ResponseEntity.unprocessableEntity().body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+}
@@ -0,0 +1,12 @@
+package org.olegi.testbankapi.reactive;
+
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.service.TransferService;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking {@link TransferService#transferMoney} in the {@code PESSIMISTIC} locking mode.
+ */
+public interface ReactiveTransferService {
+    Mono<Void> transferMoney(TransferRequestDTO transferRequestDTO);
+}
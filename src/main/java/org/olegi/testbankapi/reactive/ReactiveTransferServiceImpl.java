@@ -0,0 +1,157 @@
+package org.olegi.testbankapi.reactive;
+
+import io.r2dbc.spi.R2dbcException;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.TransferProperties;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.metrics.BankMetrics;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The {@code PESSIMISTIC} transfer of {@code TransferServiceImpl}: both rows locked in id order under a
+ * transaction-local lock timeout, both legs recorded in one statement.
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveTransferServiceImpl implements ReactiveTransferService {
+
+    private static final String INSUFFICIENT_FUNDS = "Insufficient funds for transfer amount";
+
+    // PostgreSQL's lock_not_available, raised when lock_timeout expires.
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    private final ReactiveAccountRepository accountRepository;
+    private final ReactiveTransactionRepository transactionRepository;
+    private final TransferProperties transferProperties;
+    private final AccountCache accountCache;
+    private final BankMetrics bankMetrics;
+    private final TransactionalOperator lockingTransaction;
+
+    public ReactiveTransferServiceImpl(ReactiveAccountRepository accountRepository,
+                                       ReactiveTransactionRepository transactionRepository,
+                                       TransferProperties transferProperties,
+                                       AccountCache accountCache,
+                                       BankMetrics bankMetrics,
+                                       TransactionalOperator readCommittedTransaction) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transferProperties = transferProperties;
+        this.accountCache = accountCache;
+        this.bankMetrics = bankMetrics;
+        this.lockingTransaction = readCommittedTransaction;
+    }
+
+    @Override
+    public Mono<Void> transferMoney(TransferRequestDTO transferRequestDTO) {
+        return bankMetrics.record("transfer", Mono.defer(() -> doTransfer(transferRequestDTO)));
+    }
+
+    private Mono<Void> doTransfer(TransferRequestDTO transferRequestDTO) {
+        log.info("Initiating transfer: {} from account {} to account {}",
+                transferRequestDTO.getAmount(),
+                transferRequestDTO.getFromAccountNumber(),
+                transferRequestDTO.getToAccountNumber());
+
+        if (transferRequestDTO.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            log.error("Invalid transfer amount: {}", transferRequestDTO.getAmount());
+            return Mono.error(new IllegalArgumentException("Amount must be greater than zero"));
+        }
+
+        String fromAccountNumber = transferRequestDTO.getFromAccountNumber();
+        String toAccountNumber = transferRequestDTO.getToAccountNumber();
+        return lockingTransaction.transactional(
+                        accountRepository.setLockTimeout(transferProperties.getLockTimeout().toMillis() + "ms")
+                                .then(bankMetrics.recordLockWait(lockAccounts(fromAccountNumber, toAccountNumber)))
+                                .flatMap(locked -> applyTransfer(getLocked(locked, fromAccountNumber),
+                                        getLocked(locked, toAccountNumber), transferRequestDTO.getAmount())))
+                .onErrorMap(ReactiveTransferServiceImpl::isLockNotAvailable,
+                        e -> new CannotAcquireLockException(e.getMessage(), e))
+                // After commit, so no reader can cache a value the transaction has not published yet.
+                .doOnSuccess(done -> {
+                    accountCache.evictAfterCommit(List.of(fromAccountNumber, toAccountNumber));
+                    log.info("Transfer completed successfully");
+                });
+    }
+
+    private Mono<Void> applyTransfer(ReactiveAccount accountFrom, ReactiveAccount accountTo, BigDecimal amount) {
+        log.info("Before transfer: Account {} balance: {}, Account {} balance: {}",
+                accountFrom.getAccountNumber(), accountFrom.getBalance(),
+                accountTo.getAccountNumber(), accountTo.getBalance());
+
+        Mono<BigDecimal> fromBalance = accountFrom.getBalance().compareTo(amount) < 0 && accountFrom.getBalanceSlots() > 0
+                // Striped account: the slots may hold the rest of the balance.
+                ? accountRepository.sweepBalanceSlots(accountFrom.getId())
+                : Mono.just(accountFrom.getBalance());
+        return fromBalance.flatMap(balance -> {
+            accountFrom.setBalance(balance);
+            if (accountFrom.getBalance().compareTo(amount) < 0) {
+                log.error("Недостаточно средств на счете: {}. Текущий баланс: {}, сумма списания: {}",
+                        accountFrom.getAccountNumber(), accountFrom.getBalance(), amount);
+                return Mono.error(new InsufficientFundsException(INSUFFICIENT_FUNDS));
+            }
+
+            accountFrom.setBalance(accountFrom.getBalance().subtract(amount));
+            accountTo.setBalance(accountTo.getBalance().add(amount));
+
+            return transactionRepository.insertTransferLegs(amount, LocalDateTime.now(),
+                            accountFrom.getId(), balanceAfter(accountFrom), accountTo.getId(), balanceAfter(accountTo),
+                            UUID.randomUUID())
+                    .then(accountRepository.updateBalance(accountFrom.getId(), accountFrom.getBalance()))
+                    .then(accountRepository.updateBalance(accountTo.getId(), accountTo.getBalance()))
+                    .doOnSuccess(updated -> log.info("After transfer: Account {} balance: {}, Account {} balance: {}",
+                            accountFrom.getAccountNumber(), accountFrom.getBalance(),
+                            accountTo.getAccountNumber(), accountTo.getBalance()));
+        }).then();
+    }
+
+    private Mono<Map<String, ReactiveAccount>> lockAccounts(String fromAccountNumber, String toAccountNumber) {
+        return accountRepository.findAllByAccountNumberInForUpdate(
+                        Stream.of(fromAccountNumber, toAccountNumber).distinct().toList())
+                .collect(Collectors.toMap(ReactiveAccount::getAccountNumber, Function.identity()));
+    }
+
+    private static ReactiveAccount getLocked(Map<String, ReactiveAccount> locked, String accountNumber) {
+        ReactiveAccount account = locked.get(accountNumber);
+        if (account == null) {
+            log.error("Account not found: {}", accountNumber);
+            throw new AccountNotFoundException("Account not found: " + accountNumber);
+        }
+        return account;
+    }
+
+    /**
+     * Balance recorded on a leg: none for a striped account, whose slot deposits are not serialized with the
+     * transfer; the backfill fills it in.
+     */
+    private static BigDecimal balanceAfter(ReactiveAccount account) {
+        return account.getBalanceSlots() > 0 ? null : account.getBalance();
+    }
+
+    /**
+     * The R2DBC driver reports an expired lock timeout as a generic resource failure rather than a locking one.
+     */
+    private static boolean isLockNotAvailable(Throwable e) {
+        return e instanceof DataAccessException
+                && NestedExceptionUtils.getMostSpecificCause(e) instanceof R2dbcException cause
+                && LOCK_NOT_AVAILABLE.equals(cause.getSqlState());
+    }
+}
@@ -0,0 +1,9 @@
+package org.olegi.testbankapi.repository;
+
+import java.math.BigDecimal;
+
+public interface AccountBalanceView {
+    String getAccountNumber();
+
+    BigDecimal getBalance();
+}
@@ -1,13 +1,101 @@
 package org.olegi.testbankapi.repository;
 
+import jakarta.persistence.LockModeType;
 import org.olegi.testbankapi.model.Account;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AccountRepository extends JpaRepository<Account, String> {
+public interface AccountRepository extends JpaRepository<Account, String>, AccountRepositoryCustom {
+    // Native statements shared with ReactiveAccountRepository, so both stacks move money the same way; see the
+    // methods below for what each one does.
+
+    String BALANCE_BY_ACCOUNT_NUMBER = """
+        SELECT a.account_number AS accountNumber,
+               a.balance + (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slot s
+                            WHERE s.account_id = a.id) AS balance
+        FROM account a
+        WHERE a.account_number = :accountNumber
+        """;
+
+    String DEPOSIT_AND_RECORD = """
+        WITH target AS (
+            SELECT id, balance_slots FROM account WHERE account_number = :accountNumber
+        ), credited_slot AS (
+            UPDATE account_balance_slot s SET balance = s.balance + :amount
+            FROM target
+            WHERE target.balance_slots > 0
+            AND s.account_id = target.id AND s.slot = :slotSeed % target.balance_slots
+            RETURNING s.account_id
+        ), credited_account AS (
+            UPDATE account a SET balance = a.balance + :amount
+            FROM target
+            WHERE target.balance_slots = 0 AND a.id = target.id
+            RETURNING a.id, a.balance
+        ), credited AS (
+            SELECT a.id, a.balance + :amount
+                       + (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slot s WHERE s.account_id = a.id)
+                       AS balance,
+                   NULL::NUMERIC AS balance_after
+            FROM credited_slot cs
+            JOIN account a ON a.id = cs.account_id
+            UNION ALL
+            SELECT id, balance, balance FROM credited_account
+        ), recorded AS (
+            INSERT INTO transaction (amount, time_stamp, transaction_type, account_id, balance_after)
+            SELECT :amount, :timeStamp, 'DEPOSIT', id, balance_after FROM credited
+        )
+        SELECT a.account_number AS accountNumber, c.balance AS balance
+        FROM credited c
+        JOIN account a ON a.id = c.id
+        """;
+
+    String WITHDRAW_AND_RECORD = """
+        WITH updated AS (
+            UPDATE account SET balance = balance - :amount
+            WHERE account_number = :accountNumber AND balance >= :amount
+            RETURNING id, account_number, balance, balance_slots
+        ), total AS (
+            SELECT id, account_number, balance_slots,
+                   balance + (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slot s
+                              WHERE s.account_id = updated.id) AS balance
+            FROM updated
+        ), recorded AS (
+            INSERT INTO transaction (amount, time_stamp, transaction_type, account_id, balance_after)
+            SELECT :amount, :timeStamp, 'WITHDRAW', id, CASE WHEN balance_slots = 0 THEN balance END FROM total
+        )
+        SELECT account_number AS accountNumber, balance FROM total
+        """;
+
+    String SWEEP_BALANCE_SLOTS = """
+        WITH swept AS (
+            SELECT s.account_id, s.slot, s.balance
+            FROM account_balance_slot s
+            WHERE s.account_id = :accountId AND s.balance <> 0
+            ORDER BY s.slot
+            FOR UPDATE
+        ), emptied AS (
+            UPDATE account_balance_slot s SET balance = 0
+            FROM swept
+            WHERE s.account_id = swept.account_id AND s.slot = swept.slot
+        )
+        UPDATE account SET balance = balance + (SELECT COALESCE(SUM(balance), 0) FROM swept)
+        WHERE id = :accountId
+        RETURNING balance
+        """;
+
+    String SUM_BALANCE_SLOTS = "SELECT COALESCE(SUM(balance), 0) FROM account_balance_slot WHERE account_id = :accountId";
+
     Optional<Account> findByAccountNumber(String accountNumber);
 
     Optional<Account> findById(Long accountId);
@@ -16,5 +104,106 @@ public interface AccountRepository extends JpaRepository<Account, String> {
 
     boolean existsById(Long accountId);
 
+    @Query("SELECT a.id FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<Long> findIdByAccountNumber(@Param("accountNumber") String accountNumber);
+
     void deleteByAccountNumber(String accountNumber);
+
+    /**
+     * Loads the accounts with {@code SELECT ... FOR UPDATE}. PostgreSQL locks rows in the order
+     * they come out of the sort, so every caller acquires the locks in ascending id order and
+     * two transfers touching the same pair of accounts can never deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.id")
+    List<Account> findAllByAccountNumberInForUpdate(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    @Query("SELECT a.id FROM Account a WHERE a.accountNumber IN :accountNumbers")
+    List<Long> findIdsByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * Id-based variant of {@link #findAllByAccountNumberInForUpdate} for callers that lock many accounts
+     * in several chunks: locking ascending id ranges one after another keeps the global lock order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Total balance: the account row plus its balance slots, read in one statement so both come from the
+     * same snapshot.
+     */
+    @Query(nativeQuery = true, value = BALANCE_BY_ACCOUNT_NUMBER)
+    Optional<AccountBalanceView> findBalanceByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    /**
+     * Credits the account and records the DEPOSIT row, with the total balance after it, in one statement. A striped
+     * account is credited on the slot {@code slotSeed % balance_slots}, so concurrent deposits spread over several
+     * row locks instead of queuing on the account row. Those deposits are not ordered with each other, so the row of
+     * a striped account is recorded without a balance after and the backfill fills it in. Returns the total balance
+     * the statement sees, or empty when the account does not exist or its slots were removed concurrently.
+     */
+    @Query(nativeQuery = true, value = DEPOSIT_AND_RECORD)
+    Optional<AccountBalanceView> depositAndRecord(
+            @Param("accountNumber") String accountNumber,
+            @Param("amount") BigDecimal amount,
+            @Param("timeStamp") LocalDateTime timeStamp,
+            @Param("slotSeed") int slotSeed);
+
+    /**
+     * Debits the account row and records the WITHDRAW row, with the balance after it (none for a striped account,
+     * as in {@link #depositAndRecord}), in one statement, but only if the account row covers the amount; slots are
+     * not touched, see {@link #sweepBalanceSlots}.
+     * Returns the total balance, or empty when the account does not exist or its row has insufficient funds.
+     */
+    @Query(nativeQuery = true, value = WITHDRAW_AND_RECORD)
+    Optional<AccountBalanceView> withdrawAndRecord(
+            @Param("accountNumber") String accountNumber,
+            @Param("amount") BigDecimal amount,
+            @Param("timeStamp") LocalDateTime timeStamp);
+
+    /**
+     * Moves everything held in the account's slots onto the account row and returns the new row balance.
+     * Debits call this when the row alone does not cover the amount. The caller must already hold the account
+     * row lock: slots are then always locked after the row, in slot order, and never the other way round.
+     */
+    @Query(nativeQuery = true, value = SWEEP_BALANCE_SLOTS)
+    BigDecimal sweepBalanceSlots(@Param("accountId") long accountId);
+
+    /**
+     * What the account's balance slots hold; zero for an account that is not striped.
+     */
+    @Query(nativeQuery = true, value = SUM_BALANCE_SLOTS)
+    BigDecimal sumBalanceSlots(@Param("accountId") long accountId);
+
+    /**
+     * Removes the account's slots, adding what they held to the account row, and turns striping off.
+     * The caller must hold the account row lock.
+     */
+    @Modifying
+    @Query(nativeQuery = true,
+            value = """
+                    WITH removed AS (
+                        DELETE FROM account_balance_slot WHERE account_id = :accountId RETURNING balance
+                    )
+                    UPDATE account
+                    SET balance = balance + (SELECT COALESCE(SUM(balance), 0) FROM removed), balance_slots = 0
+                    WHERE id = :accountId
+                    """)
+    int foldBalanceSlots(@Param("accountId") long accountId);
+
+    /**
+     * Creates {@code slots} empty slots and turns striping on. The account must have no slots, see
+     * {@link #foldBalanceSlots}.
+     */
+    @Modifying
+    @Query(nativeQuery = true,
+            value = """
+                    WITH created AS (
+                        INSERT INTO account_balance_slot (account_id, slot, balance)
+                        SELECT :accountId, slot, 0 FROM generate_series(0, :slots - 1) AS slot
+                    )
+                    UPDATE account SET balance_slots = :slots WHERE id = :accountId
+                    """)
+    int createBalanceSlots(@Param("accountId") long accountId, @Param("slots") int slots);
 }
@@ -0,0 +1,11 @@
+package org.olegi.testbankapi.repository;
+
+import java.time.Duration;
+
+public interface AccountRepositoryCustom {
+    /**
+     * Limits how long row locks taken by the current transaction may wait.
+     * Must be called inside a transaction; the setting is reset on commit or rollback.
+     */
+    void setLockTimeout(Duration timeout);
+}
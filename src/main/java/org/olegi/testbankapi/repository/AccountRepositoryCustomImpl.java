@@ -0,0 +1,20 @@
+package org.olegi.testbankapi.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.Duration;
+
+public class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void setLockTimeout(Duration timeout) {
+        // PostgreSQL has no FOR UPDATE WAIT n, so the timeout is applied as a transaction-local lock_timeout.
+        entityManager.createNativeQuery("SELECT set_config('lock_timeout', :timeout, true)")
+                .setParameter("timeout", timeout.toMillis() + "ms")
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,82 @@
+package org.olegi.testbankapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Plain JDBC access for filling in {@code transaction.balance_after} on rows written before the column existed.
+ * Both queries are served by idx_transaction_balance_after_missing, which only holds such rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BalanceAfterBackfillRepository {
+
+    private static final String NEXT_ACCOUNT_SQL = """
+            SELECT t.account_id FROM transaction t
+            WHERE t.balance_after IS NULL AND t.account_id > :afterId
+            ORDER BY t.account_id
+            LIMIT 1
+            """;
+
+    // Fills the newest :limit rows without a balance, walking back from the row right after them: that row already
+    // has its balance, or there is none and the current balance is the balance after the chunk. Rows in the chunk's
+    // range that already have a balance still count towards the running sum but are left as they are.
+    private static final String BACKFILL_CHUNK_SQL = """
+            WITH chunk AS (
+                SELECT t.time_stamp, t.id FROM transaction t
+                WHERE t.account_id = :accountId AND t.balance_after IS NULL
+                ORDER BY t.time_stamp DESC, t.id DESC
+                LIMIT :limit
+            ), oldest AS (
+                SELECT time_stamp, id FROM chunk ORDER BY time_stamp, id LIMIT 1
+            ), newest AS (
+                SELECT time_stamp, id FROM chunk ORDER BY time_stamp DESC, id DESC LIMIT 1
+            ), anchor AS (
+                SELECT COALESCE(
+                    (SELECT t.balance_after - %1$s FROM transaction t, newest n
+                     WHERE t.account_id = :accountId AND (t.time_stamp, t.id) > (n.time_stamp, n.id)
+                     ORDER BY t.time_stamp, t.id
+                     LIMIT 1),
+                    (SELECT a.balance + (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slot s
+                                         WHERE s.account_id = a.id)
+                     FROM account a WHERE a.id = :accountId)) AS balance
+            ), ranged AS (
+                SELECT t.id, t.balance_after,
+                       SUM(%1$s) OVER (ORDER BY t.time_stamp DESC, t.id DESC
+                                       ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING) AS later
+                FROM transaction t, oldest o, newest n
+                WHERE t.account_id = :accountId
+                AND (t.time_stamp, t.id) >= (o.time_stamp, o.id)
+                AND (t.time_stamp, t.id) <= (n.time_stamp, n.id)
+            )
+            UPDATE transaction t
+            SET balance_after = anchor.balance - COALESCE(r.later, 0)
+            FROM ranged r, anchor
+            WHERE t.id = r.id AND r.balance_after IS NULL AND anchor.balance IS NOT NULL
+            """.formatted(TransactionRepository.SIGNED_AMOUNT);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * The smallest account id above {@code afterAccountId} that still has rows without a balance, or {@code null}.
+     */
+    public Long findNextAccount(long afterAccountId) {
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_ACCOUNT_SQL,
+                new MapSqlParameterSource("afterId", afterAccountId), Long.class);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * Fills in the balance of the account's newest {@code limit} rows that have none and returns how many were
+     * filled; zero when nothing is left or the balance cannot be anchored.
+     */
+    public int backfillChunk(long accountId, int limit) {
+        return jdbcTemplate.update(BACKFILL_CHUNK_SQL, new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("limit", limit));
+    }
+}
@@ -0,0 +1,114 @@
+package org.olegi.testbankapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@code balance_outbox} rows written by the trigger on {@code transaction}, and the offsets of the sinks
+ * they are published to.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BalanceOutboxRepository {
+
+    // Serializes relays of all instances; released when the transaction ends.
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(hashtext('balance_outbox'))";
+
+    // Numbers the oldest committed rows without a sequence after the highest sequence so far, in id order.
+    private static final String ASSIGN_SEQUENCES_SQL = """
+            UPDATE balance_outbox o
+            SET sequence = numbered.last_sequence + numbered.rn
+            FROM (SELECT pending.id,
+                         row_number() OVER (ORDER BY pending.id) AS rn,
+                         (SELECT COALESCE(MAX(sequence), 0) FROM balance_outbox) AS last_sequence
+                  FROM (SELECT id FROM balance_outbox WHERE sequence IS NULL ORDER BY id LIMIT ?) pending) numbered
+            WHERE o.id = numbered.id
+            """;
+
+    private static final String EVENTS_AFTER_SQL = """
+            SELECT o.sequence, o.transaction_id, o.account_id, a.account_number, o.transaction_type, o.amount,
+                   o.balance_after, o.transfer_id, o.time_stamp
+            FROM balance_outbox o
+            LEFT JOIN account a ON a.id = o.account_id
+            WHERE o.sequence > ?
+            ORDER BY o.sequence
+            LIMIT ?
+            """;
+
+    private static final String INIT_OFFSET_SQL = """
+            INSERT INTO balance_outbox_offset (sink, last_sequence) VALUES (?, 0) ON CONFLICT (sink) DO NOTHING
+            """;
+
+    // The newest row stays: it carries the sequence the next ones continue from.
+    private static final String DELETE_PUBLISHED_SQL = """
+            DELETE FROM balance_outbox
+            WHERE id IN (
+                SELECT id FROM balance_outbox
+                WHERE sequence <= (SELECT last_sequence FROM balance_outbox_offset WHERE sink = ?)
+                  AND sequence < (SELECT MAX(sequence) FROM balance_outbox)
+                  AND time_stamp < ?
+                LIMIT ?)
+            """;
+
+    private static final RowMapper<BalanceChangeEventDTO> EVENT_MAPPER = (rs, rowNum) -> new BalanceChangeEventDTO(
+            rs.getLong("sequence"),
+            rs.getLong("transaction_id"),
+            rs.getObject("account_id", Long.class),
+            rs.getString("account_number"),
+            rs.getString("transaction_type") == null ? null : TransactionTypes.valueOf(rs.getString("transaction_type")),
+            rs.getObject("amount", BigDecimal.class),
+            rs.getObject("balance_after", BigDecimal.class),
+            rs.getObject("transfer_id", UUID.class),
+            rs.getObject("time_stamp", LocalDateTime.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes the relay lock for the calling transaction, or returns false if another relay holds it.
+     */
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class));
+    }
+
+    /**
+     * Gives up to {@code limit} committed rows their sequence; requires the relay lock.
+     *
+     * @return the number of rows numbered
+     */
+    public int assignSequences(int limit) {
+        return jdbcTemplate.update(ASSIGN_SEQUENCES_SQL, limit);
+    }
+
+    public List<BalanceChangeEventDTO> findEventsAfter(long sequence, int limit) {
+        return jdbcTemplate.query(EVENTS_AFTER_SQL, EVENT_MAPPER, sequence, limit);
+    }
+
+    /**
+     * The sink's offset, locked for the calling transaction; a sink without one starts at 0.
+     */
+    public long lockOffset(String sink) {
+        jdbcTemplate.update(INIT_OFFSET_SQL, sink);
+        return jdbcTemplate.queryForObject(
+                "SELECT last_sequence FROM balance_outbox_offset WHERE sink = ? FOR UPDATE", Long.class, sink);
+    }
+
+    public void updateOffset(String sink, long lastSequence) {
+        jdbcTemplate.update("UPDATE balance_outbox_offset SET last_sequence = ? WHERE sink = ?", lastSequence, sink);
+    }
+
+    /**
+     * Deletes up to {@code limit} rows the sink has acknowledged that are older than {@code before}.
+     */
+    public int deletePublishedBefore(String sink, LocalDateTime before, int limit) {
+        return jdbcTemplate.update(DELETE_PUBLISHED_SQL, sink, before, limit);
+    }
+}
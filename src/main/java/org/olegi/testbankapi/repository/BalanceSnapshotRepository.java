@@ -0,0 +1,126 @@
+package org.olegi.testbankapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plain JDBC access to {@code account_balance_snapshot}. Balances are derived from the current balance and the
+ * transactions after a point in time, each in a single statement, so they are consistent without locks.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BalanceSnapshotRepository {
+
+    private static final String CURRENT_BALANCE = """
+            COALESCE(a.balance, 0) + (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slot s
+                                      WHERE s.account_id = a.id)""";
+
+    // Snapshots accounts that never had one or that had transactions since their previous one; the balance at
+    // :at is the current balance minus everything stamped after it.
+    private static final String SNAPSHOT_CHUNK_SQL = """
+            WITH chunk AS (
+                SELECT a.id, %s AS balance FROM account a
+                WHERE a.id > :afterId
+                ORDER BY a.id
+                LIMIT :limit
+            ), inserted AS (
+                INSERT INTO account_balance_snapshot (account_id, taken_at, balance)
+                SELECT c.id, :at, c.balance - (SELECT COALESCE(SUM(%s), 0) FROM transaction t
+                                               WHERE t.account_id = c.id AND t.time_stamp > :at)
+                FROM chunk c
+                LEFT JOIN LATERAL (SELECT s.taken_at FROM account_balance_snapshot s
+                                   WHERE s.account_id = c.id AND s.taken_at <= :at
+                                   ORDER BY s.taken_at DESC
+                                   LIMIT 1) previous ON TRUE
+                WHERE previous.taken_at IS NULL
+                   OR previous.taken_at < :at AND EXISTS (SELECT 1 FROM transaction t
+                                                          WHERE t.account_id = c.id
+                                                          AND t.time_stamp > previous.taken_at
+                                                          AND t.time_stamp <= :at)
+                ON CONFLICT DO NOTHING
+                RETURNING 1
+            )
+            SELECT (SELECT MAX(id) FROM chunk), (SELECT COUNT(*) FROM inserted)
+            """.formatted(CURRENT_BALANCE, TransactionRepository.SIGNED_AMOUNT);
+
+    private static final String NEIGHBOURS_SQL = """
+            (SELECT taken_at, balance FROM account_balance_snapshot
+             WHERE account_id = :accountId AND taken_at <= :at
+             ORDER BY taken_at DESC
+             LIMIT 1)
+            UNION ALL
+            (SELECT taken_at, balance FROM account_balance_snapshot
+             WHERE account_id = :accountId AND taken_at > :at
+             ORDER BY taken_at
+             LIMIT 1)
+            ORDER BY taken_at
+            """;
+
+    private static final String DELTA_SQL = """
+            SELECT COALESCE(SUM(%s), 0) FROM transaction t
+            WHERE t.account_id = :accountId AND t.time_stamp > :after AND t.time_stamp <= :upTo
+            """.formatted(TransactionRepository.SIGNED_AMOUNT);
+
+    private static final String BALANCE_FROM_CURRENT_SQL = """
+            SELECT %s - (SELECT COALESCE(SUM(%s), 0) FROM transaction t
+                         WHERE t.account_id = a.id AND t.time_stamp > :at)
+            FROM account a
+            WHERE a.id = :accountId
+            """.formatted(CURRENT_BALANCE, TransactionRepository.SIGNED_AMOUNT);
+
+    private static final RowMapper<BalanceSnapshotRow> SNAPSHOT_ROW_MAPPER = (resultSet, rowNum) ->
+            new BalanceSnapshotRow(resultSet.getObject(1, LocalDateTime.class), resultSet.getBigDecimal(2));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Result of one chunk: the last account id it covered ({@code null} past the last account) and how many
+     * snapshots it wrote.
+     */
+    public record ChunkResult(Long lastAccountId, int inserted) {
+    }
+
+    public ChunkResult snapshotChunk(LocalDateTime at, long afterAccountId, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("at", at)
+                .addValue("afterId", afterAccountId)
+                .addValue("limit", limit);
+        return jdbcTemplate.queryForObject(SNAPSHOT_CHUNK_SQL, parameters, (resultSet, rowNum) -> new ChunkResult(
+                resultSet.getObject(1, Long.class), resultSet.getInt(2)));
+    }
+
+    /**
+     * The latest snapshot at or before {@code at} and the earliest one after it, whichever exist, in time order.
+     */
+    public List<BalanceSnapshotRow> findNeighbours(long accountId, LocalDateTime at) {
+        return jdbcTemplate.query(NEIGHBOURS_SQL, new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("at", at), SNAPSHOT_ROW_MAPPER);
+    }
+
+    /**
+     * Net change of the balance from transactions stamped in {@code (after, upTo]}.
+     */
+    public BigDecimal sumChanges(long accountId, LocalDateTime after, LocalDateTime upTo) {
+        return jdbcTemplate.queryForObject(DELTA_SQL, new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("after", after)
+                .addValue("upTo", upTo), BigDecimal.class);
+    }
+
+    /**
+     * The balance at {@code at}, worked back from the current balance.
+     */
+    public BigDecimal balanceFromCurrent(long accountId, LocalDateTime at) {
+        return jdbcTemplate.queryForObject(BALANCE_FROM_CURRENT_SQL, new MapSqlParameterSource()
+                .addValue("accountId", accountId)
+                .addValue("at", at), BigDecimal.class);
+    }
+}
@@ -0,0 +1,10 @@
+package org.olegi.testbankapi.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A row of {@code account_balance_snapshot}: the account's balance at {@code takenAt}.
+ */
+public record BalanceSnapshotRow(LocalDateTime takenAt, BigDecimal balance) {
+}
@@ -0,0 +1,89 @@
+package org.olegi.testbankapi.repository;
+
+import org.olegi.testbankapi.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Claims the key for the calling request. An expired row is taken over as if it were absent.
+     *
+     * @return 1 if the key was claimed, 0 if another request holds or has completed it
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+            value = """
+                    INSERT INTO idempotency_key (idempotency_key, request_hash, status, created_at, expires_at)
+                    VALUES (:key, :requestHash, 'IN_PROGRESS', :now, :expiresAt)
+                    ON CONFLICT (idempotency_key) DO UPDATE
+                    SET request_hash = EXCLUDED.request_hash,
+                        status = EXCLUDED.status,
+                        response_status = NULL,
+                        response_body = NULL,
+                        created_at = EXCLUDED.created_at,
+                        expires_at = EXCLUDED.expires_at
+                    WHERE idempotency_key.expires_at < :now
+                    """)
+    int claim(@Param("key") String key,
+              @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Locks the claim made at {@code claimedAt} for the calling transaction. A request taking the key over
+     * waits for that transaction and then finds the key completed, or still claimed if it rolled back.
+     *
+     * @return empty if the claim has been taken over meanwhile
+     */
+    @Query(nativeQuery = true,
+            value = """
+                    SELECT idempotency_key FROM idempotency_key
+                    WHERE idempotency_key = :key AND status = 'IN_PROGRESS' AND created_at = :claimedAt
+                    FOR UPDATE
+                    """)
+    Optional<String> lockClaim(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+            value = """
+                    UPDATE idempotency_key
+                    SET status = 'COMPLETED', response_status = :responseStatus, response_body = :responseBody,
+                        expires_at = :expiresAt
+                    WHERE idempotency_key = :key
+                    """)
+    int complete(@Param("key") String key,
+                 @Param("responseStatus") int responseStatus,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Deletes the claim made at {@code claimedAt} unless it has been completed or taken over.
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+            value = """
+                    DELETE FROM idempotency_key
+                    WHERE idempotency_key = :key AND status = 'IN_PROGRESS' AND created_at = :claimedAt
+                    """)
+    int release(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+            value = """
+                    DELETE FROM idempotency_key
+                    WHERE idempotency_key IN (
+                        SELECT idempotency_key FROM idempotency_key WHERE expires_at < :now LIMIT :limit)
+                    """)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
@@ -0,0 +1,81 @@
+package org.olegi.testbankapi.repository;
+
+import org.olegi.testbankapi.model.QueuedTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface QueuedTransferRepository extends JpaRepository<QueuedTransfer, UUID> {
+
+    /**
+     * Stores a new {@code PENDING} transfer. A plain insert: {@code save} would first look the new id up.
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+            value = """
+                    INSERT INTO queued_transfer (id, from_account_number, to_account_number, amount, status, created_at)
+                    VALUES (:id, :fromAccountNumber, :toAccountNumber, :amount, 'PENDING', :createdAt)
+                    """)
+    void enqueue(@Param("id") UUID id,
+                 @Param("fromAccountNumber") String fromAccountNumber,
+                 @Param("toAccountNumber") String toAccountNumber,
+                 @Param("amount") BigDecimal amount,
+                 @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * Locks the oldest pending transfers for the calling transaction. Rows another worker holds are skipped
+     * rather than waited for, so workers never claim the same transfer.
+     */
+    @Query(nativeQuery = true,
+            value = """
+                    SELECT * FROM queued_transfer
+                    WHERE status = 'PENDING'
+                    ORDER BY created_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED
+                    """)
+    List<QueuedTransfer> claimPending(@Param("limit") int limit);
+
+    @Query(nativeQuery = true,
+            value = "SELECT * FROM queued_transfer WHERE id = :id AND status = 'PENDING' FOR UPDATE SKIP LOCKED")
+    List<QueuedTransfer> claimPendingById(@Param("id") UUID id);
+
+    /**
+     * Counts a failed attempt of a pending transfer and fails it for good once it reaches the limit.
+     */
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+            value = """
+                    UPDATE queued_transfer
+                    SET attempts = attempts + 1,
+                        error = :error,
+                        status = CASE WHEN attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE status END,
+                        processed_at = CASE WHEN attempts + 1 >= :maxAttempts THEN :now END
+                    WHERE id = :id AND status = 'PENDING'
+                    """)
+    int recordFailedAttempt(@Param("id") UUID id,
+                            @Param("error") String error,
+                            @Param("maxAttempts") int maxAttempts,
+                            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+            value = """
+                    DELETE FROM queued_transfer
+                    WHERE id IN (
+                        SELECT id FROM queued_transfer
+                        WHERE status <> 'PENDING' AND processed_at < :before
+                        LIMIT :limit)
+                    """)
+    int deleteProcessedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -0,0 +1,91 @@
+package org.olegi.testbankapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.olegi.testbankapi.archive.ArchivedTransaction;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access for the transaction archiver: a whole partition is read through a server-side cursor in
+ * segment order, and dropped once it has been detached.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionArchiveRepository {
+
+    // Serializes archivers of all instances. A session lock rather than a transaction one: a run detaches
+    // partitions concurrently, which cannot happen inside a transaction.
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('transaction_archive'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('transaction_archive'))";
+
+    private static final String PARTITION_SQL = """
+            SELECT t.account_id, t.id, t.time_stamp, t.transaction_type, t.amount, t.balance_after, t.transfer_id
+            FROM %s t
+            ORDER BY t.account_id, t.time_stamp, t.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Runs the work holding the archiver lock on a connection of its own, or returns false without running it if
+     * another archiver holds the lock. Must not be called inside a transaction, which would lend it its connection.
+     */
+    public boolean runLocked(Runnable work) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet locked = statement.executeQuery(TRY_LOCK_SQL)) {
+                if (!locked.next() || !locked.getBoolean(1)) {
+                    return false;
+                }
+            }
+            try {
+                work.run();
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(UNLOCK_SQL);
+                }
+            }
+            return true;
+        }));
+    }
+
+    /**
+     * Must run inside a transaction: the PostgreSQL driver only honours the fetch size with autocommit off.
+     */
+    public void streamPartition(String partition, int fetchSize, Consumer<ArchivedTransaction> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(PARTITION_SQL.formatted(partition));
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(new ArchivedTransaction(
+                resultSet.getLong(1),
+                resultSet.getLong(2),
+                resultSet.getObject(3, LocalDateTime.class),
+                TransactionTypes.valueOf(resultSet.getString(4)),
+                resultSet.getBigDecimal(5),
+                resultSet.getBigDecimal(6),
+                resultSet.getObject(7, UUID.class))));
+    }
+
+    /**
+     * Whether the balance-after backfill still has rows to fill in the partition; a probe of its partial index.
+     */
+    public boolean hasRowsWithoutBalance(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM %s t WHERE t.balance_after IS NULL)".formatted(partition), Boolean.class));
+    }
+
+    public void dropPartition(String partition) {
+        jdbcTemplate.execute("DROP TABLE " + partition);
+    }
+}
@@ -0,0 +1,51 @@
+package org.olegi.testbankapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access for exports: rows are read through a server-side cursor and handed over one at a time,
+ * without entities or a persistence context, so memory use does not depend on the number of rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionExportRepository {
+
+    private static final String HISTORY_SQL = """
+            SELECT t.amount, t.time_stamp, t.transaction_type, t.balance_after, t.transfer_id FROM transaction t
+            WHERE t.account_id = ?
+            AND t.time_stamp BETWEEN ? AND ?
+            ORDER BY t.time_stamp, t.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Must run inside a transaction: the PostgreSQL driver only honours the fetch size with autocommit off.
+     */
+    public void streamHistory(long accountId, LocalDateTime from, LocalDateTime to, int fetchSize,
+                              Consumer<TransactionDTO> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(HISTORY_SQL);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, accountId);
+            statement.setObject(2, from);
+            statement.setObject(3, to);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(new TransactionDTO(
+                resultSet.getBigDecimal(1),
+                resultSet.getObject(2, LocalDateTime.class),
+                TransactionTypes.valueOf(resultSet.getString(3)),
+                resultSet.getBigDecimal(4),
+                resultSet.getObject(5, UUID.class))));
+    }
+}
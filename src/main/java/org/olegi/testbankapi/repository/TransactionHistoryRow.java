@@ -0,0 +1,16 @@
+package org.olegi.testbankapi.repository;
+
+import org.olegi.testbankapi.enums.TransactionTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * History row read straight from the query result, without an entity or a persistence-context entry.
+ * The id is only carried along to build the next-page cursor.
+ */
+public record TransactionHistoryRow(Long id, BigDecimal amount, LocalDateTime timeStamp,
+                                    TransactionTypes transactionType, BigDecimal balanceAfter,
+                                    UUID transferId) {
+}
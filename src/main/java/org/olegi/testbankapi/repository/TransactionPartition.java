@@ -0,0 +1,10 @@
+package org.olegi.testbankapi.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A partition of {@code transaction} holding rows stamped in {@code [from, to)}; {@code from} is null for the
+ * legacy partition, which is unbounded below.
+ */
+public record TransactionPartition(String name, LocalDateTime from, LocalDateTime to) {
+}
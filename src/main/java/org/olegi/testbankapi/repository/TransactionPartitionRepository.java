@@ -0,0 +1,66 @@
+package org.olegi.testbankapi.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Partition DDL for the range-partitioned {@code transaction} table. Partitions are created standalone and then
+ * attached, and detached concurrently; on {@code transaction} itself both take only SHARE UPDATE EXCLUSIVE, so
+ * neither blocks reads or writes of its other partitions.
+ * <p>
+ * Both do block {@code account}, though: attaching clones the {@code account_id} foreign key onto the partition and
+ * detaching removes it, and either takes SHARE ROW EXCLUSIVE on {@code account}. Every balance change (an UPDATE of
+ * {@code account}) waits for the attach or detach, which itself waits for the transactions already writing
+ * {@code account}, so partition maintenance belongs off-peak and well ahead of the month it is for.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPartitionRepository {
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname AS name,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \\(''([^'']+)''\\)'))[1]::timestamp AS range_from,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamp AS range_to
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'transaction'::regclass
+            ORDER BY range_to
+            """;
+
+    // Sent in one Statement.execute: the driver sends both statements over the extended protocol followed by a single
+    // Sync, so in autocommit mode they run in one implicit transaction and a failed attach leaves no table behind.
+    private static final String CREATE_PARTITION_SQL = """
+            CREATE TABLE %1$s (LIKE transaction INCLUDING DEFAULTS);
+            ALTER TABLE transaction ATTACH PARTITION %1$s FOR VALUES FROM ('%2$s') TO ('%3$s')
+            """;
+
+    // CONCURRENTLY cannot run inside a transaction block; the template's connections are in autocommit mode.
+    private static final String DETACH_PARTITION_SQL = "ALTER TABLE transaction DETACH PARTITION %s CONCURRENTLY";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The partitions currently attached to {@code transaction}, in range order.
+     */
+    public List<TransactionPartition> findPartitions() {
+        return jdbcTemplate.query(PARTITIONS_SQL, (rs, rowNum) -> new TransactionPartition(
+                rs.getString("name"),
+                rs.getObject("range_from", LocalDateTime.class),
+                rs.getObject("range_to", LocalDateTime.class)));
+    }
+
+    public void createPartition(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute(CREATE_PARTITION_SQL.formatted(name, from, to));
+    }
+
+    /**
+     * Detaches the partition; it stays in the database as a plain table with its rows and indexes.
+     */
+    public void detachPartition(String name) {
+        jdbcTemplate.execute(DETACH_PARTITION_SQL.formatted(name));
+    }
+}
@@ -1,6 +1,7 @@
 package org.olegi.testbankapi.repository;
 
 import org.olegi.testbankapi.model.Transaction;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,7 +9,17 @@ import org.springframework.data.repository.query.Param;
 import java.time.LocalDateTime;
 import java.util.List;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
+
+    /**
+     * Effect of the transaction row {@code t} on its account's balance, for native SQL.
+     */
+    String SIGNED_AMOUNT = "CASE WHEN t.transaction_type IN ('DEPOSIT', 'TRANSFER_IN') THEN t.amount ELSE -t.amount END";
+
+    /**
+     * The range is on the partition key itself, so only the monthly partitions it overlaps are scanned: pruned
+     * at planning time, or at executor startup once the driver switches to a generic plan.
+     */
     @Query(nativeQuery = true,
             value = """
                     SELECT * FROM transaction t 
@@ -19,4 +30,27 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("accountId") long accountId,
             @Param("from") LocalDateTime from,
             @Param("to") LocalDateTime to);
-}
\ No newline at end of file
+
+    /**
+     * One page of an account's history in {@code (timeStamp, id)} order, starting strictly after the given
+     * position. Served by idx_transaction_account_time_id, so the cost does not depend on how deep the page is.
+     * Rows are projected by a constructor expression, and {@code t.account.id} is the foreign key column,
+     * so neither transaction entities nor the account table are touched.
+     */
+    @Query("""
+            SELECT new org.olegi.testbankapi.repository.TransactionHistoryRow(
+                t.id, t.amount, t.timeStamp, t.transactionType, t.balanceAfter, t.transferId)
+            FROM Transaction t
+            WHERE t.account.id = :accountId
+            AND t.timeStamp BETWEEN :from AND :to
+            AND (t.timeStamp, t.id) > (:afterTimeStamp, :afterId)
+            ORDER BY t.timeStamp, t.id
+            """)
+    List<TransactionHistoryRow> findHistoryPage(
+            @Param("accountId") long accountId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterTimeStamp") LocalDateTime afterTimeStamp,
+            @Param("afterId") long afterId,
+            Limit limit);
+}
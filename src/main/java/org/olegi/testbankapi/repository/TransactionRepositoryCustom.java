@@ -0,0 +1,16 @@
+package org.olegi.testbankapi.repository;
+
+import org.olegi.testbankapi.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransactionRepositoryCustom {
+    List<Transaction> findByAccountIdAndTimestampBetweenCriteria(long accountId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Persists the transactions, flushing every {@code chunkSize} rows as JDBC batches and detaching
+     * the flushed rows so the persistence context does not grow with the list.
+     */
+    void insertInChunks(List<Transaction> transactions, int chunkSize);
+}
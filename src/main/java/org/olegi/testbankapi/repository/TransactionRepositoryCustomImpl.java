@@ -13,11 +13,12 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public class TransactionRepositoryCustomImpl {
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Override
     public List<Transaction> findByAccountIdAndTimestampBetweenCriteria(long accountId, LocalDateTime from, LocalDateTime to) {
         CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
         CriteriaQuery<Transaction> criteriaQuery = criteriaBuilder.createQuery(Transaction.class);
@@ -25,10 +26,20 @@ public class TransactionRepositoryCustomImpl {
         Root<Transaction> transaction = criteriaQuery.from(Transaction.class);
 
         Predicate accountIdPredicate = criteriaBuilder.equal(transaction.get("account").get("id"), accountId);
-        Predicate timestampPredicate = criteriaBuilder.between(transaction.get("time_stamp"), from, to);
+        Predicate timestampPredicate = criteriaBuilder.between(transaction.get("timeStamp"), from, to);
 
         criteriaQuery.where(criteriaBuilder.and(accountIdPredicate, timestampPredicate));
 
         return entityManager.createQuery(criteriaQuery).getResultList();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void insertInChunks(List<Transaction> transactions, int chunkSize) {
+        for (int from = 0; from < transactions.size(); from += chunkSize) {
+            List<Transaction> chunk = transactions.subList(from, Math.min(from + chunkSize, transactions.size()));
+            chunk.forEach(entityManager::persist);
+            entityManager.flush();
+            chunk.forEach(entityManager::detach);
+        }
+    }
+}
@@ -10,4 +10,10 @@ public interface AccountService {
     void deleteAccount(String accountNumber);
 
     AccountDTO getAccountInfo(String accountNumber);
+
+    /**
+     * Stripes the account's balance across {@code slots} slot rows, or turns striping off with 0.
+     * The total balance is unchanged.
+     */
+    void setBalanceSlots(String accountNumber, int slots);
 }
@@ -0,0 +1,10 @@
+package org.olegi.testbankapi.service;
+
+public interface BalanceAfterBackfillService {
+
+    /**
+     * Fills in the balance after each transaction for rows written before it was stored and returns how many
+     * rows were filled.
+     */
+    long backfill();
+}
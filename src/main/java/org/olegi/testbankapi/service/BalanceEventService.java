@@ -0,0 +1,19 @@
+package org.olegi.testbankapi.service;
+
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+
+import java.util.List;
+
+public interface BalanceEventService {
+
+    /**
+     * Numbered balance change events after the given sequence, in sequence order, for consumers resuming from the
+     * last event they have seen.
+     */
+    List<BalanceChangeEventDTO> getEvents(long afterSequence, Integer size);
+
+    /**
+     * Deletes events the sink has taken that are older than the retention and returns how many were removed.
+     */
+    int deletePublished();
+}
@@ -0,0 +1,19 @@
+package org.olegi.testbankapi.service;
+
+import org.olegi.testbankapi.dto.BalanceAtDTO;
+
+import java.time.LocalDateTime;
+
+public interface BalanceSnapshotService {
+
+    /**
+     * Returns the balance after every transaction stamped at or before {@code at}.
+     */
+    BalanceAtDTO getBalanceAt(String accountNumber, LocalDateTime at);
+
+    /**
+     * Snapshots every account that has changed since its previous snapshot and returns how many were written.
+     * Times whose transactions are already archived are refused with an {@link IllegalArgumentException}.
+     */
+    int takeSnapshots(LocalDateTime at);
+}
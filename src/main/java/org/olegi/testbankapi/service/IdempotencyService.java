@@ -0,0 +1,41 @@
+package org.olegi.testbankapi.service;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * Runs the operation at most once per key and returns its response; later requests with the same key get
+     * the stored response without running the operation. Without a key the operation simply runs.
+     *
+     * @param operationName identifies the endpoint, so the same key sent to another endpoint is rejected
+     * @param request       request body; a different body under the same key is rejected
+     */
+    default <T> ResponseEntity<T> execute(String idempotencyKey, String operationName, Object request,
+                                          Class<T> responseType, Supplier<ResponseEntity<T>> operation) {
+        return execute(idempotencyKey, operationName, request, responseType, null, operation);
+    }
+
+    /**
+     * Like {@link #execute(String, String, Object, Class, Supplier)}, but runs the operation and stores its
+     * response in one database transaction, so a committed operation never leaves its key without a response.
+     * The operation's own transaction joins this one, so pass the definition it would use itself.
+     *
+     * @param transaction definition of the operation's transaction, or {@code null} when the operation does not
+     *                    run in a database transaction of the calling thread; its response is then stored afterwards
+     */
+    <T> ResponseEntity<T> execute(String idempotencyKey, String operationName, Object request, Class<T> responseType,
+                                  TransactionDefinition transaction, Supplier<ResponseEntity<T>> operation);
+
+    /**
+     * Deletes expired keys and returns how many were removed.
+     */
+    int deleteExpired();
+}
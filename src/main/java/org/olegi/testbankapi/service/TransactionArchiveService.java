@@ -0,0 +1,13 @@
+package org.olegi.testbankapi.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TransactionArchiveService {
+
+    /**
+     * Moves every partition of {@code transaction} whose range ends at or before {@code before} into the archive
+     * and returns their names.
+     */
+    List<String> archivePartitions(LocalDateTime before);
+}
@@ -0,0 +1,20 @@
+package org.olegi.testbankapi.service;
+
+import org.olegi.testbankapi.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface TransactionExportService {
+
+    /**
+     * Validates the request and returns the export, which is written later, once the response is streaming.
+     */
+    HistoryExport prepareHistoryExport(Long accountId, LocalDateTime from, LocalDateTime to, ExportFormat format);
+
+    @FunctionalInterface
+    interface HistoryExport {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+}
@@ -0,0 +1,19 @@
+package org.olegi.testbankapi.service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+public interface TransactionPartitionService {
+
+    /**
+     * Creates the monthly partitions of {@code transaction} missing up to and including {@code until} and returns
+     * how many were created.
+     */
+    int createPartitions(YearMonth until);
+
+    /**
+     * Detaches every partition whose range ends at or before {@code before} and returns their names.
+     */
+    List<String> detachPartitions(LocalDateTime before);
+}
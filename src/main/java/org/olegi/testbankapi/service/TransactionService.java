@@ -2,12 +2,12 @@ package org.olegi.testbankapi.service;
 
 import org.olegi.testbankapi.dto.AccountDTO;
 import org.olegi.testbankapi.dto.DepositDTO;
-import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransactionPageDTO;
 import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.springframework.transaction.TransactionDefinition;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
 
 public interface TransactionService {
     BigDecimal getBalance(String accountNumber);
@@ -16,5 +16,23 @@ public interface TransactionService {
 
     AccountDTO withdraw(WithdrawDTO depositDTO);
 
-    List<TransactionDTO> getOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to);
+    /**
+     * Transaction a deposit runs in; a transaction the caller opens with it is joined by the deposit.
+     *
+     * @return {@code null} when deposits are not applied in a database transaction of the calling thread
+     */
+    TransactionDefinition depositTransaction();
+
+    /**
+     * Transaction a withdrawal runs in; see {@link #depositTransaction()}.
+     */
+    TransactionDefinition withdrawTransaction();
+
+    /**
+     * Returns one page of the account's history in chronological order.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param size   page size, or {@code null} for the configured default
+     */
+    TransactionPageDTO getOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to, String cursor, Integer size);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package org.olegi.testbankapi.service;
+
+import org.olegi.testbankapi.dto.QueuedTransferDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.UUID;
+
+public interface TransferQueueService {
+
+    /**
+     * Stores the transfer as {@code PENDING} and returns once it is committed; a worker applies it later.
+     */
+    QueuedTransferDTO enqueue(TransferRequestDTO transferRequestDTO);
+
+    /**
+     * Transaction an enqueue runs in; a transaction the caller opens with it is joined by the enqueue.
+     */
+    TransactionDefinition enqueueTransaction();
+
+    QueuedTransferDTO getStatus(UUID id);
+
+    /**
+     * Claims a batch of pending transfers, applies it and records the outcome of each transfer.
+     *
+     * @return the number of transfers claimed, 0 once the queue is empty
+     */
+    int processBatch();
+
+    /**
+     * Deletes transfers that finished longer than the retention ago and returns how many were removed.
+     */
+    int deleteProcessed();
+}
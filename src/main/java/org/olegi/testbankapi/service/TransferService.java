@@ -1,7 +1,19 @@
 package org.olegi.testbankapi.service;
 
+import org.olegi.testbankapi.dto.BatchTransferRequestDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
 import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.springframework.transaction.TransactionDefinition;
 
 public interface TransferService {
     void transferMoney(TransferRequestDTO transferRequestDTO);
+
+    /**
+     * Transaction a transfer runs in; a transaction the caller opens with it is joined by the transfer.
+     *
+     * @return {@code null} when transfers are not applied in a database transaction of the calling thread
+     */
+    TransactionDefinition transferTransaction();
+
+    BatchTransferResultDTO transferBatch(BatchTransferRequestDTO batchTransferRequestDTO);
 }
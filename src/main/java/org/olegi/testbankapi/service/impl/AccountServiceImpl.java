@@ -2,11 +2,14 @@ package org.olegi.testbankapi.service.impl;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.cache.AccountCache;
 import org.olegi.testbankapi.dto.AccountDTO;
 import org.olegi.testbankapi.exceptions.AccountAlreadyExistsException;
 import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
 import org.olegi.testbankapi.mapper.AccountMapper;
 import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountBalanceView;
 import org.olegi.testbankapi.repository.AccountRepository;
 import org.olegi.testbankapi.service.AccountService;
 import org.springframework.stereotype.Service;
@@ -14,14 +17,19 @@ import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Service
 @AllArgsConstructor
 @Slf4j
 public class AccountServiceImpl implements AccountService {
 
+    private static final int MAX_BALANCE_SLOTS = 256;
+
     private final AccountRepository accountRepository;
     private final AccountMapper accountMapper;
+    private final AccountCache accountCache;
+    private final LedgerEngine ledgerEngine;
 
     @Override
     @Transactional(isolation = Isolation.REPEATABLE_READ)
@@ -55,18 +63,51 @@ public class AccountServiceImpl implements AccountService {
             currentAccount.setAccountNumber(accountDTO.getAccountNumber());
         }
         accountRepository.save(currentAccount);
+        accountCache.evictAfterCommit(accountNumber);
+        ledgerEngine.evictAfterCommit(accountNumber);
         log.info("Account successfully updated to DB");
     }
 
     @Override
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public AccountDTO getAccountInfo(String accountNumber) {
+        // No surrounding transaction: a cache hit should not have to take a connection from the pool.
+        ledgerEngine.awaitApplied();
+        return accountCache.get(accountNumber, this::loadAccountInfo);
+    }
+
+    private AccountDTO loadAccountInfo(String accountNumber) {
         log.info("Trying to get account info with id {}", accountNumber);
         Account currentAccount = accountRepository.findByAccountNumber(accountNumber).orElseThrow(
                 () -> new AccountNotFoundException(
                         String.format("Account '%s' not found", accountNumber))
         );
-        return accountMapper.accountToAccountDTO(currentAccount);
+        AccountDTO accountDTO = accountMapper.accountToAccountDTO(currentAccount);
+        if (currentAccount.getBalanceSlots() > 0) {
+            // The entity holds only the account row's share of a striped balance.
+            accountRepository.findBalanceByAccountNumber(accountNumber)
+                    .map(AccountBalanceView::getBalance)
+                    .ifPresent(accountDTO::setBalance);
+        }
+        return accountDTO;
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public void setBalanceSlots(String accountNumber, int slots) {
+        if (slots < 0 || slots > MAX_BALANCE_SLOTS) {
+            throw new IllegalArgumentException("Balance slots must be between 0 and " + MAX_BALANCE_SLOTS);
+        }
+        log.info("Setting {} balance slots for account {}", slots, accountNumber);
+        Account account = accountRepository.findAllByAccountNumberInForUpdate(List.of(accountNumber)).stream()
+                .findFirst()
+                .orElseThrow(() -> new AccountNotFoundException(
+                        String.format("Account '%s' not found", accountNumber)));
+        // Folding first means a resize never loses money held in slots that no longer exist.
+        accountRepository.foldBalanceSlots(account.getId());
+        if (slots > 0) {
+            accountRepository.createBalanceSlots(account.getId(), slots);
+        }
+        accountCache.evictAfterCommit(accountNumber);
     }
 
     @Override
@@ -75,6 +116,8 @@ public class AccountServiceImpl implements AccountService {
         log.info("Trying to delete account with id {}", accountNumber);
         if (accountRepository.existsByAccountNumber(accountNumber)) {
             accountRepository.deleteByAccountNumber(accountNumber);
+            accountCache.evictAfterCommit(accountNumber);
+            ledgerEngine.evictAfterCommit(accountNumber);
         } else throw new AccountNotFoundException(
                 String.format("Account '%s' not found", accountNumber));
     }
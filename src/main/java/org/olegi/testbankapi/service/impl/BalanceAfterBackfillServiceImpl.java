@@ -0,0 +1,57 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.BalanceAfterBackfillProperties;
+import org.olegi.testbankapi.repository.BalanceAfterBackfillRepository;
+import org.olegi.testbankapi.service.BalanceAfterBackfillService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Works through the accounts that still have rows without a balance, newest rows first, one chunk per
+ * statement. Every chunk is anchored on the balance of the row right after it, so the job can stop at any
+ * point and pick up where it left off, and it never holds locks for longer than one chunk.
+ * <p>
+ * Like balance snapshots, the filled-in balances are worked back from the current one, so a balance change
+ * without a transaction row shifts every balance before it.
+ */
+@Service
+@Slf4j
+public class BalanceAfterBackfillServiceImpl implements BalanceAfterBackfillService {
+
+    private final BalanceAfterBackfillRepository backfillRepository;
+    private final BalanceAfterBackfillProperties properties;
+
+    public BalanceAfterBackfillServiceImpl(BalanceAfterBackfillRepository backfillRepository,
+                                           BalanceAfterBackfillProperties properties) {
+        this.backfillRepository = backfillRepository;
+        this.properties = properties;
+    }
+
+    @Override
+    public long backfill() {
+        long total = 0;
+        int accounts = 0;
+        Long accountId = backfillRepository.findNextAccount(0);
+        while (accountId != null) {
+            int filled;
+            do {
+                filled = backfillRepository.backfillChunk(accountId, properties.getChunkSize());
+                total += filled;
+            } while (filled > 0);
+            accounts++;
+            accountId = backfillRepository.findNextAccount(accountId);
+        }
+        if (total > 0) {
+            log.info("Balance-after backfill: {} transactions of {} accounts", total, accounts);
+        }
+        return total;
+    }
+
+    @Scheduled(initialDelayString = "PT1M", fixedDelayString = "${bank.balance-after-backfill.interval:PT10M}")
+    public void backfillScheduled() {
+        if (properties.isEnabled()) {
+            backfill();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.OutboxProperties;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.olegi.testbankapi.repository.BalanceOutboxRepository;
+import org.olegi.testbankapi.service.BalanceEventService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@Slf4j
+public class BalanceEventServiceImpl implements BalanceEventService {
+
+    private final BalanceOutboxRepository outboxRepository;
+    private final OutboxProperties outboxProperties;
+    private final TransactionProperties transactionProperties;
+
+    public BalanceEventServiceImpl(BalanceOutboxRepository outboxRepository,
+                                   OutboxProperties outboxProperties,
+                                   TransactionProperties transactionProperties) {
+        this.outboxRepository = outboxRepository;
+        this.outboxProperties = outboxProperties;
+        this.transactionProperties = transactionProperties;
+    }
+
+    @Override
+    public List<BalanceChangeEventDTO> getEvents(long afterSequence, Integer size) {
+        int pageSize = size == null ? transactionProperties.getHistoryDefaultPageSize() : size;
+        if (pageSize < 1 || pageSize > transactionProperties.getHistoryMaxPageSize()) {
+            throw new IllegalArgumentException("Page size must be between 1 and "
+                    + transactionProperties.getHistoryMaxPageSize());
+        }
+        if (afterSequence < 0) {
+            throw new IllegalArgumentException("Sequence must not be negative");
+        }
+        return outboxRepository.findEventsAfter(afterSequence, pageSize);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bank.outbox.cleanup-interval:PT1H}")
+    public int deletePublished() {
+        LocalDateTime before = LocalDateTime.now().minus(outboxProperties.getRetention());
+        String sink = outboxProperties.getSink().name();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = outboxRepository.deletePublishedBefore(sink, before, outboxProperties.getCleanupBatchSize());
+            total += deleted;
+        } while (deleted == outboxProperties.getCleanupBatchSize());
+        if (total > 0) {
+            log.info("Deleted {} published balance change events", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,150 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.config.BalanceSnapshotProperties;
+import org.olegi.testbankapi.dto.BalanceAtDTO;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.BalanceSnapshotRepository;
+import org.olegi.testbankapi.repository.BalanceSnapshotRow;
+import org.olegi.testbankapi.service.BalanceSnapshotService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Balance-at-time answers start from the snapshot nearest to the requested time, or from the current balance
+ * when that is nearer, and only sum the transactions in between, so their cost depends on the snapshot
+ * interval rather than on the length of the account's history.
+ * <p>
+ * A snapshot is the current balance minus the transactions stamped after it, taken {@code settle-delay}
+ * behind the clock. It therefore stays exact even for balance changes that have no transaction row, which
+ * only blur the balances between the two snapshots around them.
+ * <p>
+ * Sums over archived time come from the archive and the rest from the table, split at
+ * {@link TransactionArchive#archivedUpTo()}. Snapshots are only taken after it, since they are computed from the
+ * table alone.
+ */
+@Service
+@Slf4j
+public class BalanceSnapshotServiceImpl implements BalanceSnapshotService {
+
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountRepository accountRepository;
+    private final BalanceSnapshotProperties properties;
+    private final TransactionArchive transactionArchive;
+    private volatile LocalDateTime lastScheduledAt;
+
+    public BalanceSnapshotServiceImpl(BalanceSnapshotRepository balanceSnapshotRepository,
+                                      AccountRepository accountRepository,
+                                      BalanceSnapshotProperties properties,
+                                      TransactionArchive transactionArchive) {
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.accountRepository = accountRepository;
+        this.properties = properties;
+        this.transactionArchive = transactionArchive;
+    }
+
+    @Override
+    public BalanceAtDTO getBalanceAt(String accountNumber, LocalDateTime at) {
+        long accountId = accountRepository.findIdByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountNotFoundException("Account not found: " + accountNumber));
+        while (true) {
+            LocalDateTime archivedUpTo = transactionArchive.archivedUpTo();
+            BigDecimal balance = balanceAt(accountId, at, archivedUpTo);
+            // A partition archived in the meantime may have been dropped before the table sums got to it.
+            if (Objects.equals(archivedUpTo, transactionArchive.archivedUpTo())) {
+                return new BalanceAtDTO(accountNumber, at, balance);
+            }
+        }
+    }
+
+    private BigDecimal balanceAt(long accountId, LocalDateTime at, LocalDateTime archivedUpTo) {
+        LocalDateTime now = LocalDateTime.now();
+
+        BalanceSnapshotRow previous = null;
+        BalanceSnapshotRow next = null;
+        for (BalanceSnapshotRow snapshot : balanceSnapshotRepository.findNeighbours(accountId, at)) {
+            if (snapshot.takenAt().isAfter(at)) {
+                next = snapshot;
+            } else {
+                previous = snapshot;
+            }
+        }
+        LocalDateTime nextAt = next != null ? next.takenAt() : now;
+        boolean previousIsNearer = previous != null
+                && Duration.between(previous.takenAt(), at).compareTo(Duration.between(at, nextAt)) <= 0;
+
+        if (previousIsNearer) {
+            return previous.balance().add(sumChanges(accountId, previous.takenAt(), at, archivedUpTo));
+        } else if (next != null) {
+            return next.balance().subtract(sumChanges(accountId, at, next.takenAt(), archivedUpTo));
+        } else {
+            return balanceFromCurrent(accountId, at, archivedUpTo);
+        }
+    }
+
+    private BigDecimal sumChanges(long accountId, LocalDateTime after, LocalDateTime upTo, LocalDateTime archivedUpTo) {
+        if (archivedUpTo == null || !after.isBefore(archivedUpTo)) {
+            return balanceSnapshotRepository.sumChanges(accountId, after, upTo);
+        }
+        if (!upTo.isAfter(archivedUpTo)) {
+            return transactionArchive.sumChanges(accountId, after, upTo);
+        }
+        return transactionArchive.sumChanges(accountId, after, archivedUpTo)
+                .add(balanceSnapshotRepository.sumChanges(accountId, archivedUpTo, upTo));
+    }
+
+    private BigDecimal balanceFromCurrent(long accountId, LocalDateTime at, LocalDateTime archivedUpTo) {
+        if (archivedUpTo == null || !at.isBefore(archivedUpTo)) {
+            return balanceSnapshotRepository.balanceFromCurrent(accountId, at);
+        }
+        return balanceSnapshotRepository.balanceFromCurrent(accountId, archivedUpTo)
+                .subtract(transactionArchive.sumChanges(accountId, at, archivedUpTo));
+    }
+
+    @Override
+    public int takeSnapshots(LocalDateTime at) {
+        LocalDateTime archivedUpTo = transactionArchive.archivedUpTo();
+        if (archivedUpTo != null && !at.isAfter(archivedUpTo)) {
+            throw new IllegalArgumentException(
+                    "Cannot take balance snapshots at " + at + ": transactions up to " + archivedUpTo + " are archived");
+        }
+        int total = 0;
+        long afterAccountId = 0;
+        while (true) {
+            BalanceSnapshotRepository.ChunkResult chunk =
+                    balanceSnapshotRepository.snapshotChunk(at, afterAccountId, properties.getChunkSize());
+            if (chunk.lastAccountId() == null) {
+                break;
+            }
+            total += chunk.inserted();
+            afterAccountId = chunk.lastAccountId();
+        }
+        log.info("Balance snapshots at {}: {} accounts", at, total);
+        return total;
+    }
+
+    /**
+     * Snapshots the last day boundary once, then the current time minus the settle delay.
+     */
+    @Scheduled(initialDelayString = "${bank.balance-snapshot.settle-delay:PT1M}",
+            fixedDelayString = "${bank.balance-snapshot.interval:PT1H}")
+    public void takeScheduledSnapshots() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime at = LocalDateTime.now().minus(properties.getSettleDelay());
+        LocalDateTime dayStart = at.toLocalDate().atStartOfDay();
+        if (lastScheduledAt == null || lastScheduledAt.isBefore(dayStart)) {
+            takeSnapshots(dayStart);
+        }
+        takeSnapshots(at);
+        lastScheduledAt = at;
+    }
+}
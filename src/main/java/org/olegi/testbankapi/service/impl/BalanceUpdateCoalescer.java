@@ -0,0 +1,266 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.BalanceUpdateRolledBackException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.metrics.BankMetrics;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Group commit of the {@code COALESCED} balance update mode. The first deposit or withdrawal of an account opens a
+ * batch and waits up to {@code bank.transaction.coalescing.window} for others on the same account to join it; that
+ * caller then applies the whole batch in one transaction and completes every other caller's result once it has
+ * committed.
+ * <p>
+ * Operations are checked in the order they joined against the running balance, so a withdrawal sees exactly the
+ * deposits and withdrawals that arrived before it and fails alone when they leave too little, as it would have
+ * done on its own. Operations of different batches are ordered by the account row lock, like separate requests.
+ * <p>
+ * A batch that fails before it commits fails every caller with {@link BalanceUpdateRolledBackException}, so
+ * callers know none of it was applied. A failure of the commit itself leaves the outcome unknown and is passed on
+ * as it is.
+ */
+@Component
+@Slf4j
+public class BalanceUpdateCoalescer {
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionProperties transactionProperties;
+    private final AccountCache accountCache;
+    private final BankMetrics bankMetrics;
+    private final TransactionTemplate batchTransaction;
+    // The batch of each account that operations can still join.
+    private final ConcurrentMap<String, Batch> open = new ConcurrentHashMap<>();
+
+    public BalanceUpdateCoalescer(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  TransactionProperties transactionProperties,
+                                  AccountCache accountCache,
+                                  BankMetrics bankMetrics,
+                                  PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionProperties = transactionProperties;
+        this.accountCache = accountCache;
+        this.bankMetrics = bankMetrics;
+        // The batch holds the account row lock from its first statement, as the ATOMIC mode does.
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    public AccountDTO deposit(String accountNumber, BigDecimal amount) {
+        return submit(accountNumber, TransactionTypes.DEPOSIT, amount);
+    }
+
+    public AccountDTO withdraw(String accountNumber, BigDecimal amount) {
+        return submit(accountNumber, TransactionTypes.WITHDRAW, amount);
+    }
+
+    private AccountDTO submit(String accountNumber, TransactionTypes transactionType, BigDecimal amount) {
+        TransactionProperties.Coalescing coalescing = transactionProperties.getCoalescing();
+        Batch batch;
+        Operation operation;
+        do {
+            batch = open.computeIfAbsent(accountNumber, key -> new Batch());
+            operation = batch.join(transactionType, amount, coalescing.getMaxBatchSize());
+            if (operation == null) {
+                // Closed after we found it: full, or already being applied.
+                open.remove(accountNumber, batch);
+            }
+        } while (operation == null);
+
+        if (batch.isLeader(operation)) {
+            List<Operation> operations = batch.awaitClose(coalescing.getWindow().toNanos());
+            open.remove(accountNumber, batch);
+            apply(accountNumber, operations);
+        }
+        try {
+            return operation.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void apply(String accountNumber, List<Operation> operations) {
+        bankMetrics.recordCoalescedBatch(operations.size());
+        boolean[] committing = {false};
+        try {
+            List<Runnable> completions = batchTransaction.execute(status -> {
+                List<Runnable> applied = applyBatch(accountNumber, operations);
+                committing[0] = true;
+                return applied;
+            });
+            completions.forEach(Runnable::run);
+        } catch (RuntimeException e) {
+            log.error("Coalesced batch of {} operations on account {} failed", operations.size(), accountNumber, e);
+            RuntimeException failure = committing[0] ? e : new BalanceUpdateRolledBackException(
+                    "Coalesced batch on account " + accountNumber + " was rolled back", e);
+            operations.forEach(operation -> operation.result().completeExceptionally(failure));
+        }
+    }
+
+    /**
+     * Applies the operations under the account row lock and returns what completes each caller's result; those
+     * only run once the transaction has committed.
+     */
+    private List<Runnable> applyBatch(String accountNumber, List<Operation> operations) {
+        List<Runnable> completions = new ArrayList<>(operations.size());
+        Account account = bankMetrics.recordLockWait(
+                        () -> accountRepository.findAllByAccountNumberInForUpdate(List.of(accountNumber)))
+                .stream()
+                .findFirst()
+                .orElse(null);
+        if (account == null) {
+            AccountNotFoundException notFound = new AccountNotFoundException("Account not found: " + accountNumber);
+            operations.forEach(operation -> completions.add(() -> operation.result().completeExceptionally(notFound)));
+            return completions;
+        }
+
+        // A striped account is credited on its row too: the batch holds the row lock anyway.
+        BigDecimal slots = account.getBalanceSlots() > 0
+                ? accountRepository.sumBalanceSlots(account.getId())
+                : BigDecimal.ZERO;
+        BigDecimal balance = account.getBalance();
+        List<Transaction> recorded = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            BigDecimal amount = operation.amount();
+            if (operation.transactionType() == TransactionTypes.WITHDRAW) {
+                if (balance.compareTo(amount) < 0 && slots.signum() > 0) {
+                    // The row in the database does not have the batch's earlier operations yet; add what was swept.
+                    balance = balance.add(accountRepository.sweepBalanceSlots(account.getId())
+                            .subtract(account.getBalance()));
+                    slots = BigDecimal.ZERO;
+                    bankMetrics.retried("withdraw", "balance_slots_swept");
+                }
+                if (balance.compareTo(amount) < 0) {
+                    log.error("Недостаточно средств на счете: {}. Текущий баланс: {}, сумма списания: {}",
+                            accountNumber, balance.add(slots), amount);
+                    completions.add(() -> operation.result().completeExceptionally(
+                            new InsufficientFundsException("Insufficient funds for withdrawal")));
+                    continue;
+                }
+                amount = amount.negate();
+            }
+            balance = balance.add(amount);
+
+            Transaction transaction = new Transaction();
+            transaction.setTransactionType(operation.transactionType());
+            transaction.setAmount(operation.amount());
+            transaction.setTimeStamp(operation.timeStamp());
+            // Deposits into a striped account's slots are not serialized with the batch: the backfill fills it in.
+            transaction.setBalanceAfter(account.getBalanceSlots() > 0 ? null : balance);
+            transaction.setAccount(account);
+            recorded.add(transaction);
+            AccountDTO updated = new AccountDTO(accountNumber, balance.add(slots));
+            completions.add(() -> operation.result().complete(updated));
+        }
+
+        if (!recorded.isEmpty()) {
+            account.setBalance(balance);
+            accountRepository.save(account);
+            transactionRepository.saveAll(recorded);
+            accountCache.evictAfterCommit(accountNumber);
+        }
+        log.info("Coalesced {} operations on account {}: {} applied", operations.size(), accountNumber, recorded.size());
+        return completions;
+    }
+
+    private record Operation(TransactionTypes transactionType, BigDecimal amount, LocalDateTime timeStamp,
+                             CompletableFuture<AccountDTO> result) {
+    }
+
+    /**
+     * Operations of one account waiting to be applied together. Closed once its leader, the first operation,
+     * starts applying it, or once it is full.
+     */
+    private static final class Batch {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition full = lock.newCondition();
+        // Guarded by lock.
+        private final List<Operation> operations = new ArrayList<>();
+        private boolean closed;
+
+        /**
+         * Adds an operation, or returns null if the batch is closed.
+         */
+        Operation join(TransactionTypes transactionType, BigDecimal amount, int maxBatchSize) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return null;
+                }
+                // Taken under the lock, so the time stamps follow the order of the batch.
+                Operation operation = new Operation(transactionType, amount, LocalDateTime.now(),
+                        new CompletableFuture<>());
+                operations.add(operation);
+                if (operations.size() >= maxBatchSize) {
+                    closed = true;
+                    full.signal();
+                }
+                return operation;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isLeader(Operation operation) {
+            lock.lock();
+            try {
+                return operations.get(0) == operation;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until the window has passed or the batch is full, then closes it and returns its operations.
+         */
+        List<Operation> awaitClose(long windowNanos) {
+            lock.lock();
+            try {
+                long remaining = windowNanos;
+                while (!closed && remaining > 0) {
+                    try {
+                        remaining = full.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        // Apply what has joined so far; the callers are waiting for it.
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                closed = true;
+                return List.copyOf(operations);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.olegi.testbankapi.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in an account's history: the {@code (time_stamp, id)} of the last row a client has seen.
+ * Clients get it as an opaque URL-safe string and must not depend on its format.
+ */
+public record HistoryCursor(LocalDateTime timeStamp, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * Position before the first row at or after {@code from}.
+     */
+    public static HistoryCursor start(LocalDateTime from) {
+        return new HistoryCursor(from, Long.MIN_VALUE);
+    }
+
+    public String encode() {
+        String raw = timeStamp.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new HistoryCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
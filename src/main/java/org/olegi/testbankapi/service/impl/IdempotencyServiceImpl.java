@@ -0,0 +1,290 @@
+package org.olegi.testbankapi.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.IdempotencyProperties;
+import org.olegi.testbankapi.enums.IdempotencyStatus;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.BalanceUpdateRolledBackException;
+import org.olegi.testbankapi.exceptions.DepositMustBePositiveException;
+import org.olegi.testbankapi.exceptions.IdempotencyKeyInProgressException;
+import org.olegi.testbankapi.exceptions.IdempotencyKeyReuseException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.exceptions.LedgerOutcomeUnknownException;
+import org.olegi.testbankapi.exceptions.LedgerUnavailableException;
+import org.olegi.testbankapi.model.IdempotencyKey;
+import org.olegi.testbankapi.repository.IdempotencyKeyRepository;
+import org.olegi.testbankapi.service.IdempotencyService;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Keys are claimed in the {@code idempotency_key} table before the operation runs and completed with its
+ * response afterwards. Requests with the same key wait on an in-process future when the owner runs in this
+ * instance, and poll the table when it runs elsewhere.
+ * <p>
+ * Only successful responses are stored. A key is released for a retry to run again when the operation failed in
+ * its transaction, or failed before changing anything (validation, missing account, insufficient funds, a full
+ * ledger queue, a coalesced batch that rolled back). Other failures without a transaction, such as a ledger that did not acknowledge in time, leave
+ * the outcome unknown: the key stays {@code IN_PROGRESS} until it expires rather than risk running twice.
+ * When the caller passes the operation's transaction, the key is locked and completed inside
+ * it, so the response commits or rolls back with the money movement. Such a claim is held only for the lease:
+ * if the instance dies, a retry takes the key over once the lease is up, while an owner that is still running
+ * keeps it locked. Without a transaction the response is stored after the operation; if the instance dies in
+ * between, the key stays {@code IN_PROGRESS} and retries get 409 until it expires, rather than running twice.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final IdempotencyProperties idempotencyProperties;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final Cache<String, StoredResponse> completed;
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyServiceImpl(IdempotencyKeyRepository idempotencyKeyRepository,
+                                  IdempotencyProperties idempotencyProperties,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.idempotencyProperties = idempotencyProperties;
+        this.objectMapper = objectMapper;
+        this.transactionManager = transactionManager;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(idempotencyProperties.getHotMaximumSize())
+                .expireAfterWrite(idempotencyProperties.getHotTtl())
+                .build();
+    }
+
+    @Override
+    public <T> ResponseEntity<T> execute(String idempotencyKey, String operationName, Object request,
+                                         Class<T> responseType, TransactionDefinition transaction,
+                                         Supplier<ResponseEntity<T>> operation) {
+        if (idempotencyKey == null) {
+            return operation.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(operationName, request);
+        long deadline = System.nanoTime() + idempotencyProperties.getWaitTimeout().toNanos();
+
+        while (true) {
+            StoredResponse stored = completed.getIfPresent(idempotencyKey);
+            if (stored != null) {
+                return replay(idempotencyKey, stored, requestHash, responseType);
+            }
+            CompletableFuture<Void> owner = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(idempotencyKey, owner);
+            if (running != null) {
+                awaitLocal(idempotencyKey, running, deadline);
+                continue;
+            }
+            try {
+                return claimAndExecute(idempotencyKey, requestHash, responseType, transaction, operation, deadline);
+            } finally {
+                inFlight.remove(idempotencyKey, owner);
+                owner.complete(null);
+            }
+        }
+    }
+
+    private <T> ResponseEntity<T> claimAndExecute(String idempotencyKey, String requestHash, Class<T> responseType,
+                                                  TransactionDefinition transaction,
+                                                  Supplier<ResponseEntity<T>> operation, long deadline) {
+        Duration hold = transaction == null ? idempotencyProperties.getTtl() : idempotencyProperties.getLease();
+        LocalDateTime claimedAt;
+        while ((claimedAt = claim(idempotencyKey, requestHash, hold)) == null) {
+            Optional<IdempotencyKey> existing = idempotencyKeyRepository.findById(idempotencyKey);
+            if (existing.isEmpty()) {
+                // Released or expired between the claim and the read: try to claim it again.
+                continue;
+            }
+            IdempotencyKey record = existing.get();
+            if (record.getStatus() == IdempotencyStatus.COMPLETED) {
+                StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseStatus(), record.getResponseBody());
+                completed.put(idempotencyKey, stored);
+                return replay(idempotencyKey, stored, requestHash, responseType);
+            }
+            checkSameRequest(idempotencyKey, record.getRequestHash(), requestHash);
+            if (System.nanoTime() > deadline) {
+                throw inProgress(idempotencyKey);
+            }
+            sleep(idempotencyProperties.getPollInterval().toMillis());
+        }
+
+        LocalDateTime claim = claimedAt;
+        ResponseEntity<T> response;
+        try {
+            response = transaction == null
+                    ? operation.get()
+                    : new TransactionTemplate(transactionManager, transaction).execute(status -> {
+                        if (idempotencyKeyRepository.lockClaim(idempotencyKey, claim).isEmpty()) {
+                            throw inProgress(idempotencyKey);
+                        }
+                        ResponseEntity<T> result = operation.get();
+                        complete(idempotencyKey, toStored(requestHash, result));
+                        return result;
+                    });
+        } catch (RuntimeException e) {
+            // In a transaction, a key completed by a commit that went through is not deleted by the release.
+            if (transaction != null || isRejected(e)) {
+                idempotencyKeyRepository.release(idempotencyKey, claim);
+            } else {
+                log.warn("Outcome of the request with idempotency key {} is unknown, keeping the key until it expires: {}",
+                        idempotencyKey, e.getMessage());
+            }
+            throw e;
+        }
+        StoredResponse stored = toStored(requestHash, response);
+        if (transaction == null) {
+            complete(idempotencyKey, stored);
+        }
+        completed.put(idempotencyKey, stored);
+        return response;
+    }
+
+    /**
+     * Whether the operation failed without changing anything, so running it again cannot apply it twice.
+     */
+    private static boolean isRejected(RuntimeException e) {
+        return e instanceof IllegalArgumentException
+                || e instanceof DepositMustBePositiveException
+                || e instanceof AccountNotFoundException
+                || e instanceof InsufficientFundsException
+                || e instanceof CannotCreateTransactionException
+                || e instanceof PessimisticLockingFailureException
+                || e instanceof BalanceUpdateRolledBackException
+                || e instanceof LedgerUnavailableException && !(e instanceof LedgerOutcomeUnknownException);
+    }
+
+    /**
+     * @return the claim time, which identifies this claim, or {@code null} if the key is held or completed
+     */
+    private LocalDateTime claim(String idempotencyKey, String requestHash, Duration hold) {
+        // Stored as TIMESTAMP(6), and compared when the claim is locked or released.
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        return idempotencyKeyRepository.claim(idempotencyKey, requestHash, now, now.plus(hold)) == 1 ? now : null;
+    }
+
+    private void complete(String idempotencyKey, StoredResponse stored) {
+        idempotencyKeyRepository.complete(idempotencyKey, stored.status(), stored.body(),
+                LocalDateTime.now().plus(idempotencyProperties.getTtl()));
+    }
+
+    private StoredResponse toStored(String requestHash, ResponseEntity<?> response) {
+        return new StoredResponse(requestHash, response.getStatusCode().value(), toJson(response.getBody()));
+    }
+
+    private <T> ResponseEntity<T> replay(String idempotencyKey, StoredResponse stored, String requestHash,
+                                         Class<T> responseType) {
+        checkSameRequest(idempotencyKey, stored.requestHash(), requestHash);
+        log.info("Replaying stored response for idempotency key {}", idempotencyKey);
+        try {
+            T body = stored.body() == null ? null : objectMapper.readValue(stored.body(), responseType);
+            return ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + idempotencyKey + " is unreadable", e);
+        }
+    }
+
+    private static void checkSameRequest(String idempotencyKey, String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            log.error("Idempotency key {} reused with a different request", idempotencyKey);
+            throw new IdempotencyKeyReuseException("Idempotency key " + idempotencyKey + " was used with a different request");
+        }
+    }
+
+    private void awaitLocal(String idempotencyKey, CompletableFuture<Void> running, long deadline) {
+        try {
+            running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw inProgress(idempotencyKey);
+        } catch (ExecutionException e) {
+            // The owner failed; the loop in execute() decides what happens next.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress(idempotencyKey);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an idempotent request", e);
+        }
+    }
+
+    private static IdempotencyKeyInProgressException inProgress(String idempotencyKey) {
+        return new IdempotencyKeyInProgressException("Request with idempotency key " + idempotencyKey + " is still in progress");
+    }
+
+    private String hash(String operationName, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operationName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot hash request for idempotency check", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return body == null ? null : objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response for idempotency check", e);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bank.idempotency.cleanup-interval:PT1M}")
+    public int deleteExpired() {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = idempotencyKeyRepository.deleteExpired(LocalDateTime.now(), idempotencyProperties.getCleanupBatchSize());
+            total += deleted;
+        } while (deleted == idempotencyProperties.getCleanupBatchSize());
+        if (total > 0) {
+            log.info("Deleted {} expired idempotency keys", total);
+        }
+        return total;
+    }
+
+    private record StoredResponse(String requestHash, int status, String body) {
+    }
+}
@@ -0,0 +1,122 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.archive.ArchivedTransaction;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.config.TransactionArchiveProperties;
+import org.olegi.testbankapi.repository.TransactionArchiveRepository;
+import org.olegi.testbankapi.repository.TransactionPartition;
+import org.olegi.testbankapi.repository.TransactionPartitionRepository;
+import org.olegi.testbankapi.service.TransactionArchiveService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves whole monthly partitions of {@code transaction} into the archive once they are older than
+ * {@code hot-period}: the partition is written out as segments in {@code (account_id, time_stamp, id)} order,
+ * the segments are marked complete and served, and only then is the partition detached and dropped. A crash
+ * before the drop leaves the partition attached: the next run drops it if its segments were complete, and archives
+ * it again from scratch otherwise. Runs of all instances are serialized by an advisory lock, so only one instance
+ * ever writes or deletes segment files; the others pick up completed partitions from the shared directory.
+ * <p>
+ * A partition that still has rows waiting for the balance-after backfill stops the run until the backfill has
+ * filled it, since those updates would not reach the archived copy. Later partitions wait with it: the archive
+ * must stay a prefix of the history, which lets readers split their time range at
+ * {@link TransactionArchive#archivedUpTo()}, and the backfill anchors on the rows after the ones it fills.
+ */
+@Service
+@Slf4j
+public class TransactionArchiveServiceImpl implements TransactionArchiveService {
+
+    private final TransactionPartitionRepository partitionRepository;
+    private final TransactionArchiveRepository archiveRepository;
+    private final TransactionArchive archive;
+    private final TransactionArchiveProperties properties;
+    private final TransactionTemplate readTransaction;
+
+    public TransactionArchiveServiceImpl(TransactionPartitionRepository partitionRepository,
+                                         TransactionArchiveRepository archiveRepository,
+                                         TransactionArchive archive,
+                                         TransactionArchiveProperties properties,
+                                         PlatformTransactionManager transactionManager) {
+        this.partitionRepository = partitionRepository;
+        this.archiveRepository = archiveRepository;
+        this.archive = archive;
+        this.properties = properties;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public List<String> archivePartitions(LocalDateTime before) {
+        List<String> archived = new ArrayList<>();
+        if (!archiveRepository.runLocked(() -> archivePartitions(before, archived))) {
+            log.info("Another instance is archiving transaction partitions; skipping this run");
+        }
+        return archived;
+    }
+
+    private void archivePartitions(LocalDateTime before, List<String> archived) {
+        for (TransactionPartition partition : partitionRepository.findPartitions()) {
+            if (partition.to().isAfter(before)) {
+                break;
+            }
+            if (archiveRepository.hasRowsWithoutBalance(partition.name())) {
+                log.info("Transaction partition {} still has rows without a balance; archiving stops there for now",
+                        partition.name());
+                break;
+            }
+            archive(partition.name());
+            archived.add(partition.name());
+        }
+    }
+
+    private void archive(String partition) {
+        if (archive.isComplete(partition)) {
+            // A previous run stopped before the drop; the partition is already served from its segments.
+            log.info("Transaction partition {} is already archived; dropping it", partition);
+        } else {
+            writeSegments(partition);
+        }
+        // Until the drop, history queries find these rows in both places and skip the duplicates.
+        partitionRepository.detachPartition(partition);
+        archiveRepository.dropPartition(partition);
+    }
+
+    private void writeSegments(String partition) {
+        archive.discard(partition);
+        List<ArchivedTransaction> segment = new ArrayList<>(properties.getSegmentRows());
+        int[] segments = {0};
+        long[] rows = {0};
+        readTransaction.executeWithoutResult(status -> archiveRepository.streamPartition(
+                partition, properties.getFetchSize(), row -> {
+                    segment.add(row);
+                    if (segment.size() == properties.getSegmentRows()) {
+                        archive.writeSegment(partition, ++segments[0], segment);
+                        rows[0] += segment.size();
+                        segment.clear();
+                    }
+                }));
+        if (!segment.isEmpty()) {
+            archive.writeSegment(partition, ++segments[0], segment);
+            rows[0] += segment.size();
+        }
+        archive.complete(partition);
+        log.info("Archived transaction partition {}: {} rows in {} segments", partition, rows[0], segments[0]);
+    }
+
+    @Scheduled(initialDelayString = "PT1M", fixedDelayString = "${bank.transaction-archive.interval:PT1H}")
+    public void archiveScheduled() {
+        if (properties.isEnabled()) {
+            archivePartitions(LocalDateTime.now().minus(properties.getHotPeriod()));
+        }
+    }
+}
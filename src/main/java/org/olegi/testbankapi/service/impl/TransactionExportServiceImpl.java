@@ -0,0 +1,219 @@
+package org.olegi.testbankapi.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.enums.ExportFormat;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionExportRepository;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.olegi.testbankapi.service.TransactionExportService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Streams an account's history as NDJSON or CSV. Rows up to {@link TransactionArchive#archivedUpTo()} come from
+ * the archive and are written first, the later ones from the table through a cursor.
+ */
+@Service
+@Slf4j
+public class TransactionExportServiceImpl implements TransactionExportService {
+
+    private static final String CSV_HEADER = "timestamp,transactionType,amount,balanceAfter,transferId\n";
+
+    private final TransactionExportRepository transactionExportRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionProperties transactionProperties;
+    private final TransactionArchive transactionArchive;
+    private final TransactionMapper transactionMapper;
+    private final ObjectWriter rowWriter;
+    private final TransactionTemplate exportTransaction;
+
+    public TransactionExportServiceImpl(TransactionExportRepository transactionExportRepository,
+                                        AccountRepository accountRepository,
+                                        TransactionProperties transactionProperties,
+                                        TransactionArchive transactionArchive,
+                                        TransactionMapper transactionMapper,
+                                        ObjectMapper objectMapper,
+                                        PlatformTransactionManager transactionManager) {
+        this.transactionExportRepository = transactionExportRepository;
+        this.accountRepository = accountRepository;
+        this.transactionProperties = transactionProperties;
+        this.transactionArchive = transactionArchive;
+        this.transactionMapper = transactionMapper;
+        // Flushing after every row would defeat the output buffer; the response is flushed once at the end.
+        // Rows are terminated with '\n' explicitly, so Jackson's default space between root values is switched off.
+        this.rowWriter = objectMapper.writerFor(TransactionDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        // One snapshot for the whole cursor, so a long export is consistent with itself.
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+        this.exportTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public HistoryExport prepareHistoryExport(Long accountId, LocalDateTime from, LocalDateTime to, ExportFormat format) {
+        if (!accountRepository.existsById(accountId)) {
+            throw new AccountNotFoundException("Account not found: " + accountId);
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("From Date is less than To");
+        }
+
+        return outputStream -> {
+            log.info("Exporting history of account {} from {} to {} as {}", accountId, from, to, format);
+            long rows = switch (format) {
+                case NDJSON -> writeNdjson(accountId, from, to, outputStream);
+                case CSV -> writeCsv(accountId, from, to, outputStream);
+            };
+            log.info("Exported {} transactions of account {}", rows, accountId);
+        };
+    }
+
+    // Neither method closes the stream: it belongs to the servlet container, which completes the response itself.
+    private long writeNdjson(Long accountId, LocalDateTime from, LocalDateTime to, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = rowWriter.createGenerator(outputStream);
+        long rows = streamRows(accountId, from, to, transaction -> {
+            try {
+                rowWriter.writeValue(generator, transaction);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.flush();
+        return rows;
+    }
+
+    private long writeCsv(Long accountId, LocalDateTime from, LocalDateTime to, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        long rows = streamRows(accountId, from, to, transaction -> {
+            try {
+                writer.write(transaction.getTimestamp().toString());
+                writer.write(',');
+                writer.write(transaction.getTransactionType().name());
+                writer.write(',');
+                writer.write(transaction.getAmount().toPlainString());
+                writer.write(',');
+                if (transaction.getBalanceAfter() != null) {
+                    writer.write(transaction.getBalanceAfter().toPlainString());
+                }
+                writer.write(',');
+                if (transaction.getTransferId() != null) {
+                    writer.write(transaction.getTransferId().toString());
+                }
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        return rows;
+    }
+
+    private long streamRows(Long accountId, LocalDateTime from, LocalDateTime to,
+                            Consumer<TransactionDTO> rowConsumer) throws IOException {
+        try {
+            while (true) {
+                try {
+                    return streamRows(accountId, from, to, transactionArchive.archivedUpTo(), rowConsumer);
+                } catch (ArchiveMovedException e) {
+                    log.debug("Transaction archive moved on while exporting account {}; starting over", accountId);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; unwrap so the container treats it as a broken connection.
+            throw e.getCause();
+        }
+    }
+
+    private long streamRows(Long accountId, LocalDateTime from, LocalDateTime to, LocalDateTime archivedUpTo,
+                            Consumer<TransactionDTO> rowConsumer) {
+        boolean fromArchive = archivedUpTo != null && !archivedUpTo.isBefore(from);
+        // The table is read after the archived range only; timestamps are stored with microsecond precision.
+        LocalDateTime tableFrom = fromArchive ? archivedUpTo.plus(1, ChronoUnit.MICROS) : from;
+        long[] rows = {0};
+        boolean[] archiveWritten = {false};
+        Runnable writeArchived = () -> {
+            // Nothing is written before this check. Once the cursor has returned a row, its locks keep the
+            // partitions it reads from being dropped, so a partition archived from here on is still read in full.
+            if (!Objects.equals(archivedUpTo, transactionArchive.archivedUpTo())) {
+                throw new ArchiveMovedException();
+            }
+            if (fromArchive) {
+                rows[0] += writeArchived(accountId, from, to.isBefore(archivedUpTo) ? to : archivedUpTo, rowConsumer);
+            }
+            archiveWritten[0] = true;
+        };
+        exportTransaction.executeWithoutResult(status -> {
+            if (!tableFrom.isAfter(to)) {
+                transactionExportRepository.streamHistory(
+                        accountId, tableFrom, to, transactionProperties.getExportFetchSize(), transaction -> {
+                            if (!archiveWritten[0]) {
+                                writeArchived.run();
+                            }
+                            rowConsumer.accept(transaction);
+                            rows[0]++;
+                        });
+            }
+            if (!archiveWritten[0]) {
+                writeArchived.run();
+            }
+        });
+        return rows[0];
+    }
+
+    private long writeArchived(Long accountId, LocalDateTime from, LocalDateTime to,
+                               Consumer<TransactionDTO> rowConsumer) {
+        int pageSize = transactionProperties.getExportFetchSize();
+        HistoryCursor position = HistoryCursor.start(from);
+        long rows = 0;
+        while (true) {
+            List<TransactionHistoryRow> page = transactionArchive.findHistoryPage(
+                    accountId, from, to, position.timeStamp(), position.id(), pageSize);
+            for (TransactionHistoryRow row : page) {
+                rowConsumer.accept(transactionMapper.historyRowToTransactionDTO(row));
+            }
+            rows += page.size();
+            if (page.size() < pageSize) {
+                return rows;
+            }
+            TransactionHistoryRow last = page.get(page.size() - 1);
+            position = new HistoryCursor(last.timeStamp(), last.id());
+        }
+    }
+
+    /**
+     * A partition was archived and may have been dropped before the export read it.
+     */
+    private static class ArchiveMovedException extends RuntimeException {
+
+        ArchiveMovedException() {
+            super(null, null, false, false);
+        }
+    }
+}
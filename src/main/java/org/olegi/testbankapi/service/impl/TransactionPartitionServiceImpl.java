@@ -0,0 +1,86 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.TransactionPartitionProperties;
+import org.olegi.testbankapi.repository.TransactionPartition;
+import org.olegi.testbankapi.repository.TransactionPartitionRepository;
+import org.olegi.testbankapi.service.TransactionPartitionService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps {@code transaction} partitioned by month: partitions are created {@code months-ahead} months before
+ * they are needed, starting from the end of the newest one so that a gap left by a long outage is filled too,
+ * and partitions older than {@code retention-months} are detached.
+ * <p>
+ * History queries bound {@code time_stamp}, so Postgres prunes them to the partitions of the requested range,
+ * and dropping old history is a metadata change instead of a mass DELETE followed by vacuum.
+ */
+@Service
+@Slf4j
+public class TransactionPartitionServiceImpl implements TransactionPartitionService {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final TransactionPartitionRepository partitionRepository;
+    private final TransactionPartitionProperties properties;
+
+    public TransactionPartitionServiceImpl(TransactionPartitionRepository partitionRepository,
+                                           TransactionPartitionProperties properties) {
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+    }
+
+    @Override
+    public int createPartitions(YearMonth until) {
+        List<TransactionPartition> partitions = partitionRepository.findPartitions();
+        LocalDateTime end = until.plusMonths(1).atDay(1).atStartOfDay();
+        LocalDateTime from = partitions.get(partitions.size() - 1).to();
+        int created = 0;
+        while (from.isBefore(end)) {
+            LocalDateTime to = from.plusMonths(1);
+            String name = "transaction_p" + from.format(PARTITION_SUFFIX);
+            partitionRepository.createPartition(name, from, to);
+            log.info("Created transaction partition {} for [{}, {})", name, from, to);
+            created++;
+            from = to;
+        }
+        return created;
+    }
+
+    @Override
+    public List<String> detachPartitions(LocalDateTime before) {
+        List<String> detached = new ArrayList<>();
+        for (TransactionPartition partition : partitionRepository.findPartitions()) {
+            if (partition.to().isAfter(before)) {
+                break;
+            }
+            partitionRepository.detachPartition(partition.name());
+            log.info("Detached transaction partition {} ending at {}", partition.name(), partition.to());
+            detached.add(partition.name());
+        }
+        return detached;
+    }
+
+    /**
+     * Runs right at startup as well, so an application that was down for longer than {@code months-ahead}
+     * catches up before the first write of a month without a partition.
+     */
+    @Scheduled(fixedDelayString = "${bank.transaction-partitions.interval:PT1H}")
+    public void maintainScheduled() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        createPartitions(current.plusMonths(properties.getMonthsAhead()));
+        if (properties.getRetentionMonths() > 0) {
+            detachPartitions(current.minusMonths(properties.getRetentionMonths()).atDay(1).atStartOfDay());
+        }
+    }
+}
@@ -1,52 +1,224 @@
 package org.olegi.testbankapi.service.impl;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.TransactionProperties;
 import org.olegi.testbankapi.dto.AccountDTO;
 import org.olegi.testbankapi.dto.DepositDTO;
-import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransactionPageDTO;
 import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.BalanceUpdateMode;
 import org.olegi.testbankapi.enums.TransactionTypes;
 import org.olegi.testbankapi.exceptions.AccountNotFoundException;
 import org.olegi.testbankapi.exceptions.DepositMustBePositiveException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
 import org.olegi.testbankapi.mapper.AccountMapper;
 import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.metrics.BankMetrics;
 import org.olegi.testbankapi.model.Account;
 import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountBalanceView;
 import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
 import org.olegi.testbankapi.repository.TransactionRepository;
 import org.olegi.testbankapi.service.TransactionService;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
 @Slf4j
 public class TransactionServiceImpl implements TransactionService {
 
+    private static final Comparator<TransactionHistoryRow> HISTORY_ORDER =
+            Comparator.comparing(TransactionHistoryRow::timeStamp).thenComparing(TransactionHistoryRow::id);
+
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
     private final AccountMapper accountMapper;
     private final TransactionMapper transactionMapper;
+    private final TransactionProperties transactionProperties;
+    private final AccountCache accountCache;
+    private final LedgerEngine ledgerEngine;
+    private final TransactionArchive transactionArchive;
+    private final BankMetrics bankMetrics;
+    private final BalanceUpdateCoalescer balanceUpdateCoalescer;
+    private final TransactionTemplate entityTransaction;
+    private final TransactionTemplate atomicTransaction;
+
+    public TransactionServiceImpl(TransactionRepository transactionRepository,
+                                  AccountRepository accountRepository,
+                                  AccountMapper accountMapper,
+                                  TransactionMapper transactionMapper,
+                                  TransactionProperties transactionProperties,
+                                  AccountCache accountCache,
+                                  LedgerEngine ledgerEngine,
+                                  TransactionArchive transactionArchive,
+                                  BankMetrics bankMetrics,
+                                  BalanceUpdateCoalescer balanceUpdateCoalescer,
+                                  PlatformTransactionManager transactionManager) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.accountMapper = accountMapper;
+        this.transactionMapper = transactionMapper;
+        this.transactionProperties = transactionProperties;
+        this.accountCache = accountCache;
+        this.ledgerEngine = ledgerEngine;
+        this.transactionArchive = transactionArchive;
+        this.bankMetrics = bankMetrics;
+        this.balanceUpdateCoalescer = balanceUpdateCoalescer;
+        this.entityTransaction = new TransactionTemplate(transactionManager);
+        this.entityTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        // A single UPDATE re-checks its WHERE clause against the latest row version under READ_COMMITTED,
+        // whereas REPEATABLE_READ would fail it with a serialization error on every concurrent change.
+        this.atomicTransaction = new TransactionTemplate(transactionManager);
+        this.atomicTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
 
     @Override
     public BigDecimal getBalance(String accountNumber) {
-        return accountRepository.findByAccountNumber(accountNumber)
-                .map(Account::getBalance)
-                .orElseThrow(() -> new AccountNotFoundException("Account not found: " + accountNumber));
+        ledgerEngine.awaitApplied();
+        return accountCache.get(accountNumber, number -> accountRepository.findBalanceByAccountNumber(number)
+                        .map(view -> new AccountDTO(view.getAccountNumber(), view.getBalance()))
+                        .orElseThrow(() -> new AccountNotFoundException("Account not found: " + number)))
+                .getBalance();
     }
 
     @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public AccountDTO deposit(DepositDTO depositDTO) {
+        return bankMetrics.record("deposit", () -> {
+            validateAmount(depositDTO.getAmount());
+            if (ledgerEngine.isEnabled()) {
+                return ledgerEngine.deposit(depositDTO.getAccountNumber(), depositDTO.getAmount());
+            }
+            return switch (transactionProperties.getDepositMode()) {
+                case ENTITY -> entityTransaction.execute(status -> evictAfterCommit(depositEntity(depositDTO)));
+                case ATOMIC -> atomicTransaction.execute(status -> evictAfterCommit(depositAtomic(depositDTO)));
+                case COALESCED -> balanceUpdateCoalescer.deposit(depositDTO.getAccountNumber(), depositDTO.getAmount());
+            };
+        });
+    }
+
+    @Override
+    public AccountDTO withdraw(WithdrawDTO withdrawDTO) {
+        return bankMetrics.record("withdraw", () -> {
+            validateAmount(withdrawDTO.getAmount());
+            if (ledgerEngine.isEnabled()) {
+                return ledgerEngine.withdraw(withdrawDTO.getAccountNumber(), withdrawDTO.getAmount());
+            }
+            return switch (transactionProperties.getWithdrawMode()) {
+                case ENTITY -> entityTransaction.execute(status -> evictAfterCommit(withdrawEntity(withdrawDTO)));
+                case ATOMIC -> atomicTransaction.execute(status -> evictAfterCommit(withdrawAtomic(withdrawDTO)));
+                case COALESCED -> balanceUpdateCoalescer.withdraw(withdrawDTO.getAccountNumber(), withdrawDTO.getAmount());
+            };
+        });
+    }
+
+    @Override
+    public TransactionDefinition depositTransaction() {
+        return transactionFor(transactionProperties.getDepositMode());
+    }
+
+    @Override
+    public TransactionDefinition withdrawTransaction() {
+        return transactionFor(transactionProperties.getWithdrawMode());
+    }
+
+    private TransactionDefinition transactionFor(BalanceUpdateMode mode) {
+        if (ledgerEngine.isEnabled()) {
+            return null;
+        }
+        return switch (mode) {
+            case ENTITY -> entityTransaction;
+            case ATOMIC -> atomicTransaction;
+            // Applied by the batch leader's thread, in a transaction shared with other callers.
+            case COALESCED -> null;
+        };
+    }
+
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public TransactionPageDTO getOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                  String cursor, Integer size) {
+        return bankMetrics.record("history", () -> findOperationHistory(accountId, from, to, cursor, size));
+    }
+
+    private TransactionPageDTO findOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                    String cursor, Integer size) {
+        ledgerEngine.awaitApplied();
+        if (!accountRepository.existsById(accountId)) {
+            throw new AccountNotFoundException("Account not found: " + accountId);
+        }
+
+        log.info("Account ID: {}, From Date: {}, To Date: {}, Cursor: {}", accountId, from, to, cursor);
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("From Date is less than To");
+        }
+        int pageSize = size == null ? transactionProperties.getHistoryDefaultPageSize() : size;
+        if (pageSize < 1 || pageSize > transactionProperties.getHistoryMaxPageSize()) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + transactionProperties.getHistoryMaxPageSize());
+        }
+        HistoryCursor after = cursor == null ? HistoryCursor.start(from) : HistoryCursor.decode(cursor);
+
+        // One extra row tells whether another page follows without a count query.
+        List<TransactionHistoryRow> rows = transactionRepository.findHistoryPage(
+                accountId, from, to, after.timeStamp(), after.id(), Limit.of(pageSize + 1));
+        List<TransactionHistoryRow> archived = transactionArchive.findHistoryPage(
+                accountId, from, to, after.timeStamp(), after.id(), pageSize + 1);
+        if (!archived.isEmpty()) {
+            rows = merge(archived, rows, pageSize + 1);
+        }
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TransactionHistoryRow last = rows.get(pageSize - 1);
+            nextCursor = new HistoryCursor(last.timeStamp(), last.id()).encode();
+        }
+
+        log.info("Found {} transactions", rows.size());
+        bankMetrics.recordHistoryRows(rows.size());
+        return new TransactionPageDTO(rows.stream()
+                .map(transactionMapper::historyRowToTransactionDTO)
+                .collect(Collectors.toList()), nextCursor);
+    }
+
+    /**
+     * Merges two pages in history order. A row is in both only while its partition is being archived.
+     */
+    private static List<TransactionHistoryRow> merge(List<TransactionHistoryRow> archived,
+                                                     List<TransactionHistoryRow> hot, int limit) {
+        List<TransactionHistoryRow> merged = new ArrayList<>(limit);
+        int a = 0;
+        int h = 0;
+        while (merged.size() < limit && (a < archived.size() || h < hot.size())) {
+            int order = a == archived.size() ? 1
+                    : h == hot.size() ? -1
+                    : HISTORY_ORDER.compare(archived.get(a), hot.get(h));
+            if (order == 0) {
+                a++;
+            }
+            merged.add(order < 0 ? archived.get(a++) : hot.get(h++));
+        }
+        return merged;
+    }
+
+    private AccountDTO depositEntity(DepositDTO depositDTO) {
         Account account = getAccount(depositDTO.getAccountNumber());
-        validateAmount(depositDTO.getAmount());
 
         Transaction transaction = createTransaction(TransactionTypes.DEPOSIT, depositDTO.getAmount(), account);
         account.setBalance(account.getBalance().add(depositDTO.getAmount()));
@@ -54,15 +226,17 @@ public class TransactionServiceImpl implements TransactionService {
         return processTransaction(account, transaction);
     }
 
-    @Override
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public AccountDTO withdraw(WithdrawDTO withdrawDTO) {
+    private AccountDTO withdrawEntity(WithdrawDTO withdrawDTO) {
         Account account = getAccount(withdrawDTO.getAccountNumber());
-        validateAmount(withdrawDTO.getAmount());
 
+        if (account.getBalance().compareTo(withdrawDTO.getAmount()) < 0 && account.getBalanceSlots() > 0) {
+            // Striped account: the slots may hold the rest of the balance. Lock the row before sweeping them.
+            accountRepository.findAllByAccountNumberInForUpdate(List.of(account.getAccountNumber()));
+            account.setBalance(accountRepository.sweepBalanceSlots(account.getId()));
+        }
         if (account.getBalance().compareTo(withdrawDTO.getAmount()) < 0) {
             log.error("Недостаточно средств на счете: {}. Текущий баланс: {}, сумма списания: {}", withdrawDTO.getAccountNumber(), account.getBalance(), withdrawDTO.getAmount());
-            throw new IllegalArgumentException("Insufficient funds for withdrawal");
+            throw new InsufficientFundsException("Insufficient funds for withdrawal");
         }
 
         Transaction transaction = createTransaction(TransactionTypes.WITHDRAW, withdrawDTO.getAmount(), account);
@@ -71,23 +245,49 @@ public class TransactionServiceImpl implements TransactionService {
         return processTransaction(account, transaction);
     }
 
-    @Override
-    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
-    public List<TransactionDTO> getOperationHistory(Long accountId, LocalDateTime from, LocalDateTime to) {
-        if (!accountRepository.existsById(accountId)) {
-            throw new AccountNotFoundException("Account not found: " + accountId);
+    private AccountDTO depositAtomic(DepositDTO depositDTO) {
+        for (int attempt = 0; ; attempt++) {
+            Optional<AccountBalanceView> updated = accountRepository.depositAndRecord(depositDTO.getAccountNumber(),
+                    depositDTO.getAmount(), LocalDateTime.now(), ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE));
+            if (updated.isPresent()) {
+                return new AccountDTO(updated.get().getAccountNumber(), updated.get().getBalance());
+            }
+            // Nothing credited: the account is missing, or its slots were removed while the deposit ran.
+            if (attempt > 0 || !accountRepository.existsByAccountNumber(depositDTO.getAccountNumber())) {
+                throw new AccountNotFoundException("Account not found: " + depositDTO.getAccountNumber());
+            }
+            bankMetrics.retried("deposit", "balance_slots_removed");
         }
+    }
 
-        log.info("Account ID: {}, From Date: {}, To Date: {}", accountId, from, to);
-        if (to.isBefore(from)) {
-            throw new IllegalArgumentException("From Date is less than To");
+    private AccountDTO withdrawAtomic(WithdrawDTO withdrawDTO) {
+        Optional<AccountBalanceView> updated = accountRepository.withdrawAndRecord(
+                withdrawDTO.getAccountNumber(), withdrawDTO.getAmount(), LocalDateTime.now());
+        if (updated.isEmpty()) {
+            // No row was updated: tell a missing account apart from insufficient funds, and give a striped
+            // account the chance to cover the amount from its slots.
+            Account account = accountRepository.findAllByAccountNumberInForUpdate(List.of(withdrawDTO.getAccountNumber()))
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(() -> new AccountNotFoundException("Account not found: " + withdrawDTO.getAccountNumber()));
+            if (account.getBalanceSlots() > 0) {
+                accountRepository.sweepBalanceSlots(account.getId());
+                bankMetrics.retried("withdraw", "balance_slots_swept");
+                updated = accountRepository.withdrawAndRecord(
+                        withdrawDTO.getAccountNumber(), withdrawDTO.getAmount(), LocalDateTime.now());
+            }
         }
-        List<Transaction> transactions = transactionRepository.findByAccountIdAndTimestampBetween(accountId, from, to);
+        return updated
+                .map(view -> new AccountDTO(view.getAccountNumber(), view.getBalance()))
+                .orElseThrow(() -> {
+                    log.error("Недостаточно средств на счете: {}. Сумма списания: {}", withdrawDTO.getAccountNumber(), withdrawDTO.getAmount());
+                    return new InsufficientFundsException("Insufficient funds for withdrawal");
+                });
+    }
 
-        log.info("Found {} transactions", transactions.size());
-        return transactions.stream()
-                .map(transactionMapper::transactionToTransactionDTO)
-                .collect(Collectors.toList());
+    private AccountDTO evictAfterCommit(AccountDTO updated) {
+        accountCache.evictAfterCommit(updated.getAccountNumber());
+        return updated;
     }
 
     private Account getAccount(String accountNumber) {
@@ -111,14 +311,21 @@ public class TransactionServiceImpl implements TransactionService {
     }
 
     private AccountDTO processTransaction(Account account, Transaction transaction) {
+        // The entity holds only the account row's share of a striped balance. Deposits into the slots are not
+        // serialized with this transaction, so its balance after is left to the backfill.
+        BigDecimal balance = account.getBalanceSlots() > 0
+                ? account.getBalance().add(accountRepository.sumBalanceSlots(account.getId()))
+                : account.getBalance();
+        transaction.setBalanceAfter(account.getBalanceSlots() > 0 ? null : balance);
+
         log.info("Saving transaction: {}", transaction);
         transactionRepository.save(transaction);
 
         log.info("Updating account: {}", account.getAccountNumber());
         accountRepository.save(account);
 
-        return accountMapper.accountToAccountDTO(account);
+        return account.getBalanceSlots() > 0
+                ? new AccountDTO(account.getAccountNumber(), balance)
+                : accountMapper.accountToAccountDTO(account);
     }
 }
-
-
@@ -0,0 +1,197 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.TransferQueueProperties;
+import org.olegi.testbankapi.dto.BatchTransferRequestDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.QueuedTransferDTO;
+import org.olegi.testbankapi.dto.TransferItemResultDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.enums.QueuedTransferStatus;
+import org.olegi.testbankapi.enums.TransferItemStatus;
+import org.olegi.testbankapi.exceptions.QueuedTransferNotFoundException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
+import org.olegi.testbankapi.mapper.QueuedTransferMapper;
+import org.olegi.testbankapi.model.QueuedTransfer;
+import org.olegi.testbankapi.repository.QueuedTransferRepository;
+import org.olegi.testbankapi.service.TransferQueueService;
+import org.olegi.testbankapi.service.TransferService;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A worker claims pending transfers with {@code FOR UPDATE SKIP LOCKED} and runs them through a
+ * {@code BEST_EFFORT} batch of {@link TransferService} in the same transaction that records their outcome. The
+ * money moves if and only if the status change commits, so a transfer is applied exactly once even when the
+ * instance dies halfway, and workers on any number of instances never claim the same transfer.
+ * <p>
+ * If a batch fails as a whole, its transfers are retried one by one so that one bad transfer cannot hold up the
+ * others; each failure counts as an attempt, up to {@code bank.transfer-queue.max-attempts}. Lock timeouts and
+ * an unavailable database leave the transfers pending without counting.
+ * <p>
+ * The ledger commits outside the database transaction, so with {@code bank.ledger.enabled} asynchronous
+ * transfers are refused.
+ */
+@Service
+@Slf4j
+public class TransferQueueServiceImpl implements TransferQueueService {
+
+    private final QueuedTransferRepository queuedTransferRepository;
+    private final TransferService transferService;
+    private final QueuedTransferMapper queuedTransferMapper;
+    private final TransferQueueProperties properties;
+    private final LedgerEngine ledgerEngine;
+    private final TransactionTemplate workerTransaction;
+
+    public TransferQueueServiceImpl(QueuedTransferRepository queuedTransferRepository,
+                                    TransferService transferService,
+                                    QueuedTransferMapper queuedTransferMapper,
+                                    TransferQueueProperties properties,
+                                    LedgerEngine ledgerEngine,
+                                    PlatformTransactionManager transactionManager) {
+        this.queuedTransferRepository = queuedTransferRepository;
+        this.transferService = transferService;
+        this.queuedTransferMapper = queuedTransferMapper;
+        this.properties = properties;
+        this.ledgerEngine = ledgerEngine;
+        // The batch joins this transaction and locks account rows, as TransferServiceImpl does under READ_COMMITTED.
+        this.workerTransaction = new TransactionTemplate(transactionManager);
+        this.workerTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    @Override
+    public QueuedTransferDTO enqueue(TransferRequestDTO transferRequestDTO) {
+        if (ledgerEngine.isEnabled()) {
+            throw new IllegalArgumentException("Asynchronous transfers are not available while the ledger is enabled");
+        }
+        if (transferRequestDTO.getFromAccountNumber() == null || transferRequestDTO.getToAccountNumber() == null) {
+            throw new IllegalArgumentException("Account numbers must not be null");
+        }
+        if (transferRequestDTO.getAmount() == null || transferRequestDTO.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than zero");
+        }
+        UUID id = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        queuedTransferRepository.enqueue(id, transferRequestDTO.getFromAccountNumber(),
+                transferRequestDTO.getToAccountNumber(), transferRequestDTO.getAmount(), now);
+        log.info("Queued transfer {}: {} from account {} to account {}", id, transferRequestDTO.getAmount(),
+                transferRequestDTO.getFromAccountNumber(), transferRequestDTO.getToAccountNumber());
+        return new QueuedTransferDTO(id, QueuedTransferStatus.PENDING, transferRequestDTO.getFromAccountNumber(),
+                transferRequestDTO.getToAccountNumber(), transferRequestDTO.getAmount(), null, now, null);
+    }
+
+    @Override
+    public TransactionDefinition enqueueTransaction() {
+        return workerTransaction;
+    }
+
+    @Override
+    public QueuedTransferDTO getStatus(UUID id) {
+        return queuedTransferRepository.findById(id)
+                .map(queuedTransferMapper::queuedTransferToQueuedTransferDTO)
+                .orElseThrow(() -> new QueuedTransferNotFoundException(id.toString()));
+    }
+
+    @Override
+    public int processBatch() {
+        List<UUID> claimed = new ArrayList<>();
+        try {
+            return Objects.requireNonNull(workerTransaction.execute(status ->
+                    apply(queuedTransferRepository.claimPending(properties.getBatchSize()), claimed)));
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                log.warn("Batch of {} queued transfers left pending: {}", claimed.size(), e.getMessage());
+                return 0;
+            }
+            if (claimed.size() == 1) {
+                recordFailedAttempt(claimed.get(0), e);
+            } else {
+                log.error("Batch of {} queued transfers failed, retrying them one by one", claimed.size(), e);
+                claimed.forEach(this::processOne);
+            }
+            return claimed.size();
+        }
+    }
+
+    private void processOne(UUID id) {
+        try {
+            workerTransaction.execute(status -> apply(queuedTransferRepository.claimPendingById(id), new ArrayList<>()));
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                log.warn("Queued transfer {} left pending: {}", id, e.getMessage());
+            } else {
+                recordFailedAttempt(id, e);
+            }
+        }
+    }
+
+    private int apply(List<QueuedTransfer> transfers, List<UUID> claimed) {
+        if (transfers.isEmpty()) {
+            return 0;
+        }
+        transfers.forEach(transfer -> claimed.add(transfer.getId()));
+        List<TransferRequestDTO> requests = transfers.stream()
+                .map(transfer -> new TransferRequestDTO(transfer.getFromAccountNumber(),
+                        transfer.getToAccountNumber(), transfer.getAmount()))
+                .toList();
+        // Joins the claiming transaction, so the legs and balances commit together with the statuses below.
+        BatchTransferResultDTO result = transferService.transferBatch(
+                new BatchTransferRequestDTO(BatchTransferMode.BEST_EFFORT, requests));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (TransferItemResultDTO item : result.getResults()) {
+            QueuedTransfer transfer = transfers.get(item.getIndex());
+            transfer.setStatus(item.getStatus() == TransferItemStatus.APPLIED
+                    ? QueuedTransferStatus.COMPLETED
+                    : QueuedTransferStatus.FAILED);
+            transfer.setError(item.getMessage());
+            transfer.setAttempts(transfer.getAttempts() + 1);
+            transfer.setProcessedAt(now);
+        }
+        log.info("Processed {} queued transfers: {} completed, {} failed",
+                transfers.size(), result.getApplied(), result.getFailed());
+        return transfers.size();
+    }
+
+    private void recordFailedAttempt(UUID id, RuntimeException e) {
+        log.error("Queued transfer {} failed", id, e);
+        queuedTransferRepository.recordFailedAttempt(id, Objects.toString(e.getMessage(), e.getClass().getName()),
+                properties.getMaxAttempts(), LocalDateTime.now());
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof CannotCreateTransactionException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${bank.transfer-queue.cleanup-interval:PT1H}")
+    public int deleteProcessed() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRetention());
+        int total = 0;
+        int deleted;
+        do {
+            deleted = queuedTransferRepository.deleteProcessedBefore(before, properties.getCleanupBatchSize());
+            total += deleted;
+        } while (deleted == properties.getCleanupBatchSize());
+        if (total > 0) {
+            log.info("Deleted {} processed queued transfers", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,102 @@
+package org.olegi.testbankapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.config.TransferQueueProperties;
+import org.olegi.testbankapi.ledger.LedgerEngine;
+import org.olegi.testbankapi.service.TransferQueueService;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the {@code queued_transfer} table with {@code bank.transfer-queue.workers} threads. A worker claims
+ * batches back to back while they come back full and sleeps for the poll interval once the queue runs dry.
+ * Transfers left pending by a restart are simply claimed again: until their batch commits, nothing of it is
+ * written.
+ */
+@Component
+@Slf4j
+public class TransferQueueWorkers implements SmartLifecycle {
+
+    private final TransferQueueService transferQueueService;
+    private final TransferQueueProperties properties;
+    private final LedgerEngine ledgerEngine;
+    private volatile ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public TransferQueueWorkers(TransferQueueService transferQueueService,
+                                TransferQueueProperties properties,
+                                LedgerEngine ledgerEngine) {
+        this.transferQueueService = transferQueueService;
+        this.properties = properties;
+        this.ledgerEngine = ledgerEngine;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        if (ledgerEngine.isEnabled()) {
+            log.warn("Transfer queue workers not started: the ledger is enabled, queued transfers stay pending");
+            return;
+        }
+        AtomicInteger index = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(properties.getWorkers(),
+                runnable -> new Thread(runnable, "transfer-queue-" + index.getAndIncrement()));
+        long pollMillis = properties.getPollInterval().toMillis();
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            executor.scheduleWithFixedDelay(this::drain, 0, pollMillis, TimeUnit.MILLISECONDS);
+        }
+        running = true;
+        log.info("Transfer queue started: {} workers, batches of {}", properties.getWorkers(), properties.getBatchSize());
+    }
+
+    private void drain() {
+        try {
+            while (running && transferQueueService.processBatch() == properties.getBatchSize()) {
+                // A full batch: more are likely waiting.
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule of this worker for good.
+            log.error("Transfer queue worker failed", e);
+        }
+    }
+
+    /**
+     * Lets the batches in progress commit; the rest of the queue waits for the next start.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Transfer queue workers did not finish their batches in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Transfer queue stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Like the ledger: starts before the web server accepts requests and stops after it.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
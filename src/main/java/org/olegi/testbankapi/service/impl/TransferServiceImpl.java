@@ -1,32 +1,84 @@
 package org.olegi.testbankapi.service.impl;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.TransferProperties;
+import org.olegi.testbankapi.dto.BatchTransferRequestDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.TransferItemResultDTO;
 import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
 import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.enums.TransferItemStatus;
 import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
+import org.olegi.testbankapi.metrics.BankMetrics;
 import org.olegi.testbankapi.model.Account;
 import org.olegi.testbankapi.model.Transaction;
 import org.olegi.testbankapi.repository.AccountRepository;
 import org.olegi.testbankapi.repository.TransactionRepository;
 import org.olegi.testbankapi.service.TransferService;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class TransferServiceImpl implements TransferService {
 
+    private static final String INSUFFICIENT_FUNDS = "Insufficient funds for transfer amount";
+
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final TransferProperties transferProperties;
+    private final AccountCache accountCache;
+    private final LedgerEngine ledgerEngine;
+    private final BankMetrics bankMetrics;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionTemplate lockingTransaction;
+
+    public TransferServiceImpl(AccountRepository accountRepository,
+                               TransactionRepository transactionRepository,
+                               TransferProperties transferProperties,
+                               AccountCache accountCache,
+                               LedgerEngine ledgerEngine,
+                               BankMetrics bankMetrics,
+                               PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transferProperties = transferProperties;
+        this.accountCache = accountCache;
+        this.ledgerEngine = ledgerEngine;
+        this.bankMetrics = bankMetrics;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        // Row locks already serialize writers; REPEATABLE_READ on top would turn every lock wait into a serialization failure.
+        this.lockingTransaction = new TransactionTemplate(transactionManager);
+        this.lockingTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
 
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public void transferMoney(TransferRequestDTO transferRequestDTO) {
+        bankMetrics.record("transfer", () -> doTransfer(transferRequestDTO));
+    }
+
+    private void doTransfer(TransferRequestDTO transferRequestDTO) {
         log.info("Initiating transfer: {} from account {} to account {}",
                 transferRequestDTO.getAmount(),
                 transferRequestDTO.getFromAccountNumber(),
@@ -37,52 +89,260 @@ public class TransferServiceImpl implements TransferService {
             throw new IllegalArgumentException("Amount must be greater than zero");
         }
 
-        Account accountFrom = accountRepository.findByAccountNumber(transferRequestDTO.getFromAccountNumber())
-                .orElseThrow(() -> {
-                    log.error("Account not found: {}", transferRequestDTO.getFromAccountNumber());
-                    return new AccountNotFoundException("Account not found: " + transferRequestDTO.getFromAccountNumber());
-                });
+        if (ledgerEngine.isEnabled()) {
+            ledgerEngine.transfer(transferRequestDTO.getFromAccountNumber(),
+                    transferRequestDTO.getToAccountNumber(), transferRequestDTO.getAmount());
+            log.info("Transfer completed successfully");
+            return;
+        }
+        switch (transferProperties.getLockingMode()) {
+            case SNAPSHOT -> snapshotTransaction.executeWithoutResult(status -> {
+                Account accountFrom = findAccount(transferRequestDTO.getFromAccountNumber());
+                Account accountTo = findAccount(transferRequestDTO.getToAccountNumber());
+                applyTransfer(accountFrom, accountTo, transferRequestDTO.getAmount(), false);
+            });
+            case PESSIMISTIC -> lockingTransaction.executeWithoutResult(status -> {
+                accountRepository.setLockTimeout(transferProperties.getLockTimeout());
+                Map<String, Account> locked = bankMetrics.recordLockWait(() -> lockAccounts(
+                        transferRequestDTO.getFromAccountNumber(), transferRequestDTO.getToAccountNumber()));
+                Account accountFrom = getLocked(locked, transferRequestDTO.getFromAccountNumber());
+                Account accountTo = getLocked(locked, transferRequestDTO.getToAccountNumber());
+                applyTransfer(accountFrom, accountTo, transferRequestDTO.getAmount(), true);
+            });
+        }
 
-        Account accountTo = accountRepository.findByAccountNumber(transferRequestDTO.getToAccountNumber())
-                .orElseThrow(() -> {
-                    log.error("Account not found: {}", transferRequestDTO.getToAccountNumber());
-                    return new AccountNotFoundException("Account not found: " + transferRequestDTO.getToAccountNumber());
+        log.info("Transfer completed successfully");
+    }
+
+    @Override
+    public TransactionDefinition transferTransaction() {
+        if (ledgerEngine.isEnabled()) {
+            return null;
+        }
+        return switch (transferProperties.getLockingMode()) {
+            case SNAPSHOT -> snapshotTransaction;
+            case PESSIMISTIC -> lockingTransaction;
+        };
+    }
+
+    @Override
+    public BatchTransferResultDTO transferBatch(BatchTransferRequestDTO batchTransferRequestDTO) {
+        return bankMetrics.record("transfer_batch", () -> doTransferBatch(batchTransferRequestDTO));
+    }
+
+    private BatchTransferResultDTO doTransferBatch(BatchTransferRequestDTO batchTransferRequestDTO) {
+        List<TransferRequestDTO> transfers = batchTransferRequestDTO.getTransfers();
+        if (transfers == null || transfers.isEmpty()) {
+            throw new IllegalArgumentException("Batch must contain at least one transfer");
+        }
+        if (transfers.size() > transferProperties.getBatchMaxSize()) {
+            throw new IllegalArgumentException("Batch must not contain more than "
+                    + transferProperties.getBatchMaxSize() + " transfers");
+        }
+        BatchTransferMode mode = Objects.requireNonNullElse(batchTransferRequestDTO.getMode(), BatchTransferMode.ALL_OR_NOTHING);
+        log.info("Initiating batch of {} transfers in {} mode", transfers.size(), mode);
+
+        BatchTransferResultDTO result = ledgerEngine.isEnabled()
+                ? ledgerEngine.transferBatch(mode, transfers)
+                : lockingTransaction.execute(status -> {
+                    accountRepository.setLockTimeout(transferProperties.getLockTimeout());
+                    return applyBatch(mode, transfers, bankMetrics.recordLockWait(() -> lockAccountsInIdOrder(transfers)));
                 });
 
+        log.info("Batch completed: {} applied, {} failed", result.getApplied(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Replays the batch against in-memory balances first, so an all-or-nothing batch that fails
+     * leaves the locked entities untouched and nothing is flushed.
+     */
+    private BatchTransferResultDTO applyBatch(BatchTransferMode mode, List<TransferRequestDTO> transfers,
+                                              Map<String, Account> locked) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        locked.values().forEach(account -> balances.put(account.getAccountNumber(), account.getBalance()));
+        Set<String> swept = new HashSet<>();
+
+        List<TransferItemResultDTO> results = new ArrayList<>(transfers.size());
+        List<Transaction> transactions = new ArrayList<>(transfers.size());
+        int failed = 0;
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequestDTO transfer = transfers.get(i);
+            String error = checkBatchItem(transfer, balances);
+            if (INSUFFICIENT_FUNDS.equals(error)
+                    && borrowFromSlots(locked.get(transfer.getFromAccountNumber()), balances, swept)) {
+                error = checkBatchItem(transfer, balances);
+            }
+            if (error != null) {
+                results.add(new TransferItemResultDTO(i, TransferItemStatus.FAILED, error));
+                failed++;
+                continue;
+            }
+            Account accountFrom = locked.get(transfer.getFromAccountNumber());
+            Account accountTo = locked.get(transfer.getToAccountNumber());
+            BigDecimal fromBalanceAfter = balanceAfter(accountFrom,
+                    balances.merge(transfer.getFromAccountNumber(), transfer.getAmount().negate(), BigDecimal::add));
+            BigDecimal toBalanceAfter = balanceAfter(accountTo,
+                    balances.merge(transfer.getToAccountNumber(), transfer.getAmount(), BigDecimal::add));
+            UUID transferId = UUID.randomUUID();
+            transactions.add(createLeg(TransactionTypes.TRANSFER, transfer.getAmount(), accountFrom, fromBalanceAfter, transferId));
+            transactions.add(createLeg(TransactionTypes.TRANSFER_IN, transfer.getAmount(), accountTo, toBalanceAfter, transferId));
+            results.add(new TransferItemResultDTO(i, TransferItemStatus.APPLIED, null));
+        }
+
+        if (failed > 0 && mode == BatchTransferMode.ALL_OR_NOTHING) {
+            log.error("Batch rejected: {} of {} transfers failed", failed, transfers.size());
+            results.stream()
+                    .filter(item -> item.getStatus() == TransferItemStatus.APPLIED)
+                    .forEach(item -> item.setStatus(TransferItemStatus.SKIPPED));
+            return new BatchTransferResultDTO(mode, 0, failed, results);
+        }
+
+        // Insert first: each chunk flush would otherwise also push the account UPDATEs early.
+        transactionRepository.insertInChunks(transactions, transferProperties.getBatchChunkSize());
+        locked.values().forEach(account -> account.setBalance(balances.get(account.getAccountNumber())));
+        accountCache.evictAfterCommit(locked.keySet());
+        return new BatchTransferResultDTO(mode, transfers.size() - failed, failed, results);
+    }
+
+    private static String checkBatchItem(TransferRequestDTO transfer, Map<String, BigDecimal> balances) {
+        if (transfer.getAmount() == null || transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Amount must be greater than zero";
+        }
+        if (!balances.containsKey(transfer.getFromAccountNumber())) {
+            return "Account not found: " + transfer.getFromAccountNumber();
+        }
+        if (!balances.containsKey(transfer.getToAccountNumber())) {
+            return "Account not found: " + transfer.getToAccountNumber();
+        }
+        if (balances.get(transfer.getFromAccountNumber()).compareTo(transfer.getAmount()) < 0) {
+            return INSUFFICIENT_FUNDS;
+        }
+        return null;
+    }
+
+    /**
+     * Moves a striped account's slots onto its (locked) row once per batch and adds what they held to the
+     * in-memory balance. Returns false when there was nothing to borrow.
+     */
+    private boolean borrowFromSlots(Account account, Map<String, BigDecimal> balances, Set<String> swept) {
+        if (account.getBalanceSlots() == 0 || !swept.add(account.getAccountNumber())) {
+            return false;
+        }
+        BigDecimal rowBalance = accountRepository.sweepBalanceSlots(account.getId());
+        balances.merge(account.getAccountNumber(), rowBalance.subtract(account.getBalance()), BigDecimal::add);
+        account.setBalance(rowBalance);
+        return true;
+    }
+
+    /**
+     * Balance recorded on a leg: the row balance, or none for a striped account. Deposits into its slots are not
+     * serialized with the transfer even after a sweep, so the backfill fills the balance in once they are committed.
+     */
+    private static BigDecimal balanceAfter(Account account, BigDecimal rowBalance) {
+        return account.getBalanceSlots() > 0 ? null : rowBalance;
+    }
+
+    private Map<String, Account> lockAccountsInIdOrder(List<TransferRequestDTO> transfers) {
+        List<String> accountNumbers = transfers.stream()
+                .flatMap(transfer -> Stream.of(transfer.getFromAccountNumber(), transfer.getToAccountNumber()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        int chunkSize = transferProperties.getBatchChunkSize();
+
+        List<Long> ids = new ArrayList<>(accountNumbers.size());
+        chunks(accountNumbers, chunkSize).forEach(chunk -> ids.addAll(accountRepository.findIdsByAccountNumberIn(chunk)));
+        ids.sort(Comparator.naturalOrder());
+
+        Map<String, Account> locked = new HashMap<>();
+        chunks(ids, chunkSize).forEach(chunk -> accountRepository.findAllByIdInForUpdate(chunk)
+                .forEach(account -> locked.put(account.getAccountNumber(), account)));
+        return locked;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += chunkSize) {
+            chunks.add(list.subList(from, Math.min(from + chunkSize, list.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * {@code rowsLocked} tells whether the caller already holds the account row locks; without them the source row
+     * is locked before its slots are swept, in the row-then-slots order every other writer uses.
+     */
+    private void applyTransfer(Account accountFrom, Account accountTo, BigDecimal amount, boolean rowsLocked) {
         log.info("Before transfer: Account {} balance: {}, Account {} balance: {}",
                 accountFrom.getAccountNumber(), accountFrom.getBalance(),
                 accountTo.getAccountNumber(), accountTo.getBalance());
 
-        BigDecimal amount = transferRequestDTO.getAmount();
-
+        if (accountFrom.getBalance().compareTo(amount) < 0 && accountFrom.getBalanceSlots() > 0) {
+            // Striped account: the slots may hold the rest of the balance.
+            if (!rowsLocked) {
+                accountRepository.findAllByAccountNumberInForUpdate(List.of(accountFrom.getAccountNumber()));
+            }
+            accountFrom.setBalance(accountRepository.sweepBalanceSlots(accountFrom.getId()));
+        }
         if (accountFrom.getBalance().compareTo(amount) < 0) {
             log.error("Недостаточно средств на счете: {}. Текущий баланс: {}, сумма списания: {}",
                     accountFrom.getAccountNumber(), accountFrom.getBalance(), amount);
-            throw new IllegalArgumentException("Insufficient funds for transfer amount");
+            throw new InsufficientFundsException(INSUFFICIENT_FUNDS);
         }
 
         accountFrom.setBalance(accountFrom.getBalance().subtract(amount));
         accountTo.setBalance(accountTo.getBalance().add(amount));
 
-        Transaction transactionFrom = createTransactionEntity(amount, accountFrom);
-
-        transactionRepository.save(transactionFrom);
+        UUID transferId = UUID.randomUUID();
+        BigDecimal fromBalanceAfter = balanceAfter(accountFrom, accountFrom.getBalance());
+        BigDecimal toBalanceAfter = balanceAfter(accountTo, accountTo.getBalance());
+        // Both legs are inserted in one JDBC batch.
+        transactionRepository.saveAll(List.of(
+                createLeg(TransactionTypes.TRANSFER, amount, accountFrom, fromBalanceAfter, transferId),
+                createLeg(TransactionTypes.TRANSFER_IN, amount, accountTo, toBalanceAfter, transferId)));
         accountRepository.save(accountFrom);
         accountRepository.save(accountTo);
+        accountCache.evictAfterCommit(List.of(accountFrom.getAccountNumber(), accountTo.getAccountNumber()));
 
         log.info("After transfer: Account {} balance: {}, Account {} balance: {}",
                 accountFrom.getAccountNumber(), accountFrom.getBalance(),
                 accountTo.getAccountNumber(), accountTo.getBalance());
+    }
 
-        log.info("Transfer completed successfully");
+    private Account findAccount(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> accountNotFound(accountNumber));
+    }
+
+    private Map<String, Account> lockAccounts(String fromAccountNumber, String toAccountNumber) {
+        List<Account> accounts = accountRepository.findAllByAccountNumberInForUpdate(
+                Stream.of(fromAccountNumber, toAccountNumber).distinct().toList());
+        return accounts.stream().collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+    }
+
+    private static Account getLocked(Map<String, Account> locked, String accountNumber) {
+        Account account = locked.get(accountNumber);
+        if (account == null) {
+            throw accountNotFound(accountNumber);
+        }
+        return account;
+    }
+
+    private static AccountNotFoundException accountNotFound(String accountNumber) {
+        log.error("Account not found: {}", accountNumber);
+        return new AccountNotFoundException("Account not found: " + accountNumber);
     }
 
-    private static Transaction createTransactionEntity(BigDecimal amount, Account accountFrom) {
-        Transaction transactionFrom = new Transaction();
-        transactionFrom.setAmount(amount);
-        transactionFrom.setTransactionType(TransactionTypes.TRANSFER);
-        transactionFrom.setAccount(accountFrom);
-        transactionFrom.setTimeStamp(LocalDateTime.now());
-        return transactionFrom;
+    private static Transaction createLeg(TransactionTypes transactionType, BigDecimal amount, Account account,
+                                         BigDecimal balanceAfter, UUID transferId) {
+        Transaction leg = new Transaction();
+        leg.setAmount(amount);
+        leg.setBalanceAfter(balanceAfter);
+        leg.setTransactionType(transactionType);
+        leg.setTransferId(transferId);
+        leg.setAccount(account);
+        leg.setTimeStamp(LocalDateTime.now());
+        return leg;
     }
 }
@@ -0,0 +1,15 @@
+-- Re-applied whenever spring.flyway.placeholders.id_allocation_size changes.
+-- Hibernate reads the increment back (increment_size_mismatch_strategy=fix), so this is the single knob.
+-- The sequence is first moved past any block already handed out with the old increment.
+
+SELECT setval('account_seq',
+              GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM account),
+                       (SELECT COALESCE(last_value, 0) + increment_by FROM pg_sequences WHERE sequencename = 'account_seq')),
+              false);
+ALTER SEQUENCE account_seq INCREMENT BY ${id_allocation_size};
+
+SELECT setval('transaction_seq',
+              GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM transaction),
+                       (SELECT COALESCE(last_value, 0) + increment_by FROM pg_sequences WHERE sequencename = 'transaction_seq')),
+              false);
+ALTER SEQUENCE transaction_seq INCREMENT BY ${id_allocation_size};
@@ -0,0 +1,5 @@
+-- Finds the rows the balance-after backfill still has to fill, newest first per account. New rows are written
+-- with a balance, so the index only ever shrinks and is empty once the backfill is done.
+-- CONCURRENTLY avoids blocking writes on large tables; Flyway runs this statement outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_balance_after_missing
+    ON transaction (account_id, time_stamp, id) WHERE balance_after IS NULL;
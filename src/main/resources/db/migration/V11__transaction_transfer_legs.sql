@@ -0,0 +1,42 @@
+-- Transfers are written as two legs, a TRANSFER debit on the sender and a TRANSFER_IN credit on the receiver,
+-- sharing transfer_id. Databases created by ddl-auto carry a check constraint listing the old types only.
+ALTER TABLE transaction DROP CONSTRAINT IF EXISTS transaction_transaction_type_check;
+ALTER TABLE transaction ADD COLUMN IF NOT EXISTS transfer_id UUID;
+
+-- Only cross-partition ledger transfers recorded their receiver; other historic transfers keep their single debit
+-- row without a transfer id. Each credited ledger transfer gets its credit leg, stamped when it was credited, and
+-- is paired with the sender's nearest earlier unpaired debit row of the same amount.
+UPDATE transaction t
+SET transfer_id = paired.transfer_id
+FROM (SELECT DISTINCT ON (debit.id) debit.id, lt.id AS transfer_id
+      FROM ledger_transfer lt
+      JOIN account a ON a.account_number = lt.from_account_number
+      CROSS JOIN LATERAL (SELECT d.id FROM transaction d
+                          WHERE d.account_id = a.id
+                          AND d.transaction_type = 'TRANSFER'
+                          AND d.transfer_id IS NULL
+                          AND d.amount = lt.amount
+                          AND d.time_stamp <= lt.created_at
+                          ORDER BY d.time_stamp DESC, d.id DESC
+                          LIMIT 1) debit
+      WHERE lt.status = 'CREDITED'
+      ORDER BY debit.id, lt.created_at DESC) paired
+WHERE t.id = paired.id;
+
+INSERT INTO transaction (amount, time_stamp, transaction_type, account_id, transfer_id)
+SELECT lt.amount, lt.updated_at, 'TRANSFER_IN', a.id, lt.id
+FROM ledger_transfer lt
+JOIN account a ON a.account_number = lt.to_account_number
+WHERE lt.status = 'CREDITED';
+
+-- The receivers' balances before the new credit legs no longer add up; the balance-after backfill recomputes them
+-- from the first row after the last credit leg.
+UPDATE transaction t
+SET balance_after = NULL
+FROM (SELECT account_id, MAX(time_stamp) AS credited_at
+      FROM transaction
+      WHERE transaction_type = 'TRANSFER_IN' AND balance_after IS NULL
+      GROUP BY account_id) credited
+WHERE t.account_id = credited.account_id
+AND t.time_stamp <= credited.credited_at
+AND t.balance_after IS NOT NULL;
@@ -0,0 +1,69 @@
+-- Range-partitions transaction by month on time_stamp. The existing table is not copied: it becomes the partition
+-- transaction_legacy, covering everything up to the end of the month of its newest row (or up to the current month
+-- when it is empty), and monthly partitions follow it. TransactionPartitionService creates them ahead of time.
+--
+-- A partitioned primary key has to include the partition key, so it becomes (id, time_stamp); ids still come from
+-- transaction_seq. One CHECK constraint is validated with a single scan of the old table and lets both SET NOT NULL
+-- and ATTACH PARTITION skip their own scans. Only the (id, time_stamp) key index is built; the existing indexes are
+-- attached as they are.
+DO
+$$
+    DECLARE
+        legacy_bound TIMESTAMP;
+        month_start  TIMESTAMP;
+        old_pkey     TEXT;
+    BEGIN
+        IF (SELECT c.relkind FROM pg_class c WHERE c.oid = 'transaction'::regclass) = 'p' THEN
+            RETURN;
+        END IF;
+
+        SELECT GREATEST(date_trunc('month', LOCALTIMESTAMP),
+                        date_trunc('month', MAX(t.time_stamp)) + INTERVAL '1 month')
+        INTO legacy_bound
+        FROM transaction t;
+
+        SELECT con.conname INTO old_pkey
+        FROM pg_constraint con
+        WHERE con.conrelid = 'transaction'::regclass AND con.contype = 'p';
+
+        ALTER TABLE transaction RENAME TO transaction_legacy;
+        EXECUTE format('ALTER TABLE transaction_legacy DROP CONSTRAINT %I', old_pkey);
+        ALTER INDEX idx_transaction_account_time_id RENAME TO transaction_legacy_account_time_id_idx;
+        ALTER INDEX idx_transaction_balance_after_missing RENAME TO transaction_legacy_balance_after_missing_idx;
+
+        EXECUTE format('ALTER TABLE transaction_legacy ADD CONSTRAINT transaction_legacy_bound '
+                           'CHECK (time_stamp IS NOT NULL AND time_stamp < %L)', legacy_bound);
+        ALTER TABLE transaction_legacy ALTER COLUMN time_stamp SET NOT NULL;
+
+        CREATE TABLE transaction
+        (
+            id               BIGINT         NOT NULL DEFAULT nextval('transaction_seq'),
+            amount           NUMERIC(38, 2),
+            time_stamp       TIMESTAMP(6)   NOT NULL,
+            transaction_type VARCHAR(255),
+            account_id       BIGINT         NOT NULL REFERENCES account (id),
+            balance_after    NUMERIC(38, 2),
+            transfer_id      UUID,
+            PRIMARY KEY (id, time_stamp)
+        ) PARTITION BY RANGE (time_stamp);
+
+        CREATE INDEX idx_transaction_account_time_id ON transaction (account_id, time_stamp, id);
+        CREATE INDEX idx_transaction_balance_after_missing
+            ON transaction (account_id, time_stamp, id) WHERE balance_after IS NULL;
+
+        EXECUTE format('ALTER TABLE transaction ATTACH PARTITION transaction_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                       legacy_bound);
+        ALTER TABLE transaction_legacy DROP CONSTRAINT transaction_legacy_bound;
+        ALTER SEQUENCE transaction_seq OWNED BY transaction.id;
+
+        -- The current month and the next three, so writes have somewhere to go before the scheduler first runs.
+        month_start := legacy_bound;
+        WHILE month_start < date_trunc('month', LOCALTIMESTAMP) + INTERVAL '4 months'
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF transaction FOR VALUES FROM (%L) TO (%L)',
+                               'transaction_p' || to_char(month_start, 'YYYY_MM'),
+                               month_start, month_start + INTERVAL '1 month');
+                month_start := month_start + INTERVAL '1 month';
+            END LOOP;
+    END
+$$;
@@ -0,0 +1,20 @@
+-- Transfers accepted with ?async=true. A worker claims PENDING rows and applies them in the same transaction
+-- that records their outcome, so each one is applied exactly once, also across restarts.
+CREATE TABLE IF NOT EXISTS queued_transfer
+(
+    id                  UUID PRIMARY KEY,
+    from_account_number VARCHAR(255)   NOT NULL,
+    to_account_number   VARCHAR(255)   NOT NULL,
+    amount              NUMERIC(38, 2) NOT NULL,
+    status              VARCHAR(16)    NOT NULL,
+    error               TEXT,
+    attempts            INTEGER        NOT NULL DEFAULT 0,
+    created_at          TIMESTAMP(6)   NOT NULL,
+    processed_at        TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_queued_transfer_pending ON queued_transfer (created_at)
+    WHERE status = 'PENDING';
+
+CREATE INDEX IF NOT EXISTS idx_queued_transfer_processed_at ON queued_transfer (processed_at)
+    WHERE status <> 'PENDING';
@@ -0,0 +1,48 @@
+-- Change events of account balances. A trigger writes one row per inserted transaction row, in the same
+-- transaction, so every write path (JPA, the ATOMIC statements, R2DBC, the ledger journal) records its event
+-- without code of its own. Partitions attached later get the trigger from the parent.
+--
+-- sequence stays NULL until OutboxRelay numbers the committed rows; the identity id only orders them, since rows
+-- commit out of id order.
+CREATE TABLE IF NOT EXISTS balance_outbox
+(
+    id               BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    sequence         BIGINT,
+    transaction_id   BIGINT       NOT NULL,
+    account_id       BIGINT,
+    transaction_type VARCHAR(255),
+    amount           NUMERIC(38, 2),
+    balance_after    NUMERIC(38, 2),
+    transfer_id      UUID,
+    time_stamp       TIMESTAMP(6) NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_balance_outbox_sequence ON balance_outbox (sequence);
+
+CREATE INDEX IF NOT EXISTS idx_balance_outbox_unsequenced ON balance_outbox (id) WHERE sequence IS NULL;
+
+-- Last sequence each sink has acknowledged.
+CREATE TABLE IF NOT EXISTS balance_outbox_offset
+(
+    sink          VARCHAR(32) PRIMARY KEY,
+    last_sequence BIGINT      NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION balance_outbox_record() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    INSERT INTO balance_outbox (transaction_id, account_id, transaction_type, amount, balance_after, transfer_id,
+                                time_stamp)
+    VALUES (NEW.id, NEW.account_id, NEW.transaction_type, NEW.amount, NEW.balance_after, NEW.transfer_id,
+            NEW.time_stamp);
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS transaction_balance_outbox ON transaction;
+CREATE TRIGGER transaction_balance_outbox
+    AFTER INSERT
+    ON transaction
+    FOR EACH ROW
+EXECUTE FUNCTION balance_outbox_record();
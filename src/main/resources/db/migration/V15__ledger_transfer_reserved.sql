@@ -0,0 +1,6 @@
+-- RESERVED transfers belong to an all-or-nothing batch spanning ledger partitions that is not committed yet;
+-- a restarted engine refunds them, so the index of unfinished transfers must cover them too.
+DROP INDEX IF EXISTS idx_ledger_transfer_unfinished;
+
+CREATE INDEX IF NOT EXISTS idx_ledger_transfer_unfinished ON ledger_transfer (created_at)
+    WHERE status IN ('DEBITED', 'REJECTED', 'RESERVED');
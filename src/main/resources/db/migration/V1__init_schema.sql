@@ -0,0 +1,18 @@
+-- Schema as previously generated by spring.jpa.hibernate.ddl-auto=update.
+-- IF NOT EXISTS lets the migration baseline databases created before Flyway was introduced.
+
+CREATE TABLE IF NOT EXISTS account
+(
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_number VARCHAR(255) NOT NULL UNIQUE,
+    balance        NUMERIC(38, 2)
+);
+
+CREATE TABLE IF NOT EXISTS transaction
+(
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount           NUMERIC(38, 2),
+    time_stamp       TIMESTAMP(6),
+    transaction_type VARCHAR(255),
+    account_id       BIGINT NOT NULL REFERENCES account (id)
+);
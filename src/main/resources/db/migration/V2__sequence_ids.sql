@@ -0,0 +1,16 @@
+-- Move both tables from IDENTITY columns to sequences so Hibernate can pre-allocate ids
+-- (pooled-lo optimizer) and batch inserts. The increment is set by R__id_allocation_size.sql.
+
+CREATE SEQUENCE IF NOT EXISTS account_seq OWNED BY account.id;
+CREATE SEQUENCE IF NOT EXISTS transaction_seq OWNED BY transaction.id;
+
+ALTER TABLE account ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE transaction ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+SELECT setval('account_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM account), false);
+SELECT setval('transaction_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM transaction), false);
+
+-- Native inserts (e.g. the atomic deposit/withdraw statement) draw ids straight from the sequence.
+-- Every nextval hands out a value Hibernate never receives, so they cannot collide with its pooled blocks.
+ALTER TABLE account ALTER COLUMN id SET DEFAULT nextval('account_seq');
+ALTER TABLE transaction ALTER COLUMN id SET DEFAULT nextval('transaction_seq');
@@ -0,0 +1,3 @@
+-- Supports keyset pagination of an account's history: equality on account_id, then range and order on (time_stamp, id).
+-- CONCURRENTLY avoids blocking writes on large tables; Flyway runs this statement outside a transaction.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_account_time_id ON transaction (account_id, time_stamp, id);
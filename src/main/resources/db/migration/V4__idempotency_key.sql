@@ -0,0 +1,13 @@
+-- Outcome of the first execution of a request carrying an Idempotency-Key header.
+CREATE TABLE IF NOT EXISTS idempotency_key
+(
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_hash    VARCHAR(64)  NOT NULL,
+    status          VARCHAR(16)  NOT NULL,
+    response_status INTEGER,
+    response_body   TEXT,
+    created_at      TIMESTAMP(6) NOT NULL,
+    expires_at      TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_key_expires_at ON idempotency_key (expires_at);
@@ -0,0 +1,11 @@
+-- Striped balances for hot accounts: with balance_slots = N > 0 the balance is account.balance plus the sum of
+-- N slot rows, and deposits credit a random slot instead of the account row.
+ALTER TABLE account ADD COLUMN IF NOT EXISTS balance_slots INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS account_balance_slot
+(
+    account_id BIGINT         NOT NULL REFERENCES account (id) ON DELETE CASCADE,
+    slot       INTEGER        NOT NULL,
+    balance    NUMERIC(38, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, slot)
+);
@@ -0,0 +1,15 @@
+-- Transfers between accounts of different ledger partitions: the debit and the credit are written by
+-- different workers, so the row tells a restarted engine which step is still missing.
+CREATE TABLE IF NOT EXISTS ledger_transfer
+(
+    id                  UUID PRIMARY KEY,
+    from_account_number VARCHAR(255)   NOT NULL,
+    to_account_number   VARCHAR(255)   NOT NULL,
+    amount              NUMERIC(38, 2) NOT NULL,
+    status              VARCHAR(16)    NOT NULL,
+    created_at          TIMESTAMP(6)   NOT NULL,
+    updated_at          TIMESTAMP(6)   NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_transfer_unfinished ON ledger_transfer (created_at)
+    WHERE status IN ('DEBITED', 'REJECTED');
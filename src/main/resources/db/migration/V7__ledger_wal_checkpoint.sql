@@ -0,0 +1,11 @@
+-- End of the last write-ahead log record applied to the database. It is advanced in the same transaction as
+-- the records themselves, so replay after a crash applies every record exactly once.
+CREATE TABLE IF NOT EXISTS ledger_wal_checkpoint
+(
+    id          INTEGER PRIMARY KEY,
+    applied_lsn BIGINT NOT NULL
+);
+
+INSERT INTO ledger_wal_checkpoint (id, applied_lsn)
+VALUES (1, 0)
+ON CONFLICT (id) DO NOTHING;
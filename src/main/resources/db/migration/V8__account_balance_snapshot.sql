@@ -0,0 +1,9 @@
+-- Balance of an account at a point in time, written periodically and at day boundaries. A balance-at-time
+-- query starts from the nearest snapshot and only sums the transactions between it and the requested time.
+CREATE TABLE IF NOT EXISTS account_balance_snapshot
+(
+    account_id BIGINT         NOT NULL REFERENCES account (id) ON DELETE CASCADE,
+    taken_at   TIMESTAMP(6)   NOT NULL,
+    balance    NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (account_id, taken_at)
+);
@@ -0,0 +1,3 @@
+-- Account balance right after the transaction, written together with the row. Nullable and without a default,
+-- so adding it does not rewrite the table; rows written before it are filled in by the balance-after backfill.
+ALTER TABLE transaction ADD COLUMN IF NOT EXISTS balance_after NUMERIC(38, 2);
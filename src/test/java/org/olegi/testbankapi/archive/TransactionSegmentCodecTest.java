@@ -0,0 +1,67 @@
+package org.olegi.testbankapi.archive;
+
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionSegmentCodecTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+
+    @Test
+    void encodeDecode_RoundTripPerAccount() {
+        UUID transferId = UUID.randomUUID();
+        // Sorted by account first, so timestamps and ids go back in time where the account changes.
+        List<ArchivedTransaction> rows = List.of(
+                new ArchivedTransaction(3L, 40L, START.plusDays(2), TransactionTypes.DEPOSIT,
+                        new BigDecimal("100.00"), new BigDecimal("100.00"), null),
+                new ArchivedTransaction(3L, 41L, START.plusDays(2), TransactionTypes.TRANSFER,
+                        new BigDecimal("0.01"), new BigDecimal("99.99"), transferId),
+                new ArchivedTransaction(7L, 12L, START, TransactionTypes.TRANSFER_IN,
+                        new BigDecimal("0.01"), new BigDecimal("-5.50"), transferId),
+                new ArchivedTransaction(7L, 13L, START.plusSeconds(1), TransactionTypes.WITHDRAW,
+                        new BigDecimal("12345678901.5"), null, null),
+                new ArchivedTransaction(9L, 1L, START.minusYears(1), TransactionTypes.DEPOSIT,
+                        new BigDecimal("1"), new BigDecimal("0.00"), null));
+
+        ByteBuffer segment = ByteBuffer.wrap(TransactionSegmentCodec.encode(rows));
+        TransactionSegmentCodec.Header header = TransactionSegmentCodec.readHeader(segment);
+
+        assertThat(header.rowCount()).isEqualTo(5);
+        assertThat(header.minAccountId()).isEqualTo(3L);
+        assertThat(header.maxAccountId()).isEqualTo(9L);
+        assertThat(header.minTimeStamp()).isEqualTo(START.minusYears(1));
+        assertThat(header.maxTimeStamp()).isEqualTo(START.plusDays(2));
+        assertThat(TransactionSegmentCodec.decode(segment, header, 7L)).containsExactly(
+                new TransactionHistoryRow(12L, new BigDecimal("0.01"), START, TransactionTypes.TRANSFER_IN,
+                        new BigDecimal("-5.50"), transferId),
+                new TransactionHistoryRow(13L, new BigDecimal("12345678901.50"), START.plusSeconds(1),
+                        TransactionTypes.WITHDRAW, null, null));
+        assertThat(TransactionSegmentCodec.decode(segment, header, 3L)).extracting(TransactionHistoryRow::id)
+                .containsExactly(40L, 41L);
+        assertThat(TransactionSegmentCodec.decode(segment, header, 9L)).extracting(TransactionHistoryRow::balanceAfter)
+                .containsExactly(new BigDecimal("0.00"));
+        assertThat(TransactionSegmentCodec.decode(segment, header, 5L)).isEmpty();
+    }
+
+    @Test
+    void header_OverlapsOnlyItsAccountAndTimeRange() {
+        ByteBuffer segment = ByteBuffer.wrap(TransactionSegmentCodec.encode(List.of(
+                new ArchivedTransaction(3L, 1L, START, TransactionTypes.DEPOSIT, BigDecimal.ONE, BigDecimal.ONE, null),
+                new ArchivedTransaction(8L, 2L, START.plusDays(1), TransactionTypes.DEPOSIT, BigDecimal.ONE,
+                        BigDecimal.ONE, null))));
+        TransactionSegmentCodec.Header header = TransactionSegmentCodec.readHeader(segment);
+
+        assertThat(header.overlaps(5L, START.minusDays(1), START)).isTrue();
+        assertThat(header.overlaps(9L, START, START.plusDays(1))).isFalse();
+        assertThat(header.overlaps(5L, START.plusDays(1).plusNanos(1_000), START.plusDays(2))).isFalse();
+    }
+}
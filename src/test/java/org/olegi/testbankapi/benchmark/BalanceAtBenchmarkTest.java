@@ -0,0 +1,157 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionExportRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.BalanceSnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Balance at random points in time for an account with a million transactions over a year: folding the streamed
+ * history on the client (loading it as entities through {@code findByAccountIdAndTimestampBetween} does not even
+ * fit a default test heap) versus {@code getBalanceAt} with daily snapshots. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+class BalanceAtBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceAtBenchmarkTest.class);
+
+    private static final int ROWS = 1_000_000;
+    private static final int FOLD_QUERIES = 5;
+    private static final int SNAPSHOT_QUERIES = 500;
+    private static final LocalDateTime FROM = LocalDateTime.parse("2024-01-01T00:00:00");
+    private static final String ACCOUNT_NUMBER = "BAL0000000001";
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("bank.balance-snapshot.enabled", () -> false);
+    }
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionExportRepository transactionExportRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+    private long accountId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        // Every third row is a withdrawal of 1.00, the others deposits of 2.00: a row every ~31.5 s for a year.
+        accountId = accountRepository.save(new Account(null, ACCOUNT_NUMBER, BigDecimal.ZERO, null)).getId();
+        jdbcTemplate.update("""
+                INSERT INTO transaction (amount, time_stamp, transaction_type, account_id)
+                SELECT CASE WHEN i % 3 = 0 THEN 1.00 ELSE 2.00 END,
+                       ?::timestamp + i * interval '31.5 seconds',
+                       CASE WHEN i % 3 = 0 THEN 'WITHDRAW' ELSE 'DEPOSIT' END,
+                       ?
+                FROM generate_series(1, ?) AS i
+                """, FROM, accountId, ROWS);
+        jdbcTemplate.update("""
+                UPDATE account SET balance = (SELECT SUM(CASE transaction_type WHEN 'DEPOSIT' THEN amount ELSE -amount END)
+                                              FROM transaction WHERE account_id = ?)
+                WHERE id = ?
+                """, accountId, accountId);
+        for (LocalDateTime day = FROM.plusDays(1); day.isBefore(FROM.plusYears(1)); day = day.plusDays(1)) {
+            balanceSnapshotService.takeSnapshots(day);
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Test
+    void snapshotsVersusHistoryFold() {
+        Random random = new Random(42);
+        List<LocalDateTime> points = random.ints(SNAPSHOT_QUERIES, 0, 365 * 24 * 60)
+                .mapToObj(FROM::plusMinutes)
+                .toList();
+
+        long[] foldMicros = new long[FOLD_QUERIES];
+        for (int i = 0; i < FOLD_QUERIES; i++) {
+            long start = System.nanoTime();
+            BigDecimal folded = fold(points.get(i));
+            foldMicros[i] = (System.nanoTime() - start) / 1_000;
+            assertThat(balanceSnapshotService.getBalanceAt(ACCOUNT_NUMBER, points.get(i)).getBalance())
+                    .isEqualByComparingTo(folded);
+        }
+
+        long[] snapshotMicros = new long[SNAPSHOT_QUERIES];
+        for (int i = 0; i < SNAPSHOT_QUERIES; i++) {
+            long start = System.nanoTime();
+            balanceSnapshotService.getBalanceAt(ACCOUNT_NUMBER, points.get(i));
+            snapshotMicros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(foldMicros);
+        Arrays.sort(snapshotMicros);
+
+        log.warn("rows={} fold: p50 {} ms; snapshots: p50 {} ms, p99 {} ms",
+                ROWS, foldMicros[FOLD_QUERIES / 2] / 1_000,
+                String.format("%.2f", snapshotMicros[SNAPSHOT_QUERIES / 2] / 1_000.0),
+                String.format("%.2f", snapshotMicros[SNAPSHOT_QUERIES * 99 / 100] / 1_000.0));
+        assertThat(snapshotMicros[SNAPSHOT_QUERIES / 2]).isLessThan(foldMicros[FOLD_QUERIES / 2]);
+    }
+
+    private BigDecimal fold(LocalDateTime at) {
+        BigDecimal[] balance = {BigDecimal.ZERO};
+        readOnlyTransaction.executeWithoutResult(status -> transactionExportRepository.streamHistory(
+                accountId, FROM, at, 1_000, transaction -> balance[0] = switch (transaction.getTransactionType()) {
+                    case DEPOSIT, TRANSFER_IN -> balance[0].add(transaction.getAmount());
+                    case WITHDRAW, TRANSFER -> balance[0].subtract(transaction.getAmount());
+                }));
+        return balance[0];
+    }
+}
@@ -0,0 +1,142 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.BalanceUpdateMode;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.TransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * p50/p99 latency of deposit/withdraw for every {@link BalanceUpdateMode} on a few shared accounts.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+class BalanceUpdateLatencyBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceUpdateLatencyBenchmarkTest.class);
+
+    private static final int ACCOUNTS = 4;
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final int WARMUP_PER_THREAD = 200;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("logging.level.org.olegi.testbankapi.service", () -> "WARN");
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionProperties transactionProperties;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private List<String> accountNumbers;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountNumbers = IntStream.range(0, ACCOUNTS)
+                .mapToObj(i -> String.format("LAT%010d", i))
+                .toList();
+        accountNumbers.forEach(number ->
+                accountRepository.save(new Account(null, number, INITIAL_BALANCE, null)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BalanceUpdateMode.class)
+    void depositWithdrawLatency(BalanceUpdateMode mode) throws InterruptedException {
+        transactionProperties.setDepositMode(mode);
+        transactionProperties.setWithdrawMode(mode);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong failed = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < WARMUP_PER_THREAD + OPERATIONS_PER_THREAD; i++) {
+                    String accountNumber = accountNumbers.get(random.nextInt(ACCOUNTS));
+                    long start = System.nanoTime();
+                    try {
+                        if (random.nextBoolean()) {
+                            transactionService.deposit(new DepositDTO(accountNumber, BigDecimal.ONE));
+                        } else {
+                            transactionService.withdraw(new WithdrawDTO(accountNumber, BigDecimal.ONE));
+                        }
+                        if (i >= WARMUP_PER_THREAD) {
+                            latencies.add(System.nanoTime() - start);
+                        }
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+
+        List<Long> sorted = latencies.stream().sorted().toList();
+        log.warn("mode={} threads={} ok={} failed={} p50={}us p99={}us max={}us",
+                mode, THREADS, sorted.size(), failed.get(),
+                percentile(sorted, 0.50) / 1_000, percentile(sorted, 0.99) / 1_000,
+                sorted.get(sorted.size() - 1) / 1_000);
+        assertThat(sorted).isNotEmpty();
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0));
+    }
+}
@@ -0,0 +1,112 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.dto.BatchTransferRequestDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.TransferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares a 10k-item batch against the same transfers sent one by one through {@link TransferService#transferMoney}.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+class BatchTransferThroughputBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchTransferThroughputBenchmarkTest.class);
+
+    private static final int ACCOUNTS = 1_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("logging.level.org.olegi.testbankapi.service", () -> "WARN");
+    }
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private List<TransferRequestDTO> transfers;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        List<String> accountNumbers = IntStream.range(0, ACCOUNTS)
+                .mapToObj(i -> String.format("BAT%010d", i))
+                .toList();
+        accountRepository.saveAll(accountNumbers.stream()
+                .map(number -> new Account(null, number, INITIAL_BALANCE, null))
+                .toList());
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        transfers = IntStream.range(0, BATCH_SIZE)
+                .mapToObj(i -> new TransferRequestDTO(
+                        accountNumbers.get(random.nextInt(ACCOUNTS)),
+                        accountNumbers.get(random.nextInt(ACCOUNTS)),
+                        BigDecimal.ONE))
+                .toList();
+    }
+
+    @Test
+    void batchVersusSingleTransfers() {
+        long start = System.nanoTime();
+        transfers.forEach(transferService::transferMoney);
+        double singleSeconds = (System.nanoTime() - start) / 1e9;
+
+        start = System.nanoTime();
+        BatchTransferResultDTO result = transferService.transferBatch(
+                new BatchTransferRequestDTO(BatchTransferMode.ALL_OR_NOTHING, transfers));
+        double batchSeconds = (System.nanoTime() - start) / 1e9;
+
+        log.warn("items={} single transfers/sec={} batch transfers/sec={} speedup={}x",
+                BATCH_SIZE,
+                String.format("%.0f", BATCH_SIZE / singleSeconds),
+                String.format("%.0f", BATCH_SIZE / batchSeconds),
+                String.format("%.1f", singleSeconds / batchSeconds));
+        assertThat(result.getApplied()).isEqualTo(BATCH_SIZE);
+        assertThat(transactionRepository.count()).isEqualTo(2L * BATCH_SIZE);
+    }
+}
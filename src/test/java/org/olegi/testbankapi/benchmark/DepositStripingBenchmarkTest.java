@@ -0,0 +1,144 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.BalanceUpdateMode;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.AccountService;
+import org.olegi.testbankapi.service.TransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deposit throughput on a single hot account for different numbers of balance slots (0 = not striped), and with
+ * deposits coalesced into group commits instead, each followed by a withdrawal of the whole balance to check that
+ * the slots, or the batches, add up. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+class DepositStripingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DepositStripingBenchmarkTest.class);
+
+    private static final String ACCOUNT_NUMBER = "HOT0000000001";
+    private static final int THREADS = 32;
+    private static final int DEPOSITS_PER_THREAD = 500;
+    private static final int WARMUP_PER_THREAD = 50;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("logging.level.org.olegi.testbankapi.service", () -> "WARN");
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionProperties transactionProperties;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountRepository.save(new Account(null, ACCOUNT_NUMBER, BigDecimal.ZERO, null));
+        transactionProperties.setDepositMode(BalanceUpdateMode.ATOMIC);
+        transactionProperties.setWithdrawMode(BalanceUpdateMode.ATOMIC);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 4, 16})
+    void depositThroughput(int slots) throws InterruptedException {
+        accountService.setBalanceSlots(ACCOUNT_NUMBER, slots);
+        measure("slots=" + slots);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    void coalescedDepositThroughput(int windowMillis) throws InterruptedException {
+        transactionProperties.setDepositMode(BalanceUpdateMode.COALESCED);
+        transactionProperties.getCoalescing().setWindow(Duration.ofMillis(windowMillis));
+        measure("coalesced window=" + windowMillis + "ms");
+    }
+
+    private void measure(String variant) throws InterruptedException {
+        runDeposits(WARMUP_PER_THREAD);
+
+        long start = System.nanoTime();
+        long failed = runDeposits(DEPOSITS_PER_THREAD);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long deposits = (long) THREADS * (WARMUP_PER_THREAD + DEPOSITS_PER_THREAD);
+        BigDecimal expected = BigDecimal.valueOf(deposits);
+        log.warn("{} threads={} deposits/s={} failed={}",
+                variant, THREADS, Math.round(THREADS * DEPOSITS_PER_THREAD / seconds), failed);
+        assertThat(failed).isZero();
+        assertThat(transactionService.getBalance(ACCOUNT_NUMBER)).isEqualByComparingTo(expected);
+        // Draining the account needs every slot swept back onto the row.
+        assertThat(transactionService.withdraw(new WithdrawDTO(ACCOUNT_NUMBER, expected)).getBalance())
+                .isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    private long runDeposits(int perThread) throws InterruptedException {
+        AtomicLong failed = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    try {
+                        transactionService.deposit(new DepositDTO(ACCOUNT_NUMBER, BigDecimal.ONE));
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        return failed.get();
+    }
+}
@@ -0,0 +1,199 @@
+package org.olegi.testbankapi.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Walks 100k history rows page by page, once through managed entities (with the account fetched, as the former
+ * eager mapping did) and once through the {@link TransactionHistoryRow} projection, reporting latency and the
+ * bytes allocated by the calling thread. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+class HistoryProjectionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryProjectionBenchmarkTest.class);
+
+    private static final int ROWS = 100_000;
+    private static final int PAGE_SIZE = 1_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final LocalDateTime FROM = LocalDateTime.parse("2024-01-01T00:00:00");
+    private static final LocalDateTime TO = FROM.plusYears(1);
+
+    private static final String ENTITY_PAGE_QUERY = """
+            SELECT t FROM Transaction t JOIN FETCH t.account
+            WHERE t.account.id = :accountId
+            AND t.timeStamp BETWEEN :from AND :to
+            AND (t.timeStamp, t.id) > (:afterTimeStamp, :afterId)
+            ORDER BY t.timeStamp, t.id
+            """;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.jpa.show-sql", () -> false);
+    }
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+    private Long accountId;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountId = accountRepository.save(new Account(null, "HIS0000000001", BigDecimal.ZERO, null)).getId();
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transaction (amount, time_stamp, transaction_type, account_id) VALUES (?, ?, 'DEPOSIT', ?)",
+                IntStream.range(0, ROWS)
+                        .mapToObj(i -> new Object[]{BigDecimal.ONE, Timestamp.valueOf(FROM.plusSeconds(i + 1)), accountId})
+                        .toList());
+        jdbcTemplate.execute("ANALYZE transaction");
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Test
+    void projectionVersusEntityHistory() {
+        Measurement entity = measure(this::walkEntities);
+        Measurement projection = measure(this::walkProjection);
+
+        log.warn("rows={} page={} entity: {} ms, {} MB allocated; projection: {} ms, {} MB allocated",
+                ROWS, PAGE_SIZE,
+                entity.millis(), String.format("%.1f", entity.megabytes()),
+                projection.millis(), String.format("%.1f", projection.megabytes()));
+        assertThat(projection.bytes()).isLessThan(entity.bytes());
+    }
+
+    private long walkEntities() {
+        return readOnlyTransaction.execute(status -> {
+            long rows = 0;
+            LocalDateTime afterTimeStamp = FROM;
+            long afterId = Long.MIN_VALUE;
+            List<Transaction> page;
+            do {
+                page = entityManager.createQuery(ENTITY_PAGE_QUERY, Transaction.class)
+                        .setParameter("accountId", accountId)
+                        .setParameter("from", FROM)
+                        .setParameter("to", TO)
+                        .setParameter("afterTimeStamp", afterTimeStamp)
+                        .setParameter("afterId", afterId)
+                        .setMaxResults(PAGE_SIZE)
+                        .getResultList();
+                List<TransactionDTO> dtos = page.stream().map(transactionMapper::transactionToTransactionDTO).toList();
+                rows += dtos.size();
+                if (!page.isEmpty()) {
+                    afterTimeStamp = page.get(page.size() - 1).getTimeStamp();
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == PAGE_SIZE);
+            return rows;
+        });
+    }
+
+    private long walkProjection() {
+        return readOnlyTransaction.execute(status -> {
+            long rows = 0;
+            LocalDateTime afterTimeStamp = FROM;
+            long afterId = Long.MIN_VALUE;
+            List<TransactionHistoryRow> page;
+            do {
+                page = transactionRepository.findHistoryPage(accountId, FROM, TO, afterTimeStamp, afterId, Limit.of(PAGE_SIZE));
+                List<TransactionDTO> dtos = page.stream().map(transactionMapper::historyRowToTransactionDTO).toList();
+                rows += dtos.size();
+                if (!page.isEmpty()) {
+                    afterTimeStamp = page.get(page.size() - 1).timeStamp();
+                    afterId = page.get(page.size() - 1).id();
+                }
+            } while (page.size() == PAGE_SIZE);
+            return rows;
+        });
+    }
+
+    private static Measurement measure(LongSupplier walk) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            assertThat(walk.getAsLong()).isEqualTo(ROWS);
+        }
+        long[] millis = new long[ROUNDS];
+        long[] bytes = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            walk.getAsLong();
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+            bytes[i] = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        Arrays.sort(millis);
+        Arrays.sort(bytes);
+        return new Measurement(millis[ROUNDS / 2], bytes[ROUNDS / 2]);
+    }
+
+    private record Measurement(long millis, long bytes) {
+        double megabytes() {
+            return bytes / (1024.0 * 1024.0);
+        }
+    }
+}
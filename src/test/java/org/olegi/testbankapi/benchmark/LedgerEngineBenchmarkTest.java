@@ -0,0 +1,152 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BalanceUpdateMode;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.TransactionService;
+import org.olegi.testbankapi.service.TransferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of deposits and transfers on a few hot accounts through the ledger engine, then through the
+ * database path (ATOMIC deposits, PESSIMISTIC transfers) on the same data. Both phases end with a check that
+ * no money was created or lost. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "bank.ledger.enabled=true")
+@Testcontainers
+class LedgerEngineBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerEngineBenchmarkTest.class);
+
+    private static final int ACCOUNTS = 8;
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 1_000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("logging.level.org.olegi.testbankapi.service", () -> "WARN");
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private LedgerProperties ledgerProperties;
+
+    @Autowired
+    private TransactionProperties transactionProperties;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ledgerVersusDatabaseThroughput() throws InterruptedException {
+        // The engine loaded an empty table at startup; these accounts are picked up on first use.
+        List<String> accountNumbers = IntStream.range(0, ACCOUNTS)
+                .mapToObj(i -> String.format("LDG%010d", i))
+                .toList();
+        accountNumbers.forEach(number -> accountRepository.save(new Account(null, number, INITIAL_BALANCE, null)));
+
+        run("ledger", accountNumbers);
+
+        // The engine must be the only writer while it is enabled; it is idle from here on.
+        ledgerProperties.setEnabled(false);
+        transactionProperties.setDepositMode(BalanceUpdateMode.ATOMIC);
+        run("database", accountNumbers);
+    }
+
+    private void run(String engine, List<String> accountNumbers) throws InterruptedException {
+        BigDecimal totalBefore = totalBalance();
+        long rowsBefore = transactionRepository.count();
+        AtomicLong deposited = new AtomicLong();
+        AtomicLong transferred = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String from = accountNumbers.get(random.nextInt(ACCOUNTS));
+                    try {
+                        if (random.nextBoolean()) {
+                            transactionService.deposit(new DepositDTO(from, BigDecimal.ONE));
+                            deposited.incrementAndGet();
+                        } else {
+                            String to = accountNumbers.get(random.nextInt(ACCOUNTS));
+                            transferService.transferMoney(new TransferRequestDTO(from, to, BigDecimal.ONE));
+                            transferred.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.warn("engine={} threads={} accounts={} ops/s={} failed={}", engine, THREADS, ACCOUNTS,
+                Math.round(THREADS * OPERATIONS_PER_THREAD / seconds), failed.get());
+        assertThat(failed.get()).isZero();
+        assertThat(totalBalance()).isEqualByComparingTo(totalBefore.add(BigDecimal.valueOf(deposited.get())));
+        // A transfer writes a debit and a credit leg.
+        assertThat(transactionRepository.count() - rowsBefore).isEqualTo(deposited.get() + 2 * transferred.get());
+    }
+
+    private BigDecimal totalBalance() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(balance), 0) FROM account", BigDecimal.class);
+    }
+}
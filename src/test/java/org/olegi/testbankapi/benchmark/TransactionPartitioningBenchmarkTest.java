@@ -0,0 +1,220 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.TransactionPartitionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The monthly-partitioned {@code transaction} table against an unpartitioned copy with the same columns, keys
+ * and indexes, each loaded with the same rows spread over two years: bulk and batched insert throughput, the
+ * latency of one-month history queries of random accounts, and dropping the oldest month. Run with
+ * {@code gradle benchmark}; {@code -Dbenchmark.transactions=...} scales it down from 100M rows.
+ * <p>
+ * The rows are stamped in the months ahead because on a fresh database every earlier month belongs to the
+ * legacy partition.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+class TransactionPartitioningBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionPartitioningBenchmarkTest.class);
+
+    private static final long ROWS = Long.getLong("benchmark.transactions", 100_000_000L);
+    private static final int ACCOUNTS = 10_000;
+    private static final int MONTHS = 24;
+    private static final int LOAD_CHUNK = 1_000_000;
+    private static final int BATCHED_ROWS = 200_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int HISTORY_QUERIES = 500;
+    private static final int WARMUP_QUERIES = 50;
+    private static final String PARTITIONED = "transaction";
+    private static final String UNPARTITIONED = "transaction_unpartitioned";
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("bank.balance-snapshot.enabled", () -> false);
+        registry.add("bank.balance-after-backfill.enabled", () -> false);
+        registry.add("bank.transaction-partitions.enabled", () -> false);
+    }
+
+    @Autowired
+    private TransactionPartitionService transactionPartitionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime start = YearMonth.now().plusMonths(1).atDay(1).atStartOfDay();
+    private long firstAccountId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + UNPARTITIONED);
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        transactionPartitionService.createPartitions(YearMonth.from(start).plusMonths(MONTHS));
+
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(new Account(null, "PRT%010d".formatted(i), BigDecimal.ZERO, null));
+        }
+        firstAccountId = accountRepository.saveAll(accounts).stream().mapToLong(Account::getId).min().orElseThrow();
+
+        jdbcTemplate.execute("""
+                CREATE TABLE %s
+                (
+                    id               BIGINT         NOT NULL DEFAULT nextval('transaction_seq') PRIMARY KEY,
+                    amount           NUMERIC(38, 2),
+                    time_stamp       TIMESTAMP(6)   NOT NULL,
+                    transaction_type VARCHAR(255),
+                    account_id       BIGINT         NOT NULL REFERENCES account (id),
+                    balance_after    NUMERIC(38, 2),
+                    transfer_id      UUID
+                );
+                CREATE INDEX ON %1$s (account_id, time_stamp, id);
+                CREATE INDEX ON %1$s (account_id, time_stamp, id) WHERE balance_after IS NULL;
+                """.formatted(UNPARTITIONED));
+    }
+
+    @Test
+    void partitionedVersusUnpartitioned() {
+        double partitionedLoad = load(PARTITIONED);
+        double unpartitionedLoad = load(UNPARTITIONED);
+        jdbcTemplate.execute("ANALYZE");
+        double partitionedBatched = insertBatched(PARTITIONED);
+        double unpartitionedBatched = insertBatched(UNPARTITIONED);
+
+        Random random = new Random(42);
+        List<Object[]> queries = new ArrayList<>();
+        for (int i = 0; i < HISTORY_QUERIES; i++) {
+            LocalDateTime from = start.plusMonths(random.nextInt(MONTHS - 1)).plusDays(random.nextInt(28));
+            queries.add(new Object[]{firstAccountId + random.nextInt(ACCOUNTS), from, from.plusMonths(1)});
+        }
+        history(PARTITIONED, queries.subList(0, WARMUP_QUERIES));
+        history(UNPARTITIONED, queries.subList(0, WARMUP_QUERIES));
+        long[] partitionedMicros = history(PARTITIONED, queries);
+        long[] unpartitionedMicros = history(UNPARTITIONED, queries);
+
+        LocalDateTime firstMonthEnd = start.plusMonths(1);
+        long detachStart = System.nanoTime();
+        transactionPartitionService.detachPartitions(firstMonthEnd);
+        long detachMillis = (System.nanoTime() - detachStart) / 1_000_000;
+        long deleteStart = System.nanoTime();
+        jdbcTemplate.update("DELETE FROM " + UNPARTITIONED + " WHERE time_stamp < ?", firstMonthEnd);
+        long deleteMillis = (System.nanoTime() - deleteStart) / 1_000_000;
+
+        log.warn("rows={} bulk load: partitioned {} rows/s, unpartitioned {} rows/s; "
+                        + "batched inserts: partitioned {} rows/s, unpartitioned {} rows/s",
+                ROWS, Math.round(partitionedLoad), Math.round(unpartitionedLoad),
+                Math.round(partitionedBatched), Math.round(unpartitionedBatched));
+        log.warn("rows={} one-month history: partitioned p50 {} ms, p99 {} ms; unpartitioned p50 {} ms, p99 {} ms",
+                ROWS, millis(partitionedMicros, 50), millis(partitionedMicros, 99),
+                millis(unpartitionedMicros, 50), millis(unpartitionedMicros, 99));
+        log.warn("rows={} dropping the oldest month: detach {} ms, DELETE {} ms", ROWS, detachMillis, deleteMillis);
+        assertThat(count(PARTITIONED)).isEqualTo(count(UNPARTITIONED));
+    }
+
+    /**
+     * Inserts the benchmark rows in chunks of one statement each and returns rows per second.
+     */
+    private double load(String table) {
+        long seconds = Duration.between(start, start.plusMonths(MONTHS)).toSeconds();
+        long started = System.nanoTime();
+        for (long first = 0; first < ROWS; first += LOAD_CHUNK) {
+            jdbcTemplate.update("""
+                    INSERT INTO %s (amount, time_stamp, transaction_type, account_id, balance_after)
+                    SELECT CASE WHEN i %% 3 = 0 THEN 1.00 ELSE 2.00 END,
+                           ?::timestamp + (i * ?::float8 / ?) * interval '1 second',
+                           CASE WHEN i %% 3 = 0 THEN 'WITHDRAW' ELSE 'DEPOSIT' END,
+                           ? + i %% ?,
+                           0.00
+                    FROM generate_series(?::bigint, ?::bigint) AS i
+                    """.formatted(table),
+                    start, seconds, ROWS, firstAccountId, ACCOUNTS, first, Math.min(first + LOAD_CHUNK, ROWS) - 1);
+        }
+        return ROWS / ((System.nanoTime() - started) / 1e9);
+    }
+
+    /**
+     * Single-row inserts into the last month sent as JDBC batches, as the services write them; rows per second.
+     */
+    private double insertBatched(String table) {
+        Random random = new Random(7);
+        LocalDateTime lastMonth = start.plusMonths(MONTHS - 1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < BATCHED_ROWS; i++) {
+            rows.add(new Object[]{new BigDecimal("1.00"), lastMonth.plusSeconds(i), "DEPOSIT",
+                    firstAccountId + random.nextInt(ACCOUNTS), new BigDecimal("1.00")});
+        }
+        String sql = "INSERT INTO " + table
+                + " (amount, time_stamp, transaction_type, account_id, balance_after) VALUES (?, ?, ?, ?, ?)";
+        long started = System.nanoTime();
+        for (int first = 0; first < BATCHED_ROWS; first += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(first, first + BATCH_SIZE));
+        }
+        return BATCHED_ROWS / ((System.nanoTime() - started) / 1e9);
+    }
+
+    private long[] history(String table, List<Object[]> queries) {
+        String sql = "SELECT * FROM " + table + " t WHERE t.account_id = ? AND t.time_stamp BETWEEN ? AND ?";
+        long[] micros = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long started = System.nanoTime();
+            jdbcTemplate.queryForList(sql, queries.get(i));
+            micros[i] = (System.nanoTime() - started) / 1_000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static String millis(long[] sortedMicros, int percentile) {
+        return String.format("%.2f", sortedMicros[sortedMicros.length * percentile / 100] / 1_000.0);
+    }
+}
@@ -0,0 +1,133 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.olegi.testbankapi.config.TransferProperties;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.TransferLockingMode;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.TransferService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Transfers/sec between a handful of hot accounts, for every {@link TransferLockingMode}.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers
+class TransferContentionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferContentionBenchmarkTest.class);
+
+    private static final int HOT_ACCOUNTS = 4;
+    private static final int THREADS = 16;
+    private static final long DURATION_MILLIS = 10_000;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> THREADS);
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("logging.level.org.olegi.testbankapi.service", () -> "WARN");
+    }
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferProperties transferProperties;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private List<String> accountNumbers;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountNumbers = IntStream.range(0, HOT_ACCOUNTS)
+                .mapToObj(i -> String.format("HOT%010d", i))
+                .toList();
+        accountNumbers.forEach(number ->
+                accountRepository.save(new Account(null, number, INITIAL_BALANCE, null)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TransferLockingMode.class)
+    void hotAccountTransfers(TransferLockingMode mode) throws InterruptedException {
+        transferProperties.setLockingMode(mode);
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < deadline) {
+                    int from = random.nextInt(HOT_ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(HOT_ACCOUNTS - 1)) % HOT_ACCOUNTS;
+                    try {
+                        transferService.transferMoney(new TransferRequestDTO(
+                                accountNumbers.get(from), accountNumbers.get(to), BigDecimal.ONE));
+                        succeeded.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(DURATION_MILLIS * 2, TimeUnit.MILLISECONDS)).isTrue();
+
+        double seconds = DURATION_MILLIS / 1000.0;
+        log.warn("mode={} accounts={} threads={} transfers/sec={} failures/sec={}",
+                mode, HOT_ACCOUNTS, THREADS,
+                String.format("%.1f", succeeded.get() / seconds),
+                String.format("%.1f", failed.get() / seconds));
+
+        BigDecimal total = accountRepository.findAll().stream()
+                .map(Account::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(HOT_ACCOUNTS)));
+        assertThat(transactionRepository.count()).isEqualTo(succeeded.get());
+    }
+}
@@ -0,0 +1,327 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.olegi.testbankapi.TestBankApiApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * History page requests/sec, latency, server CPU and memory footprint at 10k concurrent closed-loop clients, with
+ * requests served by Tomcat's platform thread pool, by virtual threads with and without the database gate, or by
+ * the {@code reactive} profile on Netty and R2DBC. Each mode runs the application in its own JVM so that its CPU
+ * time, resident memory and OS threads can be read from {@code /proc}; that JVM also traces virtual threads pinned
+ * to their carrier. Requests per CPU second compare the stacks on equal hardware. Run with
+ * {@code gradle benchmark}; the server logs go to {@code build/benchmark}.
+ */
+@Tag("benchmark")
+@Testcontainers
+class VirtualThreadBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadBenchmarkTest.class);
+
+    private static final int CLIENTS = 10_000;
+    private static final int ACCOUNTS = 1_000;
+    private static final int ROWS_PER_ACCOUNT = 20;
+    private static final long WARMUP_MILLIS = 10_000;
+    private static final long DURATION_MILLIS = 30_000;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    // USER_HZ, the unit of the CPU times in /proc/<pid>/stat; 100 on every mainstream Linux build.
+    private static final double CLOCK_TICKS_PER_SECOND = 100;
+
+    enum Mode {
+        PLATFORM(false, true, false),
+        VIRTUAL(true, true, false),
+        VIRTUAL_WITHOUT_GATE(true, false, false),
+        // The R2DBC pool bounds database concurrency itself, with as many connections as Hikari.
+        REACTIVE(false, false, true);
+
+        private final boolean virtualThreads;
+        private final boolean databaseGate;
+        private final boolean reactive;
+
+        Mode(boolean virtualThreads, boolean databaseGate, boolean reactive) {
+            this.virtualThreads = virtualThreads;
+            this.databaseGate = databaseGate;
+            this.reactive = reactive;
+        }
+    }
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("benchdb")
+                    .withUsername("bench")
+                    .withPassword("bench");
+
+    private static long[] accountIds;
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void concurrentHistoryRequests(Mode mode) throws Exception {
+        int port = freePort();
+        Path serverLog = Path.of("build/benchmark/virtual-threads-" + mode.name().toLowerCase() + ".log");
+        Files.createDirectories(serverLog.getParent());
+        Process server = startServer(mode, port, serverLog);
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(REQUEST_TIMEOUT)
+                    .build();
+            awaitStarted(server, client, port);
+            if (accountIds == null) {
+                accountIds = seed();
+            }
+
+            AtomicLong peakRssKb = new AtomicLong();
+            AtomicLong peakThreads = new AtomicLong();
+            AtomicLong cpuTicksAtStart = new AtomicLong();
+            AtomicLong cpuTicksAtEnd = new AtomicLong();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> {
+                peakRssKb.accumulateAndGet(procStatus(server.pid(), "VmRSS"), Math::max);
+                peakThreads.accumulateAndGet(procStatus(server.pid(), "Threads"), Math::max);
+            }, 0, 100, TimeUnit.MILLISECONDS);
+            sampler.schedule(() -> cpuTicksAtStart.set(procCpuTicks(server.pid())),
+                    WARMUP_MILLIS, TimeUnit.MILLISECONDS);
+            sampler.schedule(() -> cpuTicksAtEnd.set(procCpuTicks(server.pid())),
+                    WARMUP_MILLIS + DURATION_MILLIS, TimeUnit.MILLISECONDS);
+
+            LongAdder errors = new LongAdder();
+            ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+            long measureFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARMUP_MILLIS);
+            long deadline = measureFrom + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < CLIENTS; i++) {
+                    clients.submit(() -> latencies.add(runClient(client, port, measureFrom, deadline, errors)));
+                }
+            }
+            sampler.shutdownNow();
+
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            long pinned = Files.readAllLines(serverLog).stream().filter(line -> line.contains("<== monitors")).count();
+            double seconds = DURATION_MILLIS / 1000.0;
+            double cpuSeconds = (cpuTicksAtEnd.get() - cpuTicksAtStart.get()) / CLOCK_TICKS_PER_SECOND;
+            log.warn("mode={} clients={} requests/sec={} p50={}ms p99={}ms errors/sec={} cpuSec={} requests/cpuSec={} "
+                            + "peakRssMb={} peakThreads={} pinned={}",
+                    mode, CLIENTS,
+                    String.format("%.1f", all.length / seconds),
+                    String.format("%.1f", percentile(all, 0.50) / 1e6),
+                    String.format("%.1f", percentile(all, 0.99) / 1e6),
+                    String.format("%.1f", errors.sum() / seconds),
+                    String.format("%.1f", cpuSeconds),
+                    cpuSeconds > 0 ? String.format("%.1f", all.length / cpuSeconds) : "n/a",
+                    peakRssKb.get() / 1024, peakThreads.get(), pinned);
+
+            assertThat(all).isNotEmpty();
+            if (mode.virtualThreads) {
+                assertThat(pinned).as("pinned virtual thread traces in " + serverLog).isZero();
+            }
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Sends history requests back to back until the deadline; returns the latencies of successful requests sent
+     * after {@code measureFrom}, in nanoseconds.
+     */
+    private static long[] runClient(HttpClient client, int port, long measureFrom, long deadline, LongAdder errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        long[] latencies = new long[64];
+        int count = 0;
+        long start;
+        while ((start = System.nanoTime()) < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                            + "/api/transactions?accountId=" + accountIds[random.nextInt(accountIds.length)]
+                            + "&from=" + now.minusDays(1) + "&to=" + now.plusDays(1) + "&size=" + ROWS_PER_ACCOUNT))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            boolean ok;
+            try {
+                ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (start < measureFrom) {
+                continue;
+            }
+            if (!ok) {
+                errors.increment();
+            } else {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static Process startServer(Mode mode, int port, Path serverLog) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                ProcessHandle.current().info().command().orElse("java"),
+                "-Djdk.tracePinnedThreads=short",
+                "-cp", System.getProperty("java.class.path"),
+                TestBankApiApplication.class.getName(),
+                "--server.port=" + port,
+                "--spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                "--spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                "--spring.threads.virtual.enabled=" + mode.virtualThreads,
+                "--bank.db-gate.enabled=" + mode.databaseGate,
+                // Requests wait for a connection as long as clients wait for them, so no mode sheds load.
+                "--bank.db-gate.wait-timeout=" + REQUEST_TIMEOUT.toSeconds() + "s",
+                "--spring.datasource.hikari.connection-timeout=" + REQUEST_TIMEOUT.toMillis(),
+                // Every client keeps a connection open; none of them should wait in the accept queue.
+                "--server.tomcat.max-connections=" + 2 * CLIENTS,
+                "--server.tomcat.accept-count=" + CLIENTS,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.org.olegi.testbankapi=WARN"));
+        if (mode.reactive) {
+            command.add("--spring.profiles.active=local,reactive");
+            command.add("--bank.reactive.pool-max-acquire-time=" + REQUEST_TIMEOUT.toSeconds() + "s");
+        }
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(serverLog.toFile())
+                .start();
+    }
+
+    private static void awaitStarted(Process server, HttpClient client, int port) throws InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health")).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertThat(server.isAlive()).as("server process").isTrue();
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Server did not start within " + STARTUP_TIMEOUT);
+    }
+
+    private static long[] seed() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    INSERT INTO account (account_number, balance)
+                    SELECT 'VT' || lpad(i::text, 8, '0'), 1000.00 FROM generate_series(1, %d) AS i
+                    """.formatted(ACCOUNTS));
+            statement.executeUpdate("""
+                    INSERT INTO transaction (amount, time_stamp, transaction_type, balance_after, account_id)
+                    SELECT 1.00, now() - j * interval '1 minute', 'DEPOSIT', 1000.00, a.id
+                    FROM account a, generate_series(1, %d) AS j
+                    WHERE a.account_number LIKE 'VT%%'
+                    """.formatted(ROWS_PER_ACCOUNT));
+            statement.execute("ANALYZE");
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery("SELECT id FROM account WHERE account_number LIKE 'VT%'")) {
+                while (rows.next()) {
+                    ids.add(rows.getLong(1));
+                }
+            }
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /**
+     * A numeric field of {@code /proc/<pid>/status} (kB for memory fields), or 0 where there is no {@code /proc}.
+     */
+    private static long procStatus(long pid, String field) {
+        Path status = Path.of("/proc/" + pid + "/status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        try {
+            return Files.readAllLines(status).stream()
+                    .filter(line -> line.startsWith(field + ":"))
+                    .map(line -> line.substring(field.length() + 1).trim().split("\\s+")[0])
+                    .mapToLong(Long::parseLong)
+                    .findFirst()
+                    .orElse(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * User plus system CPU time of a process in clock ticks, from {@code /proc/<pid>/stat}, or 0 where there is no
+     * {@code /proc}.
+     */
+    private static long procCpuTicks(long pid) {
+        Path stat = Path.of("/proc/" + pid + "/stat");
+        if (!Files.exists(stat)) {
+            return 0;
+        }
+        try {
+            // The command name may contain spaces; the fields after it are space separated, utime and stime
+            // being the 14th and 15th of the line.
+            String line = Files.readString(stat);
+            String[] fields = line.substring(line.lastIndexOf(')') + 2).split(" ");
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
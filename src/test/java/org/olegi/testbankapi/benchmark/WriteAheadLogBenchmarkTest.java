@@ -0,0 +1,77 @@
+package org.olegi.testbankapi.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.olegi.testbankapi.ledger.WriteAheadLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Durable appends per second to the memory-mapped write-ahead log with different group-commit fsync intervals:
+ * each writer thread waits for its record to be fsynced before appending the next one, as a ledger partition
+ * does. Records are the size of an encoded single-deposit batch. Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+class WriteAheadLogBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLogBenchmarkTest.class);
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int RECORD_SIZE = 48;
+    private static final long RUN_MILLIS = 3_000;
+
+    private static final List<Duration> FSYNC_INTERVALS = List.of(
+            Duration.ZERO, Duration.ofNanos(200_000), Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void durableAppendThroughput() throws Exception {
+        for (int writers : List.of(1, 4, 32)) {
+            for (Duration fsyncInterval : FSYNC_INTERVALS) {
+                run(writers, fsyncInterval);
+            }
+        }
+    }
+
+    private void run(int writers, Duration fsyncInterval) throws Exception {
+        Path runDirectory = directory.resolve(writers + "-" + fsyncInterval.toNanos());
+        AtomicLong records = new AtomicLong();
+        try (WriteAheadLog wal = WriteAheadLog.open(runDirectory, SEGMENT_SIZE, fsyncInterval, 0)) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            long started = System.nanoTime();
+            for (int i = 0; i < writers; i++) {
+                executor.submit(() -> {
+                    byte[] record = new byte[RECORD_SIZE];
+                    while (System.nanoTime() < deadline) {
+                        wal.appendDurably(record);
+                        records.incrementAndGet();
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(RUN_MILLIS + 30_000, TimeUnit.MILLISECONDS)).isTrue();
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            assertThat(wal.getDurableLsn()).isEqualTo(wal.getAppendedLsn());
+            log.info("WAL writers={} fsync-interval={}us: {} records/s, {} fsyncs/s, {} records per fsync",
+                    writers, fsyncInterval.toNanos() / 1_000,
+                    Math.round(records.get() / seconds),
+                    Math.round(wal.getFsyncCount() / seconds),
+                    String.format("%.1f", (double) records.get() / Math.max(1, wal.getFsyncCount())));
+        }
+    }
+}
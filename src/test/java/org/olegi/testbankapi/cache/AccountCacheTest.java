@@ -0,0 +1,144 @@
+package org.olegi.testbankapi.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.config.AccountCacheProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountCacheTest {
+
+    private static final String ACCOUNT_NUMBER = "1234567890";
+
+    private AccountCache accountCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        AccountCacheProperties properties = new AccountCacheProperties();
+        properties.setMaximumSize(100);
+        accountCache = new AccountCache(properties);
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_LoadsOnceAndCountsHitsAndMisses() {
+        load();
+        load();
+        load();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, accountCache.stats().missCount());
+        assertEquals(2, accountCache.stats().hitCount());
+    }
+
+    @Test
+    void evictAfterCommit_KeepsEntryUntilCommit() {
+        load();
+        TransactionSynchronizationManager.initSynchronization();
+
+        accountCache.evictAfterCommit(ACCOUNT_NUMBER);
+        load();
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        load();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictAfterCommit_KeepsEntryOnRollback() {
+        load();
+        TransactionSynchronizationManager.initSynchronization();
+
+        accountCache.evictAfterCommit(ACCOUNT_NUMBER);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        load();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evictAfterCommit_EvictsImmediatelyWithoutTransaction() {
+        load();
+
+        accountCache.evictAfterCommit(ACCOUNT_NUMBER);
+        load();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_DoesNotCacheValueInvalidatedWhileLoading() {
+        accountCache.get(ACCOUNT_NUMBER, number -> {
+            loads.incrementAndGet();
+            // A commit landing while the row is being read: the value read may predate it.
+            accountCache.evictAfterCommit(ACCOUNT_NUMBER);
+            return new AccountDTO(number, BigDecimal.ONE);
+        });
+        load();
+
+        assertEquals(2, loads.get());
+        assertEquals(0, accountCache.stats().hitCount());
+    }
+
+    @Test
+    void evictAfterCommit_DoesNotWaitForAConcurrentLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        Thread loader = new Thread(() -> accountCache.get(ACCOUNT_NUMBER, number -> {
+            loading.countDown();
+            // The load waits for a pooled connection...
+            awaitQuietly(released);
+            return new AccountDTO(number, BigDecimal.ONE);
+        }));
+        loader.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        // ...held by the transaction whose after-commit invalidation this is; waiting on the load would starve the pool.
+        CompletableFuture<Void> eviction = CompletableFuture.runAsync(() -> accountCache.evictAfterCommit(ACCOUNT_NUMBER));
+        try {
+            eviction.get(5, TimeUnit.SECONDS);
+        } finally {
+            released.countDown();
+            loader.join();
+        }
+        load();
+
+        assertEquals(1, loads.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void load() {
+        accountCache.get(ACCOUNT_NUMBER, number -> {
+            loads.incrementAndGet();
+            return new AccountDTO(number, BigDecimal.TEN);
+        });
+    }
+}
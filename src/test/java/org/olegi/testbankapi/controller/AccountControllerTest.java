@@ -107,4 +107,23 @@ class AccountControllerTest {
 
         Mockito.verify(accountService).deleteAccount("G1234567890");
     }
+
+    @Test
+    void testSetBalanceSlots_Success() throws Exception {
+        mockMvc.perform(put("/api/accounts/{accountNumber}/balance-slots", "G1234567890")
+                        .param("slots", "16"))
+                .andExpect(status().isOk());
+
+        Mockito.verify(accountService).setBalanceSlots("G1234567890", 16);
+    }
+
+    @Test
+    void testSetBalanceSlots_InvalidCount() throws Exception {
+        Mockito.doThrow(new IllegalArgumentException("Balance slots must be between 0 and 256"))
+                .when(accountService).setBalanceSlots("G1234567890", 1000);
+
+        mockMvc.perform(put("/api/accounts/{accountNumber}/balance-slots", "G1234567890")
+                        .param("slots", "1000"))
+                .andExpect(status().isBadRequest());
+    }
 }
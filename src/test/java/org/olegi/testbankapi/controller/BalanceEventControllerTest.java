@@ -0,0 +1,53 @@
+package org.olegi.testbankapi.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.service.BalanceEventService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(BalanceEventController.class)
+class BalanceEventControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private BalanceEventService balanceEventService;
+
+    @Test
+    void testGetEvents() throws Exception {
+        BalanceChangeEventDTO event = new BalanceChangeEventDTO(43L, 501L, 1L, "1234567890", TransactionTypes.DEPOSIT,
+                new BigDecimal("100.00"), new BigDecimal("1100.00"), null, LocalDateTime.of(2024, 1, 1, 12, 0));
+        when(balanceEventService.getEvents(42L, 10)).thenReturn(List.of(event));
+
+        mockMvc.perform(get("/api/balance-events").param("after", "42").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].sequence").value(43))
+                .andExpect(jsonPath("$[0].accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$[0].balanceAfter").value(1100.00));
+    }
+
+    @Test
+    void testGetEvents_InvalidSize() throws Exception {
+        when(balanceEventService.getEvents(0L, 0)).thenThrow(new IllegalArgumentException("Page size must be between 1 and 1000"));
+
+        mockMvc.perform(get("/api/balance-events").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
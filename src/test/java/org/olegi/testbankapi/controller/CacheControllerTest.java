@@ -0,0 +1,41 @@
+package org.olegi.testbankapi.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(CacheController.class)
+class CacheControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private AccountCache accountCache;
+
+    @Test
+    void testGetAccountCacheStats() throws Exception {
+        when(accountCache.size()).thenReturn(5L);
+        when(accountCache.stats()).thenReturn(CacheStats.of(30, 10, 10, 0, 0, 2, 2));
+
+        mockMvc.perform(get("/api/cache/accounts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(5))
+                .andExpect(jsonPath("$.hits").value(30))
+                .andExpect(jsonPath("$.misses").value(10))
+                .andExpect(jsonPath("$.evictions").value(2))
+                .andExpect(jsonPath("$.hitRate").value(0.75));
+    }
+}
@@ -6,13 +6,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.BalanceAtDTO;
 import org.olegi.testbankapi.dto.DepositDTO;
 import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransactionPageDTO;
 import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.ExportFormat;
 import org.olegi.testbankapi.enums.TransactionTypes;
 import org.olegi.testbankapi.exceptions.AccountNotFoundException;
 import org.olegi.testbankapi.exceptions.DepositMustBePositiveException;
 import org.olegi.testbankapi.exceptions.GlobalExceptionHandler;
+import org.olegi.testbankapi.service.BalanceSnapshotService;
+import org.olegi.testbankapi.service.IdempotencyService;
+import org.olegi.testbankapi.service.impl.TransactionExportServiceImpl;
 import org.olegi.testbankapi.service.impl.TransactionServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -21,15 +27,24 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -46,6 +61,15 @@ class TransactionControllerTest {
     @Autowired
     private TransactionServiceImpl transactionServiceImpl;
 
+    @MockitoBean
+    private TransactionExportServiceImpl transactionExportServiceImpl;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private BalanceSnapshotService balanceSnapshotService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -56,10 +80,12 @@ class TransactionControllerTest {
 
     @BeforeEach
     void setUp() {
+        Mockito.when(idempotencyService.execute(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(5).get());
         depositDTO = new DepositDTO("1234567890", new BigDecimal("500.00"));
         withdrawDTO = new WithdrawDTO("1234567890", new BigDecimal("500.00"));
         accountDTO = new AccountDTO("1234567890", new BigDecimal("500.00"));
-        transactionDTO = new TransactionDTO(new BigDecimal("500.00"), LocalDateTime.now(), TransactionTypes.DEPOSIT);
+        transactionDTO = new TransactionDTO(new BigDecimal("500.00"), LocalDateTime.now(), TransactionTypes.DEPOSIT, new BigDecimal("1500.00"), null);
     }
 
     @Test
@@ -95,22 +121,63 @@ class TransactionControllerTest {
                 .andExpect(content().string("1500.00"));
     }
 
+    @Test
+    void testGetBalanceAt_Success() throws Exception {
+        LocalDateTime at = LocalDateTime.parse("2024-12-01T10:00:00");
+        Mockito.when(balanceSnapshotService.getBalanceAt("1234567890", at))
+                .thenReturn(new BalanceAtDTO("1234567890", at, new BigDecimal("750.00")));
+
+        mockMvc.perform(get("/api/transactions/balance-at")
+                        .param("accountNumber", "1234567890")
+                        .param("at", "2024-12-01T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(750.00))
+                .andExpect(jsonPath("$.at").value("2024-12-01T10:00:00"));
+    }
+
+    @Test
+    void testGetBalanceAt_AccountNotFound() throws Exception {
+        Mockito.when(balanceSnapshotService.getBalanceAt(eq("nonexistent_account"), any(LocalDateTime.class)))
+                .thenThrow(new AccountNotFoundException("Account not found: nonexistent_account"));
+
+        mockMvc.perform(get("/api/transactions/balance-at")
+                        .param("accountNumber", "nonexistent_account")
+                        .param("at", "2024-12-01T10:00:00"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testGetOperationsHistory_Success() throws Exception {
-        Mockito.when(transactionServiceImpl.getOperationHistory(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
-                .thenReturn(Collections.singletonList(transactionDTO));
+        Mockito.when(transactionServiceImpl.getOperationHistory(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), isNull()))
+                .thenReturn(new TransactionPageDTO(Collections.singletonList(transactionDTO), null));
 
         mockMvc.perform(get("/api/transactions")
                         .param("accountId", "1")
                         .param("from", LocalDateTime.now().minusDays(1).toString())
                         .param("to", LocalDateTime.now().toString()))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(content().json(objectMapper.writeValueAsString(Collections.singletonList(transactionDTO))));
     }
 
+    @Test
+    void testGetOperationsHistory_NextPageCursorInHeader() throws Exception {
+        Mockito.when(transactionServiceImpl.getOperationHistory(any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), eq("abc"), eq(1)))
+                .thenReturn(new TransactionPageDTO(Collections.singletonList(transactionDTO), "def"));
+
+        mockMvc.perform(get("/api/transactions")
+                        .param("accountId", "1")
+                        .param("from", LocalDateTime.now().minusDays(1).toString())
+                        .param("to", LocalDateTime.now().toString())
+                        .param("cursor", "abc")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "def"));
+    }
+
     @Test
     void testDeposit_InvalidAmount() throws Exception {
-        Mockito.when(transactionController.deposit(any(DepositDTO.class)))
+        Mockito.when(transactionServiceImpl.deposit(any(DepositDTO.class)))
                 .thenThrow(DepositMustBePositiveException.class);
 
         DepositDTO invalidDepositDTO = new DepositDTO("1234567890", new BigDecimal("-500.00"));
@@ -171,7 +238,7 @@ class TransactionControllerTest {
         LocalDateTime from = LocalDateTime.parse("2024-12-15T10:00:00");
         LocalDateTime to = LocalDateTime.parse("2024-12-14T10:00:00");
 
-        Mockito.when(transactionServiceImpl.getOperationHistory(1L, from, to))
+        Mockito.when(transactionServiceImpl.getOperationHistory(1L, from, to, null, null))
                 .thenThrow(new IllegalArgumentException());
 
         mockMvc.perform(get("/api/transactions")
@@ -185,7 +252,7 @@ class TransactionControllerTest {
     @Test
     void testGetOperationsHistory_AccountNotFound() throws Exception {
         Mockito.when(transactionServiceImpl.getOperationHistory(
-                        any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class)))
+                        any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(), any()))
                 .thenThrow(new AccountNotFoundException("Account not found"));
 
         mockMvc.perform(get("/api/transactions")
@@ -195,4 +262,40 @@ class TransactionControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(content().string("User not found: Account not found"));
     }
+
+    @Test
+    void testExportOperationsHistory_Csv() throws Exception {
+        Mockito.when(transactionExportServiceImpl.prepareHistoryExport(
+                        eq(1L), any(LocalDateTime.class), any(LocalDateTime.class), eq(ExportFormat.CSV)))
+                .thenReturn(outputStream -> outputStream.write(
+                        "timestamp,transactionType,amount\n".getBytes(StandardCharsets.UTF_8)));
+
+        MvcResult result = mockMvc.perform(get("/api/transactions/export")
+                        .param("accountId", "1")
+                        .param("from", "2024-12-14T10:00:00")
+                        .param("to", "2024-12-15T10:00:00")
+                        .param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"history-1.csv\""))
+                .andExpect(content().string("timestamp,transactionType,amount\n"));
+    }
+
+    @Test
+    void testExportOperationsHistory_AccountNotFound() throws Exception {
+        Mockito.when(transactionExportServiceImpl.prepareHistoryExport(
+                        any(Long.class), any(LocalDateTime.class), any(LocalDateTime.class), any(ExportFormat.class)))
+                .thenThrow(new AccountNotFoundException("Account not found"));
+
+        mockMvc.perform(get("/api/transactions/export")
+                        .param("accountId", "999")
+                        .param("from", "2024-12-14T10:00:00")
+                        .param("to", "2024-12-15T10:00:00"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("User not found: Account not found"));
+    }
 }
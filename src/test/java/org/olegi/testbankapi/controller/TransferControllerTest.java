@@ -5,7 +5,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
+import org.olegi.testbankapi.dto.BatchTransferRequestDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.QueuedTransferDTO;
+import org.olegi.testbankapi.dto.TransferItemResultDTO;
 import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.enums.QueuedTransferStatus;
+import org.olegi.testbankapi.enums.TransferItemStatus;
+import org.olegi.testbankapi.exceptions.QueuedTransferNotFoundException;
+import org.olegi.testbankapi.service.IdempotencyService;
+import org.olegi.testbankapi.service.TransferQueueService;
 import org.olegi.testbankapi.service.impl.TransferServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -15,10 +25,17 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -32,6 +49,12 @@ class TransferControllerTest {
     @Autowired
     private TransferServiceImpl transferServiceImpl;
 
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private TransferQueueService transferQueueService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -39,6 +62,8 @@ class TransferControllerTest {
 
     @BeforeEach
     void setUp() {
+        Mockito.when(idempotencyService.execute(any(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(5).get());
         transferRequestDTO = new TransferRequestDTO();
         transferRequestDTO.setFromAccountNumber("1234567890");
         transferRequestDTO.setToAccountNumber("0987654321");
@@ -56,6 +81,18 @@ class TransferControllerTest {
                 .andExpect(content().string("Transfer successful"));
     }
 
+    @Test
+    void testDoTransfer_PassesIdempotencyKey() throws Exception {
+        mockMvc.perform(post("/api/transfer")
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequestDTO)))
+                .andExpect(status().isOk());
+
+        Mockito.verify(idempotencyService)
+                .execute(eq("key-1"), eq("transfer"), eq(transferRequestDTO), eq(String.class), any(), any());
+    }
+
     @Test
     void testDoTransfer_Failed() throws Exception {
         Mockito.doThrow(IllegalArgumentException.class).when(transferServiceImpl).transferMoney(any(TransferRequestDTO.class));
@@ -66,4 +103,76 @@ class TransferControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Invalid input: null"));
     }
+
+    @Test
+    void testDoBatchTransfer_Success() throws Exception {
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(BatchTransferMode.BEST_EFFORT, List.of(transferRequestDTO));
+        Mockito.when(transferServiceImpl.transferBatch(any(BatchTransferRequestDTO.class)))
+                .thenReturn(new BatchTransferResultDTO(BatchTransferMode.BEST_EFFORT, 1, 0,
+                        List.of(new TransferItemResultDTO(0, TransferItemStatus.APPLIED, null))));
+
+        mockMvc.perform(post("/api/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.results[0].status").value("APPLIED"));
+    }
+
+    @Test
+    void testDoBatchTransfer_AllOrNothingRejected() throws Exception {
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(BatchTransferMode.ALL_OR_NOTHING, List.of(transferRequestDTO));
+        Mockito.when(transferServiceImpl.transferBatch(any(BatchTransferRequestDTO.class)))
+                .thenReturn(new BatchTransferResultDTO(BatchTransferMode.ALL_OR_NOTHING, 0, 1,
+                        List.of(new TransferItemResultDTO(0, TransferItemStatus.FAILED, "Insufficient funds for transfer amount"))));
+
+        mockMvc.perform(post("/api/transfer/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.results[0].message").value("Insufficient funds for transfer amount"));
+    }
+
+    @Test
+    void testDoTransferAsync_ReturnsAcceptedWithOperationId() throws Exception {
+        UUID id = UUID.randomUUID();
+        Mockito.when(transferQueueService.enqueue(transferRequestDTO))
+                .thenReturn(new QueuedTransferDTO(id, QueuedTransferStatus.PENDING, "1234567890", "0987654321",
+                        new BigDecimal("500.00"), null, LocalDateTime.now(), null));
+
+        mockMvc.perform(post("/api/transfer?async=true")
+                        .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, "key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transferRequestDTO)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(id.toString()))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        Mockito.verify(transferServiceImpl, Mockito.never()).transferMoney(any());
+        Mockito.verify(idempotencyService)
+                .execute(eq("key-2"), eq("transfer_async"), eq(transferRequestDTO), eq(QueuedTransferDTO.class), any(), any());
+    }
+
+    @Test
+    void testGetTransferStatus_Found() throws Exception {
+        UUID id = UUID.randomUUID();
+        Mockito.when(transferQueueService.getStatus(id))
+                .thenReturn(new QueuedTransferDTO(id, QueuedTransferStatus.FAILED, "1234567890", "0987654321",
+                        new BigDecimal("500.00"), "Insufficient funds for transfer amount", LocalDateTime.now(),
+                        LocalDateTime.now()));
+
+        mockMvc.perform(get("/api/transfer/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.error").value("Insufficient funds for transfer amount"));
+    }
+
+    @Test
+    void testGetTransferStatus_NotFound() throws Exception {
+        UUID id = UUID.randomUUID();
+        Mockito.when(transferQueueService.getStatus(id)).thenThrow(new QueuedTransferNotFoundException(id.toString()));
+
+        mockMvc.perform(get("/api/transfer/" + id))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,103 @@
+package org.olegi.testbankapi.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GatedDataSourceTest {
+
+    private DataSource pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+    }
+
+    @Test
+    void getConnection_ReleasesPermitOnceWhenConnectionIsClosed() throws SQLException {
+        GatedDataSource gate = new GatedDataSource(pool, 2, 0, Duration.ofSeconds(1));
+
+        Connection connection = gate.getConnection();
+        assertThat(gate.getAvailablePermits()).isEqualTo(1);
+
+        connection.close();
+        connection.close();
+        assertThat(gate.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void getConnection_WaitsForAClosedConnection() throws Exception {
+        GatedDataSource gate = new GatedDataSource(pool, 1, 0, Duration.ofSeconds(5));
+        Connection held = gate.getConnection();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> getConnection(gate));
+        while (gate.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        assertThat(waiter).isNotDone();
+
+        held.close();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isNotNull();
+        verify(pool, times(2)).getConnection();
+    }
+
+    @Test
+    void getConnection_TimesOutWithoutAPermit() throws SQLException {
+        GatedDataSource gate = new GatedDataSource(pool, 1, 0, Duration.ofMillis(100));
+        gate.getConnection();
+
+        assertThatThrownBy(gate::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("no connection within");
+        assertThat(gate.getWaiting()).isZero();
+    }
+
+    @Test
+    void getConnection_RejectsCallersBeyondMaxWaiting() throws Exception {
+        GatedDataSource gate = new GatedDataSource(pool, 1, 1, Duration.ofSeconds(5));
+        Connection held = gate.getConnection();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> getConnection(gate));
+        while (gate.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(gate::getConnection)
+                .isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageContaining("already waiting");
+
+        held.close();
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void getConnection_ReturnsPermitWhenThePoolFails() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool timeout"));
+        GatedDataSource gate = new GatedDataSource(pool, 1, 0, Duration.ofSeconds(1));
+
+        assertThatThrownBy(gate::getConnection).hasMessage("pool timeout");
+        assertThat(gate.getAvailablePermits()).isEqualTo(1);
+    }
+
+    private static Connection getConnection(DataSource dataSource) {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.olegi.testbankapi.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+import org.olegi.testbankapi.enums.TransactionTypes;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalBatchCodecTest {
+
+    @Test
+    void encodeDecode_RoundTrip() {
+        UUID started = UUID.randomUUID();
+        UUID finished = UUID.randomUUID();
+        LocalDateTime timeStamp = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+        JournalBatch batch = new JournalBatch();
+        batch.startTransfer(new LedgerTransfer(started, "1234567890", "счёт-2", new BigDecimal("10.50"),
+                LedgerTransferStatus.DEBITED));
+        batch.setTransferStatus(finished, LedgerTransferStatus.REFUNDED);
+        batch.adjust(new LedgerAccount(7L, "1234567890", BigDecimal.ZERO), new BigDecimal("-10.50"));
+        batch.adjust(3L, new BigDecimal("123456789012345678901234.99"));
+        batch.record(new JournalBatch.TransactionRow(7L, new BigDecimal("10.50"), TransactionTypes.WITHDRAW, timeStamp,
+                new BigDecimal("89.50"), null));
+        batch.record(new JournalBatch.TransactionRow(3L, new BigDecimal("10.50"), TransactionTypes.TRANSFER_IN, timeStamp,
+                new BigDecimal("10.50"), started));
+
+        JournalBatch decoded = JournalBatchCodec.decode(ByteBuffer.wrap(JournalBatchCodec.encode(batch)));
+
+        assertThat(decoded.getStartedTransfers()).isEqualTo(batch.getStartedTransfers());
+        assertThat(decoded.getTransferStatuses()).isEqualTo(batch.getTransferStatuses());
+        assertThat(decoded.getBalanceDeltas()).isEqualTo(batch.getBalanceDeltas());
+        assertThat(decoded.getTransactions()).isEqualTo(batch.getTransactions());
+        assertThat(decoded.getAccountNumbers()).isEmpty();
+    }
+
+    @Test
+    void decode_VersionOneRecord_RowsHaveNoBalanceAfter() {
+        LocalDateTime timeStamp = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+        ByteBuffer record = ByteBuffer.allocate(64);
+        record.put((byte) 1).putInt(0).putInt(0).putInt(0).putInt(1);
+        record.putLong(7L).put((byte) 2).put((byte) 1).put((byte) 100);
+        record.put((byte) TransactionTypes.DEPOSIT.ordinal());
+        record.putLong(timeStamp.toEpochSecond(ZoneOffset.UTC)).putInt(0);
+        record.flip();
+
+        JournalBatch decoded = JournalBatchCodec.decode(record);
+
+        assertThat(decoded.getTransactions()).containsExactly(
+                new JournalBatch.TransactionRow(7L, new BigDecimal("1.00"), TransactionTypes.DEPOSIT, timeStamp, null, null));
+    }
+}
@@ -0,0 +1,482 @@
+package org.olegi.testbankapi.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.AccountCacheProperties;
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.enums.LedgerTransferStatus;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.enums.TransferItemStatus;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.LedgerUnavailableException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LedgerEngineTest {
+
+    private InMemoryJournal journal;
+    private AccountCache accountCache;
+    private LedgerEngine engine;
+    private String first;
+    private String second;
+
+    @BeforeEach
+    void setUp() {
+        LedgerProperties properties = new LedgerProperties();
+        properties.setEnabled(true);
+        properties.setPartitions(2);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        journal = new InMemoryJournal();
+        accountCache = new AccountCache(new AccountCacheProperties());
+        engine = new LedgerEngine(properties, journal, accountCache);
+        first = accountInPartition(0);
+        second = accountInPartition(1);
+        journal.addAccount(1L, first, new BigDecimal("100.00"));
+        journal.addAccount(2L, second, new BigDecimal("50.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void depositAndWithdraw_AppliedInMemoryAndJournaled() {
+        engine.start();
+
+        assertThat(engine.deposit(first, new BigDecimal("25.00")).getBalance()).isEqualByComparingTo("125.00");
+        assertThat(engine.withdraw(first, new BigDecimal("5.00")).getBalance()).isEqualByComparingTo("120.00");
+
+        assertThat(journal.balance(first)).isEqualByComparingTo("120.00");
+        assertThat(journal.transactionTypes()).containsExactly(TransactionTypes.DEPOSIT, TransactionTypes.WITHDRAW);
+    }
+
+    @Test
+    void deposit_EvictsCachedAccountOnceJournaled() {
+        accountCache.get(first, number -> new AccountDTO(number, new BigDecimal("100.00")));
+        engine.start();
+
+        engine.deposit(first, BigDecimal.ONE);
+
+        assertThat(accountCache.size()).isZero();
+    }
+
+    @Test
+    void deposit_JournalAppliedLater_LeavesEvictionToTheJournal() {
+        accountCache.get(first, number -> new AccountDTO(number, new BigDecimal("100.00")));
+        journal.setAppliedOnWrite(false);
+        engine.start();
+
+        engine.deposit(first, BigDecimal.ONE);
+        engine.awaitApplied();
+
+        // Evicting at the acknowledgement would let a read cache the unapplied balance again.
+        assertThat(accountCache.size()).isEqualTo(1);
+        assertThat(journal.appliedWaits()).isEqualTo(1);
+    }
+
+    @Test
+    void withdraw_InsufficientFunds_NothingJournaled() {
+        engine.start();
+
+        assertThatThrownBy(() -> engine.withdraw(second, new BigDecimal("50.01")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient funds for withdrawal");
+        assertThat(journal.balance(second)).isEqualByComparingTo("50.00");
+        assertThat(journal.transactionTypes()).isEmpty();
+    }
+
+    @Test
+    void deposit_AccountCreatedAfterStart_LoadedOnFirstUse() {
+        engine.start();
+        String created = accountInPartition(0, "NEW");
+
+        assertThatThrownBy(() -> engine.deposit(created, BigDecimal.ONE))
+                .isInstanceOf(AccountNotFoundException.class)
+                .hasMessage("Account not found: " + created);
+
+        journal.addAccount(3L, created, BigDecimal.ZERO);
+        assertThat(engine.deposit(created, BigDecimal.ONE).getBalance()).isEqualByComparingTo("1");
+    }
+
+    @Test
+    void transfer_AcrossPartitions_DebitedThenCredited() {
+        engine.start();
+
+        engine.transfer(first, second, new BigDecimal("30.00"));
+
+        assertThat(journal.balance(first)).isEqualByComparingTo("70.00");
+        assertThat(journal.balance(second)).isEqualByComparingTo("80.00");
+        assertThat(journal.statusHistory()).containsExactly(LedgerTransferStatus.DEBITED, LedgerTransferStatus.CREDITED);
+        assertThat(journal.transactionTypes()).containsExactly(TransactionTypes.TRANSFER, TransactionTypes.TRANSFER_IN);
+        assertThat(journal.transferIds()).hasSize(1);
+    }
+
+    @Test
+    void transfer_WithinPartition_SingleStep() {
+        String neighbour = accountInPartition(0, "NBR");
+        journal.addAccount(3L, neighbour, BigDecimal.ZERO);
+        engine.start();
+
+        engine.transfer(first, neighbour, new BigDecimal("40.00"));
+
+        assertThat(journal.balance(first)).isEqualByComparingTo("60.00");
+        assertThat(journal.balance(neighbour)).isEqualByComparingTo("40.00");
+        assertThat(journal.statusHistory()).isEmpty();
+        assertThat(journal.transactionTypes()).containsExactly(TransactionTypes.TRANSFER, TransactionTypes.TRANSFER_IN);
+        assertThat(journal.transferIds()).hasSize(1);
+    }
+
+    @Test
+    void transfer_ToMissingAccount_RefundedToSource() {
+        engine.start();
+        String missing = accountInPartition(1, "MISSING");
+
+        assertThatThrownBy(() -> engine.transfer(first, missing, new BigDecimal("30.00")))
+                .isInstanceOf(AccountNotFoundException.class)
+                .hasMessage("Account not found: " + missing);
+
+        assertThat(journal.balance(first)).isEqualByComparingTo("100.00");
+        assertThat(journal.statusHistory()).containsExactly(
+                LedgerTransferStatus.DEBITED, LedgerTransferStatus.REJECTED, LedgerTransferStatus.REFUNDED);
+        assertThat(journal.transactionTypes()).containsExactly(TransactionTypes.TRANSFER, TransactionTypes.TRANSFER_IN);
+        assertThat(journal.transferIds()).hasSize(1);
+    }
+
+    @Test
+    void start_ResumesTransferLeftBetweenSteps() throws InterruptedException {
+        // Debit durable, credit lost in a crash.
+        journal.addAccount(1L, first, new BigDecimal("70.00"));
+        journal.addUnfinished(new LedgerTransfer(UUID.randomUUID(), first, second, new BigDecimal("30.00"),
+                LedgerTransferStatus.DEBITED));
+
+        engine.start();
+
+        awaitBalance(second, "80.00");
+        assertThat(journal.balance(first)).isEqualByComparingTo("70.00");
+        assertThat(journal.loadUnfinishedTransfers()).isEmpty();
+    }
+
+    @Test
+    void journalFailure_FailsOperationAndReloadsBalance() {
+        engine.start();
+        journal.failNextWrites(1);
+
+        assertThatThrownBy(() -> engine.deposit(first, new BigDecimal("10.00")))
+                .isInstanceOf(LedgerUnavailableException.class);
+
+        assertThat(engine.deposit(first, new BigDecimal("1.00")).getBalance()).isEqualByComparingTo("101.00");
+    }
+
+    @Test
+    void journalFailure_CreditRetriedUntilWritten() {
+        engine.start();
+        // The first write (the debit) succeeds, the next two (credit attempts) fail.
+        journal.failWritesAfter(1, 2);
+
+        engine.transfer(first, second, new BigDecimal("30.00"));
+
+        assertThat(journal.balance(second)).isEqualByComparingTo("80.00");
+        assertThat(journal.balance(first)).isEqualByComparingTo("70.00");
+    }
+
+    @Test
+    void concurrentDeposits_GroupedIntoFewerJournalWrites() throws InterruptedException {
+        journal.setWriteDelayMillis(2);
+        engine.start();
+        int threads = 16;
+        int depositsPerThread = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < depositsPerThread; i++) {
+                    engine.deposit(first, BigDecimal.ONE);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(journal.balance(first)).isEqualByComparingTo(BigDecimal.valueOf(100 + threads * depositsPerThread));
+        assertThat(journal.writes()).isLessThan(threads * depositsPerThread / 2);
+    }
+
+    @Test
+    void transferBatch_BestEffortAcrossPartitions_ItemsIndependent() {
+        engine.start();
+
+        BatchTransferResultDTO result = engine.transferBatch(BatchTransferMode.BEST_EFFORT, List.of(
+                new TransferRequestDTO(first, second, BigDecimal.ONE),
+                new TransferRequestDTO(second, first, new BigDecimal("1000.00"))));
+        assertThat(result.getResults()).extracting("status")
+                .containsExactly(TransferItemStatus.APPLIED, TransferItemStatus.FAILED);
+        assertThat(result.getResults().get(1).getMessage()).isEqualTo("Insufficient funds for transfer amount");
+    }
+
+    @Test
+    void transferBatch_AllOrNothingAcrossPartitions_ReservedThenCommitted() {
+        engine.start();
+
+        BatchTransferResultDTO result = engine.transferBatch(BatchTransferMode.ALL_OR_NOTHING, List.of(
+                new TransferRequestDTO(first, second, new BigDecimal("30.00")),
+                new TransferRequestDTO(second, first, new BigDecimal("10.00"))));
+
+        assertThat(result.getApplied()).isEqualTo(2);
+        assertThat(journal.balance(first)).isEqualByComparingTo("80.00");
+        assertThat(journal.balance(second)).isEqualByComparingTo("70.00");
+        assertThat(journal.statusHistory()).containsExactlyInAnyOrder(
+                LedgerTransferStatus.RESERVED, LedgerTransferStatus.RESERVED,
+                LedgerTransferStatus.DEBITED, LedgerTransferStatus.DEBITED,
+                LedgerTransferStatus.CREDITED, LedgerTransferStatus.CREDITED);
+        assertThat(journal.loadUnfinishedTransfers()).isEmpty();
+    }
+
+    @Test
+    void transferBatch_AllOrNothingAcrossPartitions_FailedItemRefundsReservations() {
+        engine.start();
+
+        BatchTransferResultDTO result = engine.transferBatch(BatchTransferMode.ALL_OR_NOTHING, List.of(
+                new TransferRequestDTO(first, second, new BigDecimal("30.00")),
+                new TransferRequestDTO(second, first, new BigDecimal("1000.00"))));
+
+        assertThat(result.getApplied()).isZero();
+        assertThat(result.getResults()).extracting("status")
+                .containsExactly(TransferItemStatus.SKIPPED, TransferItemStatus.FAILED);
+        assertThat(result.getResults().get(1).getMessage()).isEqualTo("Insufficient funds for transfer amount");
+        // The first account's partition passed its checks and reserved the first item; it is refunded.
+        assertThat(journal.balance(first)).isEqualByComparingTo("100.00");
+        assertThat(journal.balance(second)).isEqualByComparingTo("50.00");
+        assertThat(journal.statusHistory()).containsExactly(LedgerTransferStatus.RESERVED, LedgerTransferStatus.REFUNDED);
+    }
+
+    @Test
+    void transferBatch_AllOrNothingAcrossPartitions_MissingTargetReportedBeforeFunds() {
+        engine.start();
+        String missing = accountInPartition(0, "MISSING");
+
+        BatchTransferResultDTO result = engine.transferBatch(BatchTransferMode.ALL_OR_NOTHING, List.of(
+                new TransferRequestDTO(first, second, new BigDecimal("30.00")),
+                new TransferRequestDTO(second, missing, new BigDecimal("1000.00"))));
+
+        assertThat(result.getResults()).extracting("message")
+                .containsExactly(null, "Account not found: " + missing);
+        assertThat(journal.statusHistory()).isEmpty();
+        assertThat(journal.balance(first)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void start_RefundsReservationOfUncommittedBatch() throws InterruptedException {
+        // Reserved, but the batch was never committed.
+        journal.addAccount(1L, first, new BigDecimal("70.00"));
+        journal.addUnfinished(new LedgerTransfer(UUID.randomUUID(), first, second, new BigDecimal("30.00"),
+                LedgerTransferStatus.RESERVED));
+
+        engine.start();
+
+        awaitBalance(first, "100.00");
+        assertThat(journal.balance(second)).isEqualByComparingTo("50.00");
+        assertThat(journal.loadUnfinishedTransfers()).isEmpty();
+    }
+
+    @Test
+    void transferBatch_WithinPartition_AllOrNothingLeavesBalancesUntouched() {
+        String neighbour = accountInPartition(0, "NBR");
+        journal.addAccount(3L, neighbour, BigDecimal.ZERO);
+        engine.start();
+
+        BatchTransferResultDTO result = engine.transferBatch(BatchTransferMode.ALL_OR_NOTHING, List.of(
+                new TransferRequestDTO(first, neighbour, new BigDecimal("60.00")),
+                new TransferRequestDTO(first, neighbour, new BigDecimal("60.00"))));
+
+        assertThat(result.getResults()).extracting("status")
+                .containsExactly(TransferItemStatus.SKIPPED, TransferItemStatus.FAILED);
+        assertThat(engine.deposit(first, BigDecimal.ONE).getBalance()).isEqualByComparingTo("101.00");
+    }
+
+    private void awaitBalance(String accountNumber, String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (journal.balance(accountNumber).compareTo(new BigDecimal(expected)) != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(journal.balance(accountNumber)).isEqualByComparingTo(expected);
+    }
+
+    private String accountInPartition(int partition) {
+        return accountInPartition(partition, "ACC");
+    }
+
+    private String accountInPartition(int partition, String prefix) {
+        for (int i = 0; ; i++) {
+            String accountNumber = prefix + i;
+            if (engine.partitionIndex(accountNumber) == partition) {
+                return accountNumber;
+            }
+        }
+    }
+
+    /**
+     * Applies journal batches to maps the way the database would, one batch at a time.
+     */
+    private static class InMemoryJournal implements LedgerJournal {
+
+        private final Map<String, LedgerAccount> accounts = new HashMap<>();
+        private final List<TransactionTypes> transactionTypes = new ArrayList<>();
+        private final Set<UUID> transferIds = new HashSet<>();
+        private final Map<UUID, LedgerTransfer> transfers = new HashMap<>();
+        private final List<LedgerTransferStatus> statusHistory = new ArrayList<>();
+        private final AtomicInteger writes = new AtomicInteger();
+        private int successfulWritesBeforeFailure = Integer.MAX_VALUE;
+        private int failingWrites;
+        private long writeDelayMillis;
+        private boolean appliedOnWrite = true;
+        private int appliedWaits;
+
+        synchronized void addAccount(long id, String accountNumber, BigDecimal balance) {
+            accounts.put(accountNumber, new LedgerAccount(id, accountNumber, balance));
+        }
+
+        synchronized void addUnfinished(LedgerTransfer transfer) {
+            transfers.put(transfer.id(), transfer);
+        }
+
+        synchronized void failNextWrites(int count) {
+            failWritesAfter(0, count);
+        }
+
+        synchronized void failWritesAfter(int successfulWrites, int count) {
+            successfulWritesBeforeFailure = successfulWrites;
+            failingWrites = count;
+        }
+
+        synchronized void setWriteDelayMillis(long writeDelayMillis) {
+            this.writeDelayMillis = writeDelayMillis;
+        }
+
+        synchronized void setAppliedOnWrite(boolean appliedOnWrite) {
+            this.appliedOnWrite = appliedOnWrite;
+        }
+
+        synchronized int appliedWaits() {
+            return appliedWaits;
+        }
+
+        synchronized BigDecimal balance(String accountNumber) {
+            return accounts.get(accountNumber).getBalance();
+        }
+
+        synchronized List<TransactionTypes> transactionTypes() {
+            return List.copyOf(transactionTypes);
+        }
+
+        /**
+         * Distinct transfer ids of the journaled transaction rows.
+         */
+        synchronized Set<UUID> transferIds() {
+            return Set.copyOf(transferIds);
+        }
+
+        synchronized List<LedgerTransferStatus> statusHistory() {
+            return List.copyOf(statusHistory);
+        }
+
+        int writes() {
+            return writes.get();
+        }
+
+        @Override
+        public synchronized void write(JournalBatch batch) {
+            if (successfulWritesBeforeFailure == 0 && failingWrites > 0) {
+                failingWrites--;
+                throw new IllegalStateException("journal unavailable");
+            }
+            successfulWritesBeforeFailure--;
+            sleep(writeDelayMillis);
+            writes.incrementAndGet();
+            batch.getStartedTransfers().forEach(transfer -> {
+                transfers.put(transfer.id(), transfer);
+                statusHistory.add(transfer.status());
+            });
+            batch.getTransferStatuses().forEach((id, status) -> {
+                LedgerTransfer transfer = transfers.get(id);
+                transfers.put(id, new LedgerTransfer(id, transfer.fromAccountNumber(), transfer.toAccountNumber(),
+                        transfer.amount(), status));
+                statusHistory.add(status);
+            });
+            batch.getBalanceDeltas().forEach((id, delta) -> accounts.values().stream()
+                    .filter(account -> account.getId() == id)
+                    .forEach(account -> account.setBalance(account.getBalance().add(delta))));
+            batch.getTransactions().forEach(row -> {
+                transactionTypes.add(row.transactionType());
+                if (row.transferId() != null) {
+                    transferIds.add(row.transferId());
+                }
+            });
+        }
+
+        @Override
+        public synchronized void awaitApplied() {
+            appliedWaits++;
+        }
+
+        @Override
+        public synchronized boolean isAppliedOnWrite() {
+            return appliedOnWrite;
+        }
+
+        @Override
+        public synchronized long loadAccounts(Consumer<LedgerAccount> consumer) {
+            accounts.values().forEach(account -> consumer.accept(copy(account)));
+            return accounts.size();
+        }
+
+        @Override
+        public synchronized Optional<LedgerAccount> loadAccount(String accountNumber) {
+            return Optional.ofNullable(accounts.get(accountNumber)).map(InMemoryJournal::copy);
+        }
+
+        @Override
+        public synchronized List<LedgerTransfer> loadUnfinishedTransfers() {
+            return transfers.values().stream()
+                    .filter(transfer -> transfer.status() == LedgerTransferStatus.DEBITED
+                            || transfer.status() == LedgerTransferStatus.REJECTED
+                            || transfer.status() == LedgerTransferStatus.RESERVED)
+                    .toList();
+        }
+
+        private static LedgerAccount copy(LedgerAccount account) {
+            return new LedgerAccount(account.getId(), account.getAccountNumber(), account.getBalance());
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.olegi.testbankapi.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.LedgerProperties;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WalLedgerJournalTest {
+
+    private static final int READERS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private final PostgresLedgerJournal database = mock(PostgresLedgerJournal.class);
+    private final CountDownLatch applyReleased = new CountDownLatch(1);
+    private WalLedgerJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        LedgerProperties properties = new LedgerProperties();
+        properties.getWal().setDirectory(directory.toString());
+        properties.setAckTimeout(Duration.ofSeconds(30));
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        doAnswer(invocation -> applyReleased.await(30, TimeUnit.SECONDS)).when(database).apply(any());
+        journal = new WalLedgerJournal(properties, database, jdbcTemplate, mock(AccountCache.class),
+                mock(PlatformTransactionManager.class));
+        journal.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        applyReleased.countDown();
+        journal.stop();
+    }
+
+    @Test
+    void awaitApplied_VirtualThreadsWaitWithoutHoldingCarriers() throws Exception {
+        journal.write(batch());
+
+        // Pinned waiters would each hold one of at most 256 carrier threads, so the rest could not start waiting.
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(Thread.ofVirtual().start(journal::awaitApplied));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (readers.stream().anyMatch(reader -> reader.getState() == Thread.State.RUNNABLE)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(readers).extracting(Thread::getState).doesNotContain(Thread.State.RUNNABLE, Thread.State.TERMINATED);
+        applyReleased.countDown();
+        for (Thread reader : readers) {
+            assertThat(reader.join(Duration.ofSeconds(10))).isTrue();
+        }
+    }
+
+    private static JournalBatch batch() {
+        JournalBatch batch = new JournalBatch();
+        batch.record(new JournalBatch.TransactionRow(1L, new BigDecimal("10.00"), TransactionTypes.DEPOSIT,
+                LocalDateTime.now(), new BigDecimal("110.00"), null));
+        batch.adjust(1L, new BigDecimal("10.00"));
+        return batch;
+    }
+}
@@ -0,0 +1,209 @@
+package org.olegi.testbankapi.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendAndReplay_RoundTripAcrossSegments() throws IOException {
+        List<Long> ends = new ArrayList<>();
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 0)) {
+            for (long i = 0; i < 200; i++) {
+                ends.add(wal.appendDurably(record(i, 100)));
+            }
+        }
+        assertThat(segmentCount()).isGreaterThan(1);
+
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 0)) {
+            assertThat(sequences(wal, 0)).hasSize(200).startsWith(0L).endsWith(199L);
+            assertThat(sequences(wal, ends.get(149))).hasSize(50).startsWith(150L);
+            assertThat(wal.getAppendedLsn()).isEqualTo(ends.get(199));
+        }
+    }
+
+    @Test
+    void open_EmptyDirectory_StartsAtInitialLsn() throws IOException {
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 1_000_000)) {
+            long end = wal.appendDurably(record(7, 10));
+
+            assertThat(end).isGreaterThan(1_000_000);
+            assertThat(sequences(wal, 1_000_000)).containsExactly(7L);
+        }
+    }
+
+    @Test
+    void open_TornTail_IsCutAndOverwritten() throws IOException {
+        long secondEnd;
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 0)) {
+            wal.appendDurably(record(0, 100));
+            secondEnd = wal.appendDurably(record(1, 100));
+            wal.appendDurably(record(2, 100));
+        }
+        // A crash while copying the third record: its payload is only partly there.
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), secondEnd + 8 + 50);
+        }
+
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 0)) {
+            assertThat(sequences(wal, 0)).containsExactly(0L, 1L);
+            assertThat(wal.getAppendedLsn()).isEqualTo(secondEnd);
+
+            wal.appendDurably(record(3, 20));
+            assertThat(sequences(wal, 0)).containsExactly(0L, 1L, 3L);
+        }
+    }
+
+    @Test
+    void appendDurably_ConcurrentWriters_ShareFsyncs() throws Exception {
+        int writers = 8;
+        int perWriter = 25;
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, 1 << 20, Duration.ofMillis(5), 0)) {
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            for (int w = 0; w < writers; w++) {
+                long base = w * 1_000L;
+                executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        wal.appendDurably(record(base + i, 32));
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(wal.getDurableLsn()).isEqualTo(wal.getAppendedLsn());
+            assertThat(sequences(wal, 0)).hasSize(writers * perWriter);
+            assertThat(wal.getFsyncCount()).isLessThan(writers * perWriter);
+        }
+    }
+
+    @Test
+    void deleteSegmentsBefore_KeepsUnappliedSegments() throws IOException {
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 0)) {
+            long middle = 0;
+            for (long i = 0; i < 200; i++) {
+                long end = wal.appendDurably(record(i, 100));
+                if (i == 100) {
+                    middle = end;
+                }
+            }
+            int before = segmentCount();
+
+            assertThat(wal.deleteSegmentsBefore(middle)).isPositive();
+
+            assertThat(segmentCount()).isLessThan(before);
+            assertThat(sequences(wal, middle)).hasSize(99).startsWith(101L);
+        }
+    }
+
+    @Test
+    void append_RecordLargerThanSegment_Rejected() throws IOException {
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 0)) {
+            assertThatThrownBy(() -> wal.append(new byte[SEGMENT_SIZE]))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    /**
+     * Kills a writer process while it appends and checks that every record it reported durable is replayed, in
+     * order and without gaps, and that the log accepts new records after the crash.
+     */
+    @Test
+    void replay_AfterWriterKilledMidWrite_KeepsEveryAcknowledgedRecord() throws Exception {
+        Process writer = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                CrashingWriter.class.getName(), directory.toString())
+                .redirectErrorStream(true)
+                .start();
+        long acknowledged = -1;
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (acknowledged < 2_000 && (line = output.readLine()) != null) {
+                acknowledged = Long.parseLong(line.trim());
+            }
+            writer.destroyForcibly();
+            assertThat(writer.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(acknowledged).isGreaterThanOrEqualTo(2_000);
+
+        try (WriteAheadLog wal = WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO, 0)) {
+            List<Long> replayed = sequences(wal, 0);
+            assertThat(replayed.size()).isGreaterThan((int) acknowledged);
+            for (int i = 0; i < replayed.size(); i++) {
+                assertThat(replayed.get(i)).isEqualTo(i);
+            }
+
+            wal.appendDurably(record(-1, 10));
+            assertThat(sequences(wal, 0)).hasSize(replayed.size() + 1).endsWith(-1L);
+        }
+    }
+
+    /**
+     * Appends numbered records forever, printing each number once it is durable.
+     */
+    static final class CrashingWriter {
+
+        public static void main(String[] args) throws IOException {
+            WriteAheadLog wal = WriteAheadLog.open(Path.of(args[0]), SEGMENT_SIZE, Duration.ZERO, 0);
+            for (long i = 0; ; i++) {
+                wal.appendDurably(record(i, 64 + (int) (i % 100)));
+                System.out.println(i);
+                System.out.flush();
+            }
+        }
+    }
+
+    private static byte[] record(long sequence, int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(size, Long.BYTES));
+        buffer.putLong(sequence);
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) sequence);
+        }
+        return buffer.array();
+    }
+
+    private static List<Long> sequences(WriteAheadLog wal, long fromLsn) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        wal.replay(fromLsn, (startLsn, endLsn, payload) -> sequences.add(payload.getLong(0)));
+        return sequences;
+    }
+
+    private int segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.count();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.olegi.testbankapi.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summaries of a reference run, by scenario name, and the check of a new run against them. A scenario regresses
+ * when its median p99 latency grows or its median throughput drops by more than the allowed deviation, or when
+ * its error or conflict rate grows by more than one percentage point. The allowed deviation is the tolerance, or
+ * three times the run-to-run variation (see {@link LoadSummary}) seen in the baseline or in the new run, whichever is larger. Scenarios
+ * missing from the baseline are not checked.
+ */
+final class LoadBaseline {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final double RATE_SLACK = 0.01;
+    private static final double NOISE_DEVIATIONS = 3;
+
+    private LoadBaseline() {
+    }
+
+    static Map<String, LoadSummary> read(Path file) {
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+        try {
+            return MAPPER.readValue(file.toFile(), new TypeReference<LinkedHashMap<String, LoadSummary>>() {
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void write(Path file, List<LoadSummary> results) {
+        Map<String, LoadSummary> byScenario = new LinkedHashMap<>();
+        results.forEach(result -> byScenario.put(result.scenario(), result));
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            MAPPER.writeValue(file.toFile(), byScenario);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<String> regressions(Map<String, LoadSummary> baseline, List<LoadSummary> results, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (LoadSummary summary : results) {
+            LoadSummary reference = baseline.get(summary.scenario());
+            if (reference == null) {
+                continue;
+            }
+            LoadResult result = summary.median();
+            LoadResult expected = reference.median();
+            double p99Deviation = allowedDeviation(tolerance, reference.p99Variation(), summary.p99Variation());
+            if (result.p99() > expected.p99() * (1 + p99Deviation)) {
+                regressions.add("%s: p99 %.2f ms, baseline %.2f ms (+%.0f%% allowed)"
+                        .formatted(result.scenario(), result.p99(), expected.p99(), p99Deviation * 100));
+            }
+            double throughputDeviation =
+                    allowedDeviation(tolerance, reference.throughputVariation(), summary.throughputVariation());
+            if (result.throughput() < expected.throughput() * (1 - throughputDeviation)) {
+                regressions.add("%s: throughput %.1f/s, baseline %.1f/s (-%.0f%% allowed)".formatted(
+                        result.scenario(), result.throughput(), expected.throughput(), throughputDeviation * 100));
+            }
+            if (result.errorRate() > expected.errorRate() + RATE_SLACK) {
+                regressions.add("%s: error rate %.2f%%, baseline %.2f%%"
+                        .formatted(result.scenario(), result.errorRate() * 100, expected.errorRate() * 100));
+            }
+            if (result.serializationFailureRate() > expected.serializationFailureRate() + RATE_SLACK) {
+                regressions.add("%s: conflict rate %.2f%%, baseline %.2f%%".formatted(result.scenario(),
+                        result.serializationFailureRate() * 100, expected.serializationFailureRate() * 100));
+            }
+        }
+        return regressions;
+    }
+
+    private static double allowedDeviation(double tolerance, double baselineVariation, double variation) {
+        return Math.max(tolerance, NOISE_DEVIATIONS * Math.max(baselineVariation, variation));
+    }
+}
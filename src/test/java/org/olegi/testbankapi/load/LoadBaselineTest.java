@@ -0,0 +1,51 @@
+package org.olegi.testbankapi.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LoadBaselineTest {
+
+    @Test
+    void summary_TakesTheMedianOfEachMetric() {
+        LoadSummary summary = LoadSummary.of(List.of(run(100, 40), run(400, 38), run(150, 40)));
+
+        assertThat(summary.median().p99()).isEqualTo(150);
+        assertThat(summary.median().throughput()).isEqualTo(40);
+        assertThat(summary.runs()).isEqualTo(3);
+        // Deviations of 50, 250 and 0 ms: the outlying run does not set the spread.
+        assertThat(summary.p99Variation()).isCloseTo(1.0 / 3, within(1e-9));
+    }
+
+    @Test
+    void regressions_AllowTheNoiseTheRunsShowed() {
+        Map<String, LoadSummary> baseline =
+                Map.of("transfers", LoadSummary.of(List.of(run(100, 40), run(200, 40), run(150, 40))));
+
+        // p99 doubled: beyond the 50% tolerance, but within three times the baseline's run-to-run variation (1/3).
+        assertThat(LoadBaseline.regressions(baseline,
+                List.of(LoadSummary.of(List.of(run(280, 40), run(300, 40), run(320, 40)))), 0.5)).isEmpty();
+        assertThat(LoadBaseline.regressions(baseline,
+                List.of(LoadSummary.of(List.of(run(500, 40), run(520, 40), run(510, 40)))), 0.5))
+                .singleElement().asString().startsWith("transfers: p99 510.00 ms");
+    }
+
+    @Test
+    void regressions_SteadyBaselineFallsBackToTheTolerance() {
+        Map<String, LoadSummary> baseline = Map.of("transfers", LoadSummary.of(List.of(run(100, 40), run(100, 40))));
+
+        assertThat(LoadBaseline.regressions(baseline,
+                List.of(LoadSummary.of(List.of(run(140, 40), run(140, 40)))), 0.5)).isEmpty();
+        assertThat(LoadBaseline.regressions(baseline,
+                List.of(LoadSummary.of(List.of(run(100, 15), run(100, 15)))), 0.5))
+                .singleElement().asString().startsWith("transfers: throughput 15.0/s");
+    }
+
+    private static LoadResult run(double p99, double throughput) {
+        return new LoadResult("transfers", 40, 1200, throughput, p99 / 4, p99, p99 * 1.2, 0, 0);
+    }
+}
@@ -0,0 +1,22 @@
+package org.olegi.testbankapi.load;
+
+/**
+ * Outcome of one scenario run. Latencies are in milliseconds, measured from the moment a request was due to be
+ * sent, so time spent queued behind a slow server counts. Rates are fractions of the requests sent.
+ */
+record LoadResult(String scenario,
+                  double offeredRate,
+                  long requests,
+                  double throughput,
+                  double p50,
+                  double p99,
+                  double p999,
+                  double errorRate,
+                  double serializationFailureRate) {
+
+    String format() {
+        return "%-22s offered %7.1f/s  ok %7.1f/s  p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  errors %6.2f%%  conflicts %6.2f%%"
+                .formatted(scenario, offeredRate, throughput, p50, p99, p999, errorRate * 100,
+                        serializationFailureRate * 100);
+    }
+}
@@ -0,0 +1,12 @@
+package org.olegi.testbankapi.load;
+
+import java.net.http.HttpRequest;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * One workload of the load suite: requests arriving at a fixed {@code rate} per second, each built by
+ * {@code nextRequest} from the generator's random source.
+ */
+record LoadScenario(String name, double rate, Function<SplittableRandom, HttpRequest> nextRequest) {
+}
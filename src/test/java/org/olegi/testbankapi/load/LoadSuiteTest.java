@@ -0,0 +1,216 @@
+package org.olegi.testbankapi.load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load suite against the whole application on a random port: uniform transfers, transfers concentrated on a few
+ * hot accounts, balance and history polling mixed with transfers, and large history exports. Each scenario is
+ * driven by an {@link OpenModelLoadGenerator} {@code load.runs} times, and the medians are compared with the stored
+ * baseline (see {@link LoadBaseline}). Run with
+ * {@code gradle loadTest}; the {@code load.*} system properties below tune it.
+ * <p>
+ * The database is a Testcontainers Postgres unless {@code load.datasource.url} points at another one. The suite
+ * only adds rows (under account numbers unique to the run), so a local database can be reused between runs.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadSuiteTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadSuiteTest.class);
+
+    private static final int ACCOUNTS = 1_000;
+    private static final int HOT_ACCOUNTS = 4;
+    private static final int HISTORY_ROWS = 100_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final int MAX_IN_FLIGHT = 2_000;
+
+    private static final String RUN = UUID.randomUUID().toString().replace("-", "").substring(0, 6).toUpperCase();
+
+    private static PostgreSQLContainer<?> postgreSQLContainer;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        String url = System.getProperty("load.datasource.url");
+        if (url != null) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> System.getProperty("load.datasource.username"));
+            registry.add("spring.datasource.password", () -> System.getProperty("load.datasource.password"));
+        } else {
+            postgreSQLContainer = new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+            postgreSQLContainer.start();
+            registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+            registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+            registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        }
+        // Per-request INFO lines would make console output part of what is measured.
+        registry.add("logging.level.org.olegi.testbankapi", () -> "WARN");
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+
+    private String[] accountNumbers;
+    private long[] accountIds;
+    private String[] hotAccountNumbers;
+    private long historyAccountId;
+    private LocalDateTime historyFrom;
+
+    @BeforeEach
+    void setUp() {
+        accountNumbers = createAccounts("U", ACCOUNTS);
+        accountIds = jdbcTemplate.queryForList("SELECT id FROM account WHERE account_number LIKE ? ORDER BY account_number",
+                Long.class, "LT" + RUN + "U%").stream().mapToLong(Long::longValue).toArray();
+        hotAccountNumbers = createAccounts("H", HOT_ACCOUNTS);
+        createAccounts("X", 1);
+        historyAccountId = jdbcTemplate.queryForObject("SELECT id FROM account WHERE account_number = ?", Long.class,
+                accountNumber("X", 0));
+        // A deposit of 2.00 every ~26 s over the last 30 days.
+        historyFrom = LocalDateTime.now().minusDays(30).truncatedTo(ChronoUnit.SECONDS);
+        jdbcTemplate.update("""
+                INSERT INTO transaction (amount, time_stamp, transaction_type, balance_after, account_id)
+                SELECT 2.00, ?::timestamp + i * interval '25.92 seconds', 'DEPOSIT', 1000000.00 + i * 2.00, ?
+                FROM generate_series(1, ?) AS i
+                """, historyFrom, historyAccountId, HISTORY_ROWS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void runScenarios() {
+        double scale = Double.parseDouble(System.getProperty("load.scale", "1"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        int runs = Integer.getInteger("load.runs", 3);
+        double tolerance = Double.parseDouble(System.getProperty("load.tolerance", "0.5"));
+        Path baselineFile = Path.of(System.getProperty("load.baseline", "src/test/resources/load/baseline.json"));
+        List<String> selected = Arrays.asList(System.getProperty("load.scenarios",
+                "uniform-transfers,hot-account-transfers,mixed-read-write,history-export").split(","));
+
+        OpenModelLoadGenerator generator = new OpenModelLoadGenerator(client, MAX_IN_FLIGHT);
+        List<LoadScenario> scenarios = scenarios(scale).stream()
+                .filter(scenario -> selected.contains(scenario.name()))
+                .toList();
+        Map<String, List<LoadResult>> runsByScenario = new LinkedHashMap<>();
+        // Round-robin over the scenarios, so the JIT warming up and the machine drifting spread over all of them.
+        for (int run = 0; run < runs; run++) {
+            for (LoadScenario scenario : scenarios) {
+                LoadResult result = generator.run(scenario, warmup, duration);
+                // The application logs at WARN during the suite, so the results do too.
+                log.warn("{}", result.format());
+                runsByScenario.computeIfAbsent(scenario.name(), name -> new ArrayList<>()).add(result);
+            }
+        }
+        List<LoadSummary> results = runsByScenario.values().stream().map(LoadSummary::of).toList();
+        results.forEach(summary -> log.warn("{}", summary.format()));
+        LoadBaseline.write(Path.of("build/load-results/results.json"), results);
+
+        if (Boolean.getBoolean("load.update-baseline")) {
+            LoadBaseline.write(baselineFile, results);
+            return;
+        }
+        Map<String, LoadSummary> baseline = LoadBaseline.read(baselineFile);
+        List<String> regressions = LoadBaseline.regressions(baseline, results, tolerance);
+        regressions.forEach(regression -> log.warn("REGRESSION {}", regression));
+        assertThat(regressions).isEmpty();
+    }
+
+    private List<LoadScenario> scenarios(double scale) {
+        return List.of(
+                new LoadScenario("uniform-transfers", 40 * scale, random -> {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    return transfer(accountNumbers[from], accountNumbers[to]);
+                }),
+                new LoadScenario("hot-account-transfers", 40 * scale, random -> {
+                    String account = accountNumbers[random.nextInt(ACCOUNTS)];
+                    String hot = hotAccountNumbers[random.nextInt(HOT_ACCOUNTS)];
+                    return random.nextBoolean() ? transfer(account, hot) : transfer(hot, account);
+                }),
+                new LoadScenario("mixed-read-write", 150 * scale, random -> {
+                    int account = random.nextInt(ACCOUNTS);
+                    int roll = random.nextInt(100);
+                    if (roll < 60) {
+                        return get("/api/transactions/balance?accountNumber=" + accountNumbers[account]);
+                    }
+                    if (roll < 85) {
+                        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+                        return get("/api/transactions?accountId=" + accountIds[account]
+                                + "&from=" + now.minusDays(1) + "&to=" + now + "&size=50");
+                    }
+                    return transfer(accountNumbers[account], accountNumbers[(account + 1) % ACCOUNTS]);
+                }),
+                new LoadScenario("history-export", 0.5 * scale, random -> get("/api/transactions/export?accountId="
+                        + historyAccountId + "&from=" + historyFrom + "&to=" + historyFrom.plusDays(31)))
+        );
+    }
+
+    private HttpRequest transfer(String from, String to) {
+        return HttpRequest.newBuilder(uri("/api/transfer"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"fromAccountNumber":"%s","toAccountNumber":"%s","amount":1.00}""".formatted(from, to)))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private String[] createAccounts(String kind, int count) {
+        jdbcTemplate.update("""
+                INSERT INTO account (account_number, balance)
+                SELECT 'LT' || ? || ? || lpad(i::text, 6, '0'), 1000000.00
+                FROM generate_series(0, ? - 1) AS i
+                """, RUN, kind, count);
+        String[] numbers = new String[count];
+        Arrays.setAll(numbers, i -> accountNumber(kind, i));
+        return numbers;
+    }
+
+    private static String accountNumber(String kind, int index) {
+        return "LT%s%s%06d".formatted(RUN, kind, index);
+    }
+}
@@ -0,0 +1,58 @@
+package org.olegi.testbankapi.load;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Several runs of one scenario: the median of each metric, and how much p99 latency and throughput varied between
+ * the runs, as median absolute deviation over the median, so one outlying run (the first one after startup, say)
+ * does not widen it. A single run of a few thousand requests puts p99 on a dozen samples, so one run is not
+ * compared with another; the medians are, within the noise the runs themselves showed.
+ */
+record LoadSummary(String scenario,
+                   int runs,
+                   LoadResult median,
+                   double p99Variation,
+                   double throughputVariation) {
+
+    static LoadSummary of(List<LoadResult> runs) {
+        LoadResult first = runs.get(0);
+        LoadResult median = new LoadResult(first.scenario(),
+                first.offeredRate(),
+                Math.round(median(runs, LoadResult::requests)),
+                median(runs, LoadResult::throughput),
+                median(runs, LoadResult::p50),
+                median(runs, LoadResult::p99),
+                median(runs, LoadResult::p999),
+                median(runs, LoadResult::errorRate),
+                median(runs, LoadResult::serializationFailureRate));
+        return new LoadSummary(first.scenario(), runs.size(), median,
+                variation(runs, LoadResult::p99), variation(runs, LoadResult::throughput));
+    }
+
+    String format() {
+        return "%s  (median of %d, p99 ±%.0f%%, throughput ±%.0f%%)"
+                .formatted(median.format(), runs, p99Variation * 100, throughputVariation * 100);
+    }
+
+    private static double median(List<LoadResult> runs, ToDoubleFunction<LoadResult> metric) {
+        return median(runs.stream().mapToDouble(metric).toArray());
+    }
+
+    private static double variation(List<LoadResult> runs, ToDoubleFunction<LoadResult> metric) {
+        double median = median(runs, metric);
+        if (median == 0) {
+            return 0;
+        }
+        return median(runs.stream().mapToDouble(run -> Math.abs(metric.applyAsDouble(run) - median)).toArray())
+                / median;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
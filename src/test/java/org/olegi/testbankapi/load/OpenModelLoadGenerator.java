@@ -0,0 +1,105 @@
+package org.olegi.testbankapi.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are sent on a fixed schedule whether or not earlier ones have completed,
+ * as independent clients would send them, and each latency is taken from the request's scheduled time rather
+ * than from when it was actually sent. A closed loop of waiting clients slows down together with the server and
+ * hides exactly the queueing a saturated server causes.
+ * <p>
+ * Requests still in flight at {@code maxInFlight} are not sent and count as errors, which keeps an overloaded run
+ * from piling up unbounded work.
+ */
+class OpenModelLoadGenerator {
+
+    // Status the application answers lock timeouts, deadlocks and serialization failures with.
+    private static final int CONFLICT = 409;
+
+    private final HttpClient client;
+    private final int maxInFlight;
+
+    OpenModelLoadGenerator(HttpClient client, int maxInFlight) {
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+    }
+
+    LoadResult run(LoadScenario scenario, Duration warmup, Duration duration) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / scenario.rate());
+        long warmupRequests = warmup.toNanos() / interval;
+        int measuredRequests = (int) (duration.toNanos() / interval);
+        long[] latencies = new long[measuredRequests];
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong ok = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        SplittableRandom random = new SplittableRandom(scenario.name().hashCode());
+
+        long start = System.nanoTime();
+        for (long i = 0; i < warmupRequests + measuredRequests; i++) {
+            long scheduled = start + i * interval;
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = i >= warmupRequests;
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    errors.incrementAndGet();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            client.sendAsync(scenario.nextRequest().apply(random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        try {
+                            if (!measured) {
+                                return;
+                            }
+                            latencies[recorded.getAndIncrement()] = System.nanoTime() - scheduled;
+                            if (failure != null
+                                    || response.statusCode() >= 300 && response.statusCode() != CONFLICT) {
+                                errors.incrementAndGet();
+                            } else if (response.statusCode() == CONFLICT) {
+                                conflicts.incrementAndGet();
+                            } else {
+                                ok.incrementAndGet();
+                            }
+                        } finally {
+                            // Last, so the drain below seeing zero also sees every latency and count written before.
+                            inFlight.decrementAndGet();
+                        }
+                    });
+        }
+        // Whatever is still running is due by now; give it the request timeout to finish.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        errors.addAndGet(inFlight.get());
+
+        long[] sorted = Arrays.copyOf(latencies, recorded.get());
+        Arrays.sort(sorted);
+        double seconds = duration.toNanos() / 1e9;
+        return new LoadResult(scenario.name(), scenario.rate(), measuredRequests, ok.get() / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                (double) errors.get() / measuredRequests, (double) conflicts.get() / measuredRequests);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,54 @@
+package org.olegi.testbankapi.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BankMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private BankMetrics bankMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        bankMetrics = new BankMetrics(registry);
+    }
+
+    @Test
+    void record_TagsLockFailuresAsConflicts() {
+        assertThatThrownBy(() -> bankMetrics.record("transfer", () -> {
+            throw new CannotAcquireLockException("could not serialize access due to concurrent update");
+        })).isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(registry.get("bank.operation").tags("operation", "transfer", "outcome", "conflict")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void record_TagsInvalidInput() {
+        assertThatThrownBy(() -> bankMetrics.record("deposit", () -> {
+            throw new IllegalArgumentException("Amount must be greater than zero");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(registry.get("bank.operation").tags("operation", "deposit", "outcome", "invalid")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void requestStatementCounter_CountsOnlyBetweenStartAndStop() {
+        RequestStatementCounter counter = new RequestStatementCounter();
+        counter.inspect("select 1");
+
+        counter.start();
+        counter.inspect("select 1");
+        counter.inspect("update account set balance = ?");
+
+        assertThat(counter.stop()).isEqualTo(2);
+        assertThat(counter.stop()).isZero();
+    }
+}
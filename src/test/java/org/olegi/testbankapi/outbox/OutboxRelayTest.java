@@ -0,0 +1,228 @@
+package org.olegi.testbankapi.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.BalanceEventService;
+import org.olegi.testbankapi.service.TransactionService;
+import org.olegi.testbankapi.service.TransferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Testcontainers
+class OutboxRelayTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        // The tests run the relay themselves.
+        registry.add("bank.outbox.enabled", () -> false);
+        registry.add("bank.outbox.batch-size", () -> 50);
+    }
+
+    @TestConfiguration
+    static class ListenerConfig {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener {
+
+        final List<BalanceChangeEventDTO> received = new CopyOnWriteArrayList<>();
+        final AtomicBoolean failNext = new AtomicBoolean();
+
+        @EventListener
+        void on(BalanceChangeEventDTO event) {
+            if (failNext.compareAndSet(true, false)) {
+                throw new IllegalStateException("Listener unavailable");
+            }
+            received.add(event);
+        }
+    }
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private BalanceEventService balanceEventService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account account;
+    private Account other;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM balance_outbox");
+        jdbcTemplate.update("DELETE FROM balance_outbox_offset");
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        listener.received.clear();
+        account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("1000.00"), null));
+        other = accountRepository.save(new Account(null, "0987654321", new BigDecimal("500.00"), null));
+    }
+
+    @Test
+    void committedOperations_ArePublishedInOrderWithConsecutiveSequences() {
+        transactionService.deposit(new DepositDTO("1234567890", new BigDecimal("100.00")));
+        transactionService.withdraw(new WithdrawDTO("1234567890", new BigDecimal("30.00")));
+        transferService.transferMoney(new TransferRequestDTO("1234567890", "0987654321", new BigDecimal("70.00")));
+        assertThatThrownBy(() -> transactionService.withdraw(new WithdrawDTO("0987654321", new BigDecimal("9999.00"))))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        assertThat(outboxRelay.relay()).isEqualTo(4);
+
+        List<BalanceChangeEventDTO> received = listener.received;
+        assertThat(received).extracting(BalanceChangeEventDTO::getSequence).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(received).extracting(BalanceChangeEventDTO::getAccountNumber)
+                .containsExactly("1234567890", "1234567890", "1234567890", "0987654321");
+        assertThat(received).extracting(BalanceChangeEventDTO::getTransactionType)
+                .containsExactly(TransactionTypes.DEPOSIT, TransactionTypes.WITHDRAW, TransactionTypes.TRANSFER,
+                        TransactionTypes.TRANSFER_IN);
+        assertThat(received).extracting(event -> event.getBalanceAfter().toPlainString())
+                .containsExactly("1100.00", "1070.00", "1000.00", "570.00");
+        assertThat(received.get(2).getTransferId()).isNotNull().isEqualTo(received.get(3).getTransferId());
+        assertThat(received.get(3).getAccountId()).isEqualTo(other.getId());
+
+        // The rolled-back withdrawal left no event, and nothing is published twice.
+        assertThat(outboxRelay.relay()).isZero();
+        assertThat(received).hasSize(4);
+    }
+
+    @Test
+    void failedPublication_IsRepeatedWithTheSameSequences() {
+        transactionService.deposit(new DepositDTO("1234567890", new BigDecimal("1.00")));
+        transactionService.deposit(new DepositDTO("1234567890", new BigDecimal("2.00")));
+        listener.failNext.set(true);
+
+        assertThatThrownBy(() -> outboxRelay.relay()).isInstanceOf(IllegalStateException.class);
+        transactionService.deposit(new DepositDTO("0987654321", new BigDecimal("3.00")));
+        assertThat(outboxRelay.relay()).isEqualTo(3);
+
+        // The deposit written after the failure does not take over a sequence handed out before it.
+        assertThat(listener.received).extracting(BalanceChangeEventDTO::getSequence).containsExactly(1L, 2L, 3L);
+        assertThat(listener.received).extracting(event -> event.getAmount().toPlainString())
+                .containsExactly("1.00", "2.00", "3.00");
+    }
+
+    @Test
+    void concurrentDeposits_KeepTheSequenceGaplessAndEachAccountInOrder() throws Exception {
+        try (ExecutorService callers = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> deposits = new ArrayList<>();
+            for (int i = 0; i < 80; i++) {
+                String accountNumber = i % 2 == 0 ? "1234567890" : "0987654321";
+                deposits.add(callers.submit(() -> transactionService.deposit(
+                        new DepositDTO(accountNumber, new BigDecimal("1.00")))));
+            }
+            for (Future<?> deposit : deposits) {
+                deposit.get(1, TimeUnit.MINUTES);
+            }
+        }
+
+        while (outboxRelay.relay() > 0) {
+            // Batches of 50.
+        }
+
+        assertThat(listener.received).extracting(BalanceChangeEventDTO::getSequence)
+                .containsExactlyElementsOf(LongStream.rangeClosed(1, 80).boxed().toList());
+        assertThat(listener.received.stream()
+                .filter(event -> event.getAccountId().equals(account.getId()))
+                .map(BalanceChangeEventDTO::getBalanceAfter)
+                .toList())
+                .isSortedAccordingTo(BigDecimal::compareTo)
+                .hasSize(40)
+                .last().satisfies(balance -> assertThat(balance).isEqualByComparingTo("1040.00"));
+    }
+
+    @Test
+    void getEvents_ResumesAfterTheGivenSequence() {
+        for (int i = 1; i <= 5; i++) {
+            transactionService.deposit(new DepositDTO("1234567890", BigDecimal.valueOf(i)));
+        }
+        outboxRelay.relay();
+
+        assertThat(balanceEventService.getEvents(3, 10)).extracting(BalanceChangeEventDTO::getSequence)
+                .containsExactly(4L, 5L);
+        assertThat(balanceEventService.getEvents(0, 2)).extracting(BalanceChangeEventDTO::getSequence)
+                .containsExactly(1L, 2L);
+        assertThatThrownBy(() -> balanceEventService.getEvents(0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deletePublished_KeepsUnpublishedEventsAndTheNewestSequence() {
+        for (int i = 1; i <= 3; i++) {
+            transactionService.deposit(new DepositDTO("1234567890", BigDecimal.valueOf(i)));
+        }
+        outboxRelay.relay();
+        transactionService.deposit(new DepositDTO("1234567890", new BigDecimal("4.00")));
+        jdbcTemplate.update("UPDATE balance_outbox SET time_stamp = ?", LocalDateTime.now().minusYears(1));
+
+        // Events 1 and 2 go; 3 carries the last sequence, the fourth deposit is not published yet.
+        assertThat(balanceEventService.deletePublished()).isEqualTo(2);
+
+        outboxRelay.relay();
+        assertThat(listener.received).extracting(BalanceChangeEventDTO::getSequence).containsExactly(1L, 2L, 3L, 4L);
+    }
+}
@@ -0,0 +1,83 @@
+package org.olegi.testbankapi.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.olegi.testbankapi.config.OutboxProperties;
+import org.olegi.testbankapi.dto.BalanceChangeEventDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboxSinkTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void fileSink_AppendsOneLinePerEvent() throws IOException {
+        OutboxProperties properties = new OutboxProperties();
+        properties.getFile().setPath(directory.resolve("events/balance-events.ndjson").toString());
+        FileOutboxSink sink = new FileOutboxSink(properties, objectMapper);
+
+        sink.publish(List.of(event(1), event(2)));
+        sink.publish(List.of(event(3)));
+        sink.destroy();
+
+        List<String> lines = Files.readAllLines(Path.of(properties.getFile().getPath()));
+        assertThat(lines).hasSize(3);
+        assertThat(lines).extracting(line -> objectMapper.readValue(line, BalanceChangeEventDTO.class).getSequence())
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void webhookSink_PostsTheBatchAndFailsOnAnErrorStatus() throws IOException {
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        AtomicInteger status = new AtomicInteger(204);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/balance-events", exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes()));
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            OutboxProperties properties = new OutboxProperties();
+            properties.getWebhook().setUrl("http://localhost:" + server.getAddress().getPort() + "/balance-events");
+            WebhookOutboxSink sink = new WebhookOutboxSink(properties, objectMapper);
+
+            sink.publish(List.of(event(1), event(2)));
+            status.set(500);
+            assertThatThrownBy(() -> sink.publish(List.of(event(3))))
+                    .isInstanceOf(HttpServerErrorException.class);
+        } finally {
+            server.stop(0);
+        }
+
+        assertThat(bodies).hasSize(2);
+        assertThat(objectMapper.readValue(bodies.get(0), BalanceChangeEventDTO[].class))
+                .extracting(BalanceChangeEventDTO::getSequence)
+                .containsExactly(1L, 2L);
+    }
+
+    private static BalanceChangeEventDTO event(long sequence) {
+        return new BalanceChangeEventDTO(sequence, sequence, 1L, "1234567890", TransactionTypes.DEPOSIT,
+                new BigDecimal("10.00"), BigDecimal.valueOf(1000 + sequence * 10), null, LocalDateTime.now());
+    }
+}
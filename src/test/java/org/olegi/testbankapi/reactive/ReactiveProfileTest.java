@@ -0,0 +1,264 @@
+package org.olegi.testbankapi.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.QueuedTransferDTO;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.QueuedTransferStatus;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@Testcontainers
+class ReactiveProfileTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+    }
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account account;
+    private Account other;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM queued_transfer");
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("1000.00"), null));
+        other = accountRepository.save(new Account(null, "0987654321", new BigDecimal("500.00"), null));
+    }
+
+    @Test
+    void depositAndWithdraw_UpdateTheBalanceAndRecordTheRows() {
+        webTestClient.post().uri("/api/transactions/deposit")
+                .bodyValue(new DepositDTO("1234567890", new BigDecimal("200.00")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AccountDTO.class)
+                .value(updated -> assertThat(updated.getBalance()).isEqualByComparingTo("1200.00"));
+        webTestClient.post().uri("/api/transactions/withdraw")
+                .bodyValue(new WithdrawDTO("1234567890", new BigDecimal("50.00")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AccountDTO.class)
+                .value(updated -> assertThat(updated.getBalance()).isEqualByComparingTo("1150.00"));
+
+        webTestClient.get().uri("/api/transactions/balance?accountNumber=1234567890")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BigDecimal.class)
+                .value(balance -> assertThat(balance).isEqualByComparingTo("1150.00"));
+        assertThat(history(account, 10)).extracting(TransactionDTO::getTransactionType)
+                .containsExactly(TransactionTypes.DEPOSIT, TransactionTypes.WITHDRAW);
+    }
+
+    @Test
+    void withdraw_InsufficientFunds_ReturnsBadRequestAndKeepsTheBalance() {
+        webTestClient.post().uri("/api/transactions/withdraw")
+                .bodyValue(new WithdrawDTO("1234567890", new BigDecimal("5000.00")))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        assertThat(accountRepository.findById(account.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo("1000.00");
+        assertThat(history(account, 10)).isEmpty();
+    }
+
+    @Test
+    void deposit_UnknownAccount_ReturnsNotFound() {
+        webTestClient.post().uri("/api/transactions/deposit")
+                .bodyValue(new DepositDTO("5555555555", new BigDecimal("10.00")))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void transferMoney_MovesTheAmountAndRecordsBothLegs() {
+        webTestClient.post().uri("/api/transfer")
+                .bodyValue(new TransferRequestDTO("1234567890", "0987654321", new BigDecimal("300.00")))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(accountRepository.findById(account.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo("700.00");
+        assertThat(accountRepository.findById(other.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo("800.00");
+        List<TransactionDTO> out = history(account, 10);
+        List<TransactionDTO> in = history(other, 10);
+        assertThat(out).singleElement().satisfies(leg -> {
+            assertThat(leg.getTransactionType()).isEqualTo(TransactionTypes.TRANSFER);
+            assertThat(leg.getBalanceAfter()).isEqualByComparingTo("700.00");
+        });
+        assertThat(in).singleElement().satisfies(leg -> {
+            assertThat(leg.getTransactionType()).isEqualTo(TransactionTypes.TRANSFER_IN);
+            assertThat(leg.getBalanceAfter()).isEqualByComparingTo("800.00");
+            assertThat(leg.getTransferId()).isEqualTo(out.get(0).getTransferId());
+        });
+    }
+
+    @Test
+    void transferMoney_InsufficientFunds_ChangesNothing() {
+        webTestClient.post().uri("/api/transfer")
+                .bodyValue(new TransferRequestDTO("0987654321", "1234567890", new BigDecimal("600.00")))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        assertThat(accountRepository.findById(other.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo("500.00");
+        assertThat(history(other, 10)).isEmpty();
+    }
+
+    @Test
+    void transferAsync_IsAcceptedThenCompletedByTheWorkers() throws InterruptedException {
+        UUID id = webTestClient.post().uri("/api/transfer?async=true")
+                .bodyValue(new TransferRequestDTO("1234567890", "0987654321", new BigDecimal("300.00")))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(QueuedTransferDTO.class)
+                .returnResult().getResponseBody().getId();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        QueuedTransferStatus status;
+        do {
+            Thread.sleep(20);
+            status = webTestClient.get().uri("/api/transfer/{id}", id)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(QueuedTransferDTO.class)
+                    .returnResult().getResponseBody().getStatus();
+        } while (status == QueuedTransferStatus.PENDING && System.nanoTime() < deadline);
+
+        assertThat(status).isEqualTo(QueuedTransferStatus.COMPLETED);
+        assertThat(accountRepository.findById(account.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo("700.00");
+        webTestClient.get().uri("/api/transfer/{id}", UUID.randomUUID())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getOperationsHistory_PagesWithTheCursorHeader() {
+        for (int i = 1; i <= 3; i++) {
+            webTestClient.post().uri("/api/transactions/deposit")
+                    .bodyValue(new DepositDTO("1234567890", BigDecimal.valueOf(i)))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        String cursor = webTestClient.get().uri(historyUri(account, 2))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(ReactiveTransactionController.NEXT_CURSOR_HEADER)
+                .expectBodyList(TransactionDTO.class).hasSize(2)
+                .returnResult().getResponseHeaders().getFirst(ReactiveTransactionController.NEXT_CURSOR_HEADER);
+        webTestClient.get().uri(historyUri(account, 2) + "&cursor=" + cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(ReactiveTransactionController.NEXT_CURSOR_HEADER)
+                .expectBodyList(TransactionDTO.class)
+                .value(rows -> assertThat(rows).singleElement()
+                        .satisfies(row -> assertThat(row.getAmount()).isEqualByComparingTo("3")));
+    }
+
+    @Test
+    void getOperationsHistory_PageSizeOutOfRange_ReturnsBadRequest() {
+        webTestClient.get().uri(historyUri(account, 0))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamOperationsHistory_StreamsEveryRowInOrder() {
+        for (int i = 1; i <= 5; i++) {
+            webTestClient.post().uri("/api/transactions/deposit")
+                    .bodyValue(new DepositDTO("1234567890", BigDecimal.valueOf(i)))
+                    .exchange()
+                    .expectStatus().isOk();
+        }
+
+        List<TransactionDTO> streamed = webTestClient.get()
+                .uri("/api/transactions/stream?accountId={id}&from={from}&to={to}", account.getId(), FROM, TO)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(TransactionDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(streamed).extracting(row -> row.getAmount().intValue()).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void streamOperationsHistory_UnknownAccount_ReturnsNotFound() {
+        webTestClient.get()
+                .uri("/api/transactions/stream?accountId={id}&from={from}&to={to}", -1, FROM, TO)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private List<TransactionDTO> history(Account of, int size) {
+        return webTestClient.get().uri(historyUri(of, size))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionDTO.class)
+                .returnResult().getResponseBody();
+    }
+
+    private static String historyUri(Account of, int size) {
+        return "/api/transactions?accountId=" + of.getId() + "&from=" + FROM + "&to=" + TO + "&size=" + size;
+    }
+}
@@ -0,0 +1,131 @@
+package org.olegi.testbankapi.reactive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.ReactiveProperties;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.metrics.BankMetrics;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveTransactionServiceImplTest {
+
+    private static final long ACCOUNT_ID = 1L;
+    private static final LocalDateTime FROM = LocalDateTime.parse("2024-01-01T00:00:00");
+    private static final LocalDateTime TO = LocalDateTime.parse("2024-06-30T00:00:00");
+    private static final LocalDateTime JANUARY_END = LocalDateTime.parse("2024-01-31T12:00:00");
+    private static final LocalDateTime FEBRUARY_END = LocalDateTime.parse("2024-02-29T12:00:00");
+
+    @Mock
+    private ReactiveAccountRepository accountRepository;
+
+    @Mock
+    private ReactiveTransactionRepository transactionRepository;
+
+    @Mock
+    private AccountCache accountCache;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Mock
+    private BankMetrics bankMetrics;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    private ReactiveTransactionServiceImpl reactiveTransactionService;
+
+    @BeforeEach
+    void setUp() {
+        reactiveTransactionService = new ReactiveTransactionServiceImpl(accountRepository, transactionRepository,
+                Mappers.getMapper(TransactionMapper.class), new TransactionProperties(), new ReactiveProperties(),
+                accountCache, transactionArchive, bankMetrics, transactionalOperator);
+        when(accountRepository.existsById(ACCOUNT_ID)).thenReturn(Mono.just(true));
+    }
+
+    @Test
+    void streamOperationHistory_ArchivedRowsThenTheTableAfterTheArchive() {
+        when(transactionArchive.archivedUpTo()).thenReturn(JANUARY_END);
+        when(transactionArchive.findHistoryPage(eq(ACCOUNT_ID), eq(FROM), eq(JANUARY_END), any(), anyLong(), anyInt()))
+                .thenReturn(List.of(row(1, "10.00", "2024-01-10T10:00:00")));
+        when(transactionRepository.findHistory(eq(ACCOUNT_ID), eq(JANUARY_END.plusNanos(1_000)), eq(TO), any(),
+                anyLong(), isNull()))
+                .thenReturn(Flux.just(row(5, "20.00", "2024-03-01T10:00:00")));
+
+        List<TransactionDTO> rows = stream();
+
+        assertEquals(List.of(new BigDecimal("10.00"), new BigDecimal("20.00")),
+                rows.stream().map(TransactionDTO::getAmount).toList());
+    }
+
+    @Test
+    void streamOperationHistory_StartsOverWhenTheArchiveMovesBeforeTheFirstRow() {
+        // February was archived, and its partition dropped, while the first table query was being planned.
+        when(transactionArchive.archivedUpTo()).thenReturn(JANUARY_END, FEBRUARY_END);
+        AtomicBoolean staleQueryCancelled = new AtomicBoolean();
+        when(transactionRepository.findHistory(eq(ACCOUNT_ID), eq(JANUARY_END.plusNanos(1_000)), eq(TO), any(),
+                anyLong(), isNull()))
+                .thenReturn(Flux.just(row(5, "20.00", "2024-03-01T10:00:00"))
+                        .doOnCancel(() -> staleQueryCancelled.set(true)));
+        when(transactionRepository.findHistory(eq(ACCOUNT_ID), eq(FEBRUARY_END.plusNanos(1_000)), eq(TO), any(),
+                anyLong(), isNull()))
+                .thenReturn(Flux.just(row(5, "20.00", "2024-03-01T10:00:00")));
+        when(transactionArchive.findHistoryPage(eq(ACCOUNT_ID), eq(FROM), eq(FEBRUARY_END), any(), anyLong(), anyInt()))
+                .thenReturn(List.of(row(1, "10.00", "2024-01-10T10:00:00"), row(3, "15.00", "2024-02-10T10:00:00")));
+
+        List<TransactionDTO> rows = stream();
+
+        assertEquals(List.of(new BigDecimal("10.00"), new BigDecimal("15.00"), new BigDecimal("20.00")),
+                rows.stream().map(TransactionDTO::getAmount).toList());
+        assertTrue(staleQueryCancelled.get());
+        verify(transactionArchive, never())
+                .findHistoryPage(eq(ACCOUNT_ID), eq(FROM), eq(JANUARY_END), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void streamOperationHistory_ReadsOnlyTheTableWhileNothingIsArchived() {
+        when(transactionRepository.findHistory(eq(ACCOUNT_ID), eq(FROM), eq(TO), any(), anyLong(), isNull()))
+                .thenReturn(Flux.just(row(5, "20.00", "2024-03-01T10:00:00")));
+
+        assertEquals(1, stream().size());
+        verify(transactionArchive, never()).findHistoryPage(anyLong(), any(), any(), any(), anyLong(), anyInt());
+    }
+
+    private List<TransactionDTO> stream() {
+        return reactiveTransactionService.streamOperationHistory(ACCOUNT_ID, FROM, TO, null).collectList().block();
+    }
+
+    private static TransactionHistoryRow row(long id, String amount, String timeStamp) {
+        return new TransactionHistoryRow(id, new BigDecimal(amount), LocalDateTime.parse(timeStamp),
+                TransactionTypes.DEPOSIT, null, null);
+    }
+}
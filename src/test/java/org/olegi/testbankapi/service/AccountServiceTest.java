@@ -3,13 +3,19 @@ package org.olegi.testbankapi.service;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.AccountCacheProperties;
 import org.olegi.testbankapi.dto.AccountDTO;
 import org.olegi.testbankapi.exceptions.AccountAlreadyExistsException;
 import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
 import org.olegi.testbankapi.mapper.AccountMapper;
 import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountBalanceView;
 import org.olegi.testbankapi.repository.AccountRepository;
 import org.olegi.testbankapi.service.impl.AccountServiceImpl;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -23,6 +29,7 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 @SpringBootTest
@@ -47,6 +54,10 @@ class AccountServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private AccountMapper accountMapper;
+    @Mock
+    private LedgerEngine ledgerEngine;
+    @Spy
+    private AccountCache accountCache = new AccountCache(new AccountCacheProperties());
     @InjectMocks
     private AccountServiceImpl accountService;
     private Account account;
@@ -104,17 +115,85 @@ class AccountServiceTest {
         assertEquals(accountDTO, result);
     }
 
+    @Test
+    void getAccountInfo_ReloadedAfterDelete() {
+        when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
+        when(accountMapper.accountToAccountDTO(account)).thenReturn(accountDTO);
+        when(accountRepository.existsByAccountNumber(account.getAccountNumber())).thenReturn(true);
+
+        accountService.getAccountInfo(account.getAccountNumber());
+        accountService.getAccountInfo(account.getAccountNumber());
+        verify(accountRepository, times(1)).findByAccountNumber(account.getAccountNumber());
+
+        accountService.deleteAccount(account.getAccountNumber());
+        when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.empty());
+        assertThrows(AccountNotFoundException.class, () -> accountService.getAccountInfo(account.getAccountNumber()));
+    }
+
     @Test
     void getAccountInfo_AccountNotFound() {
         when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.empty());
         assertThrows(AccountNotFoundException.class, () -> accountService.getAccountInfo(account.getAccountNumber()));
     }
 
+    @Test
+    void getAccountInfo_StripedAccount_ReturnsTotalBalance() {
+        account.setBalanceSlots(4);
+        AccountBalanceView total = mock(AccountBalanceView.class);
+        when(total.getBalance()).thenReturn(BigDecimal.valueOf(1750));
+        when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
+        when(accountMapper.accountToAccountDTO(account)).thenReturn(accountDTO);
+        when(accountRepository.findBalanceByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(total));
+
+        AccountDTO result = accountService.getAccountInfo(account.getAccountNumber());
+
+        assertEquals(BigDecimal.valueOf(1750), result.getBalance());
+    }
+
+    @Test
+    void setBalanceSlots_FoldsThenCreatesSlots() {
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(account.getAccountNumber())))
+                .thenReturn(List.of(account));
+
+        accountService.setBalanceSlots(account.getAccountNumber(), 8);
+
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).foldBalanceSlots(account.getId());
+        inOrder.verify(accountRepository).createBalanceSlots(account.getId(), 8);
+    }
+
+    @Test
+    void setBalanceSlots_Zero_OnlyFolds() {
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(account.getAccountNumber())))
+                .thenReturn(List.of(account));
+
+        accountService.setBalanceSlots(account.getAccountNumber(), 0);
+
+        verify(accountRepository).foldBalanceSlots(account.getId());
+        verify(accountRepository, never()).createBalanceSlots(anyLong(), anyInt());
+    }
+
+    @Test
+    void setBalanceSlots_OutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> accountService.setBalanceSlots(account.getAccountNumber(), -1));
+        assertThrows(IllegalArgumentException.class, () -> accountService.setBalanceSlots(account.getAccountNumber(), 257));
+        verify(accountRepository, never()).foldBalanceSlots(anyLong());
+    }
+
+    @Test
+    void setBalanceSlots_AccountNotFound() {
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(account.getAccountNumber())))
+                .thenReturn(List.of());
+
+        assertThrows(AccountNotFoundException.class, () -> accountService.setBalanceSlots(account.getAccountNumber(), 4));
+    }
+
     @Test
     void deleteAccount_Success() {
         when(accountRepository.existsByAccountNumber(account.getAccountNumber())).thenReturn(true);
         accountService.deleteAccount(account.getAccountNumber());
         verify(accountRepository, times(1)).deleteByAccountNumber(account.getAccountNumber());
+        verify(ledgerEngine).evictAfterCommit(account.getAccountNumber());
     }
 
     @Test
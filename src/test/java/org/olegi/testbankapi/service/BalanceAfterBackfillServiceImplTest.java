@@ -0,0 +1,139 @@
+package org.olegi.testbankapi.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+class BalanceAfterBackfillServiceImplTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("bank.balance-after-backfill.enabled", () -> false);
+        registry.add("bank.balance-after-backfill.chunk-size", () -> 2);
+    }
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Autowired
+    private BalanceAfterBackfillService balanceAfterBackfillService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        // Opened with 1000.00, then +100.00, -30.00, -20.00 and +5.00, all written without a balance.
+        account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("1055.00"), null));
+        save("100.00", TransactionTypes.DEPOSIT, 0, null);
+        save("30.00", TransactionTypes.WITHDRAW, 1, null);
+        save("20.00", TransactionTypes.TRANSFER, 2, null);
+        save("5.00", TransactionTypes.DEPOSIT, 3, null);
+    }
+
+    @Test
+    void backfill_WithoutNewerRows_WorksBackFromCurrentBalance() {
+        assertThat(balanceAfterBackfillService.backfill()).isEqualTo(4);
+
+        assertThat(balancesAfter()).containsExactly(
+                new BigDecimal("1100.00"), new BigDecimal("1070.00"), new BigDecimal("1050.00"), new BigDecimal("1055.00"));
+        assertThat(balanceAfterBackfillService.backfill()).isZero();
+    }
+
+    @Test
+    void backfill_WithNewerRow_WorksBackFromItsBalance() {
+        // A row written with its balance, followed by a balance change that has no row.
+        save("45.00", TransactionTypes.DEPOSIT, 4, "1100.00");
+        jdbcTemplate.update("UPDATE account SET balance = 5000.00 WHERE id = ?", account.getId());
+
+        assertThat(balanceAfterBackfillService.backfill()).isEqualTo(4);
+
+        assertThat(balancesAfter()).containsExactly(new BigDecimal("1100.00"), new BigDecimal("1070.00"),
+                new BigDecimal("1050.00"), new BigDecimal("1055.00"), new BigDecimal("1100.00"));
+    }
+
+    @Test
+    void backfill_SeveralAccounts_FillsEach() {
+        Account other = accountRepository.save(new Account(null, "0987654321", new BigDecimal("7.00"), null));
+        transactionRepository.save(new Transaction(null, new BigDecimal("3.00"), START, TransactionTypes.WITHDRAW, null, null, other));
+
+        assertThat(balanceAfterBackfillService.backfill()).isEqualTo(5);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT balance_after FROM transaction WHERE account_id = ?",
+                BigDecimal.class, other.getId())).isEqualByComparingTo("7.00");
+    }
+
+    @Test
+    void backfill_StripedAccount_FillsRowsWrittenWithoutABalance() {
+        accountService.setBalanceSlots("1234567890", 4);
+        for (int i = 0; i < 3; i++) {
+            transactionService.deposit(new DepositDTO("1234567890", new BigDecimal("1.00")));
+        }
+        transactionService.withdraw(new WithdrawDTO("1234567890", new BigDecimal("10.00")));
+        assertThat(balancesAfter()).containsOnlyNulls();
+
+        assertThat(balanceAfterBackfillService.backfill()).isEqualTo(8);
+
+        assertThat(balancesAfter()).containsExactly(new BigDecimal("1100.00"), new BigDecimal("1070.00"),
+                new BigDecimal("1050.00"), new BigDecimal("1055.00"), new BigDecimal("1056.00"),
+                new BigDecimal("1057.00"), new BigDecimal("1058.00"), new BigDecimal("1048.00"));
+    }
+
+    private void save(String amount, TransactionTypes type, int hours, String balanceAfter) {
+        transactionRepository.save(new Transaction(null, new BigDecimal(amount), START.plusHours(hours), type,
+                balanceAfter == null ? null : new BigDecimal(balanceAfter), null, account));
+    }
+
+    private List<BigDecimal> balancesAfter() {
+        return jdbcTemplate.queryForList("SELECT balance_after FROM transaction WHERE account_id = ? ORDER BY time_stamp, id",
+                BigDecimal.class, account.getId());
+    }
+}
@@ -0,0 +1,117 @@
+package org.olegi.testbankapi.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Testcontainers
+class BalanceSnapshotServiceImplTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("bank.balance-snapshot.enabled", () -> false);
+    }
+
+    private static final LocalDateTime DEPOSITED = LocalDateTime.of(2024, 3, 1, 10, 0);
+    private static final LocalDateTime WITHDRAWN = LocalDateTime.of(2024, 3, 2, 10, 0);
+    private static final LocalDateTime TRANSFERRED = LocalDateTime.of(2024, 3, 3, 10, 0);
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        // Opened with 1000.00, then +100.00, -30.00 and a 20.00 transfer out.
+        Account account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("1050.00"), null));
+        transactionRepository.save(new Transaction(null, new BigDecimal("100.00"), DEPOSITED, TransactionTypes.DEPOSIT, null, null, account));
+        transactionRepository.save(new Transaction(null, new BigDecimal("30.00"), WITHDRAWN, TransactionTypes.WITHDRAW, null, null, account));
+        transactionRepository.save(new Transaction(null, new BigDecimal("20.00"), TRANSFERRED, TransactionTypes.TRANSFER, null, null, account));
+    }
+
+    @Test
+    void getBalanceAt_WithoutSnapshots_WorksBackFromCurrentBalance() {
+        assertThat(balanceAt(DEPOSITED.minusSeconds(1))).isEqualByComparingTo("1000.00");
+        assertThat(balanceAt(DEPOSITED)).isEqualByComparingTo("1100.00");
+        assertThat(balanceAt(WITHDRAWN.plusHours(1))).isEqualByComparingTo("1070.00");
+        assertThat(balanceAt(LocalDateTime.now().plusDays(1))).isEqualByComparingTo("1050.00");
+    }
+
+    @Test
+    void takeSnapshots_OnlyAccountsChangedSinceTheirLastSnapshot() {
+        accountRepository.save(new Account(null, "0987654321", new BigDecimal("5.00"), null));
+
+        assertThat(balanceSnapshotService.takeSnapshots(WITHDRAWN)).isEqualTo(2);
+        assertThat(balanceSnapshotService.takeSnapshots(WITHDRAWN)).isZero();
+        assertThat(balanceSnapshotService.takeSnapshots(WITHDRAWN.plusHours(12))).isZero();
+        assertThat(balanceSnapshotService.takeSnapshots(TRANSFERRED)).isEqualTo(1);
+
+        assertThat(jdbcTemplate.queryForObject("""
+                SELECT s.balance FROM account_balance_snapshot s JOIN account a ON a.id = s.account_id
+                WHERE a.account_number = '1234567890' AND s.taken_at = ?
+                """, BigDecimal.class, WITHDRAWN)).isEqualByComparingTo("1070.00");
+    }
+
+    @Test
+    void getBalanceAt_StartsFromNearestSnapshot() {
+        balanceSnapshotService.takeSnapshots(WITHDRAWN);
+        // Marks the snapshot so the answers show which starting point was used.
+        jdbcTemplate.update("UPDATE account_balance_snapshot SET balance = balance + 0.01");
+
+        assertThat(balanceAt(WITHDRAWN.plusHours(1))).isEqualByComparingTo("1070.01");
+        assertThat(balanceAt(DEPOSITED.plusHours(1))).isEqualByComparingTo("1100.01");
+        assertThat(balanceAt(TRANSFERRED.plusHours(1))).isEqualByComparingTo("1050.01");
+        assertThat(balanceAt(LocalDateTime.now())).isEqualByComparingTo("1050.00");
+    }
+
+    @Test
+    void getBalanceAt_UnknownAccount_Throws() {
+        assertThatThrownBy(() -> balanceSnapshotService.getBalanceAt("0000000000", WITHDRAWN))
+                .isInstanceOf(AccountNotFoundException.class);
+    }
+
+    private BigDecimal balanceAt(LocalDateTime at) {
+        return balanceSnapshotService.getBalanceAt("1234567890", at).getBalance();
+    }
+}
@@ -0,0 +1,198 @@
+package org.olegi.testbankapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.AccountCacheProperties;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.exceptions.BalanceUpdateRolledBackException;
+import org.olegi.testbankapi.exceptions.InsufficientFundsException;
+import org.olegi.testbankapi.metrics.BankMetrics;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.impl.BalanceUpdateCoalescer;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceUpdateCoalescerTest {
+
+    private static final String ACCOUNT_NUMBER = "1234567890";
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Transaction>> recordedCaptor;
+
+    private TransactionProperties transactionProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceUpdateCoalescer coalescer;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        account = new Account(1L, ACCOUNT_NUMBER, new BigDecimal("1000.00"), null);
+        transactionProperties = new TransactionProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new BalanceUpdateCoalescer(accountRepository, transactionRepository, transactionProperties,
+                new AccountCache(new AccountCacheProperties()), new BankMetrics(meterRegistry), transactionManager);
+    }
+
+    @Test
+    void concurrentOperations_AreAppliedInOneCommit() throws Exception {
+        transactionProperties.getCoalescing().setWindow(Duration.ofSeconds(1));
+        transactionProperties.getCoalescing().setMaxBatchSize(5);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER))).thenReturn(List.of(account));
+
+        List<AccountDTO> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newFixedThreadPool(5)) {
+            List<Future<AccountDTO>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(callers.submit(() -> coalescer.deposit(ACCOUNT_NUMBER, new BigDecimal("10.00"))));
+            }
+            for (Future<AccountDTO> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        verify(accountRepository, times(1)).findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER));
+        verify(accountRepository, times(1)).save(account);
+        verify(transactionRepository, times(1)).saveAll(recordedCaptor.capture());
+        assertThat(recordedCaptor.getValue()).extracting(Transaction::getBalanceAfter)
+                .containsExactly(new BigDecimal("1010.00"), new BigDecimal("1020.00"), new BigDecimal("1030.00"),
+                        new BigDecimal("1040.00"), new BigDecimal("1050.00"));
+        // Every caller gets the balance right after its own deposit.
+        assertThat(results).extracting(AccountDTO::getBalance).containsExactlyInAnyOrder(
+                new BigDecimal("1010.00"), new BigDecimal("1020.00"), new BigDecimal("1030.00"),
+                new BigDecimal("1040.00"), new BigDecimal("1050.00"));
+        assertThat(account.getBalance()).isEqualByComparingTo("1050.00");
+        assertThat(meterRegistry.get("bank.coalesced.batch.size").summary().max()).isEqualTo(5.0);
+    }
+
+    @Test
+    void withdrawals_AreCheckedInArrivalOrder() throws Exception {
+        transactionProperties.getCoalescing().setWindow(Duration.ofSeconds(5));
+        transactionProperties.getCoalescing().setMaxBatchSize(3);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER))).thenReturn(List.of(account));
+
+        try (ExecutorService callers = Executors.newFixedThreadPool(3)) {
+            Future<AccountDTO> first = callers.submit(() -> coalescer.withdraw(ACCOUNT_NUMBER, new BigDecimal("800.00")));
+            Thread.sleep(100);
+            Future<AccountDTO> second = callers.submit(() -> coalescer.withdraw(ACCOUNT_NUMBER, new BigDecimal("300.00")));
+            Thread.sleep(100);
+            Future<AccountDTO> third = callers.submit(() -> coalescer.deposit(ACCOUNT_NUMBER, new BigDecimal("500.00")));
+
+            assertThat(first.get(10, TimeUnit.SECONDS).getBalance()).isEqualByComparingTo("200.00");
+            // Only the deposit that arrived after it would have covered the second withdrawal.
+            assertThatThrownBy(() -> second.get(10, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(InsufficientFundsException.class);
+            assertThat(third.get(10, TimeUnit.SECONDS).getBalance()).isEqualByComparingTo("700.00");
+        }
+
+        verify(transactionRepository).saveAll(recordedCaptor.capture());
+        assertThat(recordedCaptor.getValue()).extracting(Transaction::getTransactionType)
+                .containsExactly(TransactionTypes.WITHDRAW, TransactionTypes.DEPOSIT);
+        assertThat(account.getBalance()).isEqualByComparingTo("700.00");
+    }
+
+    @Test
+    void fullBatch_IsAppliedWithoutWaitingOutTheWindow() {
+        transactionProperties.getCoalescing().setWindow(Duration.ofMinutes(1));
+        transactionProperties.getCoalescing().setMaxBatchSize(1);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER))).thenReturn(List.of(account));
+
+        long start = System.nanoTime();
+        AccountDTO updated = coalescer.deposit(ACCOUNT_NUMBER, new BigDecimal("5.00"));
+
+        assertThat(updated.getBalance()).isEqualByComparingTo("1005.00");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void withdraw_StripedAccount_SweepsSlotsOnTopOfEarlierOperations() {
+        transactionProperties.getCoalescing().setMaxBatchSize(1);
+        Account striped = new Account(1L, ACCOUNT_NUMBER, new BigDecimal("100.00"), null, 4);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER))).thenReturn(List.of(striped));
+        when(accountRepository.sumBalanceSlots(1L)).thenReturn(new BigDecimal("500.00"));
+        when(accountRepository.sweepBalanceSlots(1L)).thenReturn(new BigDecimal("600.00"));
+
+        AccountDTO updated = coalescer.withdraw(ACCOUNT_NUMBER, new BigDecimal("400.00"));
+
+        assertThat(updated.getBalance()).isEqualByComparingTo("200.00");
+        assertThat(striped.getBalance()).isEqualByComparingTo("200.00");
+        verify(transactionRepository).saveAll(recordedCaptor.capture());
+        assertThat(recordedCaptor.getValue()).extracting(Transaction::getBalanceAfter).containsOnlyNulls();
+        assertThat(meterRegistry.get("bank.operation.retries").tag("reason", "balance_slots_swept").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void missingAccount_FailsTheWholeBatch() {
+        transactionProperties.getCoalescing().setMaxBatchSize(1);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER))).thenReturn(List.of());
+
+        assertThatThrownBy(() -> coalescer.deposit(ACCOUNT_NUMBER, new BigDecimal("5.00")))
+                .isInstanceOf(AccountNotFoundException.class);
+        verify(transactionRepository, times(0)).saveAll(recordedCaptor.capture());
+    }
+
+    @Test
+    void failedBatch_TellsCallersItWasRolledBack() {
+        transactionProperties.getCoalescing().setMaxBatchSize(1);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER))).thenReturn(List.of(account));
+        QueryTimeoutException timeout = new QueryTimeoutException("canceling statement due to statement timeout");
+        when(transactionRepository.saveAll(any())).thenThrow(timeout);
+
+        assertThatThrownBy(() -> coalescer.deposit(ACCOUNT_NUMBER, new BigDecimal("5.00")))
+                .isInstanceOf(BalanceUpdateRolledBackException.class)
+                .hasCause(timeout);
+    }
+
+    @Test
+    void failedCommit_LeavesTheOutcomeUnknown() {
+        transactionProperties.getCoalescing().setMaxBatchSize(1);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(ACCOUNT_NUMBER))).thenReturn(List.of(account));
+        doThrow(new TransactionSystemException("I/O error on COMMIT")).when(transactionManager).commit(any());
+
+        assertThatThrownBy(() -> coalescer.deposit(ACCOUNT_NUMBER, new BigDecimal("5.00")))
+                .isInstanceOf(TransactionSystemException.class);
+    }
+}
@@ -0,0 +1,291 @@
+package org.olegi.testbankapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.olegi.testbankapi.config.IdempotencyProperties;
+import org.olegi.testbankapi.dto.AccountDTO;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.enums.IdempotencyStatus;
+import org.olegi.testbankapi.exceptions.BalanceUpdateRolledBackException;
+import org.olegi.testbankapi.exceptions.IdempotencyKeyInProgressException;
+import org.olegi.testbankapi.exceptions.IdempotencyKeyReuseException;
+import org.olegi.testbankapi.exceptions.LedgerOutcomeUnknownException;
+import org.olegi.testbankapi.exceptions.LedgerUnavailableException;
+import org.olegi.testbankapi.model.IdempotencyKey;
+import org.olegi.testbankapi.repository.IdempotencyKeyRepository;
+import org.olegi.testbankapi.service.impl.IdempotencyServiceImpl;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    private static final String KEY = "key-1";
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyProperties idempotencyProperties;
+    private IdempotencyServiceImpl idempotencyService;
+    private DepositDTO depositDTO;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyProperties = new IdempotencyProperties();
+        idempotencyProperties.setWaitTimeout(Duration.ofSeconds(5));
+        idempotencyProperties.setPollInterval(Duration.ofMillis(1));
+        idempotencyService = new IdempotencyServiceImpl(idempotencyKeyRepository, idempotencyProperties, new ObjectMapper(),
+                transactionManager);
+        depositDTO = new DepositDTO("1234567890", new BigDecimal("500.00"));
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void execute_WithoutKey_RunsOperation() {
+        ResponseEntity<AccountDTO> response = deposit(null, depositDTO);
+
+        assertEquals(1, executions.get());
+        assertNull(response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    @Test
+    void execute_SameKeyTwice_RunsOnceAndReplaysStoredResponse() {
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+
+        ResponseEntity<AccountDTO> first = deposit(KEY, depositDTO);
+        ResponseEntity<AccountDTO> second = deposit(KEY, depositDTO);
+
+        assertEquals(1, executions.get());
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verify(idempotencyKeyRepository).complete(eq(KEY), eq(200), anyString(), any());
+    }
+
+    @Test
+    void execute_SameKeyWithDifferentRequest_IsRejected() {
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+        deposit(KEY, depositDTO);
+
+        DepositDTO otherDeposit = new DepositDTO("1234567890", new BigDecimal("1.00"));
+        assertThrows(IdempotencyKeyReuseException.class, () -> deposit(KEY, otherDeposit));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_CompletedByAnotherInstance_ReplaysWithoutRunning() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1).thenReturn(0);
+        deposit(KEY, depositDTO);
+        String requestHash = captureRequestHash();
+
+        IdempotencyServiceImpl otherInstance =
+                new IdempotencyServiceImpl(idempotencyKeyRepository, idempotencyProperties, objectMapper, transactionManager);
+        when(idempotencyKeyRepository.findById(KEY)).thenReturn(Optional.of(new IdempotencyKey(KEY, requestHash,
+                IdempotencyStatus.COMPLETED, 200, objectMapper.writeValueAsString(new AccountDTO("1234567890", BigDecimal.TEN)),
+                LocalDateTime.now(), LocalDateTime.now().plusDays(1))));
+
+        ResponseEntity<AccountDTO> replayed = otherInstance.execute(KEY, "deposit", depositDTO, AccountDTO.class,
+                () -> ResponseEntity.ok(new AccountDTO("unexpected", BigDecimal.ZERO)));
+
+        assertEquals(BigDecimal.TEN, replayed.getBody().getBalance());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_InProgressElsewhere_TimesOut() {
+        idempotencyProperties.setWaitTimeout(Duration.ofMillis(20));
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1).thenReturn(0);
+        deposit(KEY, depositDTO);
+        String requestHash = captureRequestHash();
+
+        IdempotencyServiceImpl otherInstance =
+                new IdempotencyServiceImpl(idempotencyKeyRepository, idempotencyProperties, new ObjectMapper(),
+                transactionManager);
+        when(idempotencyKeyRepository.findById(KEY)).thenReturn(Optional.of(new IdempotencyKey(KEY, requestHash,
+                IdempotencyStatus.IN_PROGRESS, null, null, LocalDateTime.now(), LocalDateTime.now().plusDays(1))));
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> otherInstance.execute(KEY, "deposit", depositDTO,
+                AccountDTO.class, () -> ResponseEntity.ok(new AccountDTO("unexpected", BigDecimal.ZERO))));
+    }
+
+    @Test
+    void execute_FailedOperation_ReleasesKey() {
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute(KEY, "deposit", depositDTO,
+                AccountDTO.class, () -> {
+                    throw new IllegalArgumentException("Insufficient funds");
+                }));
+
+        verify(idempotencyKeyRepository).release(eq(KEY), any());
+        verify(idempotencyKeyRepository, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_CoalescedBatchRolledBack_ReleasesKey() {
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+
+        assertThrows(BalanceUpdateRolledBackException.class, () -> idempotencyService.execute(KEY, "deposit", depositDTO,
+                AccountDTO.class, () -> {
+                    throw new BalanceUpdateRolledBackException("Coalesced batch on account 1234567890 was rolled back",
+                            new QueryTimeoutException("canceling statement due to statement timeout"));
+                }));
+
+        verify(idempotencyKeyRepository).release(eq(KEY), any());
+        verify(idempotencyKeyRepository, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_OutcomeUnknown_KeepsKeyInProgress() {
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+
+        assertThrows(LedgerOutcomeUnknownException.class, () -> idempotencyService.execute(KEY, "deposit", depositDTO,
+                AccountDTO.class, () -> {
+                    throw new LedgerOutcomeUnknownException("Ledger did not acknowledge the operation; it may still complete");
+                }));
+        assertThrows(LedgerUnavailableException.class, () -> idempotencyService.execute(KEY, "deposit", depositDTO,
+                AccountDTO.class, () -> {
+                    throw new LedgerUnavailableException("Ledger partition is overloaded or stopping, retry later");
+                }));
+
+        // Only the rejected second attempt gave the key back.
+        verify(idempotencyKeyRepository, times(1)).release(eq(KEY), any());
+        verify(idempotencyKeyRepository, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_WithTransaction_CompletesKeyInsideIt() {
+        idempotencyProperties.setLease(Duration.ofSeconds(30));
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+        when(idempotencyKeyRepository.lockClaim(eq(KEY), any())).thenReturn(Optional.of(KEY));
+
+        ResponseEntity<AccountDTO> response = idempotencyService.execute(KEY, "deposit", depositDTO, AccountDTO.class,
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRED), () -> {
+                    executions.incrementAndGet();
+                    return ResponseEntity.ok(new AccountDTO("1234567890", new BigDecimal("1500.00")));
+                });
+
+        assertEquals(new BigDecimal("1500.00"), response.getBody().getBalance());
+        org.mockito.ArgumentCaptor<LocalDateTime> claimedAt = org.mockito.ArgumentCaptor.forClass(LocalDateTime.class);
+        org.mockito.ArgumentCaptor<LocalDateTime> expiresAt = org.mockito.ArgumentCaptor.forClass(LocalDateTime.class);
+        InOrder order = inOrder(idempotencyKeyRepository, transactionManager);
+        order.verify(idempotencyKeyRepository).claim(eq(KEY), anyString(), claimedAt.capture(), expiresAt.capture());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(idempotencyKeyRepository).lockClaim(KEY, claimedAt.getValue());
+        order.verify(idempotencyKeyRepository).complete(eq(KEY), eq(200), anyString(), any());
+        order.verify(transactionManager).commit(any());
+        // The claim is held for the lease; completing it extends the key to the full TTL.
+        assertEquals(Duration.ofSeconds(30), Duration.between(claimedAt.getValue(), expiresAt.getValue()));
+    }
+
+    @Test
+    void execute_WithTransaction_ClaimTakenOver_DoesNotRun() {
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> idempotencyService.execute(KEY, "deposit",
+                depositDTO, AccountDTO.class, new DefaultTransactionDefinition(), () -> {
+                    executions.incrementAndGet();
+                    return ResponseEntity.ok(new AccountDTO("1234567890", BigDecimal.ZERO));
+                }));
+
+        assertEquals(0, executions.get());
+        verify(transactionManager).rollback(any());
+        verify(idempotencyKeyRepository, never()).complete(anyString(), anyInt(), any(), any());
+    }
+
+    @Test
+    void execute_ConcurrentRequestsWithSameKey_WaitForFirst() throws Exception {
+        when(idempotencyKeyRepository.claim(eq(KEY), anyString(), any(), any())).thenReturn(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<ResponseEntity<AccountDTO>> first = executor.submit(() -> idempotencyService.execute(
+                    KEY, "deposit", depositDTO, AccountDTO.class, () -> {
+                        started.countDown();
+                        await(release);
+                        executions.incrementAndGet();
+                        return ResponseEntity.ok(new AccountDTO("1234567890", new BigDecimal("1500.00")));
+                    }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<ResponseEntity<AccountDTO>> second = executor.submit(() -> deposit(KEY, depositDTO));
+            Future<ResponseEntity<AccountDTO>> third = executor.submit(() -> deposit(KEY, depositDTO));
+            release.countDown();
+
+            assertEquals(first.get(5, TimeUnit.SECONDS).getBody(), second.get(5, TimeUnit.SECONDS).getBody());
+            assertEquals(first.get().getBody(), third.get(5, TimeUnit.SECONDS).getBody());
+            assertEquals(1, executions.get());
+            verify(idempotencyKeyRepository, times(1)).claim(eq(KEY), anyString(), any(), any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deleteExpired_DeletesInBatchesUntilDone() {
+        idempotencyProperties.setCleanupBatchSize(2);
+        when(idempotencyKeyRepository.deleteExpired(any(), eq(2))).thenReturn(2, 2, 1);
+
+        assertEquals(5, idempotencyService.deleteExpired());
+    }
+
+    private ResponseEntity<AccountDTO> deposit(String key, DepositDTO request) {
+        return idempotencyService.execute(key, "deposit", request, AccountDTO.class, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.ok(new AccountDTO(request.getAccountNumber(), new BigDecimal("1500.00")));
+        });
+    }
+
+    private String captureRequestHash() {
+        org.mockito.ArgumentCaptor<String> hash = org.mockito.ArgumentCaptor.forClass(String.class);
+        verify(idempotencyKeyRepository).complete(eq(KEY), eq(200), anyString(), any());
+        verify(idempotencyKeyRepository, org.mockito.Mockito.atLeastOnce()).claim(eq(KEY), hash.capture(), any(), any());
+        return hash.getAllValues().get(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.olegi.testbankapi.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.dto.DepositDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.dto.WithdrawDTO;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the JDBC statements each money-moving operation sends to the database.
+ */
+@SpringBootTest
+@Testcontainers
+class JdbcStatementCountTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> true);
+        // Statistics are per session factory: the transfer queue's and the outbox relay's polling would count too.
+        registry.add("bank.transfer-queue.enabled", () -> false);
+        registry.add("bank.outbox.enabled", () -> false);
+    }
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("1000.00"), null));
+        accountRepository.save(new Account(null, "0987654321", new BigDecimal("1000.00"), null));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void deposit_IssuesSingleStatement() {
+        transactionService.deposit(new DepositDTO("1234567890", new BigDecimal("10.00")));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void withdraw_IssuesSingleStatement() {
+        transactionService.withdraw(new WithdrawDTO("1234567890", new BigDecimal("10.00")));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void transfer_BatchesAccountUpdates() {
+        transferService.transferMoney(new TransferRequestDTO("1234567890", "0987654321", new BigDecimal("10.00")));
+
+        // lock_timeout, SELECT ... FOR UPDATE, transaction_seq (at most once per allocation block),
+        // one INSERT batch for both legs and one UPDATE batch for both accounts.
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(5);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(2);
+        assertThat(statistics.getSuccessfulTransactionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void bulkInsert_UsesJdbcBatches() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Transaction> transactions = IntStream.range(0, 100)
+                    .mapToObj(i -> new Transaction(null, BigDecimal.ONE, LocalDateTime.now(), TransactionTypes.DEPOSIT, BigDecimal.ONE, null, account))
+                    .toList();
+            transactionRepository.saveAll(transactions);
+        });
+
+        // Two sequence calls (allocation size 50) and two INSERT batches instead of 100 round trips.
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+        assertThat(transactionRepository.count()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,239 @@
+package org.olegi.testbankapi.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.config.TransactionArchiveProperties;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.dto.TransactionPageDTO;
+import org.olegi.testbankapi.enums.ExportFormat;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Testcontainers
+class TransactionArchiveServiceImplTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    private static final Path ARCHIVE_DIRECTORY = createTempDirectory();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("bank.transaction-archive.directory", ARCHIVE_DIRECTORY::toString);
+        registry.add("bank.transaction-archive.segment-rows", () -> 2);
+        registry.add("bank.balance-after-backfill.enabled", () -> false);
+    }
+
+    private static final LocalDateTime OLD = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Autowired
+    private TransactionArchiveService transactionArchiveService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    @Autowired
+    private TransactionArchiveProperties transactionArchiveProperties;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Account account;
+    private Account other;
+    private String legacyBound;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        legacyBound = jdbcTemplate.queryForObject(
+                "SELECT pg_get_expr(relpartbound, oid) FROM pg_class WHERE relname = 'transaction_legacy'", String.class);
+        account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("1000.00"), null));
+        other = accountRepository.save(new Account(null, "0987654321", new BigDecimal("1000.00"), null));
+        // Three archived rows of the account and one of another account, interleaved, then two recent ones.
+        save(account, "100.00", TransactionTypes.DEPOSIT, OLD, "1100.00");
+        save(other, "1.00", TransactionTypes.DEPOSIT, OLD.plusMinutes(1), "1001.00");
+        save(account, "30.00", TransactionTypes.WITHDRAW, OLD.plusDays(1), "1070.00");
+        save(account, "20.00", TransactionTypes.TRANSFER, OLD.plusDays(2), "1050.00");
+        save(account, "5.00", TransactionTypes.DEPOSIT, LocalDateTime.now().minusMinutes(2), "1055.00");
+        save(account, "55.00", TransactionTypes.WITHDRAW, LocalDateTime.now().minusMinutes(1), "1000.00");
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionArchive.discard("transaction_legacy");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS transaction_legacy PARTITION OF transaction " + legacyBound);
+    }
+
+    @Test
+    void archivePartitions_HistoryIsTheSameFromTheArchive() {
+        List<TransactionDTO> before = history(account, 2);
+
+        assertThat(transactionArchiveService.archivePartitions(currentMonth())).containsExactly("transaction_legacy");
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction", Long.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('transaction_legacy') IS NULL", Boolean.class))
+                .isTrue();
+        assertThat(before).hasSize(5);
+        assertThat(history(account, 2)).isEqualTo(before);
+        assertThat(history(account, 10)).isEqualTo(before);
+        assertThat(history(other, 2)).extracting(TransactionDTO::getAmount).containsExactly(new BigDecimal("1.00"));
+        assertThat(transactionArchiveService.archivePartitions(currentMonth())).isEmpty();
+    }
+
+    @Test
+    void archivePartitions_BalanceAtAndExportStillSeeArchivedRows() throws IOException {
+        LocalDateTime between = OLD.plusDays(1).plusHours(1);
+        String export = export(account);
+
+        transactionArchiveService.archivePartitions(currentMonth());
+
+        assertThat(transactionArchive.archivedUpTo()).isEqualTo(OLD.plusDays(2));
+        assertThat(balanceSnapshotService.getBalanceAt("1234567890", between).getBalance())
+                .isEqualByComparingTo("1070.00");
+        assertThat(balanceSnapshotService.getBalanceAt("1234567890", OLD.minusDays(1)).getBalance())
+                .isEqualByComparingTo("1000.00");
+        assertThat(balanceSnapshotService.getBalanceAt("1234567890", LocalDateTime.now().minusSeconds(90)).getBalance())
+                .isEqualByComparingTo("1055.00");
+        assertThat(export(account)).isEqualTo(export).contains(",TRANSFER,20.00,1050.00,");
+        assertThat(export.lines()).hasSize(6);
+        assertThatThrownBy(() -> balanceSnapshotService.takeSnapshots(between))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void archivePartitions_OtherInstancesServeTheArchivedPartition() {
+        TransactionArchive otherInstance = new TransactionArchive(transactionArchiveProperties);
+        assertThat(otherInstance.archivedUpTo()).isNull();
+
+        transactionArchiveService.archivePartitions(currentMonth());
+
+        assertThat(otherInstance.archivedUpTo()).isEqualTo(OLD.plusDays(2));
+        assertThat(otherInstance.findHistoryPage(account.getId(), OLD.minusDays(1), LocalDateTime.now(),
+                OLD.minusDays(1), 0, 10))
+                .extracting(TransactionHistoryRow::amount)
+                .containsExactly(new BigDecimal("100.00"), new BigDecimal("30.00"), new BigDecimal("20.00"));
+
+        transactionArchive.discard("transaction_legacy");
+
+        assertThat(otherInstance.archivedUpTo()).isNull();
+    }
+
+    @Test
+    void archivePartitions_SkipsWhileAnotherInstanceArchives() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_lock(hashtext('transaction_archive'))");
+
+            assertThat(transactionArchiveService.archivePartitions(currentMonth())).isEmpty();
+            assertThat(transactionArchive.archivedUpTo()).isNull();
+
+            statement.execute("SELECT pg_advisory_unlock(hashtext('transaction_archive'))");
+        }
+
+        assertThat(transactionArchiveService.archivePartitions(currentMonth())).containsExactly("transaction_legacy");
+    }
+
+    @Test
+    void archivePartitions_StopsAtPartitionsWaitingForBalanceBackfill() {
+        save(account, "1.00", TransactionTypes.DEPOSIT, OLD.plusDays(3), null);
+
+        assertThat(transactionArchiveService.archivePartitions(currentMonth())).isEmpty();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_legacy", Long.class)).isEqualTo(5);
+    }
+
+    private List<TransactionDTO> history(Account owner, int pageSize) {
+        List<TransactionDTO> rows = new ArrayList<>();
+        String cursor = null;
+        do {
+            TransactionPageDTO page = transactionService.getOperationHistory(
+                    owner.getId(), OLD.minusDays(1), LocalDateTime.now(), cursor, pageSize);
+            rows.addAll(page.getTransactions());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return rows;
+    }
+
+    private String export(Account owner) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        transactionExportService.prepareHistoryExport(owner.getId(), OLD.minusDays(1), LocalDateTime.now(),
+                ExportFormat.CSV).writeTo(outputStream);
+        return outputStream.toString();
+    }
+
+    private void save(Account owner, String amount, TransactionTypes type, LocalDateTime at, String balanceAfter) {
+        transactionRepository.save(new Transaction(null, new BigDecimal(amount), at, type,
+                balanceAfter == null ? null : new BigDecimal(balanceAfter), null, owner));
+    }
+
+    private static LocalDateTime currentMonth() {
+        return YearMonth.now().atDay(1).atStartOfDay();
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("transaction-archive");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
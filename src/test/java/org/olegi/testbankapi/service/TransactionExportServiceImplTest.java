@@ -0,0 +1,149 @@
+package org.olegi.testbankapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.config.TransactionProperties;
+import org.olegi.testbankapi.dto.TransactionDTO;
+import org.olegi.testbankapi.enums.ExportFormat;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionExportRepository;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
+import org.olegi.testbankapi.service.impl.TransactionExportServiceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceImplTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.parse("2024-01-01T00:00:00");
+    private static final LocalDateTime TO = LocalDateTime.parse("2024-01-31T00:00:00");
+
+    @Mock
+    private TransactionExportRepository transactionExportRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionExportServiceImpl transactionExportService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        transactionExportService = new TransactionExportServiceImpl(transactionExportRepository, accountRepository,
+                new TransactionProperties(), transactionArchive, Mappers.getMapper(TransactionMapper.class),
+                objectMapper, transactionManager);
+    }
+
+    @Test
+    void testExportNdjson_WritesOneObjectPerLine() throws Exception {
+        stubRows(new TransactionDTO(new BigDecimal("10.00"), LocalDateTime.parse("2024-01-02T10:00:00"), TransactionTypes.DEPOSIT, new BigDecimal("110.00"), null),
+                new TransactionDTO(new BigDecimal("2.50"), LocalDateTime.parse("2024-01-03T10:00:00"), TransactionTypes.WITHDRAW, null, null));
+
+        String body = export(ExportFormat.NDJSON);
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(body.endsWith("}\n"));
+        assertTrue(lines[1].startsWith("{"));
+        assertEquals(TransactionTypes.DEPOSIT.name(), new ObjectMapper().readTree(lines[0]).get("transactionType").asText());
+        assertEquals("2.5", new ObjectMapper().readTree(lines[1]).get("amount").asText());
+    }
+
+    @Test
+    void testExportCsv_WritesHeaderAndRows() throws Exception {
+        stubRows(new TransactionDTO(new BigDecimal("10.00"), LocalDateTime.parse("2024-01-02T10:00:00"), TransactionTypes.DEPOSIT, new BigDecimal("110.00"), null));
+
+        String body = export(ExportFormat.CSV);
+
+        assertEquals("timestamp,transactionType,amount,balanceAfter,transferId\n2024-01-02T10:00,DEPOSIT,10.00,110.00,\n", body);
+    }
+
+    @Test
+    void testExportCsv_ArchivedRowsFirstThenTheTableAfterTheArchive() throws Exception {
+        LocalDateTime archivedUpTo = LocalDateTime.parse("2024-01-10T12:00:00");
+        when(transactionArchive.archivedUpTo()).thenReturn(archivedUpTo);
+        when(transactionArchive.findHistoryPage(1L, FROM, archivedUpTo, FROM, Long.MIN_VALUE, 1_000))
+                .thenReturn(List.of(new TransactionHistoryRow(7L, new BigDecimal("10.00"),
+                        LocalDateTime.parse("2024-01-02T10:00:00"), TransactionTypes.DEPOSIT, new BigDecimal("110.00"), null)));
+        stubRows(archivedUpTo.plusNanos(1_000), new TransactionDTO(new BigDecimal("2.50"),
+                LocalDateTime.parse("2024-01-20T10:00:00"), TransactionTypes.WITHDRAW, new BigDecimal("107.50"), null));
+
+        String body = export(ExportFormat.CSV);
+
+        assertEquals("timestamp,transactionType,amount,balanceAfter,transferId\n"
+                + "2024-01-02T10:00,DEPOSIT,10.00,110.00,\n"
+                + "2024-01-20T10:00,WITHDRAW,2.50,107.50,\n", body);
+    }
+
+    @Test
+    void testExport_AccountNotFound() {
+        when(accountRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(AccountNotFoundException.class,
+                () -> transactionExportService.prepareHistoryExport(1L, FROM, TO, ExportFormat.CSV));
+        verifyNoInteractions(transactionExportRepository);
+    }
+
+    @Test
+    void testExport_InvalidDateRange() {
+        when(accountRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionExportService.prepareHistoryExport(1L, TO, FROM, ExportFormat.CSV));
+    }
+
+    private void stubRows(TransactionDTO... rows) {
+        stubRows(FROM, rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubRows(LocalDateTime from, TransactionDTO... rows) {
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        doAnswer(invocation -> {
+            Consumer<TransactionDTO> consumer = invocation.getArgument(4);
+            for (TransactionDTO row : rows) {
+                consumer.accept(row);
+            }
+            return null;
+        }).when(transactionExportRepository).streamHistory(anyLong(), eq(from), eq(TO), anyInt(), any(Consumer.class));
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        transactionExportService.prepareHistoryExport(1L, FROM, TO, format).writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
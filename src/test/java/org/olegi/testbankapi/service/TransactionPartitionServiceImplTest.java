@@ -0,0 +1,154 @@
+package org.olegi.testbankapi.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+class TransactionPartitionServiceImplTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("bank.transaction-partitions.enabled", () -> false);
+    }
+
+    private static final LocalDateTime OLD = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    @Autowired
+    private TransactionPartitionService transactionPartitionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account account;
+    private String legacyBound;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("100.00"), null));
+        legacyBound = jdbcTemplate.queryForObject(
+                "SELECT pg_get_expr(relpartbound, oid) FROM pg_class WHERE relname = 'transaction_legacy'", String.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (!isAttached("transaction_legacy")) {
+            jdbcTemplate.execute("ALTER TABLE transaction ATTACH PARTITION transaction_legacy " + legacyBound);
+        }
+    }
+
+    @Test
+    void createPartitions_AddsOnlyMissingMonths() {
+        YearMonth current = YearMonth.now();
+
+        assertThat(transactionPartitionService.createPartitions(current.plusMonths(3))).isZero();
+        assertThat(transactionPartitionService.createPartitions(current.plusMonths(5))).isEqualTo(2);
+        assertThat(transactionPartitionService.createPartitions(current.plusMonths(5))).isZero();
+
+        assertThat(isAttached(partitionOf(current.plusMonths(5)))).isTrue();
+    }
+
+    @Test
+    void save_RoutesRowsToThePartitionOfTheirMonth() {
+        Transaction recent = save(LocalDateTime.now());
+        Transaction old = save(OLD);
+
+        assertThat(partitionOfRow(recent)).isEqualTo(partitionOf(YearMonth.now()));
+        assertThat(partitionOfRow(old)).isEqualTo("transaction_legacy");
+    }
+
+    @Test
+    void findByAccountIdAndTimestampBetween_ScansOnlyPartitionsOfTheRange() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        save(now);
+        LocalDateTime from = YearMonth.now().atDay(1).atStartOfDay();
+        LocalDateTime to = YearMonth.now().atEndOfMonth().atStartOfDay();
+
+        String sql = TransactionRepository.class
+                .getMethod("findByAccountIdAndTimestampBetween", long.class, LocalDateTime.class, LocalDateTime.class)
+                .getAnnotation(Query.class).value()
+                .replaceAll(":\\w+", "?");
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class,
+                account.getId(), from, to));
+
+        assertThat(plan).contains(partitionOf(YearMonth.now()))
+                .doesNotContain("transaction_legacy")
+                .doesNotContain(partitionOf(YearMonth.now().plusMonths(1)));
+        assertThat(transactionRepository.findByAccountIdAndTimestampBetween(account.getId(), from, now)).hasSize(1);
+    }
+
+    @Test
+    void detachPartitions_KeepsDetachedRowsOutOfHistory() {
+        save(OLD);
+        save(LocalDateTime.now());
+
+        List<String> detached = transactionPartitionService.detachPartitions(YearMonth.now().atDay(1).atStartOfDay());
+
+        assertThat(detached).containsExactly("transaction_legacy");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction_legacy", Long.class)).isEqualTo(1);
+        assertThat(transactionRepository.findByAccountIdAndTimestampBetween(
+                account.getId(), OLD.minusDays(1), LocalDateTime.now())).hasSize(1);
+    }
+
+    private Transaction save(LocalDateTime at) {
+        return transactionRepository.save(
+                new Transaction(null, new BigDecimal("1.00"), at, TransactionTypes.DEPOSIT, null, null, account));
+    }
+
+    private String partitionOfRow(Transaction transaction) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM transaction WHERE id = ?",
+                String.class, transaction.getId());
+    }
+
+    private boolean isAttached(String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                               WHERE i.inhparent = 'transaction'::regclass AND c.relname = ?)
+                """, Boolean.class, partition));
+    }
+
+    private static String partitionOf(YearMonth month) {
+        return "transaction_p%d_%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+}
@@ -1,23 +1,37 @@
 package org.olegi.testbankapi.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.olegi.testbankapi.archive.TransactionArchive;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.AccountCacheProperties;
+import org.olegi.testbankapi.config.TransactionProperties;
 import org.olegi.testbankapi.dto.*;
+import org.olegi.testbankapi.enums.BalanceUpdateMode;
 import org.olegi.testbankapi.enums.TransactionTypes;
 import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
 import org.olegi.testbankapi.mapper.AccountMapper;
 import org.olegi.testbankapi.mapper.TransactionMapper;
+import org.olegi.testbankapi.metrics.BankMetrics;
 import org.olegi.testbankapi.model.Account;
 import org.olegi.testbankapi.model.Transaction;
+import org.olegi.testbankapi.repository.AccountBalanceView;
 import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionHistoryRow;
 import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.impl.BalanceUpdateCoalescer;
+import org.olegi.testbankapi.service.impl.HistoryCursor;
 import org.olegi.testbankapi.service.impl.TransactionServiceImpl;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -61,9 +75,21 @@ class TransactionServiceImplTest {
     @Mock
     private TransactionMapper transactionMapper;
 
-    @InjectMocks
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionProperties transactionProperties;
+
     private TransactionServiceImpl transactionService;
 
+    private SimpleMeterRegistry meterRegistry;
+
     private Account account;
     private DepositDTO depositDTO;
     private WithdrawDTO withdrawDTO;
@@ -80,6 +106,19 @@ class TransactionServiceImplTest {
         transaction.setAmount(depositDTO.getAmount());
         transaction.setTimeStamp(LocalDateTime.now());
         transaction.setAccount(account);
+
+        meterRegistry = new SimpleMeterRegistry();
+        transactionProperties = new TransactionProperties();
+        transactionProperties.setDepositMode(BalanceUpdateMode.ENTITY);
+        transactionProperties.setWithdrawMode(BalanceUpdateMode.ENTITY);
+        AccountCache accountCache = new AccountCache(new AccountCacheProperties());
+        BankMetrics bankMetrics = new BankMetrics(meterRegistry);
+        transactionService = new TransactionServiceImpl(transactionRepository, accountRepository,
+                accountMapper, transactionMapper, transactionProperties,
+                accountCache, ledgerEngine, transactionArchive, bankMetrics,
+                new BalanceUpdateCoalescer(accountRepository, transactionRepository, transactionProperties,
+                        accountCache, bankMetrics, transactionManager),
+                transactionManager);
     }
 
     @AfterEach
@@ -89,24 +128,53 @@ class TransactionServiceImplTest {
 
     @Test
     void testGetBalance_Success() {
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(account));
+        when(accountRepository.findBalanceByAccountNumber("1234567890"))
+                .thenReturn(Optional.of(balanceView(account.getAccountNumber(), account.getBalance())));
 
         BigDecimal balance = transactionService.getBalance(account.getAccountNumber());
 
         assertEquals(account.getBalance(), balance);
-        verify(accountRepository, times(1)).findByAccountNumber(account.getAccountNumber());
+        verify(accountRepository, times(1)).findBalanceByAccountNumber(account.getAccountNumber());
+    }
+
+    @Test
+    void testGetBalance_WaitsForLedgerJournalFirst() {
+        when(accountRepository.findBalanceByAccountNumber("1234567890"))
+                .thenReturn(Optional.of(balanceView(account.getAccountNumber(), account.getBalance())));
+
+        transactionService.getBalance(account.getAccountNumber());
+
+        InOrder inOrder = inOrder(ledgerEngine, accountRepository);
+        inOrder.verify(ledgerEngine).awaitApplied();
+        inOrder.verify(accountRepository).findBalanceByAccountNumber(account.getAccountNumber());
     }
 
     @Test
     void testGetBalance_AccountNotFound() {
-        when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.empty());
+        when(accountRepository.findBalanceByAccountNumber(account.getAccountNumber())).thenReturn(Optional.empty());
 
         AccountNotFoundException exception = assertThrows(AccountNotFoundException.class, () -> {
             transactionService.getBalance(account.getAccountNumber());
         });
 
         assertEquals("Account not found: 1234567890", exception.getMessage());
-        verify(accountRepository, times(1)).findByAccountNumber(account.getAccountNumber());
+        verify(accountRepository, times(1)).findBalanceByAccountNumber(account.getAccountNumber());
+    }
+
+    @Test
+    void testGetBalance_ServedFromCacheUntilAccountChanges() {
+        when(accountRepository.findBalanceByAccountNumber(account.getAccountNumber()))
+                .thenAnswer(invocation -> Optional.of(balanceView(account.getAccountNumber(), account.getBalance())));
+        when(accountRepository.findByAccountNumber(account.getAccountNumber())).thenReturn(Optional.of(account));
+        when(accountMapper.accountToAccountDTO(account))
+                .thenAnswer(invocation -> new AccountDTO(account.getAccountNumber(), account.getBalance()));
+
+        assertEquals(new BigDecimal("1000.00"), transactionService.getBalance(account.getAccountNumber()));
+        assertEquals(new BigDecimal("1000.00"), transactionService.getBalance(account.getAccountNumber()));
+        transactionService.deposit(depositDTO);
+
+        assertEquals(new BigDecimal("1500.00"), transactionService.getBalance(account.getAccountNumber()));
+        verify(accountRepository, times(2)).findBalanceByAccountNumber(account.getAccountNumber());
     }
 
     @Test
@@ -118,10 +186,24 @@ class TransactionServiceImplTest {
         AccountDTO result = transactionService.deposit(depositDTO);
 
         assertEquals(new BigDecimal("500.00"), result.getBalance());
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(transactionRepository, times(1)).save(argThat((Transaction transaction) ->
+                transaction.getBalanceAfter().equals(new BigDecimal("1500.00"))));
         verify(accountRepository, times(1)).save(account);
     }
 
+    @Test
+    void testDeposit_StripedAccount_LeavesBalanceAfterToBackfill() {
+        account.setBalanceSlots(4);
+        when(accountRepository.findByAccountNumber(depositDTO.getAccountNumber())).thenReturn(Optional.of(account));
+        when(accountRepository.sumBalanceSlots(account.getId())).thenReturn(new BigDecimal("250.00"));
+
+        AccountDTO result = transactionService.deposit(depositDTO);
+
+        assertEquals(new BigDecimal("1750.00"), result.getBalance());
+        verify(transactionRepository, times(1)).save(argThat((Transaction transaction) ->
+                transaction.getBalanceAfter() == null));
+    }
+
     @Test
     void testDeposit_AccountNotFound() {
         when(accountRepository.findByAccountNumber(depositDTO.getAccountNumber())).thenReturn(Optional.empty());
@@ -148,6 +230,8 @@ class TransactionServiceImplTest {
         assertEquals(new BigDecimal("700.00"), result.getBalance());
         verify(transactionRepository, times(1)).save(any(Transaction.class));
         verify(accountRepository, times(1)).save(account);
+        assertEquals(1, meterRegistry.get("bank.operation")
+                .tags("operation", "withdraw", "outcome", "success").timer().count());
     }
 
     @Test
@@ -163,28 +247,239 @@ class TransactionServiceImplTest {
         assertEquals("Insufficient funds for withdrawal", exception.getMessage());
         verify(transactionRepository, times(0)).save(any());
         verify(accountRepository, times(0)).save(any());
+        assertEquals(1, meterRegistry.get("bank.operation")
+                .tags("operation", "withdraw", "outcome", "insufficient_funds").timer().count());
+    }
+
+    @Test
+    void testDeposit_Atomic_Success() {
+        transactionProperties.setDepositMode(BalanceUpdateMode.ATOMIC);
+        when(accountRepository.depositAndRecord(eq(depositDTO.getAccountNumber()), eq(depositDTO.getAmount()), any(LocalDateTime.class), anyInt()))
+                .thenReturn(Optional.of(balanceView(depositDTO.getAccountNumber(), new BigDecimal("1500.00"))));
+
+        AccountDTO result = transactionService.deposit(depositDTO);
+
+        assertEquals(new BigDecimal("1500.00"), result.getBalance());
+        verify(accountRepository, never()).findByAccountNumber(any());
+        verify(accountRepository, never()).save(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testDeposit_Atomic_AccountNotFound() {
+        transactionProperties.setDepositMode(BalanceUpdateMode.ATOMIC);
+        when(accountRepository.depositAndRecord(eq(depositDTO.getAccountNumber()), eq(depositDTO.getAmount()), any(LocalDateTime.class), anyInt()))
+                .thenReturn(Optional.empty());
+        when(accountRepository.existsByAccountNumber(depositDTO.getAccountNumber())).thenReturn(false);
+
+        AccountNotFoundException exception = assertThrows(AccountNotFoundException.class,
+                () -> transactionService.deposit(depositDTO));
+
+        assertEquals("Account not found: 1234567890", exception.getMessage());
+    }
+
+    @Test
+    void testWithdraw_Atomic_Success() {
+        transactionProperties.setWithdrawMode(BalanceUpdateMode.ATOMIC);
+        when(accountRepository.withdrawAndRecord(eq(withdrawDTO.getAccountNumber()), eq(withdrawDTO.getAmount()), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(balanceView(withdrawDTO.getAccountNumber(), new BigDecimal("700.00"))));
+
+        AccountDTO result = transactionService.withdraw(withdrawDTO);
+
+        assertEquals(new BigDecimal("700.00"), result.getBalance());
+        verify(accountRepository, never()).findAllByAccountNumberInForUpdate(any());
+    }
+
+    @Test
+    void testWithdraw_Atomic_InsufficientFunds() {
+        transactionProperties.setWithdrawMode(BalanceUpdateMode.ATOMIC);
+        when(accountRepository.withdrawAndRecord(eq(withdrawDTO.getAccountNumber()), eq(withdrawDTO.getAmount()), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(withdrawDTO.getAccountNumber())))
+                .thenReturn(List.of(account));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> transactionService.withdraw(withdrawDTO));
+
+        assertEquals("Insufficient funds for withdrawal", exception.getMessage());
+    }
+
+    @Test
+    void testWithdraw_Atomic_AccountNotFound() {
+        transactionProperties.setWithdrawMode(BalanceUpdateMode.ATOMIC);
+        when(accountRepository.withdrawAndRecord(eq(withdrawDTO.getAccountNumber()), eq(withdrawDTO.getAmount()), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty());
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(withdrawDTO.getAccountNumber())))
+                .thenReturn(List.of());
+
+        assertThrows(AccountNotFoundException.class, () -> transactionService.withdraw(withdrawDTO));
+    }
+
+    @Test
+    void testDeposit_Atomic_RetriesWhenSlotsRemovedConcurrently() {
+        transactionProperties.setDepositMode(BalanceUpdateMode.ATOMIC);
+        when(accountRepository.depositAndRecord(eq(depositDTO.getAccountNumber()), eq(depositDTO.getAmount()), any(LocalDateTime.class), anyInt()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(balanceView(depositDTO.getAccountNumber(), new BigDecimal("1500.00"))));
+        when(accountRepository.existsByAccountNumber(depositDTO.getAccountNumber())).thenReturn(true);
+
+        AccountDTO result = transactionService.deposit(depositDTO);
+
+        assertEquals(new BigDecimal("1500.00"), result.getBalance());
+        verify(accountRepository, times(2)).depositAndRecord(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testWithdraw_Atomic_StripedAccount_SweepsSlotsAndRetries() {
+        transactionProperties.setWithdrawMode(BalanceUpdateMode.ATOMIC);
+        account.setBalanceSlots(4);
+        when(accountRepository.withdrawAndRecord(eq(withdrawDTO.getAccountNumber()), eq(withdrawDTO.getAmount()), any(LocalDateTime.class)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(balanceView(withdrawDTO.getAccountNumber(), new BigDecimal("700.00"))));
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(withdrawDTO.getAccountNumber())))
+                .thenReturn(List.of(account));
+
+        AccountDTO result = transactionService.withdraw(withdrawDTO);
+
+        assertEquals(new BigDecimal("700.00"), result.getBalance());
+        verify(accountRepository, times(1)).sweepBalanceSlots(account.getId());
+    }
+
+    @Test
+    void testWithdraw_StripedAccount_SweepsSlotsWhenRowIsShort() {
+        account.setBalance(new BigDecimal("100.00"));
+        account.setBalanceSlots(4);
+        when(accountRepository.findByAccountNumber(withdrawDTO.getAccountNumber())).thenReturn(Optional.of(account));
+        when(accountRepository.sweepBalanceSlots(account.getId())).thenReturn(new BigDecimal("1000.00"));
+        when(accountRepository.sumBalanceSlots(account.getId())).thenReturn(BigDecimal.ZERO);
+
+        AccountDTO result = transactionService.withdraw(withdrawDTO);
+
+        assertEquals(new BigDecimal("700.00"), result.getBalance());
+        assertEquals(new BigDecimal("700.00"), account.getBalance());
+        verify(accountRepository).findAllByAccountNumberInForUpdate(List.of(account.getAccountNumber()));
+        verify(accountRepository).save(account);
+    }
+
+    @Test
+    void testDepositAndWithdraw_LedgerEnabled_DelegateToEngine() {
+        when(ledgerEngine.isEnabled()).thenReturn(true);
+        when(ledgerEngine.deposit(depositDTO.getAccountNumber(), depositDTO.getAmount()))
+                .thenReturn(new AccountDTO(depositDTO.getAccountNumber(), new BigDecimal("1500.00")));
+        when(ledgerEngine.withdraw(withdrawDTO.getAccountNumber(), withdrawDTO.getAmount()))
+                .thenReturn(new AccountDTO(withdrawDTO.getAccountNumber(), new BigDecimal("1200.00")));
+
+        assertEquals(new BigDecimal("1500.00"), transactionService.deposit(depositDTO).getBalance());
+        assertEquals(new BigDecimal("1200.00"), transactionService.withdraw(withdrawDTO).getBalance());
+        verifyNoInteractions(accountRepository, transactionRepository);
+    }
+
+    @Test
+    void testDepositAndWithdraw_Coalesced_ApplyThroughOneBatchEach() {
+        transactionProperties.setDepositMode(BalanceUpdateMode.COALESCED);
+        transactionProperties.setWithdrawMode(BalanceUpdateMode.COALESCED);
+        transactionProperties.getCoalescing().setMaxBatchSize(1);
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of(account.getAccountNumber())))
+                .thenReturn(List.of(account));
+
+        assertEquals(new BigDecimal("1500.00"), transactionService.deposit(depositDTO).getBalance());
+        assertEquals(new BigDecimal("1200.00"), transactionService.withdraw(withdrawDTO).getBalance());
+        assertEquals(new BigDecimal("1200.00"), account.getBalance());
+        verify(transactionRepository, times(2)).saveAll(anyList());
+    }
+
+    private static AccountBalanceView balanceView(String accountNumber, BigDecimal balance) {
+        return new AccountBalanceView() {
+            @Override
+            public String getAccountNumber() {
+                return accountNumber;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return balance;
+            }
+        };
     }
 
     @Test
     void testGetOperationHistory_Success() {
         LocalDateTime from = LocalDateTime.now().minusDays(7);
         LocalDateTime to = LocalDateTime.now();
+        TransactionHistoryRow row = historyRow(7L, transaction.getTimeStamp());
 
         when(accountRepository.existsById(account.getId())).thenReturn(true);
-        when(transactionRepository.findByAccountIdAndTimestampBetween(account.getId(), from, to))
-                .thenReturn(List.of(transaction));
-        when(transactionMapper.transactionToTransactionDTO(transaction))
-                .thenReturn(new TransactionDTO(
-                        transaction.getAmount(),
-                        transaction.getTimeStamp(),
-                        transaction.getTransactionType()));
-
-        List<TransactionDTO> result = transactionService.getOperationHistory(account.getId(), from, to);
-
-        assertEquals(1, result.size());
-        assertEquals(transaction.getAmount(), result.get(0).getAmount());
+        when(transactionRepository.findHistoryPage(account.getId(), from, to, from, Long.MIN_VALUE, Limit.of(101)))
+                .thenReturn(List.of(row));
+        when(transactionMapper.historyRowToTransactionDTO(row))
+                .thenReturn(new TransactionDTO(row.amount(), row.timeStamp(), row.transactionType(), row.balanceAfter(), row.transferId()));
+
+        TransactionPageDTO result = transactionService.getOperationHistory(account.getId(), from, to, null, null);
+
+        assertEquals(1, result.getTransactions().size());
+        assertEquals(row.amount(), result.getTransactions().get(0).getAmount());
+        assertNull(result.getNextCursor());
         verify(transactionRepository, times(1))
-                .findByAccountIdAndTimestampBetween(account.getId(), from, to);
+                .findHistoryPage(account.getId(), from, to, from, Long.MIN_VALUE, Limit.of(101));
+    }
+
+    @Test
+    void testGetOperationHistory_ReturnsCursorOfLastRow_WhenMoreRowsFollow() {
+        LocalDateTime from = LocalDateTime.now().minusDays(7);
+        LocalDateTime to = LocalDateTime.now();
+        TransactionHistoryRow second = historyRow(8L, from.plusDays(1));
+        TransactionHistoryRow third = historyRow(9L, from.plusDays(2));
+
+        when(accountRepository.existsById(account.getId())).thenReturn(true);
+        when(transactionRepository.findHistoryPage(account.getId(), from, to, from, Long.MIN_VALUE, Limit.of(3)))
+                .thenReturn(List.of(historyRow(7L, from), second, third));
+
+        TransactionPageDTO firstPage = transactionService.getOperationHistory(account.getId(), from, to, null, 2);
+
+        assertEquals(2, firstPage.getTransactions().size());
+        assertEquals(new HistoryCursor(second.timeStamp(), 8L), HistoryCursor.decode(firstPage.getNextCursor()));
+
+        transactionService.getOperationHistory(account.getId(), from, to, firstPage.getNextCursor(), 2);
+
+        verify(transactionRepository, times(1))
+                .findHistoryPage(account.getId(), from, to, second.timeStamp(), 8L, Limit.of(3));
+    }
+
+    @Test
+    void testGetOperationHistory_MergesArchivedRowsWithoutDuplicates() {
+        LocalDateTime from = LocalDateTime.now().minusDays(7);
+        LocalDateTime to = LocalDateTime.now();
+        TransactionHistoryRow archivedOnly = historyRow(3L, from);
+        TransactionHistoryRow inBoth = historyRow(7L, from.plusDays(1));
+        TransactionHistoryRow hotOnly = historyRow(9L, from.plusDays(2));
+
+        when(accountRepository.existsById(account.getId())).thenReturn(true);
+        when(transactionRepository.findHistoryPage(account.getId(), from, to, from, Long.MIN_VALUE, Limit.of(3)))
+                .thenReturn(List.of(inBoth, hotOnly));
+        when(transactionArchive.findHistoryPage(account.getId(), from, to, from, Long.MIN_VALUE, 3))
+                .thenReturn(List.of(archivedOnly, inBoth));
+        when(transactionMapper.historyRowToTransactionDTO(any())).thenAnswer(invocation -> {
+            TransactionHistoryRow row = invocation.getArgument(0);
+            return new TransactionDTO(row.amount(), row.timeStamp(), row.transactionType(), row.balanceAfter(), row.transferId());
+        });
+
+        TransactionPageDTO page = transactionService.getOperationHistory(account.getId(), from, to, null, 2);
+
+        assertEquals(List.of(archivedOnly.timeStamp(), inBoth.timeStamp()),
+                page.getTransactions().stream().map(TransactionDTO::getTimestamp).toList());
+        assertEquals(new HistoryCursor(inBoth.timeStamp(), 7L), HistoryCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void testGetOperationHistory_InvalidPageSize() {
+        LocalDateTime from = LocalDateTime.now().minusDays(7);
+        LocalDateTime to = LocalDateTime.now();
+        when(accountRepository.existsById(account.getId())).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getOperationHistory(account.getId(), from, to, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> transactionService.getOperationHistory(account.getId(), from, to, "not-a-cursor", 10));
     }
 
     @Test
@@ -195,11 +490,15 @@ class TransactionServiceImplTest {
         when(accountRepository.findById(account.getId())).thenReturn(Optional.empty());
 
         AccountNotFoundException exception = assertThrows(AccountNotFoundException.class, () -> {
-            transactionService.getOperationHistory(account.getId(), from, to);
+            transactionService.getOperationHistory(account.getId(), from, to, null, null);
         });
 
         assertEquals("Account not found: 1", exception.getMessage());
         verify(transactionRepository, times(0))
-                .findByAccountIdAndTimestampBetween(account.getId(), from, to);
+                .findHistoryPage(anyLong(), any(), any(), any(), anyLong(), any());
+    }
+
+    private static TransactionHistoryRow historyRow(long id, LocalDateTime timeStamp) {
+        return new TransactionHistoryRow(id, BigDecimal.TEN, timeStamp, TransactionTypes.WITHDRAW, BigDecimal.ONE, null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,220 @@
+package org.olegi.testbankapi.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.olegi.testbankapi.config.TransferQueueProperties;
+import org.olegi.testbankapi.dto.QueuedTransferDTO;
+import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.QueuedTransferStatus;
+import org.olegi.testbankapi.exceptions.QueuedTransferNotFoundException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
+import org.olegi.testbankapi.model.Account;
+import org.olegi.testbankapi.repository.AccountRepository;
+import org.olegi.testbankapi.repository.TransactionRepository;
+import org.olegi.testbankapi.service.impl.TransferQueueWorkers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Testcontainers
+class TransferQueueServiceImplTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgreSQLContainer =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("mydb")
+                    .withUsername("myuser")
+                    .withPassword("mypass");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        // The tests drive the queue themselves.
+        registry.add("bank.transfer-queue.enabled", () -> false);
+        registry.add("bank.transfer-queue.batch-size", () -> 10);
+    }
+
+    @Autowired
+    private TransferQueueService transferQueueService;
+
+    @Autowired
+    private TransferQueueProperties transferQueueProperties;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Account account;
+    private Account other;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM queued_transfer");
+        jdbcTemplate.update("DELETE FROM account_balance_snapshot");
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        account = accountRepository.save(new Account(null, "1234567890", new BigDecimal("1000.00"), null));
+        other = accountRepository.save(new Account(null, "0987654321", new BigDecimal("500.00"), null));
+    }
+
+    @Test
+    void enqueue_StoresPendingTransferWithoutMovingMoney() {
+        QueuedTransferDTO queued = transferQueueService.enqueue(transfer("1234567890", "0987654321", "300.00"));
+
+        assertThat(queued.getStatus()).isEqualTo(QueuedTransferStatus.PENDING);
+        assertThat(transferQueueService.getStatus(queued.getId()).getStatus()).isEqualTo(QueuedTransferStatus.PENDING);
+        assertThat(balance(account)).isEqualByComparingTo("1000.00");
+        assertThat(transactionRepository.count()).isZero();
+    }
+
+    @Test
+    void processBatch_AppliesTransfersAndRecordsOutcomeOfEach() {
+        UUID applied = transferQueueService.enqueue(transfer("1234567890", "0987654321", "300.00")).getId();
+        UUID insufficient = transferQueueService.enqueue(transfer("0987654321", "1234567890", "5000.00")).getId();
+        UUID unknown = transferQueueService.enqueue(transfer("1234567890", "5555555555", "10.00")).getId();
+
+        assertThat(transferQueueService.processBatch()).isEqualTo(3);
+
+        QueuedTransferDTO completed = transferQueueService.getStatus(applied);
+        assertThat(completed.getStatus()).isEqualTo(QueuedTransferStatus.COMPLETED);
+        assertThat(completed.getProcessedAt()).isNotNull();
+        assertThat(transferQueueService.getStatus(insufficient)).satisfies(failed -> {
+            assertThat(failed.getStatus()).isEqualTo(QueuedTransferStatus.FAILED);
+            assertThat(failed.getError()).isEqualTo("Insufficient funds for transfer amount");
+        });
+        assertThat(transferQueueService.getStatus(unknown).getError()).isEqualTo("Account not found: 5555555555");
+        assertThat(balance(account)).isEqualByComparingTo("700.00");
+        assertThat(balance(other)).isEqualByComparingTo("800.00");
+        assertThat(transactionRepository.count()).isEqualTo(2);
+
+        // Nothing is left to claim, so nothing is applied twice.
+        assertThat(transferQueueService.processBatch()).isZero();
+        assertThat(balance(account)).isEqualByComparingTo("700.00");
+    }
+
+    @Test
+    void concurrentWorkers_ApplyEveryTransferExactlyOnce() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            transferQueueService.enqueue(transfer("1234567890", "0987654321", "1.00"));
+        }
+
+        try (ExecutorService workers = Executors.newFixedThreadPool(4)) {
+            List<Future<Integer>> claimed = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                claimed.add(workers.submit(() -> {
+                    int total = 0;
+                    int batch;
+                    while ((batch = transferQueueService.processBatch()) > 0) {
+                        total += batch;
+                    }
+                    return total;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> worker : claimed) {
+                total += worker.get(1, TimeUnit.MINUTES);
+            }
+            assertThat(total).isEqualTo(100);
+        }
+
+        assertThat(balance(account)).isEqualByComparingTo("900.00");
+        assertThat(balance(other)).isEqualByComparingTo("600.00");
+        assertThat(transactionRepository.count()).isEqualTo(200);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM queued_transfer WHERE status = 'COMPLETED' AND attempts = 1", Long.class))
+                .isEqualTo(100);
+    }
+
+    @Test
+    void workers_DrainTheQueueLeftByAPreviousRun() throws Exception {
+        // Stored before the workers start, as if accepted by an instance that stopped before processing it.
+        UUID id = transferQueueService.enqueue(transfer("1234567890", "0987654321", "250.00")).getId();
+        TransferQueueProperties enabled = new TransferQueueProperties();
+        enabled.setPollInterval(Duration.ofMillis(20));
+        enabled.setBatchSize(transferQueueProperties.getBatchSize());
+        TransferQueueWorkers workers = new TransferQueueWorkers(transferQueueService, enabled, ledgerEngine);
+
+        workers.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (transferQueueService.getStatus(id).getStatus() == QueuedTransferStatus.PENDING
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            workers.stop();
+        }
+
+        assertThat(transferQueueService.getStatus(id).getStatus()).isEqualTo(QueuedTransferStatus.COMPLETED);
+        assertThat(balance(account)).isEqualByComparingTo("750.00");
+    }
+
+    @Test
+    void enqueue_NonPositiveAmount_IsRejected() {
+        assertThatThrownBy(() -> transferQueueService.enqueue(transfer("1234567890", "0987654321", "0.00")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM queued_transfer", Long.class)).isZero();
+    }
+
+    @Test
+    void getStatus_UnknownId_Throws() {
+        assertThatThrownBy(() -> transferQueueService.getStatus(UUID.randomUUID()))
+                .isInstanceOf(QueuedTransferNotFoundException.class);
+    }
+
+    @Test
+    void deleteProcessed_RemovesOnlyFinishedTransfersPastRetention() {
+        UUID old = transferQueueService.enqueue(transfer("1234567890", "0987654321", "1.00")).getId();
+        UUID recent = transferQueueService.enqueue(transfer("1234567890", "0987654321", "2.00")).getId();
+        transferQueueService.processBatch();
+        UUID pending = transferQueueService.enqueue(transfer("1234567890", "0987654321", "3.00")).getId();
+        jdbcTemplate.update("UPDATE queued_transfer SET processed_at = ? WHERE id = ?",
+                LocalDateTime.now().minus(transferQueueProperties.getRetention()).minusDays(1), old);
+        jdbcTemplate.update("UPDATE queued_transfer SET created_at = ? WHERE id = ?",
+                LocalDateTime.now().minusYears(1), pending);
+
+        assertThat(transferQueueService.deleteProcessed()).isEqualTo(1);
+
+        assertThatThrownBy(() -> transferQueueService.getStatus(old)).isInstanceOf(QueuedTransferNotFoundException.class);
+        assertThat(transferQueueService.getStatus(recent).getStatus()).isEqualTo(QueuedTransferStatus.COMPLETED);
+        assertThat(transferQueueService.getStatus(pending).getStatus()).isEqualTo(QueuedTransferStatus.PENDING);
+    }
+
+    private BigDecimal balance(Account of) {
+        return accountRepository.findById(of.getId()).orElseThrow().getBalance();
+    }
+
+    private static TransferRequestDTO transfer(String from, String to, String amount) {
+        return new TransferRequestDTO(from, to, new BigDecimal(amount));
+    }
+}
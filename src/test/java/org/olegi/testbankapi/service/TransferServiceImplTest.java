@@ -6,13 +6,32 @@ import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.argThat;
+import static org.mockito.Mockito.anyCollection;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyList;
+import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.olegi.testbankapi.cache.AccountCache;
+import org.olegi.testbankapi.config.AccountCacheProperties;
+import org.olegi.testbankapi.config.TransferProperties;
+import org.olegi.testbankapi.dto.BatchTransferRequestDTO;
+import org.olegi.testbankapi.dto.BatchTransferResultDTO;
 import org.olegi.testbankapi.dto.TransferRequestDTO;
+import org.olegi.testbankapi.enums.BatchTransferMode;
+import org.olegi.testbankapi.enums.TransactionTypes;
+import org.olegi.testbankapi.enums.TransferItemStatus;
+import org.olegi.testbankapi.enums.TransferLockingMode;
 import org.olegi.testbankapi.exceptions.AccountNotFoundException;
+import org.olegi.testbankapi.ledger.LedgerEngine;
+import org.olegi.testbankapi.metrics.BankMetrics;
 import org.olegi.testbankapi.model.Account;
 import org.olegi.testbankapi.model.Transaction;
 import org.olegi.testbankapi.repository.AccountRepository;
@@ -21,11 +40,13 @@ import org.olegi.testbankapi.service.impl.TransferServiceImpl;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 @SpringBootTest
@@ -52,20 +73,40 @@ public class TransferServiceImplTest {
     @Mock
     private TransactionRepository transactionRepository;
 
-    @InjectMocks
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Transaction>> legsCaptor;
+
+    private TransferProperties transferProperties;
+
     private TransferServiceImpl transferServiceImpl;
 
+    private SimpleMeterRegistry meterRegistry;
+
     private Account accountFrom;
     private Account accountTo;
 
     @BeforeEach
     public void setUp() {
         accountFrom = new Account();
+        accountFrom.setId(1L);
         accountFrom.setAccountNumber("1234567890");
         accountFrom.setBalance(BigDecimal.valueOf(1000));
         accountTo = new Account();
+        accountTo.setId(2L);
         accountTo.setAccountNumber("0987654321");
         accountTo.setBalance(BigDecimal.valueOf(500));
+        meterRegistry = new SimpleMeterRegistry();
+        transferProperties = new TransferProperties();
+        transferServiceImpl = new TransferServiceImpl(
+                accountRepository, transactionRepository, transferProperties,
+                new AccountCache(new AccountCacheProperties()), ledgerEngine, new BankMetrics(meterRegistry),
+                transactionManager);
     }
 
     @AfterEach
@@ -75,6 +116,30 @@ public class TransferServiceImplTest {
 
     @Test
     public void transferMoney_ShouldTransferAmountSuccessfully() {
+        TransferRequestDTO transferRequestDTO = new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(200));
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("1234567890", "0987654321")))
+                .thenReturn(List.of(accountTo, accountFrom));
+
+        transferServiceImpl.transferMoney(transferRequestDTO);
+
+        assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(800));
+        assertThat(accountTo.getBalance()).isEqualTo(BigDecimal.valueOf(700));
+        verify(accountRepository).setLockTimeout(transferProperties.getLockTimeout());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+        verify(accountRepository, times(2)).save(any(Account.class));
+        verify(transactionRepository, times(1)).saveAll(legsCaptor.capture());
+        List<Transaction> legs = legsCaptor.getValue();
+        assertThat(legs).extracting(Transaction::getTransactionType)
+                .containsExactly(TransactionTypes.TRANSFER, TransactionTypes.TRANSFER_IN);
+        assertThat(legs).extracting(Transaction::getAccount).containsExactly(accountFrom, accountTo);
+        assertThat(legs).extracting(Transaction::getBalanceAfter)
+                .containsExactly(BigDecimal.valueOf(800), BigDecimal.valueOf(700));
+        assertThat(legs.get(0).getTransferId()).isNotNull().isEqualTo(legs.get(1).getTransferId());
+    }
+
+    @Test
+    public void transferMoney_ShouldUsePlainReads_InSnapshotMode() {
+        transferProperties.setLockingMode(TransferLockingMode.SNAPSHOT);
         TransferRequestDTO transferRequestDTO = new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(200));
         when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(accountFrom));
         when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(accountTo));
@@ -83,8 +148,8 @@ public class TransferServiceImplTest {
 
         assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(800));
         assertThat(accountTo.getBalance()).isEqualTo(BigDecimal.valueOf(700));
+        verify(accountRepository, never()).findAllByAccountNumberInForUpdate(anyCollection());
         verify(accountRepository, times(2)).save(any(Account.class));
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
     }
 
     @Test
@@ -99,18 +164,21 @@ public class TransferServiceImplTest {
     @Test
     public void transferMoney_ShouldThrowException_WhenFromAccountNotFound() {
         TransferRequestDTO transferRequestDTO = new TransferRequestDTO("nonExistingAccount", "0987654321", BigDecimal.valueOf(200));
-        when(accountRepository.findByAccountNumber("nonExistingAccount")).thenReturn(Optional.empty());
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("nonExistingAccount", "0987654321")))
+                .thenReturn(List.of(accountTo));
 
         assertThatThrownBy(() -> transferServiceImpl.transferMoney(transferRequestDTO))
                 .isInstanceOf(AccountNotFoundException.class)
                 .hasMessageContaining("Account not found: nonExistingAccount");
+        assertThat(meterRegistry.get("bank.operation")
+                .tags("operation", "transfer", "outcome", "not_found").timer().count()).isEqualTo(1);
     }
 
     @Test
     public void transferMoney_ShouldThrowException_WhenToAccountNotFound() {
         TransferRequestDTO transferRequestDTO = new TransferRequestDTO("1234567890", "nonExistingAccount", BigDecimal.valueOf(200));
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(accountFrom));
-        when(accountRepository.findByAccountNumber("nonExistingAccount")).thenReturn(Optional.empty());
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("1234567890", "nonExistingAccount")))
+                .thenReturn(List.of(accountFrom));
 
         assertThatThrownBy(() -> transferServiceImpl.transferMoney(transferRequestDTO))
                 .isInstanceOf(AccountNotFoundException.class)
@@ -120,11 +188,148 @@ public class TransferServiceImplTest {
     @Test
     public void transferMoney_ShouldThrowException_WhenInsufficientFunds() {
         TransferRequestDTO transferRequestDTO = new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(2000));
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(accountFrom));
-        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(accountTo));
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("1234567890", "0987654321")))
+                .thenReturn(List.of(accountTo, accountFrom));
 
         assertThatThrownBy(() -> transferServiceImpl.transferMoney(transferRequestDTO))
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("Insufficient funds for transfer amount");
+        assertThat(meterRegistry.get("bank.operation")
+                .tags("operation", "transfer", "outcome", "insufficient_funds").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bank.lock.wait").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void transferMoney_ShouldSweepSlots_WhenStripedAccountRowIsShort() {
+        accountFrom.setBalanceSlots(4);
+        accountFrom.setBalance(BigDecimal.valueOf(100));
+        TransferRequestDTO transferRequestDTO = new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(300));
+        when(accountRepository.findAllByAccountNumberInForUpdate(List.of("1234567890", "0987654321")))
+                .thenReturn(List.of(accountTo, accountFrom));
+        when(accountRepository.sweepBalanceSlots(1L)).thenReturn(BigDecimal.valueOf(1000));
+
+        transferServiceImpl.transferMoney(transferRequestDTO);
+
+        assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(700));
+        assertThat(accountTo.getBalance()).isEqualTo(BigDecimal.valueOf(800));
+    }
+
+    @Test
+    public void transferMoney_ShouldLockTheRowBeforeSweepingSlots_InSnapshotMode() {
+        transferProperties.setLockingMode(TransferLockingMode.SNAPSHOT);
+        accountFrom.setBalanceSlots(4);
+        accountFrom.setBalance(BigDecimal.valueOf(100));
+        TransferRequestDTO transferRequestDTO = new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(300));
+        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(accountFrom));
+        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(accountTo));
+        when(accountRepository.sweepBalanceSlots(1L)).thenReturn(BigDecimal.valueOf(1000));
+
+        transferServiceImpl.transferMoney(transferRequestDTO);
+
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).findAllByAccountNumberInForUpdate(List.of("1234567890"));
+        inOrder.verify(accountRepository).sweepBalanceSlots(1L);
+        assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(700));
+    }
+
+    @Test
+    public void transferBatch_ShouldSweepSlotsOnce_WhenStripedAccountRowIsShort() {
+        stubBatchLocks();
+        accountFrom.setBalanceSlots(4);
+        accountFrom.setBalance(BigDecimal.valueOf(100));
+        when(accountRepository.sweepBalanceSlots(1L)).thenReturn(BigDecimal.valueOf(1000));
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(BatchTransferMode.BEST_EFFORT, List.of(
+                new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(50)),
+                new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(600)),
+                new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(600))));
+
+        BatchTransferResultDTO result = transferServiceImpl.transferBatch(request);
+
+        assertThat(result.getResults()).extracting("status")
+                .containsExactly(TransferItemStatus.APPLIED, TransferItemStatus.APPLIED, TransferItemStatus.FAILED);
+        assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(350));
+        assertThat(accountTo.getBalance()).isEqualTo(BigDecimal.valueOf(1150));
+        verify(accountRepository, times(1)).sweepBalanceSlots(1L);
+        // The striped sender's legs are left to the backfill; the recipient is not striped.
+        verify(transactionRepository).insertInChunks(argThat(list -> list.stream()
+                .map(leg -> leg.getTransactionType() == TransactionTypes.TRANSFER
+                        ? String.valueOf(leg.getBalanceAfter()) : leg.getBalanceAfter().toPlainString())
+                .toList()
+                .equals(List.of("null", "550", "null", "1150"))), anyInt());
+    }
+
+    @Test
+    public void transferMoney_ShouldDelegateToLedger_WhenEnabled() {
+        when(ledgerEngine.isEnabled()).thenReturn(true);
+
+        transferServiceImpl.transferMoney(new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(300)));
+
+        verify(ledgerEngine).transfer("1234567890", "0987654321", BigDecimal.valueOf(300));
+        verify(accountRepository, never()).findAllByAccountNumberInForUpdate(anyList());
+    }
+
+    @Test
+    public void transferBatch_ShouldApplyAllTransfers_WhenAllValid() {
+        stubBatchLocks();
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(BatchTransferMode.ALL_OR_NOTHING, List.of(
+                new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(900)),
+                new TransferRequestDTO("0987654321", "1234567890", BigDecimal.valueOf(1400))));
+
+        BatchTransferResultDTO result = transferServiceImpl.transferBatch(request);
+
+        assertThat(result.getApplied()).isEqualTo(2);
+        assertThat(result.getFailed()).isZero();
+        assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(1500));
+        assertThat(accountTo.getBalance()).isEqualTo(BigDecimal.valueOf(0));
+        verify(accountRepository).findAllByIdInForUpdate(List.of(1L, 2L));
+        // A debit and a credit leg per transfer.
+        verify(transactionRepository).insertInChunks(argThat(list -> list.size() == 4), anyInt());
+    }
+
+    @Test
+    public void transferBatch_ShouldWriteNothing_WhenAllOrNothingItemFails() {
+        stubBatchLocks();
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(BatchTransferMode.ALL_OR_NOTHING, List.of(
+                new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(200)),
+                new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(5000))));
+
+        BatchTransferResultDTO result = transferServiceImpl.transferBatch(request);
+
+        assertThat(result.getApplied()).isZero();
+        assertThat(result.getResults()).extracting("status")
+                .containsExactly(TransferItemStatus.SKIPPED, TransferItemStatus.FAILED);
+        assertThat(result.getResults().get(1).getMessage()).isEqualTo("Insufficient funds for transfer amount");
+        assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(1000));
+        verify(transactionRepository, never()).insertInChunks(anyList(), anyInt());
+    }
+
+    @Test
+    public void transferBatch_ShouldSkipFailedItems_InBestEffortMode() {
+        stubBatchLocks();
+        BatchTransferRequestDTO request = new BatchTransferRequestDTO(BatchTransferMode.BEST_EFFORT, List.of(
+                new TransferRequestDTO("1234567890", "nonExistingAccount", BigDecimal.valueOf(200)),
+                new TransferRequestDTO("1234567890", "0987654321", BigDecimal.valueOf(200))));
+
+        BatchTransferResultDTO result = transferServiceImpl.transferBatch(request);
+
+        assertThat(result.getApplied()).isEqualTo(1);
+        assertThat(result.getResults()).extracting("status")
+                .containsExactly(TransferItemStatus.FAILED, TransferItemStatus.APPLIED);
+        assertThat(result.getResults().get(0).getMessage()).isEqualTo("Account not found: nonExistingAccount");
+        assertThat(accountFrom.getBalance()).isEqualTo(BigDecimal.valueOf(800));
+        assertThat(accountTo.getBalance()).isEqualTo(BigDecimal.valueOf(700));
+    }
+
+    @Test
+    public void transferBatch_ShouldThrowException_WhenBatchIsEmpty() {
+        assertThatThrownBy(() -> transferServiceImpl.transferBatch(
+                new BatchTransferRequestDTO(BatchTransferMode.BEST_EFFORT, List.of())))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Batch must contain at least one transfer");
+    }
+
+    private void stubBatchLocks() {
+        when(accountRepository.findIdsByAccountNumberIn(anyCollection())).thenReturn(List.of(2L, 1L));
+        when(accountRepository.findAllByIdInForUpdate(List.of(1L, 2L))).thenReturn(List.of(accountFrom, accountTo));
     }
 }